@@ -0,0 +1,78 @@
+package com.haven.storage.benchmark;
+
+import com.haven.storage.domain.model.enums.SupportedFileType;
+import com.haven.storage.utils.FileTypeDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件类型检测基准
+ * <p>
+ * 对比魔数检测（Tika）与扩展名、MIME检测的开销。样本只包含文件头，尾部以零填充到 64KB，
+ * 与上传时检测读取的数据量相当。
+ *
+ * @author HavenButler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTypeDetectorBenchmark {
+
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    @Param({"jpeg", "png", "pdf"})
+    private String format;
+
+    private FileTypeDetector detector;
+    private byte[] sample;
+    private String fileName;
+    private String mimeType;
+
+    @Setup
+    public void setUp() {
+        detector = new FileTypeDetector();
+        byte[] header = switch (format) {
+            case "jpeg" -> new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 'J', 'F', 'I', 'F', 0x00};
+            case "png" -> new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+            default -> "%PDF-1.7\n".getBytes();
+        };
+        sample = Arrays.copyOf(header, SAMPLE_SIZE);
+        fileName = "IMG_20240101_120000." + (format.equals("jpeg") ? "jpg" : format);
+        mimeType = switch (format) {
+            case "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            default -> "application/pdf";
+        };
+    }
+
+    @Benchmark
+    public SupportedFileType detectByContent() {
+        return detector.detectByContent(new ByteArrayInputStream(sample));
+    }
+
+    @Benchmark
+    public SupportedFileType detectByExtension() {
+        return detector.detectByExtension(fileName);
+    }
+
+    @Benchmark
+    public SupportedFileType detectByMime() {
+        return detector.detectByMime(mimeType);
+    }
+}
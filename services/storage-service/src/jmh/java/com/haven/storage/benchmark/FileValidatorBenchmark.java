@@ -0,0 +1,79 @@
+package com.haven.storage.benchmark;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.utils.FileTypeDetector;
+import com.haven.storage.validator.UnifiedFileValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统一文件校验器基准
+ * <p>
+ * 测量下载路径上的读权限判定：所有者、同家庭成员、公开文件和拒绝四条分支。
+ * 拒绝分支使用私有文件，不会查询家庭成员关系，因此无需注入 FamilyMembershipService。
+ *
+ * @author HavenButler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileValidatorBenchmark {
+
+    private UnifiedFileValidator validator;
+    private FileMetadata familyFile;
+    private FileMetadata publicFile;
+    private FileMetadata privateFile;
+
+    @Setup
+    public void setUp() {
+        validator = new UnifiedFileValidator(new FileTypeDetector(), null);
+        familyFile = metadata("file-family", FileVisibility.FAMILY);
+        publicFile = metadata("file-public", FileVisibility.PUBLIC);
+        privateFile = metadata("file-private", FileVisibility.PRIVATE);
+    }
+
+    @Benchmark
+    public boolean ownerRead() {
+        return validator.validateFileReadPermission(familyFile, "user-owner", "family-001", null);
+    }
+
+    @Benchmark
+    public boolean familyMemberRead() {
+        return validator.validateFileReadPermission(familyFile, "user-member", "family-001", "family-001");
+    }
+
+    @Benchmark
+    public boolean publicRead() {
+        return validator.validateFileReadPermission(publicFile, "user-guest", "family-002", null);
+    }
+
+    @Benchmark
+    public boolean deniedRead() {
+        return validator.validateFileReadPermission(privateFile, "user-guest", "family-002", null);
+    }
+
+    private static FileMetadata metadata(String fileId, FileVisibility visibility) {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setFileId(fileId);
+        metadata.setFamilyId("family-001");
+        metadata.setOwnerId("user-owner");
+        metadata.setFileVisibility(visibility);
+        metadata.setFileSize(1024 * 1024);
+        metadata.setDeleted(0);
+        return metadata;
+    }
+}
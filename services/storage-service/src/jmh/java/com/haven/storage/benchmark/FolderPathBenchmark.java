@@ -0,0 +1,39 @@
+package com.haven.storage.benchmark;
+
+import com.haven.storage.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件夹路径标准化基准
+ * <p>
+ * 覆盖已标准化、缺少前导斜杠、带尾部斜杠和 Windows 分隔符四种输入
+ *
+ * @author HavenButler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FolderPathBenchmark {
+
+    @Param({"/photos/2024/01", "photos/2024/01", "/photos/2024/01/", "photos\\2024\\01\\"})
+    private String path;
+
+    @Benchmark
+    public String formatFolderPath() {
+        return FileUtils.formatFolderPath(path);
+    }
+}
@@ -0,0 +1,85 @@
+package com.haven.storage.benchmark;
+
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.SupportedFileType;
+import com.haven.storage.domain.model.file.FileBasicMetadata;
+import com.haven.storage.domain.model.file.ProcessResult;
+import com.haven.storage.processor.context.FileProcessContext;
+import com.haven.storage.processor.interceptor.FileInterceptorChain;
+import com.haven.storage.processor.interceptor.FileProcessInterceptor;
+import com.haven.storage.processor.interceptor.impl.BasicValidationInterceptor;
+import com.haven.storage.processor.interceptor.impl.MetadataCreationInterceptor;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件处理拦截器链基准
+ * <p>
+ * 上传请求经过不依赖外部资源的拦截器（基础校验、元数据创建）后到达终点，测量链式调度和校验本身的开销。
+ * 权限、存储和数据库拦截器依赖 Redis/数据库，不在本基准范围内。
+ *
+ * @author HavenButler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorChainBenchmark {
+
+    private static final ProcessResult TERMINAL_RESULT = ProcessResult.success("ok");
+
+    private List<FileProcessInterceptor> interceptors;
+    private FileBasicMetadata metadata;
+
+    @Setup
+    public void setUp() {
+        interceptors = List.of(new BasicValidationInterceptor(), new MetadataCreationInterceptor());
+
+        metadata = new FileBasicMetadata();
+        metadata.setFamilyId("family-001");
+        metadata.setOwnerId("user-001");
+        metadata.setFileName("IMG_20240101_120000.jpg");
+        metadata.setFileFormat("jpg");
+        metadata.setFileType(SupportedFileType.findByExtension("jpg"));
+        metadata.setFileVisibility(FileVisibility.FAMILY);
+        metadata.setFileSize(2L * 1024 * 1024);
+        metadata.setFolderPath("/photos/2024");
+    }
+
+    @Benchmark
+    public ProcessResult uploadChain() {
+        FileProcessContext context = new FileProcessContext();
+        context.setTraceId("bench-trace");
+        context.setOperationType(FileOperation.UPLOAD);
+        context.setFileBasicMetadata(metadata);
+        context.setBufferedSource(new Buffer());
+        return proceed(0, context);
+    }
+
+    private ProcessResult proceed(int index, FileProcessContext context) {
+        if (index >= interceptors.size()) {
+            return TERMINAL_RESULT;
+        }
+        FileProcessInterceptor interceptor = interceptors.get(index);
+        if (!interceptor.supportedOperations().contains(context.getOperationType())) {
+            return proceed(index + 1, context);
+        }
+        FileInterceptorChain next = nextContext -> proceed(index + 1, nextContext);
+        return interceptor.intercept(context, next);
+    }
+}
@@ -0,0 +1,127 @@
+package com.haven.storage.benchmark;
+
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.operation.storage.adapter.LocalStorageAdapter;
+import com.haven.storage.operation.storage.cache.DiskReadCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘读写吞吐基准
+ * <p>
+ * 在临时目录上直接测量 LocalStorageAdapter 的上传（临时文件写入 + 原子重命名）和按位置读取，
+ * 以及本地读缓存命中时的读取开销。结果以每次操作耗时给出，吞吐 = 文件大小 / 耗时。
+ *
+ * @author HavenButler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalDiskIoBenchmark {
+
+    @Param({"65536", "4194304"})
+    private int fileSize;
+
+    private static final String BUCKET = "local-family-bench";
+    private static final String DIRECTORY = "bench/";
+    private static final String STORED_NAME = "stored.bin";
+
+    private Path directory;
+    private LocalStorageAdapter adapter;
+    private byte[] payload;
+    private String payloadChecksum;
+    private DiskReadCache diskReadCache;
+    private int writeSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("storage-jmh-");
+        payload = new byte[fileSize];
+        new Random(42).nextBytes(payload);
+        payloadChecksum = ByteString.of(payload).sha256().hex();
+
+        // 上传和按位置读取不查询存储数据，无需仓库
+        adapter = new LocalStorageAdapter(directory.resolve("storage").toString(), null);
+        if (!adapter.uploadFile(storageInfo(STORED_NAME), remoteSource())) {
+            throw new IOException("预置基准文件写入失败");
+        }
+
+        diskReadCache = new DiskReadCache(new SimpleMeterRegistry(), true,
+                directory.resolve("cache").toString(), 1024L * 1024 * 1024, 64L * 1024 * 1024);
+        // 预先填充，基准测量的是命中路径
+        try (BufferedSource ignored = diskReadCache.open("LOCAL:bench", payloadChecksum, this::remoteSource)) {
+            // 仅用于填充
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * 上传路径：从内存数据源流式写入，覆盖循环使用的16个对象键
+     */
+    @Benchmark
+    public boolean upload() {
+        return adapter.uploadFile(storageInfo("upload-" + (writeSequence++ % 16) + ".bin"), remoteSource());
+    }
+
+    /**
+     * 下载路径：按桶名和对象键读取整个文件
+     */
+    @Benchmark
+    public long download() throws IOException {
+        try (BufferedSource source = adapter.openObject(BUCKET, DIRECTORY + STORED_NAME)) {
+            return source.readAll(Okio.blackhole());
+        }
+    }
+
+    /**
+     * 读缓存命中路径：查找条目并读取缓存文件
+     */
+    @Benchmark
+    public long cachedDownload() throws IOException {
+        try (BufferedSource source = diskReadCache.open("LOCAL:bench", payloadChecksum, this::remoteSource)) {
+            return source.readAll(Okio.blackhole());
+        }
+    }
+
+    private FileStorageInfo storageInfo(String fileName) {
+        return new FileStorageInfo(StorageType.LOCAL, BUCKET, fileName, DIRECTORY).setFileSize((long) fileSize);
+    }
+
+    private BufferedSource remoteSource() {
+        return new Buffer().write(payload);
+    }
+}
@@ -0,0 +1,69 @@
+package com.haven.storage.benchmark;
+
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.UserRole;
+import com.haven.storage.permission.CompiledPermissionMatrix;
+import com.haven.storage.permission.PermissionMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限矩阵基准
+ * <p>
+ * 每次调用遍历全部 角色 × 可见性 × 操作 组合，对比 switch 实现与预编译位图实现。
+ *
+ * @author HavenButler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionMatrixBenchmark {
+
+    private UserRole[] roles;
+    private FileVisibility[] visibilities;
+    private FileOperation[] operations;
+
+    @Setup
+    public void setUp() {
+        roles = UserRole.values();
+        visibilities = FileVisibility.values();
+        operations = FileOperation.values();
+    }
+
+    @Benchmark
+    public void permissionMatrix(Blackhole blackhole) {
+        for (UserRole role : roles) {
+            for (FileVisibility visibility : visibilities) {
+                for (FileOperation operation : operations) {
+                    blackhole.consume(PermissionMatrix.hasPermission(role, visibility, operation));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void compiledPermissionMatrix(Blackhole blackhole) {
+        for (UserRole role : roles) {
+            for (FileVisibility visibility : visibilities) {
+                for (FileOperation operation : operations) {
+                    blackhole.consume(CompiledPermissionMatrix.hasPermission(role, visibility, operation));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.haven.storage.loadtest;
+
+import com.haven.storage.StorageServiceApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 进程内启动的存储服务
+ * <p>
+ * PostgreSQL 和 Redis 由 Testcontainers 启动，服务使用本地存储适配器和随机端口，
+ * 表结构由 Hibernate 按实体自动创建。关闭时依次停止服务和容器。
+ *
+ * @author HavenButler
+ */
+@Slf4j
+public class EmbeddedStorageApp implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres;
+    private final GenericContainer<?> redis;
+    private final ConfigurableApplicationContext context;
+    private final String baseUrl;
+
+    private EmbeddedStorageApp(PostgreSQLContainer<?> postgres, GenericContainer<?> redis,
+                               ConfigurableApplicationContext context, String baseUrl) {
+        this.postgres = postgres;
+        this.redis = redis;
+        this.context = context;
+        this.baseUrl = baseUrl;
+    }
+
+    public static EmbeddedStorageApp start() throws IOException {
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"))
+                .withDatabaseName("storage_db");
+        GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+                .withExposedPorts(6379);
+        postgres.start();
+        redis.start();
+        log.info("压测依赖已启动: postgres={}, redis={}:{}", postgres.getJdbcUrl(), redis.getHost(), redis.getMappedPort(6379));
+
+        Path storageDir = Files.createTempDirectory("storage-loadtest-");
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(StorageServiceApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "spring.datasource.url=" + postgres.getJdbcUrl(),
+                            "spring.datasource.username=" + postgres.getUsername(),
+                            "spring.datasource.password=" + postgres.getPassword(),
+                            "spring.jpa.hibernate.ddl-auto=update",
+                            "spring.data.redis.host=" + redis.getHost(),
+                            "spring.data.redis.port=" + redis.getMappedPort(6379),
+                            "spring.data.redis.password=",
+                            "spring.boot.admin.client.enabled=false",
+                            "storage.file.storage-type=local",
+                            "storage.file.local.base-path=" + storageDir,
+                            "logging.level.com.haven=WARN")
+                    .run();
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            log.info("进程内存储服务已启动: {}, storageDir={}", baseUrl, storageDir);
+            return new EmbeddedStorageApp(postgres, redis, context, baseUrl);
+        } catch (RuntimeException e) {
+            redis.stop();
+            postgres.stop();
+            throw e;
+        }
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        redis.stop();
+        postgres.stop();
+    }
+}
@@ -0,0 +1,80 @@
+package com.haven.storage.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个接口的延迟和结果统计
+ * <p>
+ * 延迟以微秒记录在 HdrHistogram Recorder 中，记录线程无锁；
+ * 报告线程按间隔取出区间直方图，并累加到整体直方图。
+ *
+ * @author HavenButler
+ */
+public class EndpointStats {
+
+    /** 可记录的最大延迟：10分钟 */
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(MAX_TRACKABLE_MICROS, 3);
+    private final Histogram total = new Histogram(MAX_TRACKABLE_MICROS, 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private Histogram interval;
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param latencyNanos 从计划发送时间到收到完整响应的耗时
+     * @param outcome      结果分类（HTTP状态码、timeout、error等）
+     * @param payloadBytes 上传或下载的字节数
+     * @param measured     是否计入延迟统计（预热期间为false）
+     */
+    public void record(long latencyNanos, String outcome, long payloadBytes, boolean measured) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        if (!measured) {
+            return;
+        }
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_TRACKABLE_MICROS));
+        bytes.addAndGet(payloadBytes);
+    }
+
+    /**
+     * 取出自上次调用以来的区间直方图，并累加到整体直方图（仅由报告线程调用）
+     */
+    public synchronized Histogram sampleInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return interval;
+    }
+
+    public synchronized Histogram getTotal() {
+        return total;
+    }
+
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> snapshot.put(outcome, count.sum()));
+        return snapshot;
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,100 @@
+package com.haven.storage.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 上传文件大小分布
+ * <p>
+ * 由若干 (大小, 权重) 档位组成，按权重随机选档，档内在 [大小/2, 大小] 之间均匀取值，
+ * 避免所有请求大小完全相同。格式示例：4KB=40,256KB=35,4MB=20,32MB=5
+ *
+ * @author HavenButler
+ */
+public final class FileSizeDistribution {
+
+    private final List<Bucket> buckets;
+    private final int totalWeight;
+
+    private FileSizeDistribution(List<Bucket> buckets) {
+        this.buckets = buckets;
+        this.totalWeight = buckets.stream().mapToInt(Bucket::weight).sum();
+    }
+
+    public static FileSizeDistribution parse(String spec) {
+        List<Bucket> buckets = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("文件大小分布格式应为 size=weight: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                buckets.add(new Bucket(parseSize(pair[0].trim()), weight));
+            }
+        }
+        if (buckets.isEmpty()) {
+            throw new IllegalArgumentException("文件大小分布不能为空: " + spec);
+        }
+        return new FileSizeDistribution(buckets);
+    }
+
+    /**
+     * 随机取一个文件大小
+     */
+    public int sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(totalWeight);
+        for (Bucket bucket : buckets) {
+            pick -= bucket.weight();
+            if (pick < 0) {
+                int upper = bucket.size();
+                int lower = Math.max(1, upper / 2);
+                return lower + random.nextInt(upper - lower + 1);
+            }
+        }
+        return buckets.get(buckets.size() - 1).size();
+    }
+
+    /**
+     * 分布中的最大文件大小，用于预分配上传数据
+     */
+    public int maxSize() {
+        return buckets.stream().mapToInt(Bucket::size).max().orElse(0);
+    }
+
+    private static int parseSize(String value) {
+        String upper = value.toUpperCase(Locale.ROOT);
+        long multiplier = 1;
+        if (upper.endsWith("KB")) {
+            multiplier = 1024;
+        } else if (upper.endsWith("MB")) {
+            multiplier = 1024 * 1024;
+        } else if (upper.endsWith("GB")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        String digits = upper.replaceAll("[A-Z]", "");
+        long size = Long.parseLong(digits) * multiplier;
+        if (size <= 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("文件大小超出范围: " + value);
+        }
+        return (int) size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Bucket bucket : buckets) {
+            if (!builder.isEmpty()) {
+                builder.append(',');
+            }
+            builder.append(bucket.size()).append("B=").append(bucket.weight());
+        }
+        return builder.toString();
+    }
+
+    private record Bucket(int size, int weight) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.haven.storage.loadtest;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数
+ * <p>
+ * 命令行参数格式为 --key=value，未指定的参数使用默认值：
+ * <pre>
+ * --base-url        被测服务地址，为空时在进程内启动服务（默认空）
+ * --rate            目标到达速率，请求/秒（默认20）
+ * --duration        压测时长，秒（默认60）
+ * --warmup          预热时长，秒，预热期间的延迟不计入结果（默认10）
+ * --arrival         到达过程：poisson（泊松）或 constant（匀速），默认poisson
+ * --mix             接口权重（默认 upload=20,download=50,list=20,search=10）
+ * --sizes           上传文件大小分布，大小=权重（默认 4KB=40,256KB=35,4MB=20,32MB=5）
+ * --families        模拟的家庭数（默认20）
+ * --max-in-flight   最大并发请求数，超出后排队，排队时间计入延迟（默认256）
+ * --report-interval 中间报告间隔，秒（默认10）
+ * --histogram-log   HdrHistogram 日志输出路径，可用 HistogramLogAnalyzer 分析（默认不输出）
+ * --timeout         单个请求超时，秒（默认60）
+ * </pre>
+ *
+ * @author HavenButler
+ */
+@Getter
+public class LoadTestOptions {
+
+    private String baseUrl;
+    private double rate = 20;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private boolean poissonArrivals = true;
+    private Map<Endpoint, Integer> mix = parseMix("upload=20,download=50,list=20,search=10");
+    private FileSizeDistribution sizes = FileSizeDistribution.parse("4KB=40,256KB=35,4MB=20,32MB=5");
+    private int families = 20;
+    private int maxInFlight = 256;
+    private Duration reportInterval = Duration.ofSeconds(10);
+    private String histogramLog;
+    private Duration timeout = Duration.ofSeconds(60);
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "base-url" -> options.baseUrl = value.isBlank() ? null : value.replaceAll("/+$", "");
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                case "warmup" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                case "arrival" -> options.poissonArrivals = !"constant".equalsIgnoreCase(value);
+                case "mix" -> options.mix = parseMix(value);
+                case "sizes" -> options.sizes = FileSizeDistribution.parse(value);
+                case "families" -> options.families = Integer.parseInt(value);
+                case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "report-interval" -> options.reportInterval = Duration.ofSeconds(Long.parseLong(value));
+                case "histogram-log" -> options.histogramLog = value;
+                case "timeout" -> options.timeout = Duration.ofSeconds(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("未知参数: --" + entry.getKey());
+            }
+        }
+        if (options.rate <= 0 || options.families <= 0 || options.maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate、families、max-in-flight 必须大于0");
+        }
+        return options;
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String value) {
+        Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("接口权重格式应为 name=weight: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个权重大于0的接口");
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "baseUrl=" + (baseUrl != null ? baseUrl : "<进程内>")
+                + ", rate=" + rate + "/s"
+                + ", duration=" + duration.toSeconds() + "s"
+                + ", warmup=" + warmup.toSeconds() + "s"
+                + ", arrival=" + (poissonArrivals ? "poisson" : "constant")
+                + ", mix=" + mix
+                + ", sizes=" + sizes
+                + ", families=" + families
+                + ", maxInFlight=" + maxInFlight;
+    }
+
+    /**
+     * 被压测的接口
+     */
+    public enum Endpoint {
+        UPLOAD,
+        DOWNLOAD,
+        LIST,
+        SEARCH
+    }
+}
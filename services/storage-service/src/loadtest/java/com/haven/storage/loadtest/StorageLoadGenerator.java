@@ -0,0 +1,375 @@
+package com.haven.storage.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haven.storage.loadtest.LoadTestOptions.Endpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 存储服务端到端压测工具
+ * <p>
+ * 按开环模型驱动 StorageController 的上传、下载、列表和搜索接口：
+ * - 到达时间由目标速率决定（泊松或匀速），与服务端响应快慢无关，服务变慢时请求会排队而不是减少发送
+ * - 延迟从计划发送时间开始计算，排队时间计入延迟，避免协调遗漏（coordinated omission）低估尾延迟
+ * - 每个接口一个 HdrHistogram，按间隔输出区间分位数，结束时输出整体分位数、吞吐和结果分布
+ * <p>
+ * 未指定 --base-url 时在进程内启动服务（本地存储适配器 + Testcontainers 提供的 PostgreSQL/Redis）。
+ * 参数说明见 {@link LoadTestOptions}。
+ *
+ * @author HavenButler
+ */
+@Slf4j
+public final class StorageLoadGenerator {
+
+    private static final String API_PREFIX = "/api/v1/storage";
+    private static final String FOLDER_PATH = "/loadtest";
+    private static final String SEARCH_KEYWORD = "loadtest";
+    private static final int KNOWN_FILES_PER_FAMILY = 1000;
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final List<List<String>> knownFiles = new ArrayList<>();
+    private final byte[] payload;
+    private final AtomicLong uploadSequence = new AtomicLong();
+    private final Endpoint[] endpointWheel;
+
+    private StorageLoadGenerator(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats(endpoint.name()));
+        }
+        for (int i = 0; i < options.getFamilies(); i++) {
+            knownFiles.add(new ArrayList<>());
+        }
+        this.payload = textPayload(options.getSizes().maxSize());
+        this.endpointWheel = buildWheel(options.getMix());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        log.info("压测参数: {}", options);
+
+        if (options.getBaseUrl() != null) {
+            new StorageLoadGenerator(options, options.getBaseUrl()).run();
+            return;
+        }
+        try (EmbeddedStorageApp app = EmbeddedStorageApp.start()) {
+            new StorageLoadGenerator(options, app.getBaseUrl()).run();
+        }
+    }
+
+    /**
+     * 执行压测：预热 + 正式阶段，结束后等待在途请求完成并输出报告
+     */
+    private void run() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(options.getMaxInFlight(), namedThreads("loadtest-worker"));
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(namedThreads("loadtest-reporter"));
+        HistogramLogWriter logWriter = openHistogramLog();
+
+        long start = System.nanoTime();
+        long measureFrom = start + options.getWarmup().toNanos();
+        long end = measureFrom + options.getDuration().toNanos();
+        long reportMillis = options.getReportInterval().toMillis();
+        reporter.scheduleAtFixedRate(() -> reportInterval(logWriter, measureFrom),
+                reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+        long scheduled = 0;
+        long nextNanos = start;
+        while (nextNanos < end) {
+            long waitNanos = nextNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            long intendedStart = nextNanos;
+            Endpoint endpoint = endpointWheel[ThreadLocalRandom.current().nextInt(endpointWheel.length)];
+            int familyIndex = ThreadLocalRandom.current().nextInt(options.getFamilies());
+            workers.execute(() -> execute(endpoint, familyIndex, intendedStart, intendedStart >= measureFrom));
+            scheduled++;
+            nextNanos += nextInterArrivalNanos();
+        }
+
+        workers.shutdown();
+        if (!workers.awaitTermination(options.getTimeout().toSeconds() * 2, TimeUnit.SECONDS)) {
+            log.warn("部分请求未在超时时间内完成，强制结束");
+            workers.shutdownNow();
+        }
+        reporter.shutdownNow();
+        reportInterval(logWriter, measureFrom);
+        if (logWriter != null) {
+            logWriter.getPrintStream().close();
+        }
+        reportSummary(scheduled, (System.nanoTime() - measureFrom) / 1e9);
+    }
+
+    // ==================== 请求执行 ====================
+
+    private void execute(Endpoint endpoint, int familyIndex, long intendedStart, boolean measured) {
+        String familyId = "loadtest-family-" + familyIndex;
+        String userId = "loadtest-user-" + familyIndex;
+
+        // 还没有可下载的文件时改为列表请求，保证到达速率不变
+        String fileId = endpoint == Endpoint.DOWNLOAD ? pickKnownFile(familyIndex) : null;
+        Endpoint actual = endpoint == Endpoint.DOWNLOAD && fileId == null ? Endpoint.LIST : endpoint;
+
+        String outcome;
+        long bytes = 0;
+        try {
+            switch (actual) {
+                case UPLOAD -> {
+                    int size = options.getSizes().sample();
+                    HttpResponse<byte[]> response = httpClient.send(uploadRequest(familyId, userId, size),
+                            HttpResponse.BodyHandlers.ofByteArray());
+                    outcome = String.valueOf(response.statusCode());
+                    bytes = size;
+                    if (response.statusCode() == 200) {
+                        rememberUploadedFile(familyIndex, response.body());
+                    }
+                }
+                case DOWNLOAD -> {
+                    HttpResponse<InputStream> response = httpClient.send(
+                            request(API_PREFIX + "/files/download/" + fileId + "?familyId=" + encode(familyId), familyId, userId).GET().build(),
+                            HttpResponse.BodyHandlers.ofInputStream());
+                    try (InputStream body = response.body()) {
+                        bytes = body.transferTo(OutputStream.nullOutputStream());
+                    }
+                    outcome = String.valueOf(response.statusCode());
+                }
+                case LIST -> {
+                    HttpResponse<Void> response = httpClient.send(
+                            request(API_PREFIX + "/files/list?familyId=" + encode(familyId) + "&folderPath=" + encode(FOLDER_PATH),
+                                    familyId, userId).GET().build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    outcome = String.valueOf(response.statusCode());
+                }
+                case SEARCH -> {
+                    HttpResponse<Void> response = httpClient.send(
+                            request(API_PREFIX + "/files/search?familyId=" + encode(familyId) + "&keyword=" + encode(SEARCH_KEYWORD),
+                                    familyId, userId).GET().build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    outcome = String.valueOf(response.statusCode());
+                }
+                default -> throw new IllegalStateException("未知接口: " + actual);
+            }
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        } catch (Exception e) {
+            outcome = "error:" + e.getClass().getSimpleName();
+        }
+        stats.get(actual).record(System.nanoTime() - intendedStart, outcome, bytes, measured);
+    }
+
+    private HttpRequest.Builder request(String path, String familyId, String userId) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(options.getTimeout())
+                .header("X-User-ID", userId)
+                .header("X-Family-ID", familyId)
+                .header("X-Trace-ID", "loadtest-" + UUID.randomUUID());
+    }
+
+    private HttpRequest uploadRequest(String familyId, String userId, int size) throws IOException {
+        String boundary = "----loadtest" + UUID.randomUUID().toString().replace("-", "");
+        String fileName = SEARCH_KEYWORD + "-" + uploadSequence.incrementAndGet() + ".txt";
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(size + 1024);
+        writeField(body, boundary, "familyId", familyId);
+        writeField(body, boundary, "uploaderUserId", userId);
+        writeField(body, boundary, "folderPath", FOLDER_PATH);
+        writeField(body, boundary, "visibility", "FAMILY");
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(payload, 0, size);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return request(API_PREFIX + "/files/upload", familyId, userId)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static void writeField(ByteArrayOutputStream body, String boundary, String name, String value) throws IOException {
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void rememberUploadedFile(int familyIndex, byte[] responseBody) {
+        try {
+            JsonNode fileId = objectMapper.readTree(responseBody).path("data").path("fileId");
+            if (fileId.isTextual()) {
+                List<String> files = knownFiles.get(familyIndex);
+                synchronized (files) {
+                    if (files.size() >= KNOWN_FILES_PER_FAMILY) {
+                        files.set(ThreadLocalRandom.current().nextInt(files.size()), fileId.asText());
+                    } else {
+                        files.add(fileId.asText());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("解析上传响应失败: {}", e.getMessage());
+        }
+    }
+
+    private String pickKnownFile(int familyIndex) {
+        List<String> files = knownFiles.get(familyIndex);
+        synchronized (files) {
+            return files.isEmpty() ? null : files.get(ThreadLocalRandom.current().nextInt(files.size()));
+        }
+    }
+
+    // ==================== 报告 ====================
+
+    private void reportInterval(HistogramLogWriter logWriter, long measureFrom) {
+        if (System.nanoTime() < measureFrom) {
+            log.info("预热中...");
+            return;
+        }
+        StringBuilder line = new StringBuilder("区间延迟(ms)");
+        for (EndpointStats endpointStats : stats.values()) {
+            Histogram interval = endpointStats.sampleInterval();
+            if (logWriter != null && interval.getTotalCount() > 0) {
+                interval.setTag(endpointStats.getName());
+                logWriter.outputIntervalHistogram(interval);
+            }
+            if (interval.getTotalCount() == 0) {
+                continue;
+            }
+            line.append(String.format(" | %s n=%d p50=%.1f p99=%.1f max=%.1f",
+                    endpointStats.getName(), interval.getTotalCount(),
+                    millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                    millis(interval.getMaxValue())));
+        }
+        log.info(line.toString());
+    }
+
+    private void reportSummary(long scheduled, double measuredSeconds) {
+        PrintStream out = System.out;
+        out.println();
+        out.println("==================== 压测结果 ====================");
+        out.println(options);
+        out.printf("计划请求数(含预热): %d, 统计时长: %.1fs%n", scheduled, measuredSeconds);
+        out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s %12s  %s%n",
+                "接口", "请求数", "吞吐/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "MB/s", "结果分布");
+        for (EndpointStats endpointStats : stats.values()) {
+            Histogram total = endpointStats.getTotal();
+            if (total.getTotalCount() == 0 && endpointStats.getOutcomes().isEmpty()) {
+                continue;
+            }
+            out.printf("%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %12.2f  %s%n",
+                    endpointStats.getName(),
+                    total.getTotalCount(),
+                    total.getTotalCount() / measuredSeconds,
+                    millis(total.getValueAtPercentile(50)),
+                    millis(total.getValueAtPercentile(90)),
+                    millis(total.getValueAtPercentile(99)),
+                    millis(total.getValueAtPercentile(99.9)),
+                    millis(total.getMaxValue()),
+                    endpointStats.getBytes() / measuredSeconds / (1024 * 1024),
+                    endpointStats.getOutcomes());
+        }
+        out.println("注：延迟从计划发送时间计算，包含客户端排队时间");
+    }
+
+    private HistogramLogWriter openHistogramLog() throws IOException {
+        if (options.getHistogramLog() == null) {
+            return null;
+        }
+        HistogramLogWriter writer = new HistogramLogWriter(options.getHistogramLog());
+        writer.outputComment("storage-service load test: " + options);
+        writer.outputLogFormatVersion();
+        writer.outputStartTime(System.currentTimeMillis());
+        writer.outputLegend();
+        return writer;
+    }
+
+    // ==================== 内部方法 ====================
+
+    private long nextInterArrivalNanos() {
+        double meanNanos = 1e9 / options.getRate();
+        if (!options.isPoissonArrivals()) {
+            return (long) meanNanos;
+        }
+        // 泊松过程的到达间隔服从指数分布
+        return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanNanos);
+    }
+
+    private static Endpoint[] buildWheel(Map<Endpoint, Integer> mix) {
+        List<Endpoint> wheel = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(endpoint);
+            }
+        });
+        return wheel.toArray(new Endpoint[0]);
+    }
+
+    /**
+     * 生成可读文本作为上传内容，保证服务端按 text/plain 识别
+     */
+    private static byte[] textPayload(int size) {
+        byte[] data = new byte[size];
+        String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789 ";
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            data[i] = (i % 80 == 79) ? (byte) '\n' : (byte) alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return data;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -5,6 +5,7 @@ import com.haven.base.utils.TraceIdUtil;
 import com.haven.storage.domain.model.file.FileDownloadResult;
 import com.haven.storage.domain.model.entity.FileMetadata;
 import com.haven.storage.domain.model.file.FileUploadResult;
+import com.haven.storage.operation.storage.PresignedUrlCache;
 import com.haven.storage.operation.storage.StorageAdapter;
 import io.minio.*;
 import io.minio.http.Method;
@@ -49,6 +50,7 @@ public class MinIOStorageAdapter implements StorageAdapter {
 
     private final MinioClient minioClient;
     private final FileTypeDetector fileTypeDetector;
+    private final PresignedUrlCache presignedUrlCache;
 
     @Autowired
     private UnifiedFileValidator storageServiceValidator;
@@ -243,6 +245,15 @@ public class MinIOStorageAdapter implements StorageAdapter {
 
     @Override
     public String getFileAccessUrl(String fileId, String familyId, int expireMinutes) {
+        // 缓存命中时跳过对象查找和签名计算
+        return presignedUrlCache.getOrSign(familyId, fileId, expireMinutes,
+                expiry -> signFileAccessUrl(fileId, familyId, (int) expiry.toMinutes()));
+    }
+
+    /**
+     * 查找对象并生成预签名URL（未经缓存）
+     */
+    private String signFileAccessUrl(String fileId, String familyId, int expireMinutes) {
         try {
             String bucketName = buildBucketName(familyId);
             String objectName = findObjectByFileId(bucketName, fileId);
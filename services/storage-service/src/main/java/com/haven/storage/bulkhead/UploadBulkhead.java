@@ -0,0 +1,265 @@
+package com.haven.storage.bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 上传隔离舱 - 按家庭隔离上传并发和在途字节
+ *
+ * <p>防止单个家庭批量导入（如手机备份）占满 servlet 线程和存储连接，导致其他家庭的上传停滞。</p>
+ *
+ * <p>准入规则：</p>
+ * <ul>
+ *   <li>家庭级：在途上传数（含排队）不超过 per-family-max-concurrent，在途字节不超过 per-family-max-bytes，
+ *       超限立即拒绝，不排队</li>
+ *   <li>全局级：在途上传数和在途字节有上限，满载时进入加权公平队列短暂等待，超过 max-queue-wait-millis 拒绝</li>
+ *   <li>公平调度：有空位时优先放行 在途数/权重 最小的家庭，同一家庭内先到先得；
+ *       重度导入的家庭不会挤占小家庭的准入机会</li>
+ *   <li>拒绝时根据近期平均上传耗时估算 Retry-After</li>
+ * </ul>
+ *
+ * <p>注意：multipart 请求体在进入控制器前已由容器接收，隔离舱保护的是之后的处理线程和存储连接。</p>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Component
+public class UploadBulkhead {
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Map<String, FamilyState> families = new HashMap<>();
+
+    private int globalInFlight;
+    private long globalInFlightBytes;
+    private int queuedWaiters;
+    /** 近期上传耗时的指数加权平均（毫秒），用于估算 Retry-After */
+    private double averageUploadMillis = 1000;
+
+    @Value("${storage.upload.bulkhead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.upload.bulkhead.max-concurrent:64}")
+    private int maxConcurrent;
+
+    @Value("${storage.upload.bulkhead.max-bytes-in-flight:2147483648}")
+    private long maxBytesInFlight;
+
+    @Value("${storage.upload.bulkhead.per-family-max-concurrent:4}")
+    private int perFamilyMaxConcurrent;
+
+    @Value("${storage.upload.bulkhead.per-family-max-bytes:536870912}")
+    private long perFamilyMaxBytes;
+
+    @Value("${storage.upload.bulkhead.max-queue-size:128}")
+    private int maxQueueSize;
+
+    @Value("${storage.upload.bulkhead.max-queue-wait-millis:2000}")
+    private long maxQueueWaitMillis;
+
+    /** 家庭权重，未配置的家庭权重为1 */
+    @Value("#{${storage.upload.bulkhead.family-weights:{:}}}")
+    private Map<String, Integer> familyWeights = Collections.emptyMap();
+
+    /**
+     * 申请上传许可
+     *
+     * @param familyId 家庭ID
+     * @param bytes    本次上传的字节数（未知时传0）
+     * @return 上传许可，上传结束后必须关闭
+     * @throws UploadRejectedException 家庭超限、队列已满或排队超时
+     */
+    public UploadPermit acquire(String familyId, long bytes) {
+        if (!enabled) {
+            return new UploadPermit(this, familyId, 0, false);
+        }
+        long size = Math.max(bytes, 0);
+
+        lock.lock();
+        try {
+            FamilyState family = families.computeIfAbsent(familyId, id -> new FamilyState(weightOf(id)));
+
+            // 1. 家庭级限制：超限立即拒绝；家庭没有在途上传时允许单个超大文件通过
+            if (family.inFlight + family.waiters.size() >= perFamilyMaxConcurrent) {
+                throw reject(familyId, "家庭并发上传数已达上限" + perFamilyMaxConcurrent);
+            }
+            if (family.inFlight > 0 && family.inFlightBytes + family.queuedBytes + size > perFamilyMaxBytes) {
+                throw reject(familyId, "家庭上传中数据量已达上限");
+            }
+
+            // 2. 全局有空位且无人排队时直接放行
+            if (queuedWaiters == 0 && hasGlobalCapacity(size)) {
+                admit(family, size);
+                return new UploadPermit(this, familyId, size, true);
+            }
+
+            // 3. 进入加权公平队列
+            if (queuedWaiters >= maxQueueSize) {
+                removeIfIdle(familyId, family);
+                throw reject(familyId, "上传排队已满");
+            }
+            Waiter waiter = new Waiter(size, lock.newCondition());
+            family.waiters.addLast(waiter);
+            family.queuedBytes += size;
+            queuedWaiters++;
+
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+            try {
+                while (!waiter.granted && remainingNanos > 0) {
+                    remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (waiter.granted) {
+                return new UploadPermit(this, familyId, size, true);
+            }
+            family.waiters.remove(waiter);
+            family.queuedBytes -= size;
+            queuedWaiters--;
+            // 出队后可能让出了队首位置，尝试放行其他等待者
+            dispatch();
+            removeIfIdle(familyId, family);
+            throw reject(familyId, "上传排队超时");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放上传许可（由 {@link UploadPermit#close()} 调用）
+     */
+    void release(String familyId, long bytes, long elapsedMillis) {
+        lock.lock();
+        try {
+            FamilyState family = families.get(familyId);
+            if (family == null) {
+                return;
+            }
+            family.inFlight--;
+            family.inFlightBytes -= bytes;
+            globalInFlight--;
+            globalInFlightBytes -= bytes;
+            averageUploadMillis = averageUploadMillis * 0.9 + elapsedMillis * 0.1;
+
+            dispatch();
+            removeIfIdle(familyId, family);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 隔离舱运行状态
+     */
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("inFlight", globalInFlight);
+            stats.put("inFlightBytes", globalInFlightBytes);
+            stats.put("queued", queuedWaiters);
+            stats.put("activeFamilies", families.size());
+            stats.put("averageUploadMillis", (long) averageUploadMillis);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按加权公平顺序放行排队的上传，调用方须持有锁
+     */
+    private void dispatch() {
+        while (queuedWaiters > 0) {
+            FamilyState next = null;
+            double nextShare = Double.MAX_VALUE;
+            for (FamilyState family : families.values()) {
+                Waiter head = family.waiters.peekFirst();
+                if (head == null || !hasGlobalCapacity(head.bytes)) {
+                    continue;
+                }
+                double share = (family.inFlight + 1) / (double) family.weight;
+                if (share < nextShare) {
+                    next = family;
+                    nextShare = share;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            next.queuedBytes -= waiter.bytes;
+            queuedWaiters--;
+            admit(next, waiter.bytes);
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private boolean hasGlobalCapacity(long bytes) {
+        // 全局无在途上传时允许单个超大文件通过，避免永远无法准入
+        return globalInFlight < maxConcurrent
+                && (globalInFlight == 0 || globalInFlightBytes + bytes <= maxBytesInFlight);
+    }
+
+    private void admit(FamilyState family, long bytes) {
+        family.inFlight++;
+        family.inFlightBytes += bytes;
+        globalInFlight++;
+        globalInFlightBytes += bytes;
+    }
+
+    private void removeIfIdle(String familyId, FamilyState family) {
+        if (family.inFlight == 0 && family.waiters.isEmpty()) {
+            families.remove(familyId);
+        }
+    }
+
+    private UploadRejectedException reject(String familyId, String reason) {
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(averageUploadMillis / 1000.0));
+        log.info("上传被隔离舱拒绝: familyId={}, reason={}, retryAfter={}s, globalInFlight={}, queued={}",
+                familyId, reason, retryAfterSeconds, globalInFlight, queuedWaiters);
+        return new UploadRejectedException(reason + "，请" + retryAfterSeconds + "秒后重试", retryAfterSeconds);
+    }
+
+    private int weightOf(String familyId) {
+        Integer weight = familyWeights.get(familyId);
+        return weight != null && weight > 0 ? weight : 1;
+    }
+
+    private static final class FamilyState {
+        private final int weight;
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+        private int inFlight;
+        private long inFlightBytes;
+        private long queuedBytes;
+
+        private FamilyState(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final class Waiter {
+        private final long bytes;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(long bytes, Condition condition) {
+            this.bytes = bytes;
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.haven.storage.bulkhead;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 上传许可
+ * <p>
+ * 配合 try-with-resources 使用，关闭时归还隔离舱配额，重复关闭无副作用
+ *
+ * @author HavenButler
+ */
+public class UploadPermit implements AutoCloseable {
+
+    private final UploadBulkhead bulkhead;
+    private final String familyId;
+    private final long bytes;
+    private final boolean tracked;
+    private final long acquiredAt = System.currentTimeMillis();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    UploadPermit(UploadBulkhead bulkhead, String familyId, long bytes, boolean tracked) {
+        this.bulkhead = bulkhead;
+        this.familyId = familyId;
+        this.bytes = bytes;
+        this.tracked = tracked;
+    }
+
+    @Override
+    public void close() {
+        if (tracked && released.compareAndSet(false, true)) {
+            bulkhead.release(familyId, bytes, System.currentTimeMillis() - acquiredAt);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.haven.storage.bulkhead;
+
+import com.haven.base.common.exception.RateLimitException;
+import com.haven.base.common.response.ErrorCode;
+import lombok.Getter;
+
+/**
+ * 上传被隔离舱拒绝
+ * <p>
+ * 由 {@link UploadRejectedExceptionHandler} 转换为 HTTP 429，并通过 Retry-After 告知客户端重试时间
+ *
+ * @author HavenButler
+ */
+@Getter
+public class UploadRejectedException extends RateLimitException {
+
+    /** 建议的重试等待秒数 */
+    private final long retryAfterSeconds;
+
+    public UploadRejectedException(String message, long retryAfterSeconds) {
+        super(ErrorCode.RATE_LIMIT_ERROR, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,32 @@
+package com.haven.storage.bulkhead;
+
+import com.haven.base.common.response.ResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 上传隔离舱拒绝处理
+ * <p>
+ * 优先于全局异常处理器，返回 429 Too Many Requests 和 Retry-After 响应头
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UploadRejectedExceptionHandler {
+
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<ResponseWrapper<Void>> handleUploadRejected(UploadRejectedException e) {
+        log.debug("上传被限流: {}, retryAfter={}s", e.getMessage(), e.getRetryAfterSeconds());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ResponseWrapper.error(e.getCode(), e.getMessage()));
+    }
+}
@@ -0,0 +1,126 @@
+package com.haven.storage.config;
+
+import com.haven.storage.datasource.ReadYourWritesTracker;
+import com.haven.storage.datasource.ReplicaLagMonitor;
+import com.haven.storage.datasource.ReplicaRoutingDataSource;
+import com.haven.storage.datasource.ReplicaRoutingDataSource.Replica;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置
+ *
+ * 功能特性：
+ * - 主库沿用 spring.datasource 及其 hikari 连接池配置
+ * - 从库按 storage.datasource.read-replica.urls 逐个建立只读连接池，账号默认与主库相同
+ * - 只读事务路由到延迟达标的从库，用户写入后的短窗口内保持读主库
+ * - 条件装配（仅当 storage.datasource.read-replica.enabled=true 时生效），未开启时使用默认单数据源
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "storage.datasource.read-replica.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Value("${storage.datasource.read-replica.urls:}")
+    private String[] replicaUrls;
+
+    @Value("${storage.datasource.read-replica.username:${spring.datasource.username:}}")
+    private String username;
+
+    @Value("${storage.datasource.read-replica.password:${spring.datasource.password:}}")
+    private String password;
+
+    @Value("${storage.datasource.read-replica.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Value("${storage.datasource.read-replica.connection-timeout-millis:3000}")
+    private long connectionTimeoutMillis;
+
+    @Value("${storage.datasource.read-replica.max-lag-seconds:5}")
+    private double maxLagSeconds;
+
+    @Value("${storage.datasource.read-replica.check-timeout-seconds:2}")
+    private int checkTimeoutSeconds;
+
+    @Value("${storage.datasource.read-replica.sticky-window-millis:10000}")
+    private long stickyWindowMillis;
+
+    /**
+     * 路由数据源，持有主库和全部从库连接池
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             Environment environment,
+                                                             MeterRegistry meterRegistry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (!StringUtils.hasText(primary.getPoolName())) {
+            primary.setPoolName("storage-primary");
+        }
+
+        List<Replica> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            String name = "replica-" + replicas.size();
+            replicas.add(new Replica(name, createReplicaPool(name, url.trim(), properties.determineDriverClassName())));
+        }
+        if (replicas.isEmpty()) {
+            log.warn("已开启读写分离但未配置从库地址，只读事务将全部走主库");
+        }
+
+        log.info("初始化读写分离数据源: replicas={}, maxLagSeconds={}, stickyWindowMillis={}",
+                replicas.size(), maxLagSeconds, stickyWindowMillis);
+        return new ReplicaRoutingDataSource(primary, replicas,
+                new ReadYourWritesTracker(stickyWindowMillis), meterRegistry);
+    }
+
+    /**
+     * 应用使用的数据源：延迟获取物理连接，使路由能看到事务的只读标记
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, maxLagSeconds, checkTimeoutSeconds);
+    }
+
+    private HikariDataSource createReplicaPool(String name, String url, String driverClassName) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("storage-" + name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setDriverClassName(driverClassName);
+        pool.setReadOnly(true);
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setMinimumIdle(Math.min(2, maximumPoolSize));
+        pool.setConnectionTimeout(connectionTimeoutMillis);
+        // 从库不可达时不阻止启动，由延迟监控摘除
+        pool.setInitializationFailTimeout(-1);
+        return pool;
+    }
+}
@@ -0,0 +1,115 @@
+package com.haven.storage.config;
+
+import io.minio.MinioAsyncClient;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * S3协议存储客户端配置
+ *
+ * 功能特性：
+ * - 基于 MinIO SDK 的异步客户端，兼容 AWS S3、MinIO 及其他 S3 协议存储
+ * - OkHttp 调度器限制在途请求数：每个执行中的调用占用一个调度器线程（上传期间一直占用），
+ *   线程数因此不超过 max-requests；超出的调用在调度器队列中等待，排队期间不占线程
+ * - 连接池限制空闲连接数和保活时间
+ * - 条件装配（仅当 storage.s3.enabled=true 时生效），可直接指向本地 MinIO 容器测试
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "storage.s3.enabled", havingValue = "true")
+public class S3StorageConfig {
+
+    @Value("${storage.s3.endpoint:http://localhost:9000}")
+    private String endpoint;
+
+    @Value("${storage.s3.region:}")
+    private String region;
+
+    @Value("${storage.s3.access-key:minioadmin}")
+    private String accessKey;
+
+    @Value("${storage.s3.secret-key:minioadmin}")
+    private String secretKey;
+
+    @Value("${storage.s3.pool.max-requests:64}")
+    private int maxRequests;
+
+    @Value("${storage.s3.pool.max-requests-per-host:64}")
+    private int maxRequestsPerHost;
+
+    @Value("${storage.s3.pool.max-idle-connections:64}")
+    private int maxIdleConnections;
+
+    @Value("${storage.s3.pool.keep-alive-seconds:300}")
+    private long keepAliveSeconds;
+
+    @Value("${storage.s3.timeout.connect-seconds:10}")
+    private long connectTimeoutSeconds;
+
+    @Value("${storage.s3.timeout.read-seconds:60}")
+    private long readTimeoutSeconds;
+
+    @Value("${storage.s3.timeout.write-seconds:60}")
+    private long writeTimeoutSeconds;
+
+    /**
+     * 创建S3异步客户端Bean
+     */
+    @Bean
+    public MinioAsyncClient s3AsyncClient() {
+        if (!StringUtils.hasText(endpoint)) {
+            throw new IllegalArgumentException("S3 endpoint不能为空");
+        }
+        if (!StringUtils.hasText(accessKey) || !StringUtils.hasText(secretKey)) {
+            throw new IllegalArgumentException("S3 access-key/secret-key不能为空");
+        }
+
+        // 显式的有界线程池：调度器保证执行中的调用不超过 maxRequests，线程数随之有界
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor dispatcherExecutor = new ThreadPoolExecutor(0, maxRequests, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "s3-http-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Dispatcher dispatcher = new Dispatcher(dispatcherExecutor);
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .readTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                .writeTimeout(Duration.ofSeconds(writeTimeoutSeconds))
+                .build();
+
+        MinioAsyncClient.Builder builder = MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(httpClient);
+        if (StringUtils.hasText(region)) {
+            builder.region(region);
+        }
+
+        log.info("S3异步客户端初始化完成：endpoint={}, maxRequests={}, maxRequestsPerHost={}, maxIdleConnections={}",
+                endpoint, maxRequests, maxRequestsPerHost, maxIdleConnections);
+        return builder.build();
+    }
+}
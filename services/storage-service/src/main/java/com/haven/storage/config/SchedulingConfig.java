@@ -0,0 +1,16 @@
+package com.haven.storage.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置
+ * <p>
+ * 启用存储服务的后台定时任务（冷热分层迁移等），各任务通过自身的 enabled 配置开关
+ *
+ * @author HavenButler
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
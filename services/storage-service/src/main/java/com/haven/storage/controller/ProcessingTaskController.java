@@ -0,0 +1,112 @@
+package com.haven.storage.controller;
+
+import com.haven.base.annotation.TraceLog;
+import com.haven.base.common.response.ResponseWrapper;
+import com.haven.storage.domain.model.entity.FileProcessingTask;
+import com.haven.storage.domain.model.enums.ProcessingTaskType;
+import com.haven.storage.domain.model.file.ProcessingTaskReport;
+import com.haven.storage.service.FileProcessingTaskService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件后处理任务队列API
+ * <p>
+ * 🎯 核心功能：
+ * - OCR、缩略图等工作进程批量领取任务
+ * - 租约续期、完成与失败上报
+ * - 队列积压统计
+ * <p>
+ * 💡 设计原则：
+ * - 领取基于 FOR UPDATE SKIP LOCKED，工作进程可水平扩展
+ * - 租约超时自动重新可领取，处理逻辑需幂等
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/storage/tasks")
+@RequiredArgsConstructor
+@Validated
+@Tag(name = "后处理任务队列", description = "OCR等文件后处理任务的租约式工作队列")
+public class ProcessingTaskController {
+
+    private final FileProcessingTaskService fileProcessingTaskService;
+
+    /**
+     * 批量领取任务
+     */
+    @PostMapping("/{taskType}/claim")
+    @Operation(summary = "领取任务", description = "按任务类型批量领取任务并持有租约")
+    @TraceLog(value = "领取后处理任务", module = "storage-api", type = "TASK_CLAIM")
+    public ResponseWrapper<List<FileProcessingTask>> claim(@PathVariable ProcessingTaskType taskType,
+                                                           @RequestParam @NotBlank String workerId,
+                                                           @RequestParam(defaultValue = "10") int limit,
+                                                           @RequestParam(defaultValue = "0") int leaseSeconds) {
+        return ResponseWrapper.success(fileProcessingTaskService.claim(taskType, workerId, limit, leaseSeconds));
+    }
+
+    /**
+     * 续期租约
+     */
+    @PostMapping("/{taskId}/heartbeat")
+    @Operation(summary = "续期租约", description = "长任务在租约到期前续期")
+    @TraceLog(value = "续期后处理任务租约", module = "storage-api", type = "TASK_HEARTBEAT")
+    public ResponseWrapper<LocalDateTime> heartbeat(@PathVariable String taskId,
+                                                    @Valid @RequestBody ProcessingTaskReport report) {
+        return ResponseWrapper.success(fileProcessingTaskService.heartbeat(taskId, report.getWorkerId(), report.getLeaseSeconds()));
+    }
+
+    /**
+     * 上报任务完成
+     */
+    @PostMapping("/{taskId}/complete")
+    @Operation(summary = "上报任务完成", description = "提交处理结果并释放租约")
+    @TraceLog(value = "上报后处理任务完成", module = "storage-api", type = "TASK_COMPLETE")
+    public ResponseWrapper<Void> complete(@PathVariable String taskId,
+                                          @Valid @RequestBody ProcessingTaskReport report) {
+        fileProcessingTaskService.complete(taskId, report.getWorkerId(), report.getResultPayload());
+        return ResponseWrapper.success();
+    }
+
+    /**
+     * 上报任务失败
+     */
+    @PostMapping("/{taskId}/fail")
+    @Operation(summary = "上报任务失败", description = "释放租约，未超过最大次数时任务重新排队")
+    @TraceLog(value = "上报后处理任务失败", module = "storage-api", type = "TASK_FAIL")
+    public ResponseWrapper<Void> fail(@PathVariable String taskId,
+                                      @Valid @RequestBody ProcessingTaskReport report) {
+        fileProcessingTaskService.fail(taskId, report.getWorkerId(), report.getError());
+        return ResponseWrapper.success();
+    }
+
+    /**
+     * 历史OCR候选文件分批入队
+     */
+    @PostMapping("/OCR/enqueue-pending")
+    @Operation(summary = "历史文件入队", description = "将尚未处理的历史OCR候选文件分批加入队列")
+    @TraceLog(value = "历史OCR文件入队", module = "storage-api", type = "TASK_ENQUEUE")
+    public ResponseWrapper<Integer> enqueuePendingOcrFiles(@RequestParam(defaultValue = "1000") int limit) {
+        return ResponseWrapper.success(fileProcessingTaskService.enqueuePendingOcrFiles(limit));
+    }
+
+    /**
+     * 队列积压统计
+     */
+    @GetMapping("/{taskType}/stats")
+    @Operation(summary = "队列统计", description = "按状态统计任务数量")
+    public ResponseWrapper<Map<String, Long>> stats(@PathVariable ProcessingTaskType taskType) {
+        return ResponseWrapper.success(fileProcessingTaskService.getQueueStats(taskType));
+    }
+}
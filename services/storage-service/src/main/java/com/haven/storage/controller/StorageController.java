@@ -3,27 +3,47 @@ package com.haven.storage.controller;
 import com.haven.base.annotation.TraceLog;
 import com.haven.base.common.response.ResponseWrapper;
 import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FamilyDailyStats;
 import com.haven.storage.domain.model.entity.FamilyStorageStats;
 import com.haven.storage.domain.model.entity.FileMetadata;
 import com.haven.storage.domain.model.file.*;
+import com.haven.storage.service.DirectUploadService;
+import com.haven.storage.service.DuplicateFileService;
+import com.haven.storage.service.FamilyDailyStatsService;
+import com.haven.storage.service.FileBackupService;
 import com.haven.storage.service.FileStorageService;
+import com.haven.storage.service.FolderArchiveService;
+import com.haven.storage.service.PhotoTimelineService;
+import com.haven.storage.service.StorageLayoutMigrationService;
+import com.haven.storage.service.StorageScrubService;
+import com.haven.storage.service.StorageTieringService;
+import com.haven.storage.service.StreamingUploadService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.logging.MDC;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -51,6 +71,16 @@ import java.util.Map;
 public class StorageController {
 
     private final FileStorageService fileStorageService;
+    private final DuplicateFileService duplicateFileService;
+    private final StorageTieringService storageTieringService;
+    private final FileBackupService fileBackupService;
+    private final StorageScrubService storageScrubService;
+    private final FolderArchiveService folderArchiveService;
+    private final PhotoTimelineService photoTimelineService;
+    private final DirectUploadService directUploadService;
+    private final StreamingUploadService streamingUploadService;
+    private final FamilyDailyStatsService familyDailyStatsService;
+    private final StorageLayoutMigrationService storageLayoutMigrationService;
 
     // ===== 家庭文件存储 API =====
 
@@ -69,6 +99,45 @@ public class StorageController {
         return ResponseWrapper.success("文件上传成功", fileMetadata);
     }
 
+    /**
+     * 流式文件上传
+     * <p>
+     * 直接从请求体逐段解析 multipart/form-data，小文件留在内存，超过阈值的文件只落盘一次。
+     * 表单字段与 /files/upload 相同，文件必须是最后一个分段
+     * <p>
+     * 注意：此方法不使用@TraceLog注解，因为HttpServletRequest无法被序列化用于日志记录
+     */
+    @PostMapping(value = "/files/upload/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "流式文件上传", description = "不经过MultipartFile暂存，边解析边写入对象存储")
+    public ResponseWrapper<FileMetadata> uploadFileStreaming(HttpServletRequest request) {
+        FileMetadata fileMetadata = streamingUploadService.upload(request);
+        return ResponseWrapper.success("文件上传成功", fileMetadata);
+    }
+
+    /**
+     * 申请直传上传
+     * <p>
+     * 预留对象键并签发预签名PUT地址，客户端把文件直接上传到对象存储，不经过存储服务
+     */
+    @PostMapping("/files/direct-upload")
+    @Operation(summary = "申请直传上传", description = "声明文件大小和MD5，获取直传对象存储的预签名上传地址")
+    @TraceLog(value = "申请直传上传", module = "storage-api", type = "FILE_DIRECT_UPLOAD")
+    public ResponseWrapper<DirectUploadTicket> initiateDirectUpload(@Valid @RequestBody DirectUploadInitRequest request) {
+        return ResponseWrapper.success(directUploadService.initiate(request));
+    }
+
+    /**
+     * 确认直传上传
+     * <p>
+     * 核对对象存储中的对象大小和MD5，通过后写入文件元数据
+     */
+    @PostMapping("/files/direct-upload/{uploadId}/confirm")
+    @Operation(summary = "确认直传上传", description = "校验已直传的对象并提交文件元数据")
+    @TraceLog(value = "确认直传上传", module = "storage-api", type = "FILE_DIRECT_UPLOAD_CONFIRM")
+    public ResponseWrapper<FileMetadata> confirmDirectUpload(@PathVariable @NotBlank String uploadId) {
+        return ResponseWrapper.success("文件上传成功", directUploadService.confirm(uploadId));
+    }
+
     /**
      * 下载文件 - 支持流式传输
      * <p>
@@ -76,23 +145,32 @@ public class StorageController {
      * 通过HTTP响应头告知浏览器文件的名称、类型、大小等信息
      * 对于无法流式传输的文件，自动降级到字节数组传输
      * <p>
+     * 支持 ETag / Last-Modified 条件请求，客户端缓存有效时返回304且不读取物理文件
+     * <p>
      * 注意：此方法不使用@TraceLog注解，因为InputStreamResource无法被序列化用于日志记录
      */
     @GetMapping("/files/download/{fileId}")
     public ResponseEntity<InputStreamResource> downloadFile(@PathVariable @NotBlank(message = "fileId不能为空") String fileId,
-                                                            @RequestParam(required = false) String familyId) {
+                                                            @RequestParam(required = false) String familyId,
+                                                            @RequestHeader HttpHeaders requestHeaders) {
         String traceId = TraceIdUtil.getCurrentOrGenerate();
         MDC.put("traceId", traceId); // 放入MDC
         log.info("开始文件下载: fileId={}, familyId={}, traceId={}", fileId, familyId, traceId);
         try {
-            // 1. 获取文件下载结果
-            FileDownloadResult result = fileStorageService.downloadFile(fileId, familyId);
+            // 1. 获取文件下载结果（条件请求在读取物理文件前评估）
+            FileDownloadResult result = fileStorageService.downloadFile(fileId, familyId,
+                    requestHeaders.getIfNoneMatch(), parseIfModifiedSince(requestHeaders));
 
             if (!result.isSuccess()) {
                 log.error("文件下载失败: fileId={}, familyId={}, error={}, traceId={}",
                         fileId, familyId, result.getErrorMessage(), traceId);
                 return ResponseEntity.notFound().build();
             }
+            if (result.isNotModified()) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .headers(fileStorageService.buildCacheValidatorHeaders(result.getFileMetadata()))
+                        .build();
+            }
             // 2. 构建下载响应头
             HttpHeaders headers = fileStorageService.buildDownloadHeaders(result.getFileMetadata());
             // 3. 返回流式响应
@@ -114,6 +192,32 @@ public class StorageController {
         }
     }
 
+    /**
+     * 打包下载文件夹
+     * <p>
+     * 边读边写ZIP直接输出到响应流，不生成临时文件；包含子文件夹，仅打包当前用户有权下载的文件
+     */
+    @GetMapping("/files/archive")
+    @Operation(summary = "打包下载文件夹", description = "将文件夹（含子文件夹）流式打包为ZIP下载，适用于整本相册导出")
+    @TraceLog(value = "打包下载文件夹", module = "storage-api", type = "FOLDER_ARCHIVE")
+    public void downloadFolderArchive(@RequestParam @NotBlank String familyId,
+                                      @RequestParam(required = false, defaultValue = "/") String folderPath,
+                                      HttpServletResponse response) throws IOException {
+        // 查询和权限校验在写出响应前完成，失败时由全局异常处理返回错误
+        FolderArchiveService.FolderArchive archive = folderArchiveService.prepareArchive(familyId, folderPath);
+        try {
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(archive.getArchiveName(), StandardCharsets.UTF_8)
+                    .build()
+                    .toString());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            folderArchiveService.writeArchive(archive, response.getOutputStream());
+        } finally {
+            archive.close();
+        }
+    }
+
     /**
      * 获取家庭文件列表
      */
@@ -124,6 +228,34 @@ public class StorageController {
         return ResponseWrapper.success("获取文件列表", fileList);
     }
 
+    /**
+     * 拍摄时间线
+     * <p>
+     * 按拍摄时间倒序游标分页，数据来自上传时提取的EXIF/XMP，不回读文件内容
+     */
+    @GetMapping("/files/timeline")
+    @Operation(summary = "拍摄时间线", description = "按拍摄时间倒序分页返回照片，使用nextCursor翻页")
+    @TraceLog(value = "拍摄时间线", module = "storage-api", type = "FILE_TIMELINE")
+    public ResponseWrapper<FileTimelinePage> getTimeline(@RequestParam @NotBlank String familyId,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "100") int limit) {
+        return ResponseWrapper.success(photoTimelineService.getTimelinePage(familyId, from, to, cursor, limit));
+    }
+
+    /**
+     * 拍摄时间线按天汇总
+     */
+    @GetMapping("/files/timeline/days")
+    @Operation(summary = "拍摄时间线按天汇总", description = "按拍摄日期统计当前用户可见的照片数量，用于时间线日期导航")
+    @TraceLog(value = "拍摄时间线汇总", module = "storage-api", type = "FILE_TIMELINE_SUMMARY")
+    public ResponseWrapper<FileTimelineSummary> getTimelineSummary(@RequestParam @NotBlank String familyId,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseWrapper.success(photoTimelineService.getTimelineSummary(familyId, from, to));
+    }
+
     /**
      * 搜索文件
      */
@@ -156,6 +288,60 @@ public class StorageController {
         return ResponseWrapper.success(stats);
     }
 
+    /**
+     * 获取家庭每日存储统计
+     * <p>
+     * 读取预聚合的每日统计，一年的趋势图只读取至多365行
+     */
+    @GetMapping("/files/stats/daily")
+    @Operation(summary = "每日存储统计", description = "按日期范围返回家庭每天的上传、删除、分类净增字节和活跃用户数")
+    @TraceLog(value = "获取每日存储统计", module = "storage-api", type = "STORAGE_STATS_DAILY")
+    public ResponseWrapper<List<FamilyDailyStats>> getDailyStats(@RequestParam @NotBlank String familyId,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseWrapper.success(familyDailyStatsService.getDailyStats(familyId, from, to));
+    }
+
+    /**
+     * 回填家庭每日存储统计
+     * <p>
+     * 按日期窗口从文件元数据重算历史统计，可通过返回的nextFromDate分多次继续
+     */
+    @PostMapping("/files/stats/daily/backfill")
+    @Operation(summary = "回填每日存储统计", description = "按日期窗口从文件元数据重算历史每日统计")
+    @TraceLog(value = "回填每日存储统计", module = "storage-api", type = "STORAGE_STATS_DAILY_BACKFILL")
+    public ResponseWrapper<DailyStatsBackfillResult> backfillDailyStats(@RequestParam(required = false) String familyId,
+                                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseWrapper.success(familyDailyStatsService.backfill(familyId, from, to));
+    }
+
+    /**
+     * MinIO桶布局迁移：将家庭专属桶中的对象迁入共享分片桶
+     * <p>
+     * 源对象保留至清理阶段，可通过返回的lastId分多次继续
+     */
+    @PostMapping("/files/layout/migrate")
+    @Operation(summary = "迁移桶布局", description = "将家庭专属桶中的对象并行复制到共享分片桶并切换存储位置")
+    @TraceLog(value = "迁移桶布局", module = "storage-api", type = "STORAGE_LAYOUT_MIGRATE")
+    public ResponseWrapper<LayoutMigrationResult> migrateBucketLayout(@RequestParam(required = false) String familyId,
+                                                                      @RequestParam(defaultValue = "0") long fromId,
+                                                                      @RequestParam(defaultValue = "1000") int maxFiles) {
+        return ResponseWrapper.success(storageLayoutMigrationService.migrate(familyId, fromId, maxFiles));
+    }
+
+    /**
+     * MinIO桶布局迁移：删除已迁移且超过宽限期的旧桶副本
+     */
+    @PostMapping("/files/layout/cleanup")
+    @Operation(summary = "清理旧桶布局", description = "删除已迁入共享分片桶且超过宽限期的家庭专属桶副本")
+    @TraceLog(value = "清理旧桶布局", module = "storage-api", type = "STORAGE_LAYOUT_CLEANUP")
+    public ResponseWrapper<LayoutMigrationResult> cleanupLegacyBucketLayout(@RequestParam(required = false) String familyId,
+                                                                            @RequestParam(defaultValue = "0") long fromId,
+                                                                            @RequestParam(defaultValue = "1000") int maxFiles) {
+        return ResponseWrapper.success(storageLayoutMigrationService.cleanupLegacy(familyId, fromId, maxFiles));
+    }
+
     /**
      * 获取存储适配器状态
      */
@@ -186,6 +372,131 @@ public class StorageController {
         }
     }
 
-  
+    /**
+     * 重复文件分析
+     * <p>
+     * 按文件校验和分组，返回重复文件组及可回收的存储空间
+     */
+    @GetMapping("/files/duplicates")
+    @Operation(summary = "重复文件分析", description = "按文件校验和统计家庭内的重复文件和可回收空间")
+    @TraceLog(value = "重复文件分析", module = "storage-api", type = "FILE_DUPLICATES")
+    public ResponseWrapper<DuplicateFileReport> analyzeDuplicates(@RequestParam @NotBlank String familyId) {
+        return ResponseWrapper.success(duplicateFileService.analyzeDuplicates(familyId));
+    }
+
+    /**
+     * 回填缺少的文件校验和
+     * <p>
+     * 限速流式计算历史文件的校验和，可通过返回的lastId分多次继续
+     */
+    @PostMapping("/files/duplicates/checksum-backfill")
+    @Operation(summary = "回填文件校验和", description = "为缺少校验和的历史文件限速计算校验和")
+    @TraceLog(value = "回填文件校验和", module = "storage-api", type = "FILE_CHECKSUM_BACKFILL")
+    public ResponseWrapper<ChecksumBackfillResult> backfillChecksums(@RequestParam(required = false) String familyId,
+                                                                     @RequestParam(defaultValue = "0") long fromId,
+                                                                     @RequestParam(defaultValue = "1000") int maxFiles) {
+        return ResponseWrapper.success(duplicateFileService.backfillChecksums(familyId, fromId, maxFiles));
+    }
 
-}
\ No newline at end of file
+    /**
+     * 冷热分层：将长期未访问的文件迁移到冷层
+     * <p>
+     * 与定时任务共用同一带宽预算，可通过返回的lastId分多次继续
+     */
+    @PostMapping("/files/tiering/demote")
+    @Operation(summary = "冷文件降冷", description = "将长期未访问的文件限速迁移到冷层存储")
+    @TraceLog(value = "冷文件降冷", module = "storage-api", type = "FILE_TIERING")
+    public ResponseWrapper<TieringResult> demoteColdFiles(@RequestParam(defaultValue = "0") long fromId,
+                                                          @RequestParam(defaultValue = "1000") int maxFiles) {
+        return ResponseWrapper.success(storageTieringService.demoteColdFiles(fromId, maxFiles));
+    }
+
+    /**
+     * 冷热分层：将指定文件迁回热层
+     */
+    @PostMapping("/files/{fileId}/tiering/promote")
+    @Operation(summary = "文件升热", description = "将冷层文件迁回热层存储")
+    @TraceLog(value = "文件升热", module = "storage-api", type = "FILE_TIERING")
+    public ResponseWrapper<Boolean> promoteFile(@PathVariable @NotBlank String fileId) {
+        return ResponseWrapper.success(storageTieringService.promote(fileId));
+    }
+
+    /**
+     * 执行一次增量备份
+     * <p>
+     * 只复制未备份或内容已变更的文件，与定时任务互斥
+     */
+    @PostMapping("/files/backup/run")
+    @Operation(summary = "增量备份", description = "将未备份或已变更的文件并行复制到备份存储")
+    @TraceLog(value = "增量备份", module = "storage-api", type = "FILE_BACKUP")
+    public ResponseWrapper<BackupRunResult> runBackup(@RequestParam(defaultValue = "10000") int maxFiles) {
+        return ResponseWrapper.success(fileBackupService.runIncrementalBackup(maxFiles));
+    }
+
+    /**
+     * 备份状态统计
+     */
+    @GetMapping("/files/backup/stats")
+    @Operation(summary = "备份状态统计", description = "按备份状态统计文件数量")
+    public ResponseWrapper<Map<String, Long>> getBackupStats() {
+        return ResponseWrapper.success(fileBackupService.getBackupStats());
+    }
+
+    /**
+     * 推进一次完整性巡检
+     * <p>
+     * 从上次进度继续，校验对象校验和并查找两个方向的孤儿数据，与定时巡检互斥
+     */
+    @PostMapping("/files/integrity/scrub")
+    @Operation(summary = "完整性巡检", description = "限速校验对象校验和，查找缺失对象和孤儿对象")
+    @TraceLog(value = "完整性巡检", module = "storage-api", type = "INTEGRITY_SCRUB")
+    public ResponseWrapper<ScrubRunResult> runScrub(@RequestParam(defaultValue = "200") int maxFiles) {
+        return ResponseWrapper.success(storageScrubService.scrub(maxFiles));
+    }
+
+    /**
+     * 完整性巡检报告
+     */
+    @GetMapping("/files/integrity/report")
+    @Operation(summary = "完整性巡检报告", description = "巡检进度和按类型统计的未解决问题")
+    public ResponseWrapper<Map<String, Object>> getScrubReport() {
+        return ResponseWrapper.success(storageScrubService.getScrubReport());
+    }
+
+    /**
+     * 批量获取文件访问URL
+     * <p>
+     * 一次请求为多个文件签发预签名URL，不存在或无权限的文件不出现在结果中
+     */
+    @PostMapping("/files/access-urls")
+    @Operation(summary = "批量获取文件访问URL", description = "为相册等场景一次签发多个文件的预签名URL")
+    @TraceLog(value = "批量获取文件访问URL", module = "storage-api", type = "FILE_ACCESS_URL_BATCH")
+    public ResponseWrapper<Map<String, String>> getFileAccessUrls(@Valid @RequestBody FileAccessUrlBatchRequest request) {
+        Map<String, String> accessUrls = fileStorageService.getFileAccessUrls(
+                request.getFileIds(), request.getFamilyId(), request.getExpireMinutes());
+        return ResponseWrapper.success(accessUrls);
+    }
+
+    /**
+     * 批量获取文件元数据
+     * <p>
+     * 一次请求返回多个文件的元数据和存储状态，不存在或无权限的文件列入 missingFileIds
+     */
+    @PostMapping("/files/metadata/batch")
+    @Operation(summary = "批量获取文件元数据", description = "为相册等场景一次加载多个文件的元数据，替代逐个文件查询")
+    @TraceLog(value = "批量获取文件元数据", module = "storage-api", type = "FILE_METADATA_BATCH")
+    public ResponseWrapper<FileMetadataBatchResult> getFileMetadataBatch(@Valid @RequestBody FileMetadataBatchRequest request) {
+        return ResponseWrapper.success(fileStorageService.getFileMetadataBatch(request.getFileIds(), request.getFamilyId()));
+    }
+
+    /**
+     * 解析 If-Modified-Since 请求头，缺失或格式非法时返回-1（按无条件请求处理）
+     */
+    private long parseIfModifiedSince(HttpHeaders requestHeaders) {
+        try {
+            return requestHeaders.getIfModifiedSince();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
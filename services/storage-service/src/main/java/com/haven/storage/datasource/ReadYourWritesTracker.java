@@ -0,0 +1,65 @@
+package com.haven.storage.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 读己之写跟踪器
+ *
+ * <p>记录用户最近一次提交写事务的时间，在粘滞窗口内该用户的只读事务仍走主库，
+ * 避免用户刚上传/删除文件后立即刷新列表时从尚未追上的从库读到旧数据。</p>
+ *
+ * <p>记录保存在本实例内存中，适用于网关按用户会话亲和路由的部署；
+ * 窗口应大于从库允许的最大延迟。</p>
+ *
+ * @author HavenButler
+ */
+public class ReadYourWritesTracker {
+
+    private final long windowMillis;
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 记录用户提交了写事务，粘滞窗口从提交时刻开始计算
+     */
+    public void markWrite(String userId) {
+        if (userId == null || windowMillis <= 0) {
+            return;
+        }
+        stickyUntil.put(userId, System.currentTimeMillis() + windowMillis);
+    }
+
+    /**
+     * 用户是否处于粘滞窗口内（应读主库）
+     */
+    public boolean isSticky(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until > System.currentTimeMillis()) {
+            return true;
+        }
+        stickyUntil.remove(userId, until);
+        return false;
+    }
+
+    /**
+     * 清理已过期的记录
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= now);
+    }
+
+    public int size() {
+        return stickyUntil.size();
+    }
+}
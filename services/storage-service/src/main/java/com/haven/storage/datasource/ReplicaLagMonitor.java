@@ -0,0 +1,74 @@
+package com.haven.storage.datasource;
+
+import com.haven.storage.datasource.ReplicaRoutingDataSource.Replica;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 从库复制延迟监控
+ *
+ * <p>定期查询每个从库的回放延迟，决定其是否参与只读路由：</p>
+ * <ul>
+ *   <li>延迟超过 max-lag-seconds 或查询失败：摘除，只读事务回退主库</li>
+ *   <li>延迟降到阈值一半以下才恢复，避免在阈值附近反复切换</li>
+ *   <li>WAL 已全部回放时延迟记为0（主库空闲时回放时间戳不会前进，不能直接用于判断）</li>
+ * </ul>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), -1) END";
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final double maxLagSeconds;
+    private final int queryTimeoutSeconds;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, double maxLagSeconds, int queryTimeoutSeconds) {
+        this.routingDataSource = routingDataSource;
+        this.maxLagSeconds = maxLagSeconds;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${storage.datasource.read-replica.check-interval-millis:5000}")
+    public void checkReplicas() {
+        for (Replica replica : routingDataSource.getReplicas()) {
+            double lag = queryLagSeconds(replica);
+            boolean available;
+            if (lag < 0) {
+                available = false;
+            } else if (replica.isAvailable()) {
+                available = lag <= maxLagSeconds;
+            } else {
+                available = lag <= maxLagSeconds / 2;
+            }
+            replica.update(available, lag);
+        }
+        routingDataSource.getReadYourWritesTracker().purgeExpired();
+    }
+
+    /**
+     * 查询从库回放延迟（秒），查询失败或从未回放时返回-1
+     */
+    private double queryLagSeconds(Replica replica) {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(queryTimeoutSeconds);
+            try (ResultSet resultSet = statement.executeQuery(LAG_SQL)) {
+                return resultSet.next() ? resultSet.getDouble(1) : -1;
+            }
+        } catch (SQLException e) {
+            log.warn("从库延迟检查失败: replica={}, error={}", replica.getName(), e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.haven.storage.datasource;
+
+import com.haven.storage.security.UserContext;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离路由数据源
+ *
+ * <p>路由规则（在获取物理连接时判定）：</p>
+ * <ul>
+ *   <li>非只读事务、无事务的调用：走主库</li>
+ *   <li>{@code @Transactional(readOnly = true)} 事务：在可用从库间轮询</li>
+ *   <li>当前用户处于读己之写窗口内：走主库，见 {@link ReadYourWritesTracker}</li>
+ *   <li>所有从库延迟超限或不可达：回退主库，见 {@link ReplicaLagMonitor}</li>
+ * </ul>
+ *
+ * <p>事务开始时只读标记尚未绑定，必须外包 {@code LazyConnectionDataSourceProxy}，
+ * 让物理连接推迟到第一条语句执行时再获取。</p>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY_KEY = "primary";
+
+    /** 写事务跟踪的事务资源键，保证每个事务只注册一次提交回调 */
+    private static final Object WRITE_TRACKING_KEY = new Object();
+
+    private final DataSource primary;
+    @Getter
+    private final List<Replica> replicas;
+    @Getter
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Counter replicaReads;
+    private final Counter stickyReads;
+    private final Counter fallbackReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas,
+                                    ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWritesTracker = readYourWritesTracker;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (Replica replica : this.replicas) {
+            targets.put(replica.getName(), replica.getDataSource());
+            Gauge.builder("storage.datasource.replica.lag.seconds", replica, Replica::getLagSeconds)
+                    .tag("replica", replica.getName()).register(meterRegistry);
+            Gauge.builder("storage.datasource.replica.available", replica, r -> r.isAvailable() ? 1 : 0)
+                    .tag("replica", replica.getName()).register(meterRegistry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.stickyReads = readCounter(meterRegistry, "primary-sticky");
+        this.fallbackReads = readCounter(meterRegistry, "primary-fallback");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            trackWriteTransaction();
+            return PRIMARY_KEY;
+        }
+        if (readYourWritesTracker.isSticky(UserContext.getCurrentUserId())) {
+            stickyReads.increment();
+            return PRIMARY_KEY;
+        }
+        Replica replica = nextAvailableReplica();
+        if (replica == null) {
+            fallbackReads.increment();
+            return PRIMARY_KEY;
+        }
+        replicaReads.increment();
+        return replica.getName();
+    }
+
+    /**
+     * 关闭主库和从库连接池（由容器销毁Bean时调用）
+     */
+    public void close() {
+        closePool(primary);
+        replicas.forEach(replica -> closePool(replica.getDataSource()));
+    }
+
+    /**
+     * 读写事务提交后记录当前用户，开启读己之写窗口
+     */
+    private void trackWriteTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(WRITE_TRACKING_KEY)) {
+            return;
+        }
+        String userId = UserContext.getCurrentUserId();
+        if (userId == null) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(WRITE_TRACKING_KEY, userId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                readYourWritesTracker.markWrite(userId);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_TRACKING_KEY);
+            }
+        });
+    }
+
+    private Replica nextAvailableReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("storage.datasource.readonly.transactions")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    private static void closePool(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            hikari.close();
+        }
+    }
+
+    /**
+     * 从库及其健康状态，初始为不可用，首次延迟检查通过后才参与路由
+     */
+    @Getter
+    public static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean available;
+        private volatile double lagSeconds = -1;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void update(boolean available, double lagSeconds) {
+            if (this.available != available) {
+                log.info("从库路由状态变更: replica={}, available={}, lagSeconds={}", name, available, lagSeconds);
+            }
+            this.available = available;
+            this.lagSeconds = lagSeconds;
+        }
+    }
+}
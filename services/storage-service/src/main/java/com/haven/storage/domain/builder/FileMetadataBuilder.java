@@ -4,8 +4,11 @@ import com.haven.base.common.exception.SystemException;
 import com.haven.base.common.response.ErrorCode;
 import com.haven.base.utils.TraceIdUtil;
 import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.enums.SupportedFileType;
 import com.haven.storage.domain.model.file.FileUploadRequest;
+import com.haven.storage.media.MediaMetadataExtractor;
 import com.haven.storage.security.UserContext;
+import com.haven.storage.utils.FileTypeDetector;
 import com.haven.storage.utils.FileUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -25,9 +28,11 @@ import java.time.LocalDateTime;
 public class FileMetadataBuilder {
 
     private final FileTypeDetector fileTypeDetector;
+    private final MediaMetadataExtractor mediaMetadataExtractor;
 
-    public FileMetadataBuilder(FileTypeDetector fileTypeDetector) {
+    public FileMetadataBuilder(FileTypeDetector fileTypeDetector, MediaMetadataExtractor mediaMetadataExtractor) {
         this.fileTypeDetector = fileTypeDetector;
+        this.mediaMetadataExtractor = mediaMetadataExtractor;
     }
 
     /**
@@ -87,7 +92,7 @@ public class FileMetadataBuilder {
             metadata.setFamilyId(familyId);
             metadata.setOriginalName(request.getOriginalFileName());
             metadata.setFileName(generateUniqueFileName(request.getOriginalFileName()));
-            metadata.setFolderPath(request.getFolderPath() != null ? request.getFolderPath() : "/");
+            metadata.setFolderPath(FileUtils.formatFolderPath(request.getFolderPath()));
             metadata.setUploaderUserId(uploaderUserId);
             metadata.setUploadTime(LocalDateTime.now());
             metadata.setLastAccessTime(LocalDateTime.now());
@@ -118,6 +123,14 @@ public class FileMetadataBuilder {
             metadata.setMimeType(detectionResult.getDetectedMimeType());
             metadata.setContentType(request.getContentType());
 
+            // 预读有界文件头做魔数检测，同一份缓冲用于提取EXIF/XMP，之后无需再读取对象
+            if (mediaMetadataExtractor.isEnabled()) {
+                FileTypeDetector.HeaderPeek header =
+                        fileTypeDetector.peekHeader(request.getFile(), mediaMetadataExtractor.getHeaderPeekBytes());
+                SupportedFileType headerType = fileTypeDetector.detectByHeader(header);
+                mediaMetadataExtractor.extractInto(header, headerType, metadata, traceId);
+            }
+
             log.info("文件类型检测完成: fileName={}, originalMimeType={}, detectedMimeType={}, fileType={}, detectionMethod={}, traceId={}",
                     request.getOriginalFileName(), detectionResult.getOriginalMimeType(),
                     detectionResult.getDetectedMimeType(), detectionResult.getCategory(),
@@ -0,0 +1,39 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDate;
+
+/**
+ * 家庭每日活跃用户实体
+ * <p>
+ * 活跃用户数不能直接累加：同一用户一天内多次操作只计一次。事件处理时先写入
+ * (家庭, 日期, 用户)，实际插入时才给 {@link FamilyDailyStats#getActiveUsers()} 加一。
+ *
+ * @author HavenButler
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "family_daily_active_user", indexes = {
+        @Index(name = "uk_family_daily_active_user", columnList = "family_id, stat_date, user_id", unique = true)  // 同一天同一用户只计一次
+})
+@Comment("家庭每日活跃用户表 - 每日统计的活跃用户去重")
+public class FamilyDailyActiveUser extends BaseEntity {
+
+    @Column(name = "family_id", length = 50, nullable = false)
+    @Comment("家庭ID")
+    private String familyId;
+
+    @Column(name = "stat_date", nullable = false)
+    @Comment("统计日期")
+    private LocalDate statDate;
+
+    @Column(name = "user_id", length = 50, nullable = false)
+    @Comment("用户ID")
+    private String userId;
+}
@@ -0,0 +1,80 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDate;
+
+/**
+ * 家庭每日存储统计实体
+ * <p>
+ * 每个家庭每天一行的预聚合统计，趋势图直接按日期范围读取，不再扫描 file_metadata：
+ * - 当天的数据由发件箱的上传/删除事件增量累加
+ * - 历史数据由回填任务按日期窗口从 file_metadata 重算
+ * <p>
+ * 分类字节数为当天的净增量（上传为正、删除为负），累计值按日期前缀求和即可得到。
+ *
+ * @author HavenButler
+ * @see FamilyDailyActiveUser 当日活跃用户明细
+ * @see com.haven.storage.service.FamilyDailyStatsService 每日统计服务
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "family_daily_stats", indexes = {
+        @Index(name = "uk_family_daily_stats", columnList = "family_id, stat_date", unique = true)  // 一个家庭一天一行，按日期范围读取
+})
+@Comment("家庭每日存储统计表 - 趋势分析的预聚合数据")
+public class FamilyDailyStats extends BaseEntity {
+
+    @Column(name = "family_id", length = 50, nullable = false)
+    @Comment("家庭ID")
+    private String familyId;
+
+    @Column(name = "stat_date", nullable = false)
+    @Comment("统计日期")
+    private LocalDate statDate;
+
+    @Column(name = "upload_count", nullable = false)
+    @Comment("上传文件数")
+    private long uploadCount;
+
+    @Column(name = "delete_count", nullable = false)
+    @Comment("删除文件数")
+    private long deleteCount;
+
+    @Column(name = "upload_bytes", nullable = false)
+    @Comment("上传字节数")
+    private long uploadBytes;
+
+    @Column(name = "delete_bytes", nullable = false)
+    @Comment("删除字节数")
+    private long deleteBytes;
+
+    @Column(name = "image_bytes", nullable = false)
+    @Comment("图片净增字节数")
+    private long imageBytes;
+
+    @Column(name = "video_bytes", nullable = false)
+    @Comment("视频净增字节数")
+    private long videoBytes;
+
+    @Column(name = "audio_bytes", nullable = false)
+    @Comment("音频净增字节数")
+    private long audioBytes;
+
+    @Column(name = "document_bytes", nullable = false)
+    @Comment("文档净增字节数")
+    private long documentBytes;
+
+    @Column(name = "other_bytes", nullable = false)
+    @Comment("其他类型净增字节数")
+    private long otherBytes;
+
+    @Column(name = "active_users", nullable = false)
+    @Comment("当日上传或删除过文件的用户数")
+    private int activeUsers;
+}
@@ -4,6 +4,7 @@ import com.haven.base.model.entity.BaseEntity;
 import com.haven.storage.domain.model.enums.FileOperation;
 import com.haven.storage.domain.model.enums.FileVisibility;
 import com.haven.storage.domain.model.enums.UserRole;
+import com.haven.storage.permission.CompiledPermissionMatrix;
 import com.haven.storage.permission.PermissionMatrix;
 import com.haven.storage.security.UserContext;
 import com.haven.storage.security.UserInfo;
@@ -55,8 +56,14 @@ import java.util.Set;
     @Index(name = "idx_owner_id", columnList = "owner_id"),                      // 所有者索引 - 按用户查询文件
     @Index(name = "idx_file_type", columnList = "file_type"),                    // 文件类型索引 - 按类型筛选
     @Index(name = "idx_upload_time", columnList = "upload_time"),                  // 上传时间索引 - 时间排序
+    @Index(name = "idx_family_upload_time", columnList = "family_id, upload_time"), // 复合索引 - 每日统计按家庭回填
+    @Index(name = "idx_deleted_update_time", columnList = "deleted, update_time"), // 复合索引 - 每日统计回填删除量
     @Index(name = "idx_family_owner", columnList = "family_id, owner_id"),        // 复合索引 - 家庭内用户文件
     @Index(name = "idx_family_type", columnList = "family_id, file_type"),          // 复合索引 - 家庭内类型筛选
+    @Index(name = "idx_family_folder", columnList = "family_id, folder_path"),      // 复合索引 - 按文件夹查询和打包
+    @Index(name = "idx_family_capture_time", columnList = "family_id, capture_time, id"), // 复合索引 - 拍摄时间线
+    @Index(name = "idx_family_gps", columnList = "family_id, gps_latitude, gps_longitude"), // 复合索引 - 按地点筛选
+    @Index(name = "idx_family_camera", columnList = "family_id, camera_model"),     // 复合索引 - 按相机筛选
     @Index(name = "idx_storage_id", columnList = "storage_id")                     // 存储ID索引 - 关联查询
 })
 @Comment("文件元数据表 - 管理文件业务信息、权限控制和访问统计")
@@ -204,6 +211,17 @@ public class FileMetadata extends BaseEntity {
     @Comment("原始文件名")
     private String originalName;
 
+    /**
+     * 所在文件夹路径
+     * <p>
+     * 家庭内的逻辑目录，用于文件列表、文件夹打包下载等按目录组织的场景：
+     * - 以 "/" 开头，不以 "/" 结尾（根目录为 "/"），写入时统一标准化
+     * - 与对象存储的物理路径无关，移动文件只需修改该字段
+     */
+    @Column(name = "folder_path", length = 500)
+    @Comment("所在文件夹路径")
+    private String folderPath;
+
     /**
      * 文件大小（字节）
      * <p>
@@ -517,6 +535,89 @@ public class FileMetadata extends BaseEntity {
     @Comment("访问权限变更时间")
     private LocalDateTime accessChangeTime;
 
+    // ==================== 媒体元数据（上传时从文件头提取） ====================
+
+    /**
+     * 拍摄时间
+     * <p>
+     * 取自 EXIF DateTimeOriginal（缺失时依次回退到 DateTimeDigitized、XMP 日期），
+     * 为相机记录的本地时间，不做时区换算，时间线按该值的日期分组。
+     * 没有拍摄信息的文件为空，不进入时间线。
+     */
+    @Column(name = "capture_time")
+    @Comment("拍摄时间(相机本地时间)")
+    private LocalDateTime captureTime;
+
+    /**
+     * 拍摄时区偏移（如 +08:00），相机未记录时为空
+     */
+    @Column(name = "capture_offset", length = 6)
+    @Comment("拍摄时区偏移")
+    private String captureOffset;
+
+    /**
+     * 拍摄时间来源（EXIF / XMP）
+     */
+    @Column(name = "capture_time_source", length = 10)
+    @Comment("拍摄时间来源")
+    private String captureTimeSource;
+
+    /**
+     * 拍摄地纬度（WGS84，南纬为负）
+     */
+    @Column(name = "gps_latitude")
+    @Comment("拍摄地纬度")
+    private Double gpsLatitude;
+
+    /**
+     * 拍摄地经度（WGS84，西经为负）
+     */
+    @Column(name = "gps_longitude")
+    @Comment("拍摄地经度")
+    private Double gpsLongitude;
+
+    /**
+     * 拍摄地海拔（米）
+     */
+    @Column(name = "gps_altitude")
+    @Comment("拍摄地海拔(米)")
+    private Double gpsAltitude;
+
+    /**
+     * 相机厂商
+     */
+    @Column(name = "camera_make", length = 100)
+    @Comment("相机厂商")
+    private String cameraMake;
+
+    /**
+     * 相机型号
+     */
+    @Column(name = "camera_model", length = 100)
+    @Comment("相机型号")
+    private String cameraModel;
+
+    /**
+     * 图像宽度（像素）
+     */
+    @Column(name = "image_width")
+    @Comment("图像宽度(像素)")
+    private Integer imageWidth;
+
+    /**
+     * 图像高度（像素）
+     */
+    @Column(name = "image_height")
+    @Comment("图像高度(像素)")
+    private Integer imageHeight;
+
+    /**
+     * EXIF 方向（1-8），展示缩略图时用于旋转
+     */
+    @Column(name = "orientation")
+    @Comment("EXIF方向(1-8)")
+    private Integer orientation;
+
     // ==================== 核心业务方法 ====================
 
     /**
@@ -607,7 +708,7 @@ public class FileMetadata extends BaseEntity {
         UserRole userRole = determineUserRole(userInfo);
         FileVisibility visibility = getEffectiveVisibility();
 
-        return PermissionMatrix.hasPermission(userRole, visibility, operation);
+        return CompiledPermissionMatrix.hasPermission(userRole, visibility, operation);
     }
 
     /**
@@ -0,0 +1,161 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import com.haven.storage.domain.model.enums.ProcessingTaskType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件后处理任务实体 - 可租约的工作队列
+ * <p>
+ * ============================================================================
+ * 文件描述：OCR、缩略图等文件后处理任务的持久化队列
+ * ============================================================================
+ * <p>
+ * 核心职责：
+ * 1. 任务排队 - 每个 (文件, 任务类型) 只有一条任务记录，重复入队被忽略
+ * 2. 批量领取 - 工作进程通过 SELECT ... FOR UPDATE SKIP LOCKED LIMIT n 领取，多实例互不阻塞、不会重复领取
+ * 3. 可见性租约 - 领取后在租约期内对其他工作进程不可见，超时未完成自动重新可领取
+ * 4. 结果上报 - 工作进程上报完成或失败，失败按最大重试次数决定重新排队或终止
+ * <p>
+ * 状态流转：PENDING(0) → LEASED(1) → COMPLETED(2) / 失败重试回到 PENDING(0) / 超过重试次数 FAILED(3)
+ *
+ * @author HavenButler
+ * @see FileMetadata 文件元数据实体，通过 fileId 关联
+ * @see ProcessingTaskType 任务类型
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "file_processing_task", indexes = {
+        @Index(name = "idx_task_id", columnList = "task_id", unique = true),                        // 任务ID唯一索引
+        @Index(name = "uk_task_file_type", columnList = "file_id, task_type", unique = true),        // 同一文件同类任务唯一
+        @Index(name = "idx_task_claim", columnList = "task_type, status, lease_expire_time"),      // 领取查询索引
+        @Index(name = "idx_task_family", columnList = "family_id")                                  // 家庭索引 - 按家庭查询任务
+})
+@Comment("文件后处理任务表 - 支持多实例租约领取的工作队列")
+public class FileProcessingTask extends BaseEntity {
+
+    /** 状态：待处理 */
+    public static final int STATUS_PENDING = 0;
+    /** 状态：已租约（处理中） */
+    public static final int STATUS_LEASED = 1;
+    /** 状态：已完成 */
+    public static final int STATUS_COMPLETED = 2;
+    /** 状态：失败（超过最大重试次数） */
+    public static final int STATUS_FAILED = 3;
+
+    /**
+     * 任务唯一标识符，工作进程上报结果时使用
+     */
+    @Column(name = "task_id", length = 64, nullable = false, unique = true)
+    @Comment("任务唯一标识符")
+    private String taskId;
+
+    /**
+     * 关联的文件ID
+     */
+    @Column(name = "file_id", length = 64, nullable = false)
+    @Comment("关联文件ID")
+    private String fileId;
+
+    /**
+     * 文件所属家庭ID，工作进程下载文件时使用
+     */
+    @Column(name = "family_id", length = 64, nullable = false)
+    @Comment("文件所属家庭ID")
+    private String familyId;
+
+    /**
+     * 任务类型
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "task_type", length = 32, nullable = false)
+    @Comment("任务类型(OCR/THUMBNAIL/METADATA_EXTRACT)")
+    private ProcessingTaskType taskType;
+
+    /**
+     * 任务状态
+     * <p>
+     * - 0: 待处理
+     * - 1: 已租约（处理中）
+     * - 2: 已完成
+     * - 3: 失败
+     */
+    @Column(name = "status", nullable = false)
+    @Comment("任务状态(0:待处理 1:处理中 2:已完成 3:失败)")
+    private Integer status;
+
+    /**
+     * 当前持有租约的工作进程ID
+     */
+    @Column(name = "worker_id", length = 128)
+    @Comment("持有租约的工作进程ID")
+    private String workerId;
+
+    /**
+     * 租约到期时间，到期未完成的任务可被其他工作进程重新领取
+     */
+    @Column(name = "lease_expire_time")
+    @Comment("租约到期时间")
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 已领取次数（每次领取加1）
+     */
+    @Column(name = "attempts", nullable = false)
+    @Comment("已领取次数")
+    private Integer attempts;
+
+    /**
+     * 最大领取次数，超过后任务标记为失败
+     */
+    @Column(name = "max_attempts", nullable = false)
+    @Comment("最大领取次数")
+    private Integer maxAttempts;
+
+    /**
+     * 最近一次失败原因
+     */
+    @Column(name = "last_error", length = 1000)
+    @Comment("最近一次失败原因")
+    private String lastError;
+
+    /**
+     * 处理结果（JSON格式，如OCR识别文本摘要）
+     */
+    @Column(name = "result_payload", columnDefinition = "TEXT")
+    @Comment("处理结果(JSON格式)")
+    private String resultPayload;
+
+    /**
+     * 完成时间
+     */
+    @Column(name = "completed_time")
+    @Comment("完成时间")
+    private LocalDateTime completedTime;
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        if (getCreateTime() == null) {
+            setCreateTime(now);
+        }
+        setUpdateTime(now);
+        if (this.status == null) {
+            this.status = STATUS_PENDING;
+        }
+        if (this.attempts == null) {
+            this.attempts = 0;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        setUpdateTime(LocalDateTime.now());
+    }
+}
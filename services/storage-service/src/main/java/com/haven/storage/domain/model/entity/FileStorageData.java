@@ -42,11 +42,23 @@ import java.time.LocalDateTime;
         @Index(name = "idx_storage_type", columnList = "storage_type"),              // 存储类型索引 - 按类型筛选
         @Index(name = "idx_storage_status", columnList = "storage_status"),          // 存储状态索引 - 状态筛选
         @Index(name = "idx_family_bucket", columnList = "family_bucket_name"),       // 家庭桶名索引 - 按家庭筛选
+        @Index(name = "idx_bucket_path", columnList = "family_bucket_name, file_path"), // 桶名+路径索引 - 按对象位置查找
+        @Index(name = "idx_family_checksum", columnList = "family_id, file_checksum"), // 家庭+校验和索引 - 重复文件分析
+        @Index(name = "idx_backup_status", columnList = "backup_status, id"),          // 备份状态索引 - 增量备份扫描
         @Index(name = "idx_create_time", columnList = "create_time")                  // 创建时间索引 - 时间排序
 })
 @Comment("文件存储数据表 - 存储文件的物理位置、配置信息和健康状态")
 public class FileStorageData extends BaseEntity {
 
+    /** 备份状态：未备份 */
+    public static final int BACKUP_STATUS_NOT_BACKED_UP = 0;
+    /** 备份状态：已备份 */
+    public static final int BACKUP_STATUS_BACKED_UP = 1;
+    /** 备份状态：备份中 */
+    public static final int BACKUP_STATUS_IN_PROGRESS = 2;
+    /** 备份状态：备份失败 */
+    public static final int BACKUP_STATUS_FAILED = 3;
+
     /**
      * 存储唯一标识符
      * <p>
@@ -83,6 +95,18 @@ public class FileStorageData extends BaseEntity {
     @Comment("关联文件元数据ID")
     private String fileId;
 
+    /**
+     * 所属家庭ID
+     * <p>
+     * 冗余自 {@link FileMetadata#familyId}，与 fileChecksum 组成联合索引，
+     * 使按家庭分组统计重复文件时无需回表关联 file_metadata
+     * <p>
+     * 历史数据可通过 {@code FileStorageDataRepository#backfillFamilyIds} 补齐
+     */
+    @Column(name = "family_id", length = 64)
+    @Comment("所属家庭ID(冗余字段，用于重复文件分析)")
+    private String familyId;
+
     /**
      * 存储类型
      * <p>
@@ -334,6 +358,16 @@ public class FileStorageData extends BaseEntity {
     @Comment("最后备份时间")
     private LocalDateTime lastBackupTime;
 
+    /**
+     * 桶布局迁移时间
+     * <p>
+     * 对象从每家庭一桶迁入共享分片桶、记录切换到新位置的时间。
+     * 旧布局副本的清理以此判断宽限期；直接写入共享桶的数据为空，没有旧副本需要清理。
+     */
+    @Column(name = "layout_migrated_time")
+    @Comment("桶布局迁移时间")
+    private LocalDateTime layoutMigratedTime;
+
     /**
      * 存储元数据
      * <p>
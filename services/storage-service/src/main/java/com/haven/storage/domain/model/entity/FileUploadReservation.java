@@ -0,0 +1,173 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 直传上传预留实体
+ * <p>
+ * ============================================================================
+ * 文件描述：客户端直传对象存储期间，服务端为其预留的对象键和声明的文件属性
+ * ============================================================================
+ * <p>
+ * 核心职责：
+ * 1. 预留对象键 - 签发预签名PUT前写入，桶名和对象键由服务端生成，客户端无法指定
+ * 2. 校验依据 - 确认时以声明的大小和MD5核对对象存储中的实际对象
+ * 3. 孤儿回收 - 超时未确认的预留由定时任务删除已上传的对象
+ * <p>
+ * 状态流转：
+ * - 0 待上传 → 1 已确认（校验通过，已写入文件元数据和存储数据）
+ * - 0 待上传 → 2 已拒绝（大小或MD5不一致，对象已删除）
+ * - 0 待上传 → 3 已过期（超时未确认，对象已删除）
+ *
+ * @author HavenButler
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "file_upload_reservation", indexes = {
+        @Index(name = "uk_upload_reservation_upload_id", columnList = "upload_id", unique = true),   // 确认接口按上传ID查找
+        @Index(name = "idx_upload_reservation_expire", columnList = "status, expire_time, id"),      // 回收超时预留
+        @Index(name = "idx_upload_reservation_updated", columnList = "status, update_time")           // 清理已结束预留
+})
+@Comment("直传上传预留表 - 预签名直传期间预留的对象键和声明的文件属性")
+public class FileUploadReservation extends BaseEntity {
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_CONFIRMED = 1;
+    public static final int STATUS_REJECTED = 2;
+    public static final int STATUS_EXPIRED = 3;
+
+    /**
+     * 上传ID（客户端确认时使用）
+     */
+    @Column(name = "upload_id", length = 64, nullable = false)
+    @Comment("上传ID")
+    private String uploadId;
+
+    /**
+     * 预留的文件ID
+     */
+    @Column(name = "file_id", length = 64, nullable = false)
+    @Comment("预留的文件ID")
+    private String fileId;
+
+    /**
+     * 所属家庭ID
+     */
+    @Column(name = "family_id", length = 64, nullable = false)
+    @Comment("所属家庭ID")
+    private String familyId;
+
+    /**
+     * 上传用户ID
+     */
+    @Column(name = "uploader_user_id", length = 64, nullable = false)
+    @Comment("上传用户ID")
+    private String uploaderUserId;
+
+    /**
+     * 存储类型代码
+     */
+    @Column(name = "storage_type", nullable = false)
+    @Comment("存储类型代码")
+    private Integer storageType;
+
+    /**
+     * 目标存储桶
+     */
+    @Column(name = "bucket_name", length = 100, nullable = false)
+    @Comment("目标存储桶")
+    private String bucketName;
+
+    /**
+     * 预留的对象键
+     */
+    @Column(name = "object_key", length = 500, nullable = false)
+    @Comment("预留的对象键")
+    private String objectKey;
+
+    /**
+     * 原始文件名
+     */
+    @Column(name = "original_name", length = 255, nullable = false)
+    @Comment("原始文件名")
+    private String originalName;
+
+    /**
+     * 文件夹路径
+     */
+    @Column(name = "folder_path", length = 255)
+    @Comment("文件夹路径")
+    private String folderPath;
+
+    /**
+     * 声明的内容类型
+     */
+    @Column(name = "content_type", length = 100)
+    @Comment("声明的内容类型")
+    private String contentType;
+
+    /**
+     * 文件可见性
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "file_visibility", length = 20)
+    @Comment("文件可见性")
+    private FileVisibility fileVisibility;
+
+    /**
+     * 文件描述
+     */
+    @Column(name = "description", length = 500)
+    @Comment("文件描述")
+    private String description;
+
+    /**
+     * 文件标签（逗号分隔）
+     */
+    @Column(name = "tags", length = 600)
+    @Comment("文件标签(逗号分隔)")
+    private String tags;
+
+    /**
+     * 声明的文件大小（字节）
+     */
+    @Column(name = "declared_size", nullable = false)
+    @Comment("声明的文件大小(字节)")
+    private Long declaredSize;
+
+    /**
+     * 声明的内容MD5（十六进制小写）
+     */
+    @Column(name = "declared_md5", length = 32, nullable = false)
+    @Comment("声明的内容MD5(十六进制)")
+    private String declaredMd5;
+
+    /**
+     * 状态：0待上传 1已确认 2已拒绝 3已过期
+     */
+    @Column(name = "status", nullable = false)
+    @Comment("状态:0待上传 1已确认 2已拒绝 3已过期")
+    private Integer status = STATUS_PENDING;
+
+    /**
+     * 预留过期时间（上传地址有效期加确认宽限期）
+     */
+    @Column(name = "expire_time", nullable = false)
+    @Comment("预留过期时间")
+    private LocalDateTime expireTime;
+
+    /**
+     * 拒绝或过期原因
+     */
+    @Column(name = "reject_reason", length = 500)
+    @Comment("拒绝或过期原因")
+    private String rejectReason;
+}
@@ -0,0 +1,42 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+/**
+ * 文件事件消费记录实体
+ * <p>
+ * 发件箱按至少一次投递，非幂等的订阅者（如家庭统计累加）在处理事件的同一事务中
+ * 写入消费记录，(订阅者, 事件ID) 已存在时跳过处理，从而把重复投递变为一次生效。
+ * 记录随已发布事件一起按保留期清理。
+ *
+ * @author HavenButler
+ * @see StorageOutboxEvent 发件箱事件
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "storage_event_consumption", indexes = {
+        @Index(name = "uk_event_consumption", columnList = "consumer, event_id", unique = true),  // 同一订阅者同一事件只消费一次
+        @Index(name = "idx_event_consumption_time", columnList = "create_time")                  // 按保留期清理
+})
+@Comment("文件事件消费记录表 - 订阅者幂等去重")
+public class StorageEventConsumption extends BaseEntity {
+
+    /**
+     * 订阅者名称
+     */
+    @Column(name = "consumer", length = 64, nullable = false)
+    @Comment("订阅者名称")
+    private String consumer;
+
+    /**
+     * 事件ID
+     */
+    @Column(name = "event_id", length = 64, nullable = false)
+    @Comment("事件ID")
+    private String eventId;
+}
@@ -0,0 +1,141 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import com.haven.storage.domain.model.enums.IntegrityIssueType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 存储完整性问题实体 - 后台巡检结果
+ * <p>
+ * ============================================================================
+ * 文件描述：完整性巡检发现的对象缺失、内容损坏和孤儿数据记录
+ * ============================================================================
+ * <p>
+ * 核心职责：
+ * 1. 问题记录 - 同一问题（类型 + 问题键）只保留一条，重复发现时累加次数并刷新最近发现时间
+ * 2. 自动恢复 - 文件再次巡检通过后，其未解决的问题自动标记为已解决
+ * 3. 运维排查 - 按类型统计未解决问题，定位需要修复或清理的数据
+ * <p>
+ * 问题键规则：
+ * - 文件类问题（对象缺失、校验和不一致、缺少存储数据）：fileId
+ * - 孤儿对象：存储类型:桶名/对象键
+ *
+ * @author HavenButler
+ * @see IntegrityIssueType 问题类型
+ * @see FileStorageData 文件存储数据实体
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "storage_integrity_issue", indexes = {
+        @Index(name = "uk_integrity_issue", columnList = "issue_type, issue_key", unique = true),  // 同一问题唯一
+        @Index(name = "idx_integrity_file", columnList = "file_id"),                              // 文件ID索引 - 巡检通过后解决问题
+        @Index(name = "idx_integrity_resolved", columnList = "resolved, issue_type")               // 未解决问题统计
+})
+@Comment("存储完整性问题表 - 后台巡检发现的对象缺失、损坏和孤儿数据")
+public class StorageIntegrityIssue extends BaseEntity {
+
+    /**
+     * 问题类型
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "issue_type", length = 32, nullable = false)
+    @Comment("问题类型(MISSING_OBJECT/CHECKSUM_MISMATCH/MISSING_STORAGE_DATA/ORPHAN_OBJECT)")
+    private IntegrityIssueType issueType;
+
+    /**
+     * 问题键，与问题类型组成唯一键
+     */
+    @Column(name = "issue_key", length = 400, nullable = false)
+    @Comment("问题键(文件ID或存储类型:桶名/对象键)")
+    private String issueKey;
+
+    /**
+     * 关联文件ID（孤儿对象为空）
+     */
+    @Column(name = "file_id", length = 64)
+    @Comment("关联文件ID")
+    private String fileId;
+
+    /**
+     * 所属家庭ID
+     */
+    @Column(name = "family_id", length = 64)
+    @Comment("所属家庭ID")
+    private String familyId;
+
+    /**
+     * 存储类型编码
+     */
+    @Column(name = "storage_type")
+    @Comment("存储类型")
+    private Integer storageType;
+
+    /**
+     * 桶名
+     */
+    @Column(name = "bucket_name", length = 100)
+    @Comment("桶名")
+    private String bucketName;
+
+    /**
+     * 对象键
+     */
+    @Column(name = "object_key", length = 500)
+    @Comment("对象键")
+    private String objectKey;
+
+    /**
+     * 期望的校验和（存储数据中记录的值）
+     */
+    @Column(name = "expected_checksum", length = 128)
+    @Comment("期望校验和")
+    private String expectedChecksum;
+
+    /**
+     * 实际计算出的校验和
+     */
+    @Column(name = "actual_checksum", length = 128)
+    @Comment("实际校验和")
+    private String actualChecksum;
+
+    /**
+     * 发现次数
+     */
+    @Column(name = "occurrences", nullable = false)
+    @Comment("发现次数")
+    private Integer occurrences;
+
+    /**
+     * 首次发现时间
+     */
+    @Column(name = "first_detected_time", nullable = false)
+    @Comment("首次发现时间")
+    private LocalDateTime firstDetectedTime;
+
+    /**
+     * 最近发现时间
+     */
+    @Column(name = "last_detected_time", nullable = false)
+    @Comment("最近发现时间")
+    private LocalDateTime lastDetectedTime;
+
+    /**
+     * 是否已解决
+     */
+    @Column(name = "resolved", nullable = false)
+    @Comment("是否已解决")
+    private Boolean resolved = false;
+
+    /**
+     * 解决时间
+     */
+    @Column(name = "resolved_time")
+    @Comment("解决时间")
+    private LocalDateTime resolvedTime;
+}
@@ -0,0 +1,126 @@
+package com.haven.storage.domain.model.entity;
+
+import com.haven.base.model.entity.BaseEntity;
+import com.haven.storage.domain.model.enums.FileEventType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 存储事务发件箱实体
+ * <p>
+ * ============================================================================
+ * 文件描述：与文件元数据在同一事务中写入的待发布事件
+ * ============================================================================
+ * <p>
+ * 核心职责：
+ * 1. 原子记录 - 上传、删除事务提交则事件必然存在，事务回滚则事件一并消失
+ * 2. 异步投递 - 统计、搜索索引、缓存、缩略图等副作用由中继批量投递，不占用请求事务
+ * 3. 至少一次 - 投递成功后才标记为已发布，中继崩溃或投递失败时按退避时间重投
+ * <p>
+ * 状态流转：
+ * - 0 待发布 → 1 已发布（所有订阅者与消息中间件均投递成功）
+ * - 0 待发布 → 2 发布失败（达到最大投递次数，需人工排查后重置）
+ * <p>
+ * 💡 领取规则：
+ * - 中继领取时把 nextAttemptTime 推迟一个租约时长，投递期间实例崩溃，租约到期后由其他实例重投
+ *
+ * @author HavenButler
+ * @see FileEventType 事件类型
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity
+@Table(name = "storage_outbox_event", indexes = {
+        @Index(name = "uk_outbox_event_id", columnList = "event_id", unique = true),                 // 事件ID唯一，订阅者据此去重
+        @Index(name = "idx_outbox_publishable", columnList = "status, next_attempt_time, id"),       // 领取待发布事件
+        @Index(name = "idx_outbox_published_time", columnList = "status, published_time")            // 清理已发布事件
+})
+@Comment("存储事务发件箱表 - 与文件元数据同事务写入的待发布事件")
+public class StorageOutboxEvent extends BaseEntity {
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_PUBLISHED = 1;
+    public static final int STATUS_FAILED = 2;
+
+    /**
+     * 事件ID（全局唯一，订阅者用于幂等去重）
+     */
+    @Column(name = "event_id", length = 64, nullable = false)
+    @Comment("事件ID")
+    private String eventId;
+
+    /**
+     * 事件类型
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 32, nullable = false)
+    @Comment("事件类型(FILE_UPLOADED/FILE_DELETED)")
+    private FileEventType eventType;
+
+    /**
+     * 关联文件ID
+     */
+    @Column(name = "file_id", length = 64, nullable = false)
+    @Comment("关联文件ID")
+    private String fileId;
+
+    /**
+     * 所属家庭ID（同时作为消息分区键）
+     */
+    @Column(name = "family_id", length = 64, nullable = false)
+    @Comment("所属家庭ID")
+    private String familyId;
+
+    /**
+     * 事件内容（FileLifecycleEvent 的JSON）
+     */
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    @Comment("事件内容JSON")
+    private String payload;
+
+    /**
+     * 产生事件的请求链路ID
+     */
+    @Column(name = "trace_id", length = 64)
+    @Comment("链路追踪ID")
+    private String traceId;
+
+    /**
+     * 状态：0待发布 1已发布 2发布失败
+     */
+    @Column(name = "status", nullable = false)
+    @Comment("状态:0待发布 1已发布 2发布失败")
+    private Integer status = STATUS_PENDING;
+
+    /**
+     * 已投递次数
+     */
+    @Column(name = "attempts", nullable = false)
+    @Comment("已投递次数")
+    private Integer attempts = 0;
+
+    /**
+     * 下次可投递时间（领取租约到期时间或失败退避时间）
+     */
+    @Column(name = "next_attempt_time", nullable = false)
+    @Comment("下次可投递时间")
+    private LocalDateTime nextAttemptTime;
+
+    /**
+     * 发布成功时间
+     */
+    @Column(name = "published_time")
+    @Comment("发布成功时间")
+    private LocalDateTime publishedTime;
+
+    /**
+     * 最近一次投递失败原因
+     */
+    @Column(name = "last_error", length = 1000)
+    @Comment("最近一次失败原因")
+    private String lastError;
+}
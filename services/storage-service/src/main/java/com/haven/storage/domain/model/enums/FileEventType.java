@@ -0,0 +1,23 @@
+package com.haven.storage.domain.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 文件生命周期事件类型
+ * <p>
+ * 事件与 file_metadata 在同一事务中写入 storage_outbox_event 表，
+ * 由发件箱中继投递给进程内订阅者，并以 topic 发布到消息中间件
+ */
+@Getter
+public enum FileEventType {
+    FILE_UPLOADED("storage.file.uploaded", "文件上传完成"),
+    FILE_DELETED("storage.file.deleted", "文件已删除");
+
+    private final String topic;
+    private final String description;
+
+    FileEventType(String topic, String description) {
+        this.topic = topic;
+        this.description = description;
+    }
+}
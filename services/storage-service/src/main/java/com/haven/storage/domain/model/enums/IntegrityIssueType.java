@@ -0,0 +1,22 @@
+package com.haven.storage.domain.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 存储完整性问题类型
+ * <p>
+ * 由后台巡检发现并记录在 storage_integrity_issue 表中
+ */
+@Getter
+public enum IntegrityIssueType {
+    MISSING_OBJECT("存储数据存在但对象缺失"),
+    CHECKSUM_MISMATCH("对象内容与校验和不一致"),
+    MISSING_STORAGE_DATA("文件元数据没有对应的存储数据"),
+    ORPHAN_OBJECT("对象存在但没有对应的存储数据");
+
+    private final String description;
+
+    IntegrityIssueType(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,29 @@
+package com.haven.storage.domain.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 文件后处理任务类型
+ * <p>
+ * 文件上传完成后异步执行的处理任务，由外部工作进程（如 ocr-go）通过任务队列领取
+ */
+@Getter
+public enum ProcessingTaskType {
+    OCR("文字识别"),
+    THUMBNAIL("缩略图生成"),
+    METADATA_EXTRACT("元数据提取");
+
+    private final String description;
+
+    ProcessingTaskType(String description) {
+        this.description = description;
+    }
+
+    /**
+     * 根据文件类型判断上传后需要创建的处理任务
+     */
+    public static boolean requiresOcr(SupportedFileType fileType) {
+        return fileType != null
+                && (fileType.getCategory() == FileCategory.IMAGE || fileType == SupportedFileType.PDF);
+    }
+}
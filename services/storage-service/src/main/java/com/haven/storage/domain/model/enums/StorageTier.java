@@ -0,0 +1,20 @@
+package com.haven.storage.domain.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 存储分层
+ * <p>
+ * 记录在 FileStorageData.storageConfig 的 tier 字段中，缺省视为热层
+ */
+@Getter
+public enum StorageTier {
+    HOT("热存储"),
+    COLD("冷存储");
+
+    private final String description;
+
+    StorageTier(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,19 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+/**
+ * 增量备份执行结果
+ */
+@Data
+public class BackupRunResult {
+    private String targetStorageType;
+    private int scannedFiles;
+    private int backedUpFiles;
+    private int failedFiles;
+    private long bytesCopied;
+    private long elapsedMillis;
+    /** 是否已处理完所有待备份数据 */
+    private boolean completed;
+    private String traceId;
+}
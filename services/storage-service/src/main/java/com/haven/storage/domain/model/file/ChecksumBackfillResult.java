@@ -0,0 +1,21 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+/**
+ * 校验和回填结果
+ */
+@Data
+public class ChecksumBackfillResult {
+    private String familyId;
+    private int scannedFiles;
+    private int updatedFiles;
+    private int failedFiles;
+    private long bytesHashed;
+    private long elapsedMillis;
+    /** 本次回填结束时的游标，下次可从此处继续 */
+    private long lastId;
+    /** 是否已扫描到末尾 */
+    private boolean completed;
+    private String traceId;
+}
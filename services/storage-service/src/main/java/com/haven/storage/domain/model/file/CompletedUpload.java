@@ -0,0 +1,38 @@
+package com.haven.storage.domain.model.file;
+
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.StorageType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已写入对象存储、待登记元数据的上传
+ * <p>
+ * 直传和流式上传在对象写入完成后以此描述上传结果，由 UploadedFileRecorder 统一登记。
+ */
+@Data
+@Builder
+public class CompletedUpload {
+    private String fileId;
+    private String familyId;
+    private String uploaderUserId;
+    private StorageType storageType;
+    private String bucketName;
+    private String objectKey;
+    private String originalName;
+    private String folderPath;
+    /** 客户端声明的内容类型，为空时使用检测出的MIME类型 */
+    private String contentType;
+    private FileVisibility visibility;
+    private String description;
+    /** 文件标签，为空时使用文件类型的扩展名 */
+    private List<String> tags;
+    private long fileSize;
+    /** 内容SHA-256，未知时为空，由校验和回填任务补齐 */
+    private String fileChecksum;
+    /** 附加的存储元数据（如ETag、上传ID） */
+    private Map<String, Object> storageMetadata;
+}
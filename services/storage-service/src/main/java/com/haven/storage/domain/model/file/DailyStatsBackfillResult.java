@@ -0,0 +1,24 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 每日统计回填结果
+ */
+@Data
+public class DailyStatsBackfillResult {
+    private String familyId;
+    private LocalDate fromDate;
+    /** 回填截止日期（不含） */
+    private LocalDate toDate;
+    private int windows;
+    private int rowsWritten;
+    /** 下次继续的起始日期，completed 为 true 时等于 toDate */
+    private LocalDate nextFromDate;
+    /** 是否已回填到截止日期 */
+    private boolean completed;
+    private long elapsedMillis;
+    private String traceId;
+}
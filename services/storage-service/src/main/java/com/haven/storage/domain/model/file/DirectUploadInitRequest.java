@@ -0,0 +1,67 @@
+package com.haven.storage.domain.model.file;
+
+import com.haven.storage.domain.model.enums.FileVisibility;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 直传上传申请请求
+ *
+ * 客户端先声明文件名、大小和内容MD5，服务端预留对象键并签发预签名PUT地址，
+ * 文件内容由客户端直接上传到对象存储，不经过存储服务。
+ *
+ * @author HavenButler
+ */
+@Data
+@Schema(description = "直传上传申请请求")
+public class DirectUploadInitRequest {
+
+    @NotBlank(message = "家庭ID不能为空")
+    @Size(min = 3, max = 50, message = "家庭ID长度必须在3-50个字符之间")
+    @Pattern(regexp = "^[a-zA-Z0-9_-]+$", message = "家庭ID只能包含字母、数字、下划线和短横线")
+    @Schema(description = "家庭ID", example = "family_123", required = true)
+    private String familyId;
+
+    @Pattern(regexp = "^(/[a-zA-Z0-9_\\-\\s]*)*$", message = "文件夹路径格式不正确，必须以/开头")
+    @Size(max = 255, message = "文件夹路径长度不能超过255个字符")
+    @Schema(description = "文件夹路径", example = "/photos/2024/", defaultValue = "/")
+    private String folderPath;
+
+    @NotBlank(message = "上传用户ID不能为空")
+    @Size(min = 3, max = 50, message = "上传用户ID长度必须在3-50个字符之间")
+    @Pattern(regexp = "^[a-zA-Z0-9_-]+$", message = "上传用户ID只能包含字母、数字、下划线和短横线")
+    @Schema(description = "上传用户ID", example = "user_456", required = true)
+    private String uploaderUserId;
+
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名长度不能超过255个字符")
+    @Schema(description = "原始文件名", example = "IMG_0001.jpg", required = true)
+    private String fileName;
+
+    @Positive(message = "文件大小必须大于0")
+    @Schema(description = "文件大小（字节）", example = "3145728", required = true)
+    private long fileSize;
+
+    @Size(max = 100, message = "内容类型长度不能超过100个字符")
+    @Schema(description = "内容类型", example = "image/jpeg")
+    private String contentType;
+
+    @NotBlank(message = "内容MD5不能为空")
+    @Pattern(regexp = "^[A-Za-z0-9+/]{22}==$", message = "内容MD5必须为Base64编码的16字节摘要")
+    @Schema(description = "文件内容MD5（Base64，与Content-MD5请求头一致）", example = "1B2M2Y8AsgTpgAmY7PhCfg==", required = true)
+    private String contentMd5;
+
+    @Schema(description = "文件可见性级别", example = "FAMILY")
+    private FileVisibility visibility;
+
+    @Size(max = 500, message = "文件描述长度不能超过500个字符")
+    @Schema(description = "文件描述", example = "家庭聚会照片")
+    private String description;
+
+    @Size(max = 10, message = "文件标签数量不能超过10个")
+    @Schema(description = "文件标签", example = "[\"家庭\", \"聚会\", \"照片\"]")
+    private List<@Size(max = 50, message = "单个标签长度不能超过50个字符") String> tags;
+}
@@ -0,0 +1,25 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 直传上传凭证
+ * <p>
+ * 客户端使用 method 和 headers 把文件内容直接上传到 uploadUrl，完成后调用确认接口提交元数据。
+ */
+@Data
+public class DirectUploadTicket {
+    private String uploadId;
+    /** 预留的文件ID，确认成功后即为文件元数据的 fileId */
+    private String fileId;
+    private String uploadUrl;
+    private String method;
+    /** 上传时必须携带的请求头 */
+    private Map<String, String> headers;
+    /** 上传地址过期时间 */
+    private LocalDateTime expiresAt;
+    private String traceId;
+}
@@ -0,0 +1,37 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 重复文件分析报告
+ * <p>
+ * 基于文件校验和分组，统计家庭内内容完全相同的文件及可回收空间
+ */
+@Data
+public class DuplicateFileReport {
+    private String familyId;
+    private List<DuplicateGroup> duplicateGroups;
+    private int totalGroups;
+    private long totalDuplicateFiles;
+    private long totalReclaimableBytes;
+    /** 尚未计算校验和的文件数，这部分文件不参与分析 */
+    private long filesMissingChecksum;
+    private String traceId;
+
+    /**
+     * 重复文件组（校验和相同的文件）
+     */
+    @Data
+    public static class DuplicateGroup {
+        private String checksum;
+        private long fileCount;
+        private long fileSize;
+        private long totalSize;
+        /** 只保留一份时可释放的字节数 */
+        private long reclaimableBytes;
+        /** 组内文件ID，按创建时间升序，第一个为建议保留的文件 */
+        private List<String> fileIds;
+    }
+}
@@ -0,0 +1,34 @@
+package com.haven.storage.domain.model.file;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量获取文件访问URL请求
+ *
+ * 相册、图库等场景一次请求多个文件的预签名访问URL
+ *
+ * @author HavenButler
+ */
+@Data
+@Schema(description = "批量获取文件访问URL请求")
+public class FileAccessUrlBatchRequest {
+
+    @NotBlank(message = "家庭ID不能为空")
+    @Pattern(regexp = "^[a-zA-Z0-9_-]+$", message = "家庭ID只能包含字母、数字、下划线和短横线")
+    @Schema(description = "家庭ID", example = "family_123", required = true)
+    private String familyId;
+
+    @NotEmpty(message = "文件ID列表不能为空")
+    @Size(max = 500, message = "单次最多获取500个文件的访问URL")
+    @Schema(description = "文件ID列表", required = true)
+    private List<@NotBlank String> fileIds;
+
+    @Min(value = 1, message = "过期时间至少为1分钟")
+    @Max(value = 10080, message = "过期时间不能超过7天")
+    @Schema(description = "URL最短剩余有效期（分钟）", example = "60", defaultValue = "60")
+    private int expireMinutes = 60;
+}
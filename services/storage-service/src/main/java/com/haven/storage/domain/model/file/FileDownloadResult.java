@@ -18,6 +18,7 @@ public class FileDownloadResult {
     private String traceId;
     private String fileName;         // 文件名（兼容性）
     private String contentType;      // 内容类型（兼容性）
+    private boolean notModified;     // 条件请求命中，客户端缓存仍有效（304）
 
     // ========== 兼容性方法 ==========
 
@@ -43,6 +44,18 @@ public class FileDownloadResult {
         return result;
     }
 
+    /**
+     * 条件请求命中：客户端缓存仍有效，不读取物理文件
+     */
+    public static FileDownloadResult notModified(FileMetadata fileMetadata, String traceId) {
+        FileDownloadResult result = new FileDownloadResult();
+        result.success = true;
+        result.notModified = true;
+        result.fileMetadata = fileMetadata;
+        result.traceId = traceId;
+        return result;
+    }
+
     // ========== 错误结果方法 ==========
 
     public static FileDownloadResult error(String errorMessage, String traceId) {
@@ -0,0 +1,30 @@
+package com.haven.storage.domain.model.file;
+
+import com.haven.storage.domain.model.enums.FileEventType;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件生命周期事件内容
+ * <p>
+ * 以JSON保存在发件箱 payload 中，原样投递给进程内订阅者和消息中间件。
+ * 投递语义为至少一次，消费方应以 eventId 去重。
+ */
+@Data
+public class FileLifecycleEvent {
+    private String eventId;
+    private FileEventType eventType;
+    private String fileId;
+    private String familyId;
+    /** 触发事件的用户（上传者或删除操作人） */
+    private String operatorUserId;
+    private String originalName;
+    private String folderPath;
+    private long fileSize;
+    private String fileType;
+    private String contentType;
+    /** 事件发生时间（业务事务内的时间） */
+    private LocalDateTime occurredTime;
+    private String traceId;
+}
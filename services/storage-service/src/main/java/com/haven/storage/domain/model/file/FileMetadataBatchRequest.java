@@ -0,0 +1,29 @@
+package com.haven.storage.domain.model.file;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量获取文件元数据请求
+ *
+ * 相册、图库等场景一次加载多个文件的元数据和存储信息
+ *
+ * @author HavenButler
+ */
+@Data
+@Schema(description = "批量获取文件元数据请求")
+public class FileMetadataBatchRequest {
+
+    @NotBlank(message = "家庭ID不能为空")
+    @Pattern(regexp = "^[a-zA-Z0-9_-]+$", message = "家庭ID只能包含字母、数字、下划线和短横线")
+    @Schema(description = "家庭ID", example = "family_123", required = true)
+    private String familyId;
+
+    @NotEmpty(message = "文件ID列表不能为空")
+    @Size(max = 200, message = "单次最多获取200个文件的元数据")
+    @Schema(description = "文件ID列表", required = true)
+    private List<@NotBlank String> fileIds;
+}
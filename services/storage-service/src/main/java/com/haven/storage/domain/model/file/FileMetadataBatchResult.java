@@ -0,0 +1,33 @@
+package com.haven.storage.domain.model.file;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量文件元数据查询结果
+ */
+@Data
+public class FileMetadataBatchResult {
+    private String familyId;
+    /** 按请求顺序排列的文件详情 */
+    private List<FileDetail> files;
+    /** 不存在、已删除或无权查看的文件ID，不区分具体原因 */
+    private List<String> missingFileIds;
+    private int cacheHits;
+    private String traceId;
+
+    /**
+     * 文件元数据及其存储状态
+     */
+    @Data
+    public static class FileDetail {
+        private FileMetadata metadata;
+        /** 存储类型名称，无存储数据时为null */
+        private String storageType;
+        /** 物理存储是否可用 */
+        private boolean storageAvailable;
+        private String fileChecksum;
+    }
+}
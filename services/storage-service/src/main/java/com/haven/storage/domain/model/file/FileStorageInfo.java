@@ -123,6 +123,20 @@ public class FileStorageInfo implements BaseModel {
         }
     }
 
+    /**
+     * 获取对象键：filePath 以 / 结尾时表示目录，实际对象为目录 + 文件名
+     * <p>
+     * 与各存储适配器上传时使用的对象名一致，存储数据记录此值才能按位置定位对象
+     *
+     * @return 对象键
+     */
+    public String getObjectKey() {
+        if (filePath != null && filePath.endsWith("/") && fileName != null) {
+            return filePath + fileName;
+        }
+        return filePath;
+    }
+
     /**
      * 获取完整的文件访问路径（根据存储类型拼接）
      *
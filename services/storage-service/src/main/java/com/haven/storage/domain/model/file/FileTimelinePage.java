@@ -0,0 +1,20 @@
+package com.haven.storage.domain.model.file;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 拍摄时间线分页结果
+ * <p>
+ * 按拍摄时间倒序，使用游标翻页；只包含当前用户有权查看且带拍摄时间的文件
+ */
+@Data
+public class FileTimelinePage {
+    private String familyId;
+    private List<FileMetadata> files;
+    /** 下一页游标，为空表示已到末尾 */
+    private String nextCursor;
+    private String traceId;
+}
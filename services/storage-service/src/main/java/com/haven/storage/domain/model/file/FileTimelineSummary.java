@@ -0,0 +1,28 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 拍摄时间线按天汇总
+ * <p>
+ * 按拍摄日期倒序，仅统计当前用户有权查看的文件，用于时间线的日期导航
+ */
+@Data
+public class FileTimelineSummary {
+    private String familyId;
+    private List<TimelineDay> days;
+    private long totalFiles;
+    private String traceId;
+
+    /**
+     * 单日拍摄数量
+     */
+    @Data
+    public static class TimelineDay {
+        private LocalDate date;
+        private long fileCount;
+    }
+}
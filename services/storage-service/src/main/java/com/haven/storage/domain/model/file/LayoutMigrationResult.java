@@ -0,0 +1,26 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+/**
+ * 桶布局迁移/旧副本清理结果
+ */
+@Data
+public class LayoutMigrationResult {
+    private String familyId;
+    private int scannedFiles;
+    /** 已复制到共享桶并切换位置的文件数 */
+    private int migratedFiles;
+    /** 已删除旧布局副本的文件数 */
+    private int cleanedFiles;
+    /** 迁移期间被并发修改、留待下次处理的文件数 */
+    private int skippedFiles;
+    private int failedFiles;
+    private long bytesCopied;
+    private long elapsedMillis;
+    /** 本次扫描结束时的游标，下次可从此处继续 */
+    private long lastId;
+    /** 是否已扫描到末尾且没有失败（迁移时还要求不再有旧布局数据） */
+    private boolean completed;
+    private String traceId;
+}
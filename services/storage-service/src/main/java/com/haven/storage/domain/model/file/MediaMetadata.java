@@ -0,0 +1,35 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 从文件头解析出的媒体元数据（EXIF/XMP）
+ * <p>
+ * 所有字段均可能为空；同一字段 EXIF 优先，XMP 仅补充 EXIF 缺失的值。
+ */
+@Data
+public class MediaMetadata {
+    /** 拍摄时间（相机本地时间，不做时区换算） */
+    private LocalDateTime captureTime;
+    /** 拍摄时区偏移，如 +08:00 */
+    private String captureOffset;
+    /** 拍摄时间来源：EXIF / XMP */
+    private String captureTimeSource;
+    private Double gpsLatitude;
+    private Double gpsLongitude;
+    /** 海拔（米，低于海平面为负） */
+    private Double gpsAltitude;
+    private String cameraMake;
+    private String cameraModel;
+    private Integer imageWidth;
+    private Integer imageHeight;
+    /** EXIF 方向（1-8） */
+    private Integer orientation;
+
+    public boolean isEmpty() {
+        return captureTime == null && gpsLatitude == null && cameraMake == null && cameraModel == null
+                && imageWidth == null && orientation == null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+/**
+ * 从文件头的容器结构探测出的媒体参数
+ * <p>
+ * 只读取容器头部（JPEG SOF、PNG IHDR、GIF 逻辑屏幕描述、MP4 moov），不解码图像或视频帧；
+ * 未能在预读范围内找到的字段为空。
+ */
+@Data
+public class MediaProbeResult {
+    /** 容器格式：JPEG / PNG / GIF / MP4，无法识别时为空 */
+    private String format;
+    /** ISO BMFF 的主品牌，如 isom、mp42、qt */
+    private String brand;
+    private Integer width;
+    private Integer height;
+    /** 时长（毫秒），仅视频 */
+    private Long durationMillis;
+    /** 视频编码的 FourCC，如 avc1、hvc1、av01 */
+    private String videoCodec;
+    /** moov 位于预读范围之外（未做 faststart 的 MP4） */
+    private boolean headerBeyondPeek;
+
+    public boolean isRecognized() {
+        return format != null;
+    }
+
+    public boolean hasDimensions() {
+        return width != null && height != null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.haven.storage.domain.model.file;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 后处理任务结果上报请求
+ */
+@Data
+@Schema(description = "后处理任务结果上报请求")
+public class ProcessingTaskReport {
+
+    @NotBlank(message = "工作进程ID不能为空")
+    @Size(max = 128, message = "工作进程ID长度不能超过128个字符")
+    @Schema(description = "持有租约的工作进程ID", example = "ocr-go-1", required = true)
+    private String workerId;
+
+    @Schema(description = "处理结果（JSON），完成时上报")
+    private String resultPayload;
+
+    @Schema(description = "失败原因，失败时上报")
+    private String error;
+
+    @Schema(description = "续期时长（秒），续期时使用", example = "300")
+    private int leaseSeconds;
+}
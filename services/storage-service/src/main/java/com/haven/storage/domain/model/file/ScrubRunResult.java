@@ -0,0 +1,23 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+/**
+ * 完整性巡检单次运行结果
+ */
+@Data
+public class ScrubRunResult {
+    /** 本次结束时所处的巡检阶段 */
+    private String phase;
+    private int verifiedFiles;
+    private int missingObjects;
+    private int checksumMismatches;
+    private int missingStorageData;
+    private int listedObjects;
+    private int orphanObjects;
+    private long bytesRead;
+    private long elapsedMillis;
+    /** 本次运行是否完成了一整轮巡检 */
+    private boolean roundCompleted;
+    private String traceId;
+}
@@ -0,0 +1,22 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 存储对象状态 - 不读取内容，仅由对象存储返回的对象属性
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredObjectStat {
+    private String objectKey;
+    private long size;
+    /** 对象ETag（已去除引号）；单次PUT上传且未使用KMS加密时为内容MD5的十六进制 */
+    private String etag;
+    private String contentType;
+    private Instant lastModified;
+}
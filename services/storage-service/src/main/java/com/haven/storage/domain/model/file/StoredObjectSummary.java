@@ -0,0 +1,19 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 存储对象摘要 - 列举存储桶时返回的单个对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredObjectSummary {
+    private String objectKey;
+    private long size;
+    private Instant lastModified;
+}
@@ -0,0 +1,20 @@
+package com.haven.storage.domain.model.file;
+
+import lombok.Data;
+
+/**
+ * 冷热分层迁移结果
+ */
+@Data
+public class TieringResult {
+    private int scannedFiles;
+    private int migratedFiles;
+    private int failedFiles;
+    private long bytesMoved;
+    private long elapsedMillis;
+    /** 本次扫描结束时的游标，下次可从此处继续 */
+    private long lastId;
+    /** 是否已扫描到末尾 */
+    private boolean completed;
+    private String traceId;
+}
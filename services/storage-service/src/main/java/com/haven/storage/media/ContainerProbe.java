@@ -0,0 +1,304 @@
+package com.haven.storage.media;
+
+import com.haven.storage.domain.model.file.MediaProbeResult;
+import com.haven.storage.utils.FileTypeDetector;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 媒体容器头部探测器
+ * <p>
+ * 只在给定的文件头缓冲内按容器结构定位参数，不解码任何图像或视频帧：
+ * - JPEG / PNG：SOF 段、IHDR 块中的编码尺寸（与 {@link ExifReader} 共用解析）
+ * - GIF：逻辑屏幕描述符中的尺寸
+ * - MP4/MOV（ISO BMFF）：ftyp 品牌，moov/mvhd 时长，视频轨 tkhd 尺寸与 stsd 编码
+ * <p>
+ * 💡 未做 faststart 的 MP4 把 moov 放在 mdat 之后，超出预读范围时只标记 headerBeyondPeek，
+ * 由调用方决定是否放行
+ *
+ * @author HavenButler
+ */
+public final class ContainerProbe {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int MAX_BOXES_PER_LEVEL = 1024;
+
+    private final byte[] data;
+    private final int length;
+    private final boolean truncated;
+    private final MediaProbeResult result = new MediaProbeResult();
+
+    private ContainerProbe(byte[] data, boolean truncated) {
+        this.data = data;
+        this.length = data.length;
+        this.truncated = truncated;
+    }
+
+    /**
+     * 探测文件头中的容器参数
+     *
+     * @param header 有界文件头
+     * @return 探测结果（无法识别或结构损坏的格式返回空结果）
+     */
+    public static MediaProbeResult probe(FileTypeDetector.HeaderPeek header) {
+        if (header == null || header.length() == 0) {
+            return new MediaProbeResult();
+        }
+        ContainerProbe probe = new ContainerProbe(header.bytes(), header.truncated());
+        try {
+            probe.readContainer();
+        } catch (RuntimeException e) {
+            // 各处读取均已做边界检查，这里兜底：畸形文件头按无法识别处理，不能让上传变成500
+            return new MediaProbeResult();
+        }
+        return probe.result;
+    }
+
+    private void readContainer() {
+        if (length >= 4 && u8(0) == 0xFF && u8(1) == 0xD8) {
+            result.setFormat("JPEG");
+            readCodedSize();
+        } else if (length >= 8 && startsWith(0, PNG_SIGNATURE)) {
+            result.setFormat("PNG");
+            readCodedSize();
+        } else if (length >= 6 && (startsWith(0, "GIF87a") || startsWith(0, "GIF89a"))) {
+            result.setFormat("GIF");
+            if (length >= 10) {
+                setDimensions(u16le(6), u16le(8));
+            }
+        } else if (length >= 12 && startsWith(4, "ftyp")) {
+            readIsoBmff();
+        }
+    }
+
+    // ==================== 图片 ====================
+
+    /**
+     * JPEG SOF / PNG IHDR 的解析与元数据提取共用 {@link ExifReader}，这里只取编码尺寸
+     */
+    private void readCodedSize() {
+        long[] size = ExifReader.readCodedSize(data, length);
+        if (size != null) {
+            // 超出 int 范围的尺寸按上限记录，保证尺寸校验不会因溢出被绕过
+            setDimensions(Math.min(size[0], Integer.MAX_VALUE), Math.min(size[1], Integer.MAX_VALUE));
+        }
+    }
+
+    // ==================== ISO BMFF ====================
+
+    private void readIsoBmff() {
+        int pos = 0;
+        boolean moovFound = false;
+        for (int i = 0; i < MAX_BOXES_PER_LEVEL && pos + 8 <= length; i++) {
+            Box box = readBox(pos, Long.MAX_VALUE);
+            if (box == null) {
+                return;
+            }
+            if ("ftyp".equals(box.type) && box.contentStart + 4 <= length) {
+                String brand = ascii(box.contentStart, 4).trim();
+                result.setBrand(brand);
+                result.setFormat("qt".equals(brand) ? "MOV" : "MP4");
+            } else if ("moov".equals(box.type)) {
+                moovFound = true;
+                if (box.end > length) {
+                    result.setHeaderBeyondPeek(true);
+                    return;
+                }
+                readMoov(box.contentStart, (int) box.end);
+                return;
+            }
+            if (box.end > length) {
+                // 通常是 mdat：moov 在它之后，不在预读范围内
+                break;
+            }
+            pos = (int) box.end;
+        }
+        if (!moovFound && truncated) {
+            result.setHeaderBeyondPeek(true);
+        }
+    }
+
+    private void readMoov(int start, int end) {
+        Box mvhd = findChild(start, end, "mvhd");
+        if (mvhd != null) {
+            readMvhd(mvhd);
+        }
+        int pos = start;
+        for (int i = 0; i < MAX_BOXES_PER_LEVEL && pos + 8 <= end; i++) {
+            Box box = readBox(pos, end);
+            if (box == null) {
+                return;
+            }
+            if ("trak".equals(box.type)) {
+                readTrak(box.contentStart, (int) box.end);
+                if (result.getVideoCodec() != null) {
+                    return; // 只取第一条视频轨
+                }
+            }
+            pos = (int) box.end;
+        }
+    }
+
+    private void readMvhd(Box mvhd) {
+        int s = mvhd.contentStart;
+        if (s + 1 > mvhd.end) {
+            return;
+        }
+        int version = u8(s);
+        long timescale;
+        long duration;
+        if (version == 1) {
+            // 版本(1) 标志(3) 创建时间(8) 修改时间(8) 时间刻度(4) 时长(8)
+            if (s + 32 > mvhd.end) {
+                return;
+            }
+            timescale = u32be(s + 20);
+            duration = u64be(s + 24);
+        } else {
+            // 版本(1) 标志(3) 创建时间(4) 修改时间(4) 时间刻度(4) 时长(4)
+            if (s + 20 > mvhd.end) {
+                return;
+            }
+            timescale = u32be(s + 12);
+            duration = u32be(s + 16);
+            if (duration == 0xFFFFFFFFL) {
+                return; // 时长未知
+            }
+        }
+        if (timescale > 0 && duration >= 0) {
+            result.setDurationMillis(duration / timescale * 1000 + duration % timescale * 1000 / timescale);
+        }
+    }
+
+    private void readTrak(int start, int end) {
+        Box mdia = findChild(start, end, "mdia");
+        Box hdlr = mdia == null ? null : findChild(mdia.contentStart, (int) mdia.end, "hdlr");
+        // hdlr：版本标志(4) pre_defined(4) handler_type(4)
+        if (hdlr == null || hdlr.contentStart + 12 > hdlr.end || !startsWith(hdlr.contentStart + 8, "vide")) {
+            return;
+        }
+
+        Box tkhd = findChild(start, end, "tkhd");
+        if (tkhd != null && tkhd.contentStart + 1 <= tkhd.end) {
+            // 宽高为 16.16 定点数，位于矩阵之后
+            int offset = u8(tkhd.contentStart) == 1 ? 88 : 76;
+            if (tkhd.contentStart + offset + 8 <= tkhd.end) {
+                setDimensions(u32be(tkhd.contentStart + offset) >>> 16, u32be(tkhd.contentStart + offset + 4) >>> 16);
+            }
+        }
+
+        Box minf = findChild(mdia.contentStart, (int) mdia.end, "minf");
+        Box stbl = minf == null ? null : findChild(minf.contentStart, (int) minf.end, "stbl");
+        Box stsd = stbl == null ? null : findChild(stbl.contentStart, (int) stbl.end, "stsd");
+        // stsd：版本标志(4) 条目数(4)，随后是第一个样本描述
+        if (stsd == null || stsd.contentStart + 16 > stsd.end) {
+            return;
+        }
+        Box entry = readBox(stsd.contentStart + 8, stsd.end);
+        if (entry == null) {
+            return;
+        }
+        result.setVideoCodec(entry.type.trim());
+        // VisualSampleEntry：保留(6) 数据引用(2) 预定义与保留(16) 宽(2) 高(2)
+        if (!result.hasDimensions() && entry.contentStart + 28 <= entry.end) {
+            setDimensions(u16be(entry.contentStart + 24), u16be(entry.contentStart + 26));
+        }
+    }
+
+    private Box findChild(int start, int end, String type) {
+        int pos = start;
+        for (int i = 0; i < MAX_BOXES_PER_LEVEL && pos + 8 <= end; i++) {
+            Box box = readBox(pos, end);
+            if (box == null) {
+                return null;
+            }
+            if (type.equals(box.type)) {
+                return box;
+            }
+            pos = (int) box.end;
+        }
+        return null;
+    }
+
+    /**
+     * 读取 pos 处的盒子头；嵌套盒子必须完整落在父盒子和预读范围内
+     */
+    private Box readBox(int pos, long parentEnd) {
+        if (pos + 8 > length) {
+            return null;
+        }
+        long size = u32be(pos);
+        String type = ascii(pos + 4, 4);
+        int headerSize = 8;
+        if (size == 1) {
+            if (pos + 16 > length) {
+                return null;
+            }
+            size = u64be(pos + 8);
+            headerSize = 16;
+        } else if (size == 0) {
+            // 延伸到文件末尾
+            size = (parentEnd == Long.MAX_VALUE ? Long.MAX_VALUE / 2 : parentEnd) - pos;
+        }
+        if (size < headerSize || size > Long.MAX_VALUE - pos) {
+            return null;
+        }
+        long end = pos + size;
+        if (parentEnd != Long.MAX_VALUE && end > parentEnd) {
+            return null;
+        }
+        return new Box(type, pos + headerSize, end);
+    }
+
+    private record Box(String type, int contentStart, long end) {
+    }
+
+    // ==================== 工具 ====================
+
+    private void setDimensions(long width, long height) {
+        if (width > 0 && height > 0 && width <= Integer.MAX_VALUE && height <= Integer.MAX_VALUE) {
+            result.setWidth((int) width);
+            result.setHeight((int) height);
+        }
+    }
+
+    private boolean startsWith(int pos, String prefix) {
+        return startsWith(pos, prefix.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private boolean startsWith(int pos, byte[] prefix) {
+        if (pos < 0 || pos + prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[pos + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String ascii(int pos, int count) {
+        return new String(data, pos, count, StandardCharsets.ISO_8859_1);
+    }
+
+    private int u8(int pos) {
+        return data[pos] & 0xFF;
+    }
+
+    private int u16be(int pos) {
+        return (u8(pos) << 8) | u8(pos + 1);
+    }
+
+    private int u16le(int pos) {
+        return u8(pos) | (u8(pos + 1) << 8);
+    }
+
+    private long u32be(int pos) {
+        return ((long) u16be(pos) << 16) | u16be(pos + 2);
+    }
+
+    private long u64be(int pos) {
+        return (u32be(pos) << 32) | u32be(pos + 4);
+    }
+}
@@ -0,0 +1,704 @@
+package com.haven.storage.media;
+
+import com.haven.storage.domain.model.file.MediaMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * EXIF/XMP 解析器
+ * <p>
+ * 只在给定的文件头缓冲内解析，任何越界的偏移都视为数据缺失而不是错误：
+ * - JPEG：APP1 Exif 段、APP1 XMP 段，SOF 段补充图像尺寸
+ * - TIFF 及基于 TIFF 的 RAW（DNG 等）：文件本身即 TIFF 结构
+ * - PNG：eXIf 块、iTXt 中的 XMP，IHDR 补充图像尺寸
+ * - WebP：EXIF 块、XMP 块，VP8X 补充画布尺寸
+ * <p>
+ * 💡 HEIC/MP4 等 ISO BMFF 容器的元数据位置由 iloc 表决定，常位于文件头之外，不在此解析
+ *
+ * @author HavenButler
+ */
+final class ExifReader {
+
+    private static final String SOURCE_EXIF = "EXIF";
+    private static final String SOURCE_XMP = "XMP";
+
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] XMP_HEADER = "http://ns.adobe.com/xap/1.0/\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int MAX_IFD_ENTRIES = 512;
+    private static final int[] TYPE_SIZES = {0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8};
+
+    // IFD0
+    private static final int TAG_IMAGE_WIDTH = 0x0100;
+    private static final int TAG_IMAGE_HEIGHT = 0x0101;
+    private static final int TAG_MAKE = 0x010F;
+    private static final int TAG_MODEL = 0x0110;
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_GPS_IFD = 0x8825;
+    // Exif IFD
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_DATE_TIME_DIGITIZED = 0x9004;
+    private static final int TAG_OFFSET_TIME_ORIGINAL = 0x9011;
+    private static final int TAG_PIXEL_X = 0xA002;
+    private static final int TAG_PIXEL_Y = 0xA003;
+    // GPS IFD
+    private static final int TAG_GPS_LAT_REF = 1;
+    private static final int TAG_GPS_LAT = 2;
+    private static final int TAG_GPS_LON_REF = 3;
+    private static final int TAG_GPS_LON = 4;
+    private static final int TAG_GPS_ALT_REF = 5;
+    private static final int TAG_GPS_ALT = 6;
+
+    private static final DateTimeFormatter EXIF_DATE_TIME = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+    private static final Pattern OFFSET_PATTERN = Pattern.compile("[+-]\\d{2}:\\d{2}");
+    private static final Pattern XMP_FRACTION = Pattern.compile("\\.\\d+");
+    private static final Pattern XMP_GPS = Pattern.compile("(\\d+),(\\d+(?:\\.\\d+)?)(?:,(\\d+(?:\\.\\d+)?))?([NSEW])");
+
+    private final byte[] data;
+    private final int length;
+    private final MediaMetadata result = new MediaMetadata();
+
+    private boolean bigEndian;
+    private int tiffStart;
+    private int tiffEnd;
+    private LocalDateTime digitizedTime;
+    /** 只读取编码尺寸：找到 SOF/IHDR 后即停止，不解析 EXIF/XMP */
+    private boolean codedSizeOnly;
+    private long codedWidth;
+    private long codedHeight;
+
+    private ExifReader(byte[] data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * 解析文件头中的媒体元数据
+     *
+     * @param data   文件头
+     * @param length 有效长度
+     * @return 解析结果（未识别的格式返回空结果）
+     */
+    static MediaMetadata read(byte[] data, int length) {
+        ExifReader reader = new ExifReader(data, Math.min(length, data.length));
+        reader.readContainer();
+        return reader.result;
+    }
+
+    /**
+     * 读取 JPEG SOF 段或 PNG IHDR 块中的编码尺寸
+     * <p>
+     * 与 {@link #read} 共用同一套段/块遍历，但不采用 EXIF 中可被任意改写的像素尺寸，
+     * 供上传校验按真实解码尺寸判断
+     *
+     * @param data   文件头
+     * @param length 有效长度
+     * @return {宽, 高}，不是 JPEG/PNG 或尺寸不在文件头内时返回null
+     */
+    static long[] readCodedSize(byte[] data, int length) {
+        ExifReader reader = new ExifReader(data, Math.min(length, data.length));
+        reader.codedSizeOnly = true;
+        if (reader.length >= 4 && reader.u8(0) == 0xFF && reader.u8(1) == 0xD8) {
+            reader.readJpeg();
+        } else if (reader.length >= 8 && reader.startsWith(0, PNG_SIGNATURE)) {
+            reader.readPng();
+        }
+        return reader.codedWidth > 0 && reader.codedHeight > 0
+                ? new long[]{reader.codedWidth, reader.codedHeight} : null;
+    }
+
+    private void readContainer() {
+        if (length >= 4 && u8(0) == 0xFF && u8(1) == 0xD8) {
+            readJpeg();
+        } else if (length >= 8 && (startsWith(0, "II*\0") || startsWith(0, "MM\0*"))) {
+            readTiff(0, length);
+        } else if (length >= 8 && startsWith(0, PNG_SIGNATURE)) {
+            readPng();
+        } else if (length >= 12 && startsWith(0, "RIFF") && startsWith(8, "WEBP")) {
+            readWebp();
+        }
+        if (result.getCaptureTime() == null && digitizedTime != null) {
+            result.setCaptureTime(digitizedTime);
+            result.setCaptureTimeSource(SOURCE_EXIF);
+        }
+    }
+
+    // ==================== 容器 ====================
+
+    private void readJpeg() {
+        int pos = 2;
+        while (pos + 4 <= length) {
+            if (u8(pos) != 0xFF) {
+                return;
+            }
+            int marker = u8(pos + 1);
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // EOI / SOS：之后是压缩数据，元数据段都在此之前
+                return;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                pos += 2;
+                continue;
+            }
+            int segmentLength = u16be(pos + 2);
+            int segmentStart = pos + 4;
+            int segmentEnd = pos + 2 + segmentLength;
+            if (segmentLength < 2 || segmentEnd > length) {
+                return;
+            }
+            if (marker == 0xE1 && !codedSizeOnly) {
+                if (startsWith(segmentStart, EXIF_HEADER)) {
+                    readTiff(segmentStart + EXIF_HEADER.length, segmentEnd);
+                } else if (startsWith(segmentStart, XMP_HEADER)) {
+                    readXmp(segmentStart + XMP_HEADER.length, segmentEnd);
+                }
+            } else if (isStartOfFrame(marker) && segmentEnd - segmentStart >= 5) {
+                // SOF：精度(1) 高(2) 宽(2)
+                setCodedSize(u16be(segmentStart + 3), u16be(segmentStart + 1));
+                if (codedSizeOnly) {
+                    return;
+                }
+            }
+            pos = segmentEnd;
+        }
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private void readPng() {
+        int pos = PNG_SIGNATURE.length;
+        while (pos + 8 <= length) {
+            long chunkLength = u32be(pos);
+            String type = ascii(pos + 4, 4);
+            int chunkStart = pos + 8;
+            long chunkEnd = chunkStart + chunkLength;
+            if (chunkEnd > length) {
+                return;
+            }
+            int end = (int) chunkEnd;
+            switch (type) {
+                case "IHDR" -> {
+                    if (chunkLength >= 8) {
+                        setCodedSize(u32be(chunkStart), u32be(chunkStart + 4));
+                    }
+                    if (codedSizeOnly) {
+                        return;
+                    }
+                }
+                case "eXIf" -> readTiff(chunkStart, end);
+                case "iTXt" -> readPngXmp(chunkStart, end);
+                case "IEND" -> {
+                    return;
+                }
+                default -> {
+                }
+            }
+            pos = end + 4; // 跳过CRC
+        }
+    }
+
+    private void readPngXmp(int start, int end) {
+        int keywordEnd = indexOf((byte) 0, start, end);
+        if (keywordEnd < 0 || !"XML:com.adobe.xmp".equals(ascii(start, keywordEnd - start))) {
+            return;
+        }
+        int compressionFlag = keywordEnd + 1;
+        if (compressionFlag + 2 > end || u8(compressionFlag) != 0) {
+            return; // 压缩的XMP不解析
+        }
+        int languageEnd = indexOf((byte) 0, compressionFlag + 2, end);
+        int translatedEnd = languageEnd < 0 ? -1 : indexOf((byte) 0, languageEnd + 1, end);
+        if (translatedEnd >= 0) {
+            readXmp(translatedEnd + 1, end);
+        }
+    }
+
+    private void readWebp() {
+        int pos = 12;
+        while (pos + 8 <= length) {
+            String type = ascii(pos, 4);
+            long chunkLength = u32le(pos + 4);
+            int chunkStart = pos + 8;
+            long chunkEnd = chunkStart + chunkLength;
+            if (chunkEnd > length) {
+                return;
+            }
+            int end = (int) chunkEnd;
+            switch (type) {
+                case "VP8X" -> {
+                    if (chunkLength >= 10) {
+                        setDimensionsIfAbsent(u24le(chunkStart + 4) + 1, u24le(chunkStart + 7) + 1);
+                    }
+                }
+                case "EXIF" -> readTiff(startsWith(chunkStart, EXIF_HEADER) ? chunkStart + EXIF_HEADER.length : chunkStart, end);
+                case "XMP " -> readXmp(chunkStart, end);
+                default -> {
+                }
+            }
+            pos = end + (int) (chunkLength & 1); // 块按偶数字节对齐
+        }
+    }
+
+    // ==================== TIFF/EXIF ====================
+
+    private void readTiff(int start, int end) {
+        if (end - start < 8) {
+            return;
+        }
+        if (startsWith(start, "II")) {
+            bigEndian = false;
+        } else if (startsWith(start, "MM")) {
+            bigEndian = true;
+        } else {
+            return;
+        }
+        tiffStart = start;
+        tiffEnd = end;
+        if (u16(start + 2) != 42) {
+            return;
+        }
+        Set<Long> visited = new HashSet<>();
+        readIfd(u32(start + 4), IfdKind.IFD0, visited);
+    }
+
+    private enum IfdKind { IFD0, EXIF, GPS }
+
+    private void readIfd(long offset, IfdKind kind, Set<Long> visited) {
+        if (!visited.add(offset)) {
+            return;
+        }
+        int ifd = tiffOffset(offset, 2);
+        if (ifd < 0) {
+            return;
+        }
+        int count = Math.min(u16(ifd), MAX_IFD_ENTRIES);
+        GpsValues gps = kind == IfdKind.GPS ? new GpsValues() : null;
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiffEnd) {
+                break;
+            }
+            int tag = u16(entry);
+            int type = u16(entry + 2);
+            long valueCount = u32(entry + 4);
+            int value = valueOffset(entry, type, valueCount);
+            if (value < 0) {
+                continue;
+            }
+            switch (kind) {
+                case IFD0 -> readIfd0Tag(tag, type, valueCount, value, entry, visited);
+                case EXIF -> readExifTag(tag, type, valueCount, value);
+                case GPS -> readGpsTag(tag, type, valueCount, value, gps);
+            }
+        }
+        if (gps != null) {
+            gps.apply(result);
+        }
+    }
+
+    private void readIfd0Tag(int tag, int type, long count, int value, int entry, Set<Long> visited) {
+        switch (tag) {
+            case TAG_MAKE -> setIfAbsent(result.getCameraMake(), asciiValue(value, count), result::setCameraMake);
+            case TAG_MODEL -> setIfAbsent(result.getCameraModel(), asciiValue(value, count), result::setCameraModel);
+            case TAG_ORIENTATION -> {
+                Integer orientation = integerValue(type, value);
+                if (orientation != null && orientation >= 1 && orientation <= 8) {
+                    result.setOrientation(orientation);
+                }
+            }
+            case TAG_IMAGE_WIDTH -> {
+                Integer width = integerValue(type, value);
+                if (width != null && result.getImageWidth() == null) {
+                    result.setImageWidth(width);
+                }
+            }
+            case TAG_IMAGE_HEIGHT -> {
+                Integer height = integerValue(type, value);
+                if (height != null && result.getImageHeight() == null) {
+                    result.setImageHeight(height);
+                }
+            }
+            case TAG_EXIF_IFD -> readIfd(u32(entry + 8), IfdKind.EXIF, visited);
+            case TAG_GPS_IFD -> readIfd(u32(entry + 8), IfdKind.GPS, visited);
+            default -> {
+            }
+        }
+    }
+
+    private void readExifTag(int tag, int type, long count, int value) {
+        switch (tag) {
+            case TAG_DATE_TIME_ORIGINAL -> {
+                LocalDateTime time = parseExifDateTime(asciiValue(value, count));
+                if (time != null) {
+                    result.setCaptureTime(time);
+                    result.setCaptureTimeSource(SOURCE_EXIF);
+                }
+            }
+            case TAG_DATE_TIME_DIGITIZED -> digitizedTime = parseExifDateTime(asciiValue(value, count));
+            case TAG_OFFSET_TIME_ORIGINAL -> {
+                String offset = asciiValue(value, count);
+                if (offset != null && OFFSET_PATTERN.matcher(offset).matches()) {
+                    result.setCaptureOffset(offset);
+                }
+            }
+            // EXIF 中的像素尺寸比 SOF/IHDR 晚写入，以其为准
+            case TAG_PIXEL_X -> {
+                Integer width = integerValue(type, value);
+                if (width != null && width > 0) {
+                    result.setImageWidth(width);
+                }
+            }
+            case TAG_PIXEL_Y -> {
+                Integer height = integerValue(type, value);
+                if (height != null && height > 0) {
+                    result.setImageHeight(height);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void readGpsTag(int tag, int type, long count, int value, GpsValues gps) {
+        switch (tag) {
+            case TAG_GPS_LAT_REF -> gps.latitudeRef = asciiValue(value, count);
+            case TAG_GPS_LON_REF -> gps.longitudeRef = asciiValue(value, count);
+            case TAG_GPS_LAT -> gps.latitude = degreesValue(type, count, value);
+            case TAG_GPS_LON -> gps.longitude = degreesValue(type, count, value);
+            case TAG_GPS_ALT_REF -> gps.altitudeBelowSeaLevel = u8(value) == 1;
+            case TAG_GPS_ALT -> gps.altitude = type == 5 ? rational(value) : null;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * GPS 值在同一 IFD 内收集完成后再换算，参考方向可能出现在坐标之后
+     */
+    private static final class GpsValues {
+        private String latitudeRef;
+        private String longitudeRef;
+        private Double latitude;
+        private Double longitude;
+        private Double altitude;
+        private boolean altitudeBelowSeaLevel;
+
+        private void apply(MediaMetadata result) {
+            if (latitude == null || longitude == null) {
+                return;
+            }
+            double lat = "S".equalsIgnoreCase(latitudeRef) ? -latitude : latitude;
+            double lon = "W".equalsIgnoreCase(longitudeRef) ? -longitude : longitude;
+            if (!isValidCoordinate(lat, lon)) {
+                return;
+            }
+            result.setGpsLatitude(lat);
+            result.setGpsLongitude(lon);
+            if (altitude != null && Double.isFinite(altitude)) {
+                result.setGpsAltitude(altitudeBelowSeaLevel ? -altitude : altitude);
+            }
+        }
+    }
+
+    /**
+     * 经纬度合法性：超出范围或恰为 (0,0)（无定位时部分设备写入的占位值）视为无效
+     */
+    private static boolean isValidCoordinate(double lat, double lon) {
+        return Double.isFinite(lat) && Double.isFinite(lon)
+                && lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180
+                && !(lat == 0 && lon == 0);
+    }
+
+    /**
+     * 计算条目值所在位置：总长度不超过4字节时内联在条目中，否则为相对 TIFF 头的偏移
+     *
+     * @return 值的绝对位置，越界时返回-1
+     */
+    private int valueOffset(int entry, int type, long count) {
+        if (type <= 0 || type >= TYPE_SIZES.length || count <= 0) {
+            return -1;
+        }
+        long size = TYPE_SIZES[type] * count;
+        if (size <= 4) {
+            return entry + 8;
+        }
+        return tiffOffset(u32(entry + 8), size);
+    }
+
+    private int tiffOffset(long offset, long size) {
+        long absolute = tiffStart + offset;
+        if (offset < 0 || absolute + size > tiffEnd) {
+            return -1;
+        }
+        return (int) absolute;
+    }
+
+    private String asciiValue(int value, long count) {
+        int end = (int) Math.min(value + count, tiffEnd);
+        int nul = indexOf((byte) 0, value, end);
+        String text = new String(data, value, (nul >= 0 ? nul : end) - value, StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private Integer integerValue(int type, int value) {
+        return switch (type) {
+            case 3 -> u16(value);
+            case 4 -> {
+                long v = u32(value);
+                yield v <= Integer.MAX_VALUE ? (int) v : null;
+            }
+            default -> null;
+        };
+    }
+
+    private Double degreesValue(int type, long count, int value) {
+        if (type != 5 || count < 3) {
+            return null;
+        }
+        Double degrees = rational(value);
+        Double minutes = rational(value + 8);
+        Double seconds = rational(value + 16);
+        if (degrees == null || minutes == null || seconds == null) {
+            return null;
+        }
+        return degrees + minutes / 60 + seconds / 3600;
+    }
+
+    private Double rational(int value) {
+        long numerator = u32(value);
+        long denominator = u32(value + 4);
+        return denominator == 0 ? null : (double) numerator / denominator;
+    }
+
+    private static LocalDateTime parseExifDateTime(String text) {
+        if (text == null || text.length() < 19 || text.startsWith("0000")) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(text.substring(0, 19), EXIF_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ==================== XMP ====================
+
+    private void readXmp(int start, int end) {
+        String xmp = new String(data, start, end - start, StandardCharsets.UTF_8);
+
+        if (result.getCaptureTime() == null) {
+            for (String name : new String[]{"exif:DateTimeOriginal", "photoshop:DateCreated", "xmp:CreateDate"}) {
+                if (applyXmpDate(xmpValue(xmp, name))) {
+                    break;
+                }
+            }
+        }
+        setIfAbsent(result.getCameraMake(), xmpValue(xmp, "tiff:Make"), result::setCameraMake);
+        setIfAbsent(result.getCameraModel(), xmpValue(xmp, "tiff:Model"), result::setCameraModel);
+        if (result.getOrientation() == null) {
+            Integer orientation = parseInteger(xmpValue(xmp, "tiff:Orientation"));
+            if (orientation != null && orientation >= 1 && orientation <= 8) {
+                result.setOrientation(orientation);
+            }
+        }
+        if (result.getImageWidth() == null || result.getImageHeight() == null) {
+            Integer width = parseInteger(xmpValue(xmp, "exif:PixelXDimension"));
+            Integer height = parseInteger(xmpValue(xmp, "exif:PixelYDimension"));
+            if (width != null && height != null) {
+                result.setImageWidth(width);
+                result.setImageHeight(height);
+            }
+        }
+        if (result.getGpsLatitude() == null) {
+            Double lat = parseXmpCoordinate(xmpValue(xmp, "exif:GPSLatitude"));
+            Double lon = parseXmpCoordinate(xmpValue(xmp, "exif:GPSLongitude"));
+            if (lat != null && lon != null && isValidCoordinate(lat, lon)) {
+                result.setGpsLatitude(lat);
+                result.setGpsLongitude(lon);
+            }
+        }
+    }
+
+    /**
+     * 读取 XMP 属性值，兼容属性形式 name="value" 和元素形式 &lt;name&gt;value&lt;/name&gt;
+     */
+    private static String xmpValue(String xmp, String name) {
+        String quoted = Pattern.quote(name);
+        Matcher attribute = Pattern.compile(quoted + "\\s*=\\s*[\"']([^\"']*)[\"']").matcher(xmp);
+        if (attribute.find()) {
+            return blankToNull(attribute.group(1));
+        }
+        Matcher element = Pattern.compile("<" + quoted + ">([^<]*)</" + quoted + ">").matcher(xmp);
+        return element.find() ? blankToNull(element.group(1)) : null;
+    }
+
+    /**
+     * 解析 XMP 日期（ISO 8601，可省略时间、秒的小数部分和时区）
+     */
+    private boolean applyXmpDate(String text) {
+        if (text == null) {
+            return false;
+        }
+        String value = XMP_FRACTION.matcher(text).replaceFirst("");
+        try {
+            OffsetDateTime time = OffsetDateTime.parse(value);
+            result.setCaptureTime(time.toLocalDateTime());
+            result.setCaptureOffset(time.getOffset().getTotalSeconds() == 0 ? "+00:00" : time.getOffset().getId());
+        } catch (DateTimeParseException withoutOffset) {
+            try {
+                result.setCaptureTime(value.length() == 10
+                        ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value));
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        result.setCaptureTimeSource(SOURCE_XMP);
+        return true;
+    }
+
+    /**
+     * 解析 XMP 坐标，格式为 "度,分.分的小数[NSEW]" 或 "度,分,秒[NSEW]"
+     */
+    private static Double parseXmpCoordinate(String text) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = XMP_GPS.matcher(text.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        double degrees = Double.parseDouble(matcher.group(1)) + Double.parseDouble(matcher.group(2)) / 60;
+        if (matcher.group(3) != null) {
+            degrees += Double.parseDouble(matcher.group(3)) / 3600;
+        }
+        String ref = matcher.group(4);
+        return "S".equals(ref) || "W".equals(ref) ? -degrees : degrees;
+    }
+
+    private static Integer parseInteger(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    private void setCodedSize(long width, long height) {
+        if (codedWidth == 0) {
+            codedWidth = width;
+            codedHeight = height;
+        }
+        if (width <= Integer.MAX_VALUE && height <= Integer.MAX_VALUE) {
+            setDimensionsIfAbsent((int) width, (int) height);
+        }
+    }
+
+    private void setDimensionsIfAbsent(int width, int height) {
+        if (result.getImageWidth() == null && width > 0 && height > 0) {
+            result.setImageWidth(width);
+            result.setImageHeight(height);
+        }
+    }
+
+    private static void setIfAbsent(String current, String value, Consumer<String> setter) {
+        if (current == null && value != null) {
+            setter.accept(value.length() > 100 ? value.substring(0, 100) : value);
+        }
+    }
+
+    private static String blankToNull(String text) {
+        return text == null || text.isBlank() ? null : text.trim();
+    }
+
+    private boolean startsWith(int pos, String prefix) {
+        return startsWith(pos, prefix.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private boolean startsWith(int pos, byte[] prefix) {
+        if (pos < 0 || pos + prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[pos + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < Math.min(to, length); i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String ascii(int pos, int count) {
+        return new String(data, pos, count, StandardCharsets.ISO_8859_1);
+    }
+
+    private int u8(int pos) {
+        return data[pos] & 0xFF;
+    }
+
+    private int u16be(int pos) {
+        return (u8(pos) << 8) | u8(pos + 1);
+    }
+
+    private long u32be(int pos) {
+        return ((long) u16be(pos) << 16) | u16be(pos + 2);
+    }
+
+    private int u24le(int pos) {
+        return u8(pos) | (u8(pos + 1) << 8) | (u8(pos + 2) << 16);
+    }
+
+    private long u32le(int pos) {
+        return (u8(pos) | (u8(pos + 1) << 8) | (u8(pos + 2) << 16)) | ((long) u8(pos + 3) << 24);
+    }
+
+    /**
+     * TIFF 内的16位整数，按当前字节序读取
+     */
+    private int u16(int pos) {
+        if (pos + 2 > tiffEnd) {
+            return 0;
+        }
+        return bigEndian ? u16be(pos) : (u8(pos) | (u8(pos + 1) << 8));
+    }
+
+    /**
+     * TIFF 内的32位无符号整数，按当前字节序读取
+     */
+    private long u32(int pos) {
+        if (pos + 4 > tiffEnd) {
+            return 0;
+        }
+        return bigEndian ? u32be(pos) : u32le(pos);
+    }
+}
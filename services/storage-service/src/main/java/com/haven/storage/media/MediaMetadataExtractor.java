@@ -0,0 +1,99 @@
+package com.haven.storage.media;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.enums.FileCategory;
+import com.haven.storage.domain.model.enums.SupportedFileType;
+import com.haven.storage.domain.model.file.MediaMetadata;
+import com.haven.storage.utils.FileTypeDetector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 媒体元数据提取器
+ * <p>
+ * 上传时在类型检测之后执行，只解析类型检测已经预读的有界文件头：
+ * - 拍摄时间、时区偏移、GPS 坐标、相机厂商与型号、图像尺寸、方向
+ * - 结果写入 FileMetadata 的媒体列，时间线、地点、相机等查询直接走索引，无需回读对象
+ * <p>
+ * 💡 容错策略：
+ * - 解析失败或文件头不含元数据时只记录日志，不影响上传
+ * - 元数据段超出预读范围时按缺失处理，可通过 header-peek-bytes 调整预读上限
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Component
+public class MediaMetadataExtractor {
+
+    @Value("${storage.file.media-metadata.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.file.media-metadata.header-peek-bytes:262144}")
+    private int headerPeekBytes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 类型检测与元数据提取共用的文件头预读大小
+     */
+    public int getHeaderPeekBytes() {
+        return headerPeekBytes;
+    }
+
+    /**
+     * 从文件头提取媒体元数据并写入文件元数据
+     *
+     * @param header       类型检测时预读的文件头
+     * @param detectedType 基于文件头检测出的类型
+     * @param metadata     待写入的文件元数据
+     * @param traceId      链路追踪ID
+     */
+    public void extractInto(FileTypeDetector.HeaderPeek header, SupportedFileType detectedType,
+                            FileMetadata metadata, String traceId) {
+        if (!enabled || header == null || header.length() == 0 || !mayContainImageMetadata(detectedType)) {
+            return;
+        }
+        try {
+            MediaMetadata media = ExifReader.read(header.bytes(), header.length());
+            if (media.isEmpty()) {
+                log.debug("文件头未包含媒体元数据: fileId={}, type={}, headerBytes={}, traceId={}",
+                        metadata.getFileId(), detectedType, header.length(), traceId);
+                return;
+            }
+            apply(media, metadata);
+            log.debug("媒体元数据提取完成: fileId={}, captureTime={}, source={}, hasGps={}, camera={} {}, traceId={}",
+                    metadata.getFileId(), media.getCaptureTime(), media.getCaptureTimeSource(),
+                    media.getGpsLatitude() != null, media.getCameraMake(), media.getCameraModel(), traceId);
+        } catch (RuntimeException e) {
+            log.warn("媒体元数据提取失败，忽略: fileId={}, type={}, error={}, traceId={}",
+                    metadata.getFileId(), detectedType, e.getMessage(), traceId);
+        }
+    }
+
+    /**
+     * 图片以及未在 SupportedFileType 中登记的类型（如 TIFF、WebP、RAW）交给解析器按魔数识别，
+     * 已识别的非图片类型直接跳过
+     */
+    private static boolean mayContainImageMetadata(SupportedFileType detectedType) {
+        return detectedType == null
+                || detectedType.getCategory() == FileCategory.IMAGE
+                || detectedType.getCategory() == FileCategory.UNKNOWN;
+    }
+
+    private static void apply(MediaMetadata media, FileMetadata metadata) {
+        metadata.setCaptureTime(media.getCaptureTime());
+        metadata.setCaptureOffset(media.getCaptureOffset());
+        metadata.setCaptureTimeSource(media.getCaptureTimeSource());
+        metadata.setGpsLatitude(media.getGpsLatitude());
+        metadata.setGpsLongitude(media.getGpsLongitude());
+        metadata.setGpsAltitude(media.getGpsAltitude());
+        metadata.setCameraMake(media.getCameraMake());
+        metadata.setCameraModel(media.getCameraModel());
+        metadata.setImageWidth(media.getImageWidth());
+        metadata.setImageHeight(media.getImageHeight());
+        metadata.setOrientation(media.getOrientation());
+    }
+}
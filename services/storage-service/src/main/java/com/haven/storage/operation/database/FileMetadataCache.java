@@ -0,0 +1,106 @@
+package com.haven.storage.operation.database;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件元数据本地缓存（L1）
+ *
+ * <p>以 fileId 为键缓存元数据及其存储数据，相册等批量查询的重复访问不再回库。</p>
+ *
+ * <p>缓存策略：</p>
+ * <ul>
+ *   <li>只缓存查询结果，不缓存"不存在"，删除的文件不会因缓存被判定为存在</li>
+ *   <li>本实例的更新、删除、分层迁移会主动失效；其他实例的变更依赖较短的TTL收敛</li>
+ *   <li>权限不缓存，每次取出后仍按当前用户重新过滤</li>
+ *   <li>条目数超过上限时先清理已过期条目，仍超限则整体清空</li>
+ * </ul>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Component
+public class FileMetadataCache {
+
+    private final Map<String, CachedFile> files = new ConcurrentHashMap<>();
+
+    @Value("${storage.file.metadata-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.file.metadata-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${storage.file.metadata-cache.max-entries:20000}")
+    private int maxEntries;
+
+    /**
+     * 查询缓存
+     *
+     * @return 未过期的缓存条目，不存在时返回null
+     */
+    public CachedFile getIfPresent(String fileId) {
+        if (!enabled) {
+            return null;
+        }
+        CachedFile cached = files.get(fileId);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expiresAt() <= System.currentTimeMillis()) {
+            files.remove(fileId, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param metadata    文件元数据
+     * @param storageData 存储数据，可为null
+     */
+    public void put(FileMetadata metadata, FileStorageData storageData) {
+        if (!enabled || metadata == null || metadata.getFileId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        ensureCapacity(now);
+        files.put(metadata.getFileId(), new CachedFile(metadata, storageData, now + ttlSeconds * 1000));
+    }
+
+    /**
+     * 失效指定文件（元数据更新、删除或存储位置变化时调用）
+     */
+    public void invalidate(String fileId) {
+        if (fileId != null) {
+            files.remove(fileId);
+        }
+    }
+
+    private void ensureCapacity(long now) {
+        if (files.size() < maxEntries) {
+            return;
+        }
+        files.values().removeIf(cached -> cached.expiresAt() <= now);
+        if (files.size() >= maxEntries) {
+            log.warn("文件元数据缓存条目超过上限，执行整体清空: size={}, maxEntries={}", files.size(), maxEntries);
+            files.clear();
+        }
+    }
+
+    /**
+     * 缓存条目
+     *
+     * @param metadata    文件元数据
+     * @param storageData 存储数据，文件尚无存储数据时为null
+     * @param expiresAt   过期时间戳（毫秒）
+     */
+    public record CachedFile(FileMetadata metadata, FileStorageData storageData, long expiresAt) {
+    }
+}
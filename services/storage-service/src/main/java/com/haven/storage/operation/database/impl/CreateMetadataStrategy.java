@@ -4,12 +4,14 @@ import com.haven.storage.domain.model.entity.FileMetadata;
 import com.haven.storage.domain.model.entity.FileStorageData;
 import com.haven.storage.domain.model.enums.FileOperation;
 import com.haven.storage.domain.model.enums.FileStatus;
+import com.haven.storage.domain.model.enums.ProcessingTaskType;
 import com.haven.storage.domain.model.file.ProcessResult;
 import com.haven.storage.operation.database.DatabaseOperationStrategy;
 import com.haven.storage.processor.context.FileProcessContext;
 import com.haven.storage.repository.FileMetadataRepository;
 import com.haven.storage.repository.FileStorageDataRepository;
 import com.haven.storage.service.FamilyStorageStatsService;
+import com.haven.storage.service.FileProcessingTaskService;
 import com.haven.storage.service.converter.FileMetadataMapper;
 import com.haven.storage.utils.FileUtils;
 import lombok.RequiredArgsConstructor;
@@ -39,7 +41,8 @@ import java.time.LocalDateTime;
  * 2. 创建文件存储数据记录（存储路径、大小、状态等）
  * 3. 创建文件元数据记录（文件信息、权限、分类等）
  * 4. 调用存储统计服务更新家庭存储统计
- * 5. 更新上下文状态为METADATA_PERSISTED
+ * 5. 图片、PDF文件加入OCR后处理任务队列
+ * 6. 更新上下文状态为METADATA_PERSISTED
  * </pre>
  *
  * @author HavenButler
@@ -57,6 +60,7 @@ public class CreateMetadataStrategy implements DatabaseOperationStrategy {
     private final FileStorageDataRepository fileStorageDataRepository;
     private final FamilyStorageStatsService familyStorageStatsService;
     private final FileMetadataMapper fileMetadataMapper;
+    private final FileProcessingTaskService fileProcessingTaskService;
 
     /**
      * 执行文件元数据创建操作
@@ -97,7 +101,12 @@ public class CreateMetadataStrategy implements DatabaseOperationStrategy {
             // 4. 更新家庭存储统计（文件数量、大小、分类统计）
             familyStorageStatsService.updateStorageStats(getSupportOperation(), fileMetadata,fileMetadata.getFileSize());
 
-            // 5. 更新上下文状态为METADATA_PERSISTED，标记元数据持久化完成
+            // 5. 需要后处理的文件（图片、PDF）加入OCR任务队列，由工作进程租约领取
+            if (ProcessingTaskType.requiresOcr(context.getFileBasicMetadata().getFileType())) {
+                fileProcessingTaskService.enqueue(fileMetadata.getFileId(), fileMetadata.getFamilyId(), ProcessingTaskType.OCR);
+            }
+
+            // 6. 更新上下文状态为METADATA_PERSISTED，标记元数据持久化完成
             context.setStage(FileProcessContext.ProcessingStage.METADATA_PERSISTED);
 
             log.info("文件元数据创建完成 - fileId: {}, storageId: {}",
@@ -178,17 +187,20 @@ public class CreateMetadataStrategy implements DatabaseOperationStrategy {
         // 关联文件元数据ID，建立存储数据与元数据的关联
         storageData.setFileId(fileBasicMetadata.getFileId());
 
+        // 冗余家庭ID，用于按家庭+校验和分析重复文件
+        storageData.setFamilyId(fileBasicMetadata.getFamilyId());
+
         // 设置存储类型（LOCAL=0, MINIO=1, S3=2等）
         storageData.setStorageType(context.getStorageType().getCode());
 
         // 设置家庭存储桶名称，用于数据隔离和家庭级别管理
         storageData.setFamilyBucketName(fileStorageInfo.getFamilyBucketName());
 
-        // 设置文件存储路径（相对路径）
-        storageData.setFilePath(fileStorageInfo.getFilePath());
+        // 设置文件存储路径（完整对象键，上传时传入的是目录则拼接文件名）
+        storageData.setFilePath(fileStorageInfo.getObjectKey());
 
-        // 设置完整访问路径（临时使用文件路径，后续可生成CDN链接）
-        storageData.setFullAccessPath(fileStorageInfo.getFilePath());
+        // 设置完整访问路径（桶名 + 对象键，后续可生成CDN链接）
+        storageData.setFullAccessPath(fileStorageInfo.getFamilyBucketName() + "/" + fileStorageInfo.getObjectKey());
 
         // 设置存储状态（1-正常启用）
         storageData.setStorageStatus(FileStatus.NORMAL.getCode());
@@ -196,6 +208,11 @@ public class CreateMetadataStrategy implements DatabaseOperationStrategy {
         // 设置文件大小（用于存储容量统计和计费）
         storageData.setFileSize(fileBasicMetadata.getFileSize());
 
+        // 文件校验和（SHA-256）由校验和回填任务补齐
+
+        // 新文件待备份，由增量备份任务处理
+        storageData.setBackupStatus(FileStorageData.BACKUP_STATUS_NOT_BACKED_UP);
+
         // 创建时间和更新时间由JPA自动设置（@CreationTimestamp, @UpdateTimestamp）
         return storageData;
     }
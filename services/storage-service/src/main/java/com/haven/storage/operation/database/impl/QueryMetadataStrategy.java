@@ -8,9 +8,10 @@ import com.haven.storage.operation.database.DatabaseOperationStrategy;
 import com.haven.storage.processor.context.FileProcessContext;
 import com.haven.storage.repository.FileMetadataRepository;
 import com.haven.storage.repository.FileStorageDataRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
@@ -47,11 +48,21 @@ import java.util.Optional;
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class QueryMetadataStrategy implements DatabaseOperationStrategy {
 
     private final FileMetadataRepository fileMetadataRepository;
     private final FileStorageDataRepository fileStorageDataRepository;
+    /** 只读事务模板，开启读写分离时查询路由到从库；访问统计更新在事务外单独执行 */
+    private final TransactionTemplate readOnlyTransaction;
+
+    public QueryMetadataStrategy(FileMetadataRepository fileMetadataRepository,
+                                 FileStorageDataRepository fileStorageDataRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.fileStorageDataRepository = fileStorageDataRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     /**
      * 执行文件元数据查询操作
@@ -85,8 +96,8 @@ public class QueryMetadataStrategy implements DatabaseOperationStrategy {
             // 1. 验证上下文完整性
             validateContext(context);
 
-            // 2. 根据查询类型执行查询操作
-            Object queryResult = performQuery(context, fileId, familyId);
+            // 2. 根据查询类型执行查询操作（只读事务）
+            Object queryResult = readOnlyTransaction.execute(status -> performQuery(context, fileId, familyId));
 
             // 3. 更新文件访问统计（如果是单文件查询）
             updateAccessStatistics(fileId, familyId);
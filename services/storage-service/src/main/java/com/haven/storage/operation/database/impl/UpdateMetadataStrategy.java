@@ -257,11 +257,13 @@ public class UpdateMetadataStrategy implements DatabaseOperationStrategy {
 
         // 更新存储路径（如果发生变化）
         if (fileStorageInfo != null && StringUtils.hasText(fileStorageInfo.getFilePath()) &&
-            !fileStorageInfo.getFilePath().equals(existingStorageData.getFilePath())) {
-            existingStorageData.setFilePath(fileStorageInfo.getFilePath());
-            existingStorageData.setFullAccessPath(fileStorageInfo.getFilePath());
+            !fileStorageInfo.getObjectKey().equals(existingStorageData.getFilePath())) {
+            existingStorageData.setFilePath(fileStorageInfo.getObjectKey());
+            existingStorageData.setFullAccessPath(fileStorageInfo.getFamilyBucketName() + "/" + fileStorageInfo.getObjectKey());
+            // 存储内容已变化，需要重新备份
+            existingStorageData.setBackupStatus(FileStorageData.BACKUP_STATUS_NOT_BACKED_UP);
             log.debug("更新存储路径 - storageId: {}, newPath: {}",
-                     existingStorageData.getStorageId(), fileStorageInfo.getFilePath());
+                     existingStorageData.getStorageId(), fileStorageInfo.getObjectKey());
         }
 
         // 更新家庭存储桶名称（如果发生变化）
@@ -276,6 +278,7 @@ public class UpdateMetadataStrategy implements DatabaseOperationStrategy {
         if (fileBasicMetadata.getFileSize() != null &&
             !fileBasicMetadata.getFileSize().equals(existingStorageData.getFileSize())) {
             existingStorageData.setFileSize(fileBasicMetadata.getFileSize());
+            existingStorageData.setBackupStatus(FileStorageData.BACKUP_STATUS_NOT_BACKED_UP);
             log.debug("同步更新存储文件大小 - storageId: {}, newSize: {}",
                      existingStorageData.getStorageId(), fileBasicMetadata.getFileSize());
         }
@@ -0,0 +1,50 @@
+package com.haven.storage.operation.storage;
+
+import com.haven.storage.domain.model.file.FileStorageInfo;
+import okio.BufferedSource;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步存储适配器接口
+ * <p>
+ * 基于异步HTTP客户端的存储后端实现此接口：请求发出后不占用调用线程，
+ * 调用方（如上传请求线程）可以并发发起多个传输并在回调中汇总结果。
+ * <p>
+ * ⚠️ 异步不等于不占线程：当前实现基于 OkHttp 的 enqueue，每个执行中的HTTP调用
+ * 仍占用一个调度器线程，并发传输数受调度器在途请求上限约束，超出的调用排队等待。
+ * <p>
+ * 💡 使用约定：
+ * - 参数中的 fileStorageInfo 已给出桶和路径，实现类直接按对象键访问，不做额外查找
+ * - 返回的 CompletableFuture 在HTTP客户端回调线程上完成，回调中不应执行阻塞操作
+ * - 同步方法（继承自 {@link StorageAdapter}）由实现类基于异步方法等待结果
+ *
+ * @author HavenButler
+ */
+public interface AsyncStorageAdapter extends StorageAdapter {
+
+    /**
+     * 异步上传文件（流式请求体，不把文件整体加载到内存）
+     *
+     * @param fileStorageInfo 目标存储位置，必须包含桶名、路径和文件ID
+     * @param bufferedSource  文件数据源，上传完成后由实现类关闭
+     * @return 是否上传成功
+     */
+    CompletableFuture<Boolean> uploadFileAsync(FileStorageInfo fileStorageInfo, BufferedSource bufferedSource);
+
+    /**
+     * 异步下载文件
+     *
+     * @param fileStorageInfo 文件存储位置
+     * @return 文件数据源，对象不存在时为null；由调用方关闭
+     */
+    CompletableFuture<BufferedSource> downloadFileAsync(FileStorageInfo fileStorageInfo);
+
+    /**
+     * 异步删除文件
+     *
+     * @param fileStorageInfo 文件存储位置
+     * @return 是否删除成功（对象不存在也视为成功）
+     */
+    CompletableFuture<Boolean> deleteFileAsync(FileStorageInfo fileStorageInfo);
+}
@@ -0,0 +1,131 @@
+package com.haven.storage.operation.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 预签名URL缓存
+ *
+ * <p>以 (familyId, fileId, 过期时间桶) 为键缓存预签名访问URL，相册等场景一次请求几十上百个URL时，
+ * 避免对每个文件重复查找对象和计算签名。</p>
+ *
+ * <p>缓存策略：</p>
+ * <ul>
+ *   <li>请求的过期分钟数向上取整到桶粒度，同一桶内的请求共享同一个URL</li>
+ *   <li>签名时实际有效期为 桶时长 / (1 - 复用比例)，只在生命周期的前一段内复用，
+ *       保证返回给调用方的URL剩余有效期始终不少于其请求的时长</li>
+ *   <li>签名失败（返回null）不缓存</li>
+ *   <li>条目数超过上限时先清理已过复用期的条目，仍超限则整体清空</li>
+ * </ul>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Component
+public class PresignedUrlCache {
+
+    /** S3/MinIO 预签名URL的最长有效期为7天 */
+    private static final long MAX_PRESIGN_MINUTES = Duration.ofDays(7).toMinutes();
+
+    private final Map<UrlKey, CachedUrl> urls = new ConcurrentHashMap<>();
+
+    @Value("${storage.file.access-url.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.file.access-url.cache.bucket-minutes:15}")
+    private int bucketMinutes;
+
+    @Value("${storage.file.access-url.cache.reuse-fraction:0.5}")
+    private double reuseFraction;
+
+    @Value("${storage.file.access-url.cache.max-entries:50000}")
+    private int maxEntries;
+
+    /**
+     * 获取文件的预签名URL，缓存可复用时直接返回，否则调用 signer 重新签名
+     *
+     * @param familyId      家庭ID
+     * @param fileId        文件ID
+     * @param expireMinutes 调用方要求的最短剩余有效期（分钟）
+     * @param signer        签名函数，入参为实际签名有效期，返回null表示签名失败
+     * @return 预签名URL，签名失败时返回null
+     */
+    public String getOrSign(String familyId, String fileId, int expireMinutes, Function<Duration, String> signer) {
+        long bucket = toBucket(expireMinutes);
+        long signMinutes = Math.min(MAX_PRESIGN_MINUTES, (long) Math.ceil(bucket / (1 - effectiveFraction())));
+        if (!enabled) {
+            return signer.apply(Duration.ofMinutes(Math.max(expireMinutes, 1)));
+        }
+
+        UrlKey key = new UrlKey(familyId, fileId, bucket);
+        long now = System.currentTimeMillis();
+        CachedUrl cached = urls.get(key);
+        if (cached != null && cached.reuseUntil() > now) {
+            return cached.url();
+        }
+
+        String url = signer.apply(Duration.ofMinutes(signMinutes));
+        if (url != null) {
+            // 复用截止时间 = 签名过期时间 - 桶时长，剩余有效期始终不低于桶时长
+            long reuseUntil = now + Duration.ofMinutes(signMinutes - bucket).toMillis();
+            ensureCapacity(now);
+            urls.put(key, new CachedUrl(url, reuseUntil));
+        }
+        return url;
+    }
+
+    /**
+     * 仅查询缓存，不触发签名
+     *
+     * @return 可复用的URL，不存在或已过复用期时返回null
+     */
+    public String getIfPresent(String familyId, String fileId, int expireMinutes) {
+        if (!enabled) {
+            return null;
+        }
+        CachedUrl cached = urls.get(new UrlKey(familyId, fileId, toBucket(expireMinutes)));
+        return cached != null && cached.reuseUntil() > System.currentTimeMillis() ? cached.url() : null;
+    }
+
+    /**
+     * 失效指定文件的所有URL（文件删除、可见性变更时调用）
+     */
+    public void invalidate(String familyId, String fileId) {
+        urls.keySet().removeIf(key -> key.fileId().equals(fileId) && key.familyId().equals(familyId));
+    }
+
+    private long toBucket(int expireMinutes) {
+        int granularity = Math.max(bucketMinutes, 1);
+        long requested = Math.max(expireMinutes, 1);
+        long bucket = ((requested + granularity - 1) / granularity) * granularity;
+        return Math.min(bucket, MAX_PRESIGN_MINUTES);
+    }
+
+    private double effectiveFraction() {
+        // 复用比例限定在[0, 0.9]，避免签名有效期被无限放大
+        return Math.max(0.0, Math.min(reuseFraction, 0.9));
+    }
+
+    private void ensureCapacity(long now) {
+        if (urls.size() < maxEntries) {
+            return;
+        }
+        urls.values().removeIf(cached -> cached.reuseUntil() <= now);
+        if (urls.size() >= maxEntries) {
+            log.warn("预签名URL缓存条目超过上限，执行整体清空: size={}, maxEntries={}", urls.size(), maxEntries);
+            urls.clear();
+        }
+    }
+
+    private record UrlKey(String familyId, String fileId, long bucketMinutes) {
+    }
+
+    private record CachedUrl(String url, long reuseUntil) {
+    }
+}
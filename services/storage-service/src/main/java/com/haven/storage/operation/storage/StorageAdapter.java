@@ -5,10 +5,13 @@ import com.haven.storage.domain.model.file.FileDownloadResult;
 import com.haven.storage.domain.model.entity.FileMetadata;
 import com.haven.storage.domain.model.file.FileStorageInfo;
 import com.haven.storage.domain.model.file.FileUploadResult;
+import com.haven.storage.domain.model.file.StoredObjectStat;
+import com.haven.storage.domain.model.file.StoredObjectSummary;
 import okio.BufferedSource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -106,4 +109,122 @@ public interface StorageAdapter {
      * @return 访问URL
      */
     URI getFileAccessUrl(FileStorageInfo fileStorageInfo);
-}
\ No newline at end of file
+
+    /**
+     * 获取指定有效期的文件访问URL
+     * <p>
+     * 文件的桶和路径已由 fileStorageInfo 给出，实现类应直接签名，不应再列举存储桶查找对象。
+     * 默认实现忽略有效期，委托给 {@link #getFileAccessUrl(FileStorageInfo)}。
+     *
+     * @param fileStorageInfo 文件的存储对象
+     * @param expiry          URL有效期
+     * @return 访问URL
+     */
+    default URI getFileAccessUrl(FileStorageInfo fileStorageInfo, Duration expiry) {
+        return getFileAccessUrl(fileStorageInfo);
+    }
+
+    /**
+     * 按对象键字典序分页列举桶内对象
+     * <p>
+     * 供完整性巡检查找没有存储数据的孤儿对象。桶不存在时返回空列表；
+     * 默认实现表示该存储类型不支持列举。
+     *
+     * @param bucketName 桶名
+     * @param startAfter 从该对象键之后开始列举，为null时从头开始
+     * @param maxKeys    本次最多返回的对象数
+     * @return 对象摘要列表，少于 maxKeys 表示已列举到末尾
+     * @throws UnsupportedOperationException 存储类型不支持列举
+     */
+    default List<StoredObjectSummary> listObjects(String bucketName, String startAfter, int maxKeys) {
+        throw new UnsupportedOperationException("存储类型不支持列举对象: " + getStorageType());
+    }
+
+    /**
+     * 签发预签名PUT上传地址
+     * <p>
+     * 供客户端直传：文件内容由客户端直接上传到对象存储，不经过存储服务。
+     * 桶不存在时实现类应先创建；默认实现表示该存储类型不支持直传。
+     *
+     * @param bucketName 桶名
+     * @param objectKey  预留的对象键
+     * @param expiry     URL有效期
+     * @return 上传URL
+     * @throws UnsupportedOperationException 存储类型不支持直传
+     */
+    default URI getUploadUrl(String bucketName, String objectKey, Duration expiry) {
+        throw new UnsupportedOperationException("存储类型不支持直传上传: " + getStorageType());
+    }
+
+    /**
+     * 查询对象状态（大小、ETag等），不读取对象内容
+     *
+     * @param bucketName 桶名
+     * @param objectKey  对象键
+     * @return 对象状态，对象或桶不存在时返回null
+     * @throws UnsupportedOperationException 存储类型不支持查询对象状态
+     */
+    default StoredObjectStat statObject(String bucketName, String objectKey) {
+        throw new UnsupportedOperationException("存储类型不支持查询对象状态: " + getStorageType());
+    }
+
+    /**
+     * 读取对象的一段内容
+     * <p>
+     * 用于直传确认时读取文件头做类型检测和媒体元数据提取，只传输请求的字节范围。
+     *
+     * @param bucketName 桶名
+     * @param objectKey  对象键
+     * @param offset     起始偏移
+     * @param length     最多读取的字节数
+     * @return 读取到的字节，对象短于请求范围时返回实际长度
+     * @throws UnsupportedOperationException 存储类型不支持范围读取
+     */
+    default byte[] readObjectRange(String bucketName, String objectKey, long offset, int length) {
+        throw new UnsupportedOperationException("存储类型不支持范围读取: " + getStorageType());
+    }
+
+    /**
+     * 按桶名和对象键打开对象内容
+     * <p>
+     * 供分层迁移、备份、巡检等后台任务按存储数据记录的位置直接读取，调用方负责关闭返回的流。
+     *
+     * @param bucketName 桶名
+     * @param objectKey  对象键
+     * @return 对象内容，对象或桶不存在时返回null
+     * @throws UnsupportedOperationException 存储类型不支持按对象键读取
+     * @throws IllegalStateException         读取失败（网络、权限等），不代表对象不存在
+     */
+    default BufferedSource openObject(String bucketName, String objectKey) {
+        throw new UnsupportedOperationException("存储类型不支持按对象键读取: " + getStorageType());
+    }
+
+    /**
+     * 按桶名和对象键删除对象
+     * <p>
+     * 对象不存在视为删除成功。
+     *
+     * @param bucketName 桶名
+     * @param objectKey  对象键
+     * @return 是否删除成功
+     * @throws UnsupportedOperationException 存储类型不支持按对象键删除
+     */
+    default boolean deleteObject(String bucketName, String objectKey) {
+        throw new UnsupportedOperationException("存储类型不支持按对象键删除: " + getStorageType());
+    }
+
+    /**
+     * 在存储服务端复制对象，数据不经过本服务
+     * <p>
+     * 用于桶布局迁移，目标桶不存在时自动创建。
+     *
+     * @param sourceBucket 源桶名
+     * @param sourceKey    源对象键
+     * @param targetBucket 目标桶名
+     * @param targetKey    目标对象键
+     * @throws UnsupportedOperationException 存储类型不支持服务端复制
+     */
+    default void copyObject(String sourceBucket, String sourceKey, String targetBucket, String targetKey) {
+        throw new UnsupportedOperationException("存储类型不支持服务端复制: " + getStorageType());
+    }
+}
@@ -0,0 +1,99 @@
+package com.haven.storage.operation.storage;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.repository.FileMetadataRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 存储对象键解析器
+ * <p>
+ * 存储数据的 filePath 现在记录完整对象键，但早期记录只有目录（以 / 结尾），
+ * 上传时的对象名为目录 + 原始文件名。下载、删除、分层迁移、备份、巡检、归档等
+ * 按位置访问对象的地方统一通过这里得到真实对象键，不再各自拼接。
+ *
+ * @author HavenButler
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageObjectKeyResolver {
+
+    private final FileMetadataRepository fileMetadataRepository;
+
+    /**
+     * 是否为只记录了目录的早期存储数据
+     */
+    public static boolean isDirectoryOnly(FileStorageData storageData) {
+        return storageData.getFilePath() != null && storageData.getFilePath().endsWith("/");
+    }
+
+    /**
+     * 解析对象键，已持有文件元数据时不再查询
+     *
+     * @param storageData 存储数据
+     * @param metadata    文件元数据，为null时按 fileId 查询
+     * @return 对象键，无法确定时返回null
+     */
+    public String resolve(FileStorageData storageData, FileMetadata metadata) {
+        String filePath = storageData.getFilePath();
+        if (filePath == null || filePath.isEmpty()) {
+            return null;
+        }
+        if (!isDirectoryOnly(storageData)) {
+            return filePath;
+        }
+        if (metadata == null) {
+            metadata = fileMetadataRepository.findByFileId(storageData.getFileId()).orElse(null);
+        }
+        return metadata != null && metadata.getOriginalName() != null ? filePath + metadata.getOriginalName() : null;
+    }
+
+    /**
+     * 解析对象键
+     *
+     * @return 对象键，无法确定时返回null
+     */
+    public String resolve(FileStorageData storageData) {
+        return resolve(storageData, null);
+    }
+
+    /**
+     * 批量解析对象键，只为早期记录批量查询一次元数据
+     *
+     * @return fileId 到对象键的映射，无法确定的不包含在内
+     */
+    public Map<String, String> resolveAll(Collection<FileStorageData> storageDataList) {
+        List<String> legacyFileIds = storageDataList.stream()
+                .filter(StorageObjectKeyResolver::isDirectoryOnly)
+                .map(FileStorageData::getFileId)
+                .toList();
+        Map<String, String> originalNames = new HashMap<>();
+        if (!legacyFileIds.isEmpty()) {
+            for (FileMetadata metadata : fileMetadataRepository.findByFileIdIn(legacyFileIds)) {
+                if (metadata.getOriginalName() != null) {
+                    originalNames.put(metadata.getFileId(), metadata.getOriginalName());
+                }
+            }
+        }
+
+        Map<String, String> objectKeys = new HashMap<>();
+        for (FileStorageData storageData : storageDataList) {
+            String filePath = storageData.getFilePath();
+            if (filePath == null || filePath.isEmpty()) {
+                continue;
+            }
+            if (!isDirectoryOnly(storageData)) {
+                objectKeys.put(storageData.getFileId(), filePath);
+            } else if (originalNames.containsKey(storageData.getFileId())) {
+                objectKeys.put(storageData.getFileId(), filePath + originalNames.get(storageData.getFileId()));
+            }
+        }
+        return objectKeys;
+    }
+}
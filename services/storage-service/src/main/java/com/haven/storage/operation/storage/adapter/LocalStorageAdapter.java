@@ -1,23 +1,61 @@
 package com.haven.storage.operation.storage.adapter;
 
+import com.haven.storage.domain.model.entity.FileStorageData;
 import com.haven.storage.domain.model.enums.StorageType;
 import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.domain.model.file.StoredObjectStat;
 import com.haven.storage.operation.storage.StorageAdapter;
-import com.haven.storage.processor.context.FileProcessContext;
-import lombok.RequiredArgsConstructor;
+import com.haven.storage.repository.FileStorageDataRepository;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSink;
 import okio.BufferedSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+import java.util.UUID;
 
-@RequiredArgsConstructor
+/**
+ * 本地磁盘存储适配器
+ * <p>
+ * 对象保存在 {@code base-path/桶名/对象键}，桶名和对象键的含义与对象存储一致，
+ * 存储数据中记录的位置可以直接定位文件。用作冷层存储和备份目标。
+ * <p>
+ * 💡 写入先落到同目录的临时文件，完成后原子重命名，读取方不会看到写了一半的文件。
+ * 本地存储没有预签名地址，访问URL返回null，由调用方走下载接口。
+ *
+ * @author HavenButler
+ */
+@Slf4j
 @Component
 public class LocalStorageAdapter implements StorageAdapter {
+
+    private final Path basePath;
+    private final FileStorageDataRepository fileStorageDataRepository;
+
+    public LocalStorageAdapter(@Value("${storage.file.local.base-path:/data/haven-storage}") String basePath,
+                               FileStorageDataRepository fileStorageDataRepository) {
+        this.basePath = Paths.get(basePath).toAbsolutePath().normalize();
+        this.fileStorageDataRepository = fileStorageDataRepository;
+    }
+
     @Override
     public String buildFamilyBucketName(String familyId) {
-        // 本地存储可能不需要桶名，返回空或统一前缀
+        // 本地存储以桶名作为一级目录
         return "local-family-" + familyId;
     }
 
@@ -30,22 +68,50 @@ public class LocalStorageAdapter implements StorageAdapter {
 
     @Override
     public boolean uploadFile(FileStorageInfo fileStorageInfo, BufferedSource bufferedSource) {
-        return false;
+        Path target;
+        try {
+            target = resolve(fileStorageInfo.getFamilyBucketName(), resolveObjectName(fileStorageInfo));
+        } catch (IllegalArgumentException e) {
+            log.error("本地存储路径非法：bucket={}, path={}, error={}",
+                    fileStorageInfo.getFamilyBucketName(), fileStorageInfo.getFilePath(), e.getMessage());
+            return false;
+        }
+        Path temp = target.resolveSibling(".upload-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            try (BufferedSink sink = Okio.buffer(Okio.sink(temp))) {
+                sink.writeAll(bufferedSource);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (Exception e) {
+            log.error("本地存储写入失败：path={}, error={}", target, e.getMessage());
+            deleteQuietly(temp);
+            return false;
+        }
     }
 
     @Override
     public BufferedSource downloadFile(String fileId, String familyId) {
-        return null;
+        FileStorageData storageData = locate(fileId, familyId);
+        return storageData != null ? openObject(storageData.getFamilyBucketName(), storageData.getFilePath()) : null;
     }
 
     @Override
     public boolean deleteFile(String fileId, String familyId) {
-        return false;
+        FileStorageData storageData = locate(fileId, familyId);
+        return storageData != null && deleteObject(storageData.getFamilyBucketName(), storageData.getFilePath());
     }
 
     @Override
     public boolean isHealthy() {
-        return false;
+        try {
+            Files.createDirectories(basePath);
+            return Files.isWritable(basePath);
+        } catch (Exception e) {
+            log.warn("本地存储目录不可用：basePath={}, error={}", basePath, e.getMessage());
+            return false;
+        }
     }
 
     @Override
@@ -57,4 +123,106 @@ public class LocalStorageAdapter implements StorageAdapter {
     public URI getFileAccessUrl(FileStorageInfo fileStorageInfo) {
         return null;
     }
+
+    @Override
+    public BufferedSource openObject(String bucketName, String objectKey) {
+        Path path = resolve(bucketName, objectKey);
+        try {
+            return Okio.buffer(Okio.source(path));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("本地存储读取失败：path=" + path + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public StoredObjectStat statObject(String bucketName, String objectKey) {
+        Path path = resolve(bucketName, objectKey);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new StoredObjectStat(objectKey, attributes.size(), null, null,
+                    attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("本地存储查询失败：path=" + path + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public byte[] readObjectRange(String bucketName, String objectKey, long offset, int length) {
+        Path path = resolve(bucketName, objectKey);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - offset)));
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                // 读满请求范围或到达文件末尾
+            }
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip().get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new IllegalStateException("本地存储读取失败：path=" + path + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean deleteObject(String bucketName, String objectKey) {
+        try {
+            Files.deleteIfExists(resolve(bucketName, objectKey));
+            return true;
+        } catch (Exception e) {
+            log.error("本地存储删除失败：bucket={}, object={}, error={}", bucketName, objectKey, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 通过存储数据定位文件（按 fileId 的接口只有 fileId 和 familyId）
+     */
+    private FileStorageData locate(String fileId, String familyId) {
+        FileStorageData storageData = fileStorageDataRepository.findByFileId(fileId).orElse(null);
+        if (storageData == null || !Objects.equals(storageData.getStorageType(), StorageType.LOCAL.getCode())) {
+            log.warn("本地存储数据不存在：fileId={}", fileId);
+            return null;
+        }
+        if (storageData.getFamilyId() != null && !storageData.getFamilyId().equals(familyId)) {
+            log.warn("本地文件家庭不匹配：fileId={}, familyId={}, ownerFamilyId={}", fileId, familyId, storageData.getFamilyId());
+            return null;
+        }
+        return storageData;
+    }
+
+    /**
+     * 解析桶名和对象键对应的文件，拒绝跳出存储根目录的路径
+     */
+    private Path resolve(String bucketName, String objectKey) {
+        if (objectKey == null || objectKey.isEmpty() || objectKey.endsWith("/")) {
+            throw new IllegalArgumentException("对象键必须指向文件: " + objectKey);
+        }
+        Path path = (bucketName != null ? basePath.resolve(bucketName) : basePath).resolve(objectKey).normalize();
+        if (!path.startsWith(basePath)) {
+            throw new IllegalArgumentException("对象键超出存储目录: " + objectKey);
+        }
+        return path;
+    }
+
+    /**
+     * 解析对象名：filePath 以 / 结尾时表示目录，需拼接文件名
+     */
+    private String resolveObjectName(FileStorageInfo fileStorageInfo) {
+        String filePath = fileStorageInfo.getFilePath();
+        if (filePath.endsWith("/") && fileStorageInfo.getFileName() != null) {
+            return filePath + fileStorageInfo.getFileName();
+        }
+        return filePath;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("删除临时文件失败：path={}, error={}", path, e.getMessage());
+        }
+    }
 }
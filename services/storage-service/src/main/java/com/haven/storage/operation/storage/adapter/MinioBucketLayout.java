@@ -0,0 +1,178 @@
+package com.haven.storage.operation.storage.adapter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.CRC32;
+
+/**
+ * MinIO 桶布局
+ * <p>
+ * 决定新对象写入哪个桶、使用什么对象键，两种布局：
+ * - PER_FAMILY：每个家庭一个桶 {@code minio-family-{familyId}}，键为 {@code {familyId}/yyyy/MM/{type}/...}
+ * - SHARDED：固定数量的共享桶 {@code {prefix}-NN}，键前加两位十六进制哈希 {@code {hash2}/{familyId}/yyyy/MM/{type}/...}
+ * <p>
+ * 共享布局的键等于"哈希前缀 + 原键"，两种布局之间的位置可以互相推导：
+ * 迁移工具据此复制对象，切换期间的读取据此在另一布局中回退查找（双读）。
+ * <p>
+ * 💡 桶和哈希前缀都只由 familyId 决定，修改 shared-bucket-count 会改变新上传的位置，
+ * 已有对象以 file_storage_data 中记录的位置为准，不受影响
+ *
+ * @author HavenButler
+ */
+@Component
+public class MinioBucketLayout {
+
+    private static final String LEGACY_BUCKET_PREFIX = "minio-family-";
+    private static final DateTimeFormatter MONTH_PATH = DateTimeFormatter.ofPattern("yyyy/MM");
+
+    public enum Mode {
+        PER_FAMILY,
+        SHARDED
+    }
+
+    private final Mode mode;
+    private final String sharedBucketPrefix;
+    private final int sharedBucketCount;
+    private final boolean dualRead;
+
+    public MinioBucketLayout(@Value("${storage.file.minio.layout.mode:PER_FAMILY}") Mode mode,
+                             @Value("${storage.file.minio.layout.shared-bucket-prefix:haven-shard}") String sharedBucketPrefix,
+                             @Value("${storage.file.minio.layout.shared-bucket-count:16}") int sharedBucketCount,
+                             @Value("${storage.file.minio.layout.dual-read:true}") boolean dualRead) {
+        if (sharedBucketCount < 1 || sharedBucketCount > 100) {
+            throw new IllegalArgumentException("共享桶数量必须在1-100之间: " + sharedBucketCount);
+        }
+        this.mode = mode;
+        this.sharedBucketPrefix = sharedBucketPrefix.toLowerCase();
+        this.sharedBucketCount = sharedBucketCount;
+        this.dualRead = dualRead;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isDualRead() {
+        return dualRead;
+    }
+
+    /**
+     * 当前布局下新对象写入的桶
+     */
+    public String bucketName(String familyId) {
+        return mode == Mode.SHARDED ? sharedBucket(familyId) : legacyBucket(familyId);
+    }
+
+    /**
+     * 当前布局下新对象的目录（以 / 结尾）
+     */
+    public String directory(String familyId, String fileType) {
+        String directory = familyId + "/" + LocalDate.now().format(MONTH_PATH)
+                + "/" + (fileType == null ? "default" : fileType) + "/";
+        return mode == Mode.SHARDED ? hashPrefix(familyId) + "/" + directory : directory;
+    }
+
+    /**
+     * 每家庭一桶布局的桶名
+     */
+    public String legacyBucket(String familyId) {
+        return LEGACY_BUCKET_PREFIX + familyId.toLowerCase();
+    }
+
+    /**
+     * 家庭所在的共享桶
+     */
+    public String sharedBucket(String familyId) {
+        long hash = hash(familyId);
+        return String.format("%s-%02d", sharedBucketPrefix, (hash >>> 8) % sharedBucketCount);
+    }
+
+    /**
+     * 两位十六进制哈希前缀，把家庭均匀分散到 256 个键前缀
+     */
+    public String hashPrefix(String familyId) {
+        return String.format("%02x", hash(familyId) & 0xFF);
+    }
+
+    public boolean isSharedBucket(String bucketName) {
+        return bucketName != null && bucketName.startsWith(sharedBucketPrefix + "-");
+    }
+
+    public boolean isLegacyBucket(String bucketName) {
+        return bucketName != null && bucketName.startsWith(LEGACY_BUCKET_PREFIX);
+    }
+
+    /**
+     * 共享桶名的 SQL LIKE 模式（桶名不含下划线，无需转义）
+     */
+    public String sharedBucketPattern() {
+        return sharedBucketPrefix + "-%";
+    }
+
+    /**
+     * 家庭专属桶名的 SQL LIKE 模式
+     */
+    public String legacyBucketPattern() {
+        return LEGACY_BUCKET_PREFIX + "%";
+    }
+
+    /**
+     * 旧布局对象在共享布局中的位置
+     *
+     * @param familyId  家庭ID
+     * @param legacyKey 旧布局的对象键
+     */
+    public ObjectLocation shardedLocation(String familyId, String legacyKey) {
+        String key = legacyKey.startsWith(familyId + "/") ? legacyKey : familyId + "/" + legacyKey;
+        return new ObjectLocation(sharedBucket(familyId), hashPrefix(familyId) + "/" + key);
+    }
+
+    /**
+     * 对象在另一种布局中的位置（双读回退用）
+     *
+     * @return 另一布局中的位置，无法推导时返回null
+     */
+    public ObjectLocation alternateLocation(String bucketName, String objectKey) {
+        if (objectKey == null) {
+            return null;
+        }
+        if (isSharedBucket(bucketName)) {
+            // {hash2}/{familyId}/... -> minio-family-{familyId} 下的 {familyId}/...
+            int familyStart = objectKey.indexOf('/') + 1;
+            int familyEnd = familyStart > 0 ? objectKey.indexOf('/', familyStart) : -1;
+            if (familyEnd <= familyStart) {
+                return null;
+            }
+            String familyId = objectKey.substring(familyStart, familyEnd);
+            return new ObjectLocation(legacyBucket(familyId), objectKey.substring(familyStart));
+        }
+        if (isLegacyBucket(bucketName)) {
+            int familyEnd = objectKey.indexOf('/');
+            if (familyEnd <= 0) {
+                return null;
+            }
+            return shardedLocation(objectKey.substring(0, familyEnd), objectKey);
+        }
+        return null;
+    }
+
+    private static long hash(String familyId) {
+        CRC32 crc = new CRC32();
+        crc.update(familyId.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * 对象位置
+     */
+    public record ObjectLocation(String bucketName, String objectKey) {
+
+        public String fullAccessPath() {
+            return bucketName + "/" + objectKey;
+        }
+    }
+}
@@ -1,52 +1,128 @@
 package com.haven.storage.operation.storage.adapter;
 
+import com.haven.storage.domain.model.entity.FileStorageData;
 import com.haven.storage.domain.model.enums.StorageType;
 import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.domain.model.file.StoredObjectStat;
+import com.haven.storage.domain.model.file.StoredObjectSummary;
 import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.repository.FileStorageDataRepository;
+import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListBucketsArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import okio.BufferedSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.net.URI;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @RequiredArgsConstructor
 @Component
 public class MinioStorageAdapter implements StorageAdapter {
+
+    /** 大小未知时的分片大小（MinIO要求至少5MB） */
+    private static final long UNKNOWN_SIZE_PART_BYTES = 10L * 1024 * 1024;
+
     private final MinioClient minioClient;
+    private final MinioBucketLayout bucketLayout;
+    private final FileStorageDataRepository fileStorageDataRepository;
+
+    /**
+     * 已确认存在的桶，签发直传地址和上传对象时避免每次都查询桶是否存在
+     */
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+
+    @Value("${storage.file.access-url.default-expire-minutes:60}")
+    private int defaultExpireMinutes;
 
     @Override
     public String buildFamilyBucketName(String familyId) {
-        // MinIO桶名规则：小写，前缀"minio-"
-        return "minio-family-" + familyId.toLowerCase();
+        // 按布局模式返回家庭专属桶或共享分片桶
+        return bucketLayout.bucketName(familyId);
     }
 
     @Override
     public String buildFilePath(String familyId, String fileType) {
-        // MinIO路径格式：familyId/yyyy/MM/fileType/
-        return familyId + "/" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM"))
-                + "/" + (fileType == null ? "default" : fileType) + "/";
+        // MinIO路径格式：familyId/yyyy/MM/fileType/，共享桶布局再加两位哈希前缀
+        return bucketLayout.directory(familyId, fileType);
     }
     @Override
     public boolean uploadFile(FileStorageInfo fileStorageInfo, BufferedSource bufferedSource) {
-        return false;
+        String objectName = resolveObjectName(fileStorageInfo);
+        try {
+            ensureBucket(fileStorageInfo.getFamilyBucketName());
+            // 大小已知时单次PUT；未知时按分片大小边读边传，内存占用为一个分片
+            long size = fileStorageInfo.getFileSize() != null ? fileStorageInfo.getFileSize() : -1;
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(fileStorageInfo.getFamilyBucketName())
+                    .object(objectName)
+                    .stream(bufferedSource.inputStream(), size, size >= 0 ? -1 : UNKNOWN_SIZE_PART_BYTES)
+                    .build());
+            return true;
+        } catch (Exception e) {
+            log.error("MinIO上传对象失败：bucket={}, object={}, error={}",
+                    fileStorageInfo.getFamilyBucketName(), objectName, e.getMessage());
+            return false;
+        }
     }
 
     @Override
     public BufferedSource downloadFile(String fileId, String familyId) {
-        return null;
+        FileStorageData storageData = locate(fileId, familyId);
+        return storageData != null ? openObject(storageData.getFamilyBucketName(), storageData.getFilePath()) : null;
     }
 
     @Override
     public boolean deleteFile(String fileId, String familyId) {
-        return false;
+        FileStorageData storageData = locate(fileId, familyId);
+        if (storageData == null || !deleteObject(storageData.getFamilyBucketName(), storageData.getFilePath())) {
+            return false;
+        }
+        // 布局迁移期间另一布局中可能还有副本，一并删除，避免文件删除后仍可经双读访问
+        MinioBucketLayout.ObjectLocation alternate = bucketLayout.isDualRead()
+                ? bucketLayout.alternateLocation(storageData.getFamilyBucketName(), storageData.getFilePath()) : null;
+        if (alternate != null && !deleteObject(alternate.bucketName(), alternate.objectKey())) {
+            log.warn("MinIO删除另一布局副本失败，留待巡检处理：fileId={}, alternate={}", fileId, alternate.fullAccessPath());
+        }
+        return true;
     }
 
     @Override
     public boolean isHealthy() {
-        return false;
+        try {
+            minioClient.listBuckets(ListBucketsArgs.builder().build());
+            return true;
+        } catch (Exception e) {
+            log.warn("MinIO健康检查失败：{}", e.getMessage());
+            return false;
+        }
     }
 
     @Override
@@ -56,6 +132,298 @@ public class MinioStorageAdapter implements StorageAdapter {
 
     @Override
     public URI getFileAccessUrl(FileStorageInfo fileStorageInfo) {
-        return null;
+        return getFileAccessUrl(fileStorageInfo, Duration.ofMinutes(defaultExpireMinutes));
+    }
+
+    @Override
+    public URI getFileAccessUrl(FileStorageInfo fileStorageInfo, Duration expiry) {
+        String bucketName = fileStorageInfo.getFamilyBucketName();
+        String objectName = resolveObjectName(fileStorageInfo);
+        MinioBucketLayout.ObjectLocation alternate = readFallback(bucketName, objectName);
+        if (alternate != null) {
+            bucketName = alternate.bucketName();
+            objectName = alternate.objectKey();
+        }
+        try {
+            // 桶名和对象路径已知，预签名为本地计算，无需列举存储桶
+            String url = minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
+                            .build()
+            );
+            return URI.create(url);
+        } catch (Exception e) {
+            log.error("生成MinIO访问URL失败：bucket={}, object={}, error={}",
+                    bucketName, objectName, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<StoredObjectSummary> listObjects(String bucketName, String startAfter, int maxKeys) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .recursive(true)
+                .maxKeys(maxKeys);
+        if (startAfter != null) {
+            args.startAfter(startAfter);
+        }
+        List<StoredObjectSummary> objects = new ArrayList<>(maxKeys);
+        try {
+            for (Result<Item> result : minioClient.listObjects(args.build())) {
+                Item item = result.get();
+                if (item.isDir()) {
+                    continue;
+                }
+                objects.add(new StoredObjectSummary(item.objectName(), item.size(),
+                        item.lastModified() != null ? item.lastModified().toInstant() : null));
+                if (objects.size() >= maxKeys) {
+                    break;
+                }
+            }
+        } catch (ErrorResponseException e) {
+            if ("NoSuchBucket".equals(e.errorResponse().code())) {
+                return Collections.emptyList();
+            }
+            throw new IllegalStateException("MinIO列举对象失败：bucket=" + bucketName + ", error=" + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("MinIO列举对象失败：bucket=" + bucketName + ", error=" + e.getMessage(), e);
+        }
+        return objects;
+    }
+
+    @Override
+    public URI getUploadUrl(String bucketName, String objectKey, Duration expiry) {
+        // 预签名不访问服务端，桶不存在时客户端PUT会失败，签发前先确保桶存在
+        ensureBucket(bucketName);
+        try {
+            String url = minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.PUT)
+                            .bucket(bucketName)
+                            .object(objectKey)
+                            .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
+                            .build()
+            );
+            return URI.create(url);
+        } catch (Exception e) {
+            throw new IllegalStateException("生成MinIO上传URL失败：bucket=" + bucketName
+                    + ", object=" + objectKey + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public BufferedSource openObject(String bucketName, String objectKey) {
+        BufferedSource source = getObject(bucketName, objectKey);
+        if (source != null || !bucketLayout.isDualRead()) {
+            return source;
+        }
+        // 双读：记录位置已被布局迁移清理（或尚未迁移到记录位置）时，按另一布局读取
+        MinioBucketLayout.ObjectLocation alternate = bucketLayout.alternateLocation(bucketName, objectKey);
+        if (alternate == null) {
+            return null;
+        }
+        log.debug("MinIO对象不在记录位置，按另一布局读取：bucket={}, object={}, alternate={}",
+                bucketName, objectKey, alternate.fullAccessPath());
+        return getObject(alternate.bucketName(), alternate.objectKey());
+    }
+
+    @Override
+    public StoredObjectStat statObject(String bucketName, String objectKey) {
+        try {
+            StatObjectResponse stat = minioClient.statObject(
+                    StatObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+            String etag = stat.etag();
+            if (etag != null && etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+                etag = etag.substring(1, etag.length() - 1);
+            }
+            return new StoredObjectStat(objectKey, stat.size(), etag, stat.contentType(),
+                    stat.lastModified() != null ? stat.lastModified().toInstant() : null);
+        } catch (ErrorResponseException e) {
+            if (isMissing(e)) {
+                return null;
+            }
+            throw new IllegalStateException("MinIO查询对象失败：bucket=" + bucketName + ", object=" + objectKey
+                    + ", error=" + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("MinIO查询对象失败：bucket=" + bucketName + ", object=" + objectKey
+                    + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public byte[] readObjectRange(String bucketName, String objectKey, long offset, int length) {
+        try {
+            return readRange(bucketName, objectKey, offset, length);
+        } catch (ErrorResponseException e) {
+            MinioBucketLayout.ObjectLocation alternate = bucketLayout.isDualRead() && isMissing(e)
+                    ? bucketLayout.alternateLocation(bucketName, objectKey) : null;
+            if (alternate == null) {
+                throw new IllegalStateException("MinIO读取对象失败：bucket=" + bucketName + ", object=" + objectKey
+                        + ", error=" + e.getMessage(), e);
+            }
+            log.debug("MinIO对象不在记录位置，按另一布局读取：bucket={}, object={}, alternate={}",
+                    bucketName, objectKey, alternate.fullAccessPath());
+            try {
+                return readRange(alternate.bucketName(), alternate.objectKey(), offset, length);
+            } catch (Exception fallbackError) {
+                throw new IllegalStateException("MinIO读取对象失败：bucket=" + bucketName + ", object=" + objectKey
+                        + ", alternate=" + alternate.fullAccessPath() + ", error=" + fallbackError.getMessage(), fallbackError);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("MinIO读取对象失败：bucket=" + bucketName + ", object=" + objectKey
+                    + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean deleteObject(String bucketName, String objectKey) {
+        try {
+            // S3语义下删除不存在的对象同样返回成功
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchBucket".equals(e.errorResponse().code())) {
+                return true;
+            }
+            log.error("MinIO删除对象失败：bucket={}, object={}, error={}", bucketName, objectKey, e.getMessage());
+            return false;
+        } catch (Exception e) {
+            log.error("MinIO删除对象失败：bucket={}, object={}, error={}", bucketName, objectKey, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void copyObject(String sourceBucket, String sourceKey, String targetBucket, String targetKey) {
+        ensureBucket(targetBucket);
+        try {
+            // 服务端复制，超过5GB的对象需改用 composeObject
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(targetBucket)
+                    .object(targetKey)
+                    .source(CopySource.builder().bucket(sourceBucket).object(sourceKey).build())
+                    .build());
+        } catch (Exception e) {
+            throw new IllegalStateException("MinIO复制对象失败：source=" + sourceBucket + "/" + sourceKey
+                    + ", target=" + targetBucket + "/" + targetKey + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取整个对象，对象或桶不存在时返回null
+     */
+    private BufferedSource getObject(String bucketName, String objectKey) {
+        try {
+            GetObjectResponse response = minioClient.getObject(
+                    GetObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+            return Okio.buffer(Okio.source(response));
+        } catch (ErrorResponseException e) {
+            if (isMissing(e)) {
+                return null;
+            }
+            throw new IllegalStateException("MinIO读取对象失败：bucket=" + bucketName + ", object=" + objectKey
+                    + ", error=" + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("MinIO读取对象失败：bucket=" + bucketName + ", object=" + objectKey
+                    + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    private byte[] readRange(String bucketName, String objectKey, long offset, int length) throws Exception {
+        try (GetObjectResponse response = minioClient.getObject(
+                GetObjectArgs.builder().bucket(bucketName).object(objectKey).offset(offset).length((long) length).build())) {
+            return response.readNBytes(length);
+        }
+    }
+
+    /**
+     * 双读：记录指向旧布局桶且对象已被清理时，返回共享桶中的位置
+     * <p>
+     * 只在共享桶布局下检查旧桶记录，其余情况不增加预签名前的查询
+     *
+     * @return 需要改用的位置，记录位置可用时返回null
+     */
+    private MinioBucketLayout.ObjectLocation readFallback(String bucketName, String objectKey) {
+        if (!bucketLayout.isDualRead() || bucketLayout.getMode() != MinioBucketLayout.Mode.SHARDED
+                || !bucketLayout.isLegacyBucket(bucketName)) {
+            return null;
+        }
+        MinioBucketLayout.ObjectLocation alternate = bucketLayout.alternateLocation(bucketName, objectKey);
+        try {
+            if (alternate == null || statObject(bucketName, objectKey) != null
+                    || statObject(alternate.bucketName(), alternate.objectKey()) == null) {
+                return null;
+            }
+        } catch (IllegalStateException e) {
+            log.warn("MinIO双读检查失败，按记录位置签发：bucket={}, object={}, error={}",
+                    bucketName, objectKey, e.getMessage());
+            return null;
+        }
+        log.debug("MinIO对象不在记录位置，按共享桶签发：bucket={}, object={}, alternate={}",
+                bucketName, objectKey, alternate.fullAccessPath());
+        return alternate;
+    }
+
+    private static boolean isMissing(ErrorResponseException e) {
+        String code = e.errorResponse().code();
+        return "NoSuchKey".equals(code) || "NoSuchBucket".equals(code) || "NoSuchObject".equals(code);
+    }
+
+    /**
+     * 确保桶存在，并发创建时以"桶已存在"视为成功
+     */
+    private void ensureBucket(String bucketName) {
+        if (knownBuckets.contains(bucketName)) {
+            return;
+        }
+        try {
+            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
+                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+                log.info("创建MinIO存储桶：bucket={}", bucketName);
+            }
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if (!"BucketAlreadyOwnedByYou".equals(code) && !"BucketAlreadyExists".equals(code)) {
+                throw new IllegalStateException("MinIO创建存储桶失败：bucket=" + bucketName + ", error=" + e.getMessage(), e);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("MinIO创建存储桶失败：bucket=" + bucketName + ", error=" + e.getMessage(), e);
+        }
+        knownBuckets.add(bucketName);
+    }
+
+    /**
+     * 通过存储数据定位对象（按 fileId 的接口只有 fileId 和 familyId）
+     */
+    private FileStorageData locate(String fileId, String familyId) {
+        FileStorageData storageData = fileStorageDataRepository.findByFileId(fileId).orElse(null);
+        if (storageData == null || !Objects.equals(storageData.getStorageType(), StorageType.MINIO.getCode())) {
+            log.warn("MinIO存储数据不存在：fileId={}", fileId);
+            return null;
+        }
+        if (storageData.getFamilyId() != null && !storageData.getFamilyId().equals(familyId)) {
+            log.warn("MinIO对象家庭不匹配：fileId={}, familyId={}, ownerFamilyId={}", fileId, familyId, storageData.getFamilyId());
+            return null;
+        }
+        if (storageData.getFilePath() == null || storageData.getFilePath().endsWith("/")) {
+            log.warn("MinIO存储数据只记录了目录，无法定位对象：fileId={}, filePath={}", fileId, storageData.getFilePath());
+            return null;
+        }
+        return storageData;
+    }
+
+    /**
+     * 解析对象名：filePath 以 / 结尾时表示目录，需拼接文件名
+     */
+    private String resolveObjectName(FileStorageInfo fileStorageInfo) {
+        String filePath = fileStorageInfo.getFilePath();
+        if (filePath.endsWith("/") && fileStorageInfo.getFileName() != null) {
+            return filePath + fileStorageInfo.getFileName();
+        }
+        return filePath;
     }
 }
@@ -1,50 +1,186 @@
 package com.haven.storage.operation.storage.adapter;
 
+import com.haven.storage.domain.model.entity.FileStorageData;
 import com.haven.storage.domain.model.enums.StorageType;
 import com.haven.storage.domain.model.file.FileStorageInfo;
-import com.haven.storage.operation.storage.StorageAdapter;
-import lombok.RequiredArgsConstructor;
+import com.haven.storage.domain.model.file.StoredObjectStat;
+import com.haven.storage.domain.model.file.StoredObjectSummary;
+import com.haven.storage.operation.storage.AsyncStorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.service.converter.FileStorageDataMapper;
+import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
 import okio.BufferedSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-@RequiredArgsConstructor
+/**
+ * S3协议存储适配器 - 异步非阻塞实现
+ * <p>
+ * 🎯 核心功能：
+ * - 基于 MinioAsyncClient（OkHttp 异步调用）实现 S3 协议的上传、下载、删除和预签名
+ * - 所有操作返回 CompletableFuture，请求在途期间不占用调用线程；
+ *   HTTP调用在 OkHttp 调度器线程上执行，并发上限见 storage.s3.pool.max-requests
+ * - 上传按分片流式读取请求体，内存占用不超过一个分片
+ * <p>
+ * 💡 对象键约定：
+ * - 对象键与其他存储一致取 {@link FileStorageInfo#getObjectKey()}，即存储数据记录的 filePath；
+ *   只记录目录的早期数据通过 {@link StorageObjectKeyResolver} 拼接原始文件名
+ * - 桶名 = "s3-family-" + 小写familyId，首次上传时按需创建并在进程内记住
+ * <p>
+ * 同步方法（StorageAdapter）在异步方法基础上等待结果，超时时间由 operation-timeout-seconds 控制。
+ *
+ * @author HavenButler
+ */
+@Slf4j
 @Component
-public class S3StorageStrategy implements StorageAdapter {
+@ConditionalOnProperty(name = "storage.s3.enabled", havingValue = "true")
+public class S3StorageStrategy implements AsyncStorageAdapter {
+
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final String NO_SUCH_BUCKET = "NoSuchBucket";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final MinioAsyncClient s3AsyncClient;
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final FileStorageDataMapper fileStorageDataMapper;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+
+    /** 已确认存在的桶，避免每次上传都检查 */
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+
+    @Value("${storage.s3.part-size:10485760}")
+    private long partSize;
+
+    @Value("${storage.s3.operation-timeout-seconds:300}")
+    private long operationTimeoutSeconds;
+
+    @Value("${storage.file.access-url.default-expire-minutes:60}")
+    private int defaultExpireMinutes;
+
+    public S3StorageStrategy(MinioAsyncClient s3AsyncClient,
+                             FileStorageDataRepository fileStorageDataRepository,
+                             FileStorageDataMapper fileStorageDataMapper,
+                             StorageObjectKeyResolver storageObjectKeyResolver) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.fileStorageDataRepository = fileStorageDataRepository;
+        this.fileStorageDataMapper = fileStorageDataMapper;
+        this.storageObjectKeyResolver = storageObjectKeyResolver;
+    }
+
     @Override
     public String buildFamilyBucketName(String familyId) {
-        // MinIO桶名规则：小写，前缀"minio-"
-        return "minio-family-" + familyId.toLowerCase();
+        // S3桶名规则：小写，前缀"s3-family-"
+        return "s3-family-" + familyId.toLowerCase();
     }
 
     @Override
     public String buildFilePath(String familyId, String fileType) {
-        // MinIO路径格式：familyId/yyyy/MM/fileType/
+        // S3路径格式：familyId/yyyy/MM/fileType/
         return familyId + "/" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM"))
                 + "/" + (fileType == null ? "default" : fileType) + "/";
     }
 
+    // ==================== 异步接口 ====================
+
+    @Override
+    public CompletableFuture<Boolean> uploadFileAsync(FileStorageInfo fileStorageInfo, BufferedSource bufferedSource) {
+        String bucket = fileStorageInfo.getFamilyBucketName();
+        String objectName = fileStorageInfo.getObjectKey();
+        long objectSize = fileStorageInfo.getFileSize() != null && fileStorageInfo.getFileSize() > 0
+                ? fileStorageInfo.getFileSize() : -1;
+
+        return ensureBucket(bucket)
+                .thenCompose(ignored -> call(() -> s3AsyncClient.putObject(PutObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .stream(bufferedSource.inputStream(), objectSize, objectSize > 0 ? -1 : partSize)
+                        .contentType(DEFAULT_CONTENT_TYPE)
+                        .build())))
+                .handle((response, error) -> {
+                    closeQuietly(bufferedSource);
+                    if (error != null) {
+                        log.error("S3上传失败：bucket={}, object={}, error={}", bucket, objectName, rootCause(error).getMessage());
+                        return false;
+                    }
+                    log.debug("S3上传完成：bucket={}, object={}, etag={}", bucket, objectName, response.etag());
+                    return true;
+                });
+    }
+
+    @Override
+    public CompletableFuture<BufferedSource> downloadFileAsync(FileStorageInfo fileStorageInfo) {
+        return getObjectAsync(fileStorageInfo.getFamilyBucketName(), fileStorageInfo.getObjectKey());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteFileAsync(FileStorageInfo fileStorageInfo) {
+        return removeObjectAsync(fileStorageInfo.getFamilyBucketName(), fileStorageInfo.getObjectKey());
+    }
+
+    // ==================== 同步接口（基于异步实现） ====================
+
     @Override
     public boolean uploadFile(FileStorageInfo fileStorageInfo, BufferedSource bufferedSource) {
-        return false;
+        return Boolean.TRUE.equals(await(uploadFileAsync(fileStorageInfo, bufferedSource), false));
     }
 
     @Override
     public BufferedSource downloadFile(String fileId, String familyId) {
-        return null;
+        FileStorageInfo storageInfo = locate(fileId, familyId);
+        return storageInfo != null ? await(downloadFileAsync(storageInfo), null) : null;
     }
 
     @Override
     public boolean deleteFile(String fileId, String familyId) {
-        return false;
+        FileStorageInfo storageInfo = locate(fileId, familyId);
+        return storageInfo != null && Boolean.TRUE.equals(await(deleteFileAsync(storageInfo), false));
     }
 
     @Override
     public boolean isHealthy() {
-        return false;
+        try {
+            s3AsyncClient.listBuckets().get(10, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            log.warn("S3健康检查失败：{}", e.getMessage());
+            return false;
+        }
     }
 
     @Override
@@ -54,6 +190,270 @@ public class S3StorageStrategy implements StorageAdapter {
 
     @Override
     public URI getFileAccessUrl(FileStorageInfo fileStorageInfo) {
-        return null;
+        return getFileAccessUrl(fileStorageInfo, Duration.ofMinutes(defaultExpireMinutes));
+    }
+
+    @Override
+    public URI getFileAccessUrl(FileStorageInfo fileStorageInfo, Duration expiry) {
+        String objectName = fileStorageInfo.getObjectKey();
+        try {
+            // 预签名为本地计算，不发起网络请求
+            return URI.create(s3AsyncClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(fileStorageInfo.getFamilyBucketName())
+                    .object(objectName)
+                    .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
+                    .build()));
+        } catch (Exception e) {
+            log.error("生成S3访问URL失败：bucket={}, object={}, error={}",
+                    fileStorageInfo.getFamilyBucketName(), objectName, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<StoredObjectSummary> listObjects(String bucketName, String startAfter, int maxKeys) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .recursive(true)
+                .maxKeys(maxKeys);
+        if (startAfter != null) {
+            args.startAfter(startAfter);
+        }
+        List<StoredObjectSummary> objects = new ArrayList<>(maxKeys);
+        try {
+            // SDK 迭代时自动翻页，取满 maxKeys 即停止，不会多发请求
+            for (Result<Item> result : s3AsyncClient.listObjects(args.build())) {
+                Item item = result.get();
+                if (item.isDir()) {
+                    continue;
+                }
+                objects.add(new StoredObjectSummary(item.objectName(), item.size(),
+                        item.lastModified() != null ? item.lastModified().toInstant() : null));
+                if (objects.size() >= maxKeys) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            if (isNotFound(e)) {
+                return Collections.emptyList();
+            }
+            throw new IllegalStateException("S3列举对象失败：bucket=" + bucketName + ", error=" + e.getMessage(), e);
+        }
+        return objects;
+    }
+
+    @Override
+    public BufferedSource openObject(String bucketName, String objectKey) {
+        return join(getObjectAsync(bucketName, objectKey), "读取对象", bucketName, objectKey);
+    }
+
+    @Override
+    public StoredObjectStat statObject(String bucketName, String objectKey) {
+        return join(call(() -> s3AsyncClient.statObject(StatObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectKey)
+                .build()))
+                .handle((stat, error) -> {
+                    if (error == null) {
+                        String etag = stat.etag();
+                        if (etag != null && etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+                            etag = etag.substring(1, etag.length() - 1);
+                        }
+                        return new StoredObjectStat(objectKey, stat.size(), etag, stat.contentType(),
+                                stat.lastModified() != null ? stat.lastModified().toInstant() : null);
+                    }
+                    if (isNotFound(error)) {
+                        return null;
+                    }
+                    throw new CompletionException(rootCause(error));
+                }), "查询对象", bucketName, objectKey);
+    }
+
+    @Override
+    public byte[] readObjectRange(String bucketName, String objectKey, long offset, int length) {
+        // 只传输请求的字节范围，响应体在调用线程上读取
+        try (GetObjectResponse response = join(call(() -> s3AsyncClient.getObject(GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectKey)
+                .offset(offset)
+                .length((long) length)
+                .build())), "读取对象", bucketName, objectKey)) {
+            return response.readNBytes(length);
+        } catch (IOException e) {
+            throw new IllegalStateException("S3读取对象失败：bucket=" + bucketName + ", object=" + objectKey
+                    + ", error=" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean deleteObject(String bucketName, String objectKey) {
+        return Boolean.TRUE.equals(await(removeObjectAsync(bucketName, objectKey), false));
+    }
+
+    @Override
+    public void copyObject(String sourceBucket, String sourceKey, String targetBucket, String targetKey) {
+        // 服务端复制，超过5GB的对象需改用 composeObject
+        join(ensureBucket(targetBucket)
+                .thenCompose(ignored -> call(() -> s3AsyncClient.copyObject(CopyObjectArgs.builder()
+                        .bucket(targetBucket)
+                        .object(targetKey)
+                        .source(CopySource.builder().bucket(sourceBucket).object(sourceKey).build())
+                        .build()))), "复制对象", targetBucket, targetKey);
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 读取整个对象，对象或桶不存在时结果为null
+     */
+    private CompletableFuture<BufferedSource> getObjectAsync(String bucket, String objectName) {
+        return call(() -> s3AsyncClient.getObject(GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(objectName)
+                .build()))
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return Okio.buffer(Okio.source(response));
+                    }
+                    if (isNotFound(error)) {
+                        log.warn("S3对象不存在：bucket={}, object={}", bucket, objectName);
+                        return null;
+                    }
+                    throw new CompletionException(rootCause(error));
+                });
+    }
+
+    /**
+     * 删除对象，对象或桶不存在视为成功
+     */
+    private CompletableFuture<Boolean> removeObjectAsync(String bucket, String objectName) {
+        return call(() -> s3AsyncClient.removeObject(RemoveObjectArgs.builder()
+                .bucket(bucket)
+                .object(objectName)
+                .build()))
+                .handle((ignored, error) -> {
+                    if (error == null || isNotFound(error)) {
+                        return true;
+                    }
+                    log.error("S3删除失败：bucket={}, object={}, error={}", bucket, objectName, rootCause(error).getMessage());
+                    return false;
+                });
+    }
+
+    /**
+     * 确保桶存在，不存在时创建
+     */
+    private CompletableFuture<Void> ensureBucket(String bucket) {
+        if (knownBuckets.contains(bucket)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return call(() -> s3AsyncClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()))
+                .thenCompose(exists -> exists
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : call(() -> s3AsyncClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build())))
+                .thenRun(() -> knownBuckets.add(bucket));
+    }
+
+    /**
+     * 通过存储数据定位对象（同步接口只有 fileId 和 familyId），路径替换为解析后的对象键
+     */
+    private FileStorageInfo locate(String fileId, String familyId) {
+        FileStorageData storageData = fileStorageDataRepository.findByFileId(fileId).orElse(null);
+        if (storageData == null || !Objects.equals(storageData.getStorageType(), StorageType.CLOUD_S3.getCode())) {
+            log.warn("S3存储数据不存在：fileId={}", fileId);
+            return null;
+        }
+        if (storageData.getFamilyId() != null && !storageData.getFamilyId().equals(familyId)) {
+            log.warn("S3对象家庭不匹配：fileId={}, familyId={}, ownerFamilyId={}", fileId, familyId, storageData.getFamilyId());
+            return null;
+        }
+        String objectKey = storageObjectKeyResolver.resolve(storageData);
+        if (objectKey == null) {
+            log.warn("S3对象键无法确定：fileId={}, filePath={}", fileId, storageData.getFilePath());
+            return null;
+        }
+        FileStorageInfo storageInfo = fileStorageDataMapper.toFileStorageInfo(storageData);
+        storageInfo.setFilePath(objectKey);
+        return storageInfo;
+    }
+
+    private <T> T await(CompletableFuture<T> future, T fallback) {
+        try {
+            return future.get(operationTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.error("S3操作超时：timeout={}s", operationTimeoutSeconds);
+            return fallback;
+        } catch (ExecutionException e) {
+            log.error("S3操作失败：{}", rootCause(e).getMessage());
+            return fallback;
+        }
+    }
+
+    /**
+     * 等待按位置操作的结果，失败时抛出异常，与其他适配器的按位置接口语义一致
+     *
+     * @throws IllegalStateException 操作失败或超时
+     */
+    private <T> T join(CompletableFuture<T> future, String action, String bucket, String objectName) {
+        try {
+            return future.get(operationTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("S3" + action + "被中断：bucket=" + bucket + ", object=" + objectName, e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("S3" + action + "超时：bucket=" + bucket + ", object=" + objectName
+                    + ", timeout=" + operationTimeoutSeconds + "s", e);
+        } catch (ExecutionException e) {
+            Throwable cause = rootCause(e);
+            throw new IllegalStateException("S3" + action + "失败：bucket=" + bucket + ", object=" + objectName
+                    + ", error=" + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 将 SDK 方法声明的受检异常转为失败的 Future
+     */
+    private static <T> CompletableFuture<T> call(S3Call<T> call) {
+        try {
+            return call.execute();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isNotFound(Throwable error) {
+        Throwable cause = rootCause(error);
+        if (cause instanceof ErrorResponseException response) {
+            String code = response.errorResponse().code();
+            return NO_SUCH_KEY.equals(code) || NO_SUCH_BUCKET.equals(code);
+        }
+        return false;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static void closeQuietly(BufferedSource source) {
+        try {
+            source.close();
+        } catch (Exception e) {
+            log.debug("关闭上传数据源失败：{}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface S3Call<T> {
+        CompletableFuture<T> execute() throws Exception;
     }
 }
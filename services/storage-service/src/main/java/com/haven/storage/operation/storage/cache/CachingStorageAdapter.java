@@ -0,0 +1,192 @@
+package com.haven.storage.operation.storage.cache;
+
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.domain.model.file.StoredObjectStat;
+import com.haven.storage.domain.model.file.StoredObjectSummary;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.repository.FileStorageDataRepository;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 带本地磁盘读缓存的存储适配器装饰器
+ *
+ * <p>包装 MinIO 等远程存储适配器：下载优先走 {@link DiskReadCache}，
+ * 未命中时从远程读取并落盘；上传、删除直接委托给远程适配器并失效对应缓存条目。</p>
+ *
+ * <p>按 fileId 下载以文件ID为缓存键；按位置读取（前台下载按存储数据记录的桶名和对象键读取）
+ * 以对象位置为缓存键。校验和与文件大小取自 FileStorageData，一次索引查询远比远程读取便宜；
+ * 缓存填充失败、文件过大或位置没有对应的存储数据时直接回源，不影响下载。</p>
+ *
+ * <p>后台任务通过 {@link #unwrap} 绕过缓存，不会把热点缓存挤出。</p>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+public class CachingStorageAdapter implements StorageAdapter {
+
+    private final StorageAdapter delegate;
+    private final DiskReadCache diskReadCache;
+    private final FileStorageDataRepository fileStorageDataRepository;
+
+    public CachingStorageAdapter(StorageAdapter delegate,
+                                 DiskReadCache diskReadCache,
+                                 FileStorageDataRepository fileStorageDataRepository) {
+        this.delegate = delegate;
+        this.diskReadCache = diskReadCache;
+        this.fileStorageDataRepository = fileStorageDataRepository;
+    }
+
+    /**
+     * 被包装的远程存储适配器，供需要绕过缓存直接读取远端的后台任务使用
+     */
+    public StorageAdapter getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 返回绕过本地读缓存的适配器，未包装时原样返回
+     */
+    public static StorageAdapter unwrap(StorageAdapter adapter) {
+        return adapter instanceof CachingStorageAdapter caching ? caching.getDelegate() : adapter;
+    }
+
+    @Override
+    public String buildFamilyBucketName(String familyId) {
+        return delegate.buildFamilyBucketName(familyId);
+    }
+
+    @Override
+    public String buildFilePath(String familyId, String fileType) {
+        return delegate.buildFilePath(familyId, fileType);
+    }
+
+    @Override
+    public boolean uploadFile(FileStorageInfo fileStorageInfo, BufferedSource bufferedSource) {
+        if (fileStorageInfo.getFileId() != null) {
+            diskReadCache.invalidate(cacheKey(fileStorageInfo.getFileId()));
+        }
+        diskReadCache.invalidate(locationKey(fileStorageInfo.getFamilyBucketName(), fileStorageInfo.getObjectKey()));
+        return delegate.uploadFile(fileStorageInfo, bufferedSource);
+    }
+
+    @Override
+    public BufferedSource downloadFile(String fileId, String familyId) {
+        Optional<FileStorageData> storageData = fileStorageDataRepository.findByFileId(fileId);
+        Long fileSize = storageData.map(FileStorageData::getFileSize).orElse(null);
+        if (!diskReadCache.isCacheable(fileSize)) {
+            diskReadCache.recordBypass();
+            return delegate.downloadFile(fileId, familyId);
+        }
+
+        String expectedChecksum = storageData.map(FileStorageData::getFileChecksum).orElse(null);
+        try {
+            BufferedSource cached = diskReadCache.open(cacheKey(fileId), expectedChecksum,
+                    () -> delegate.downloadFile(fileId, familyId));
+            if (cached != null) {
+                return cached;
+            }
+        } catch (Exception e) {
+            log.warn("本地读缓存读取失败，回源下载: fileId={}, error={}", fileId, e.getMessage());
+        }
+        return delegate.downloadFile(fileId, familyId);
+    }
+
+    @Override
+    public boolean deleteFile(String fileId, String familyId) {
+        diskReadCache.invalidate(cacheKey(fileId));
+        fileStorageDataRepository.findByFileId(fileId).ifPresent(storageData ->
+                diskReadCache.invalidate(locationKey(storageData.getFamilyBucketName(), storageData.getFilePath())));
+        return delegate.deleteFile(fileId, familyId);
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return delegate.isHealthy();
+    }
+
+    @Override
+    public StorageType getStorageType() {
+        return delegate.getStorageType();
+    }
+
+    @Override
+    public URI getFileAccessUrl(FileStorageInfo fileStorageInfo) {
+        return delegate.getFileAccessUrl(fileStorageInfo);
+    }
+
+    @Override
+    public URI getFileAccessUrl(FileStorageInfo fileStorageInfo, Duration expiry) {
+        return delegate.getFileAccessUrl(fileStorageInfo, expiry);
+    }
+
+    @Override
+    public List<StoredObjectSummary> listObjects(String bucketName, String startAfter, int maxKeys) {
+        return delegate.listObjects(bucketName, startAfter, maxKeys);
+    }
+
+    @Override
+    public URI getUploadUrl(String bucketName, String objectKey, Duration expiry) {
+        return delegate.getUploadUrl(bucketName, objectKey, expiry);
+    }
+
+    @Override
+    public BufferedSource openObject(String bucketName, String objectKey) {
+        // 对象键在桶内唯一，按位置缓存；大小和校验和取自引用该位置的存储数据
+        Optional<FileStorageData> storageData = fileStorageDataRepository.findFirstByFamilyBucketNameAndFilePath(bucketName, objectKey);
+        Long fileSize = storageData.map(FileStorageData::getFileSize).orElse(null);
+        if (!diskReadCache.isCacheable(fileSize)) {
+            diskReadCache.recordBypass();
+            return delegate.openObject(bucketName, objectKey);
+        }
+
+        String expectedChecksum = storageData.map(FileStorageData::getFileChecksum).orElse(null);
+        try {
+            BufferedSource cached = diskReadCache.open(locationKey(bucketName, objectKey), expectedChecksum,
+                    () -> delegate.openObject(bucketName, objectKey));
+            if (cached != null) {
+                return cached;
+            }
+        } catch (Exception e) {
+            log.warn("本地读缓存读取失败，回源读取: bucket={}, object={}, error={}", bucketName, objectKey, e.getMessage());
+        }
+        return delegate.openObject(bucketName, objectKey);
+    }
+
+    @Override
+    public StoredObjectStat statObject(String bucketName, String objectKey) {
+        return delegate.statObject(bucketName, objectKey);
+    }
+
+    @Override
+    public byte[] readObjectRange(String bucketName, String objectKey, long offset, int length) {
+        return delegate.readObjectRange(bucketName, objectKey, offset, length);
+    }
+
+    @Override
+    public boolean deleteObject(String bucketName, String objectKey) {
+        diskReadCache.invalidate(locationKey(bucketName, objectKey));
+        return delegate.deleteObject(bucketName, objectKey);
+    }
+
+    @Override
+    public void copyObject(String sourceBucket, String sourceKey, String targetBucket, String targetKey) {
+        diskReadCache.invalidate(locationKey(targetBucket, targetKey));
+        delegate.copyObject(sourceBucket, sourceKey, targetBucket, targetKey);
+    }
+
+    private String cacheKey(String fileId) {
+        return delegate.getStorageType().name() + ":" + fileId;
+    }
+
+    private String locationKey(String bucketName, String objectKey) {
+        return delegate.getStorageType().name() + ":" + bucketName + "/" + objectKey;
+    }
+}
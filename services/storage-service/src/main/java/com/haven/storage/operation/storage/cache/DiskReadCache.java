@@ -0,0 +1,349 @@
+package com.haven.storage.operation.storage.cache;
+
+import com.haven.storage.utils.ChecksumUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 远程对象的本地磁盘读缓存
+ *
+ * <p>热点文件（家庭共享的日程PDF、最近的照片等）第一次下载时落盘，之后直接从本地磁盘读取，
+ * 不再经过网络访问 MinIO 等远程存储。</p>
+ *
+ * <p>缓存策略：</p>
+ * <ul>
+ *   <li>条目元数据（路径、大小、校验和）只保存在内存中，进程重启时清空缓存目录</li>
+ *   <li>按访问顺序 LRU 淘汰，缓存总字节数不超过 max-bytes，超过 max-entry-bytes 的文件不缓存</li>
+ *   <li>未命中时单飞填充：同一文件的并发请求只触发一次远程读取，其余请求等待填充结果</li>
+ *   <li>填充时计算 SHA-256，与存储数据的 fileChecksum 不一致时不入缓存；
+ *       命中时校验和与最新的 fileChecksum 不一致视为内容已变化，条目作废</li>
+ * </ul>
+ *
+ * <p>指标：storage.read.cache.requests{result=hit|miss|bypass}、storage.read.cache.evictions、
+ * storage.read.cache.bytes、storage.read.cache.hit.ratio</p>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Component
+public class DiskReadCache {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** 访问顺序的 LinkedHashMap，迭代顺序即 LRU 淘汰顺序；所有访问在 this 上同步 */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<CacheEntry>> inflight = new ConcurrentHashMap<>();
+    private final AtomicLong currentBytes = new AtomicLong();
+
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter evictions;
+
+    public DiskReadCache(MeterRegistry meterRegistry,
+                         @Value("${storage.read-cache.enabled:false}") boolean enabled,
+                         @Value("${storage.read-cache.directory:${java.io.tmpdir}/haven-storage-cache}") String directory,
+                         @Value("${storage.read-cache.max-bytes:10737418240}") long maxBytes,
+                         @Value("${storage.read-cache.max-entry-bytes:536870912}") long maxEntryBytes) {
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+
+        this.hits = Counter.builder("storage.read.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("storage.read.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.bypasses = Counter.builder("storage.read.cache.requests").tag("result", "bypass").register(meterRegistry);
+        this.evictions = Counter.builder("storage.read.cache.evictions").register(meterRegistry);
+        Gauge.builder("storage.read.cache.bytes", currentBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("storage.read.cache.hit.ratio", this, DiskReadCache::getHitRatio).register(meterRegistry);
+
+        if (enabled) {
+            resetCacheDirectory();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 判断指定大小的文件是否可以进入缓存
+     */
+    public boolean isCacheable(Long fileSize) {
+        return enabled && fileSize != null && fileSize > 0 && fileSize <= maxEntryBytes;
+    }
+
+    /**
+     * 读取缓存文件，未命中时通过 loader 单飞填充
+     *
+     * @param cacheKey         缓存键（存储类型 + 文件ID，或存储类型 + 对象位置）
+     * @param expectedChecksum 存储数据当前的校验和，为null时不校验
+     * @param loader           远程读取函数，返回null表示文件不存在
+     * @return 本地缓存文件的数据源；填充失败或校验和不一致时返回null，由调用方直接回源
+     */
+    public BufferedSource open(String cacheKey, String expectedChecksum, RemoteLoader loader) throws IOException {
+        CacheEntry entry = lookup(cacheKey, expectedChecksum);
+        if (entry != null) {
+            BufferedSource source = openEntry(cacheKey, entry);
+            if (source != null) {
+                hits.increment();
+                return source;
+            }
+        }
+
+        misses.increment();
+        CompletableFuture<CacheEntry> future = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> existing = inflight.putIfAbsent(cacheKey, future);
+        if (existing == null) {
+            // 当前线程负责填充
+            try {
+                future.complete(fill(cacheKey, expectedChecksum, loader));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                inflight.remove(cacheKey, future);
+            }
+        } else {
+            future = existing;
+        }
+
+        CacheEntry filled = await(future);
+        return filled != null ? openEntry(cacheKey, filled) : null;
+    }
+
+    /**
+     * 记录一次绕过缓存的读取（文件过大或缓存关闭）
+     */
+    public void recordBypass() {
+        bypasses.increment();
+    }
+
+    /**
+     * 失效指定条目（文件删除、覆盖写入时调用）
+     */
+    public void invalidate(String cacheKey) {
+        CacheEntry removed;
+        synchronized (this) {
+            removed = entries.remove(cacheKey);
+        }
+        if (removed != null) {
+            deleteQuietly(removed);
+        }
+    }
+
+    /**
+     * 缓存命中率（命中 / (命中 + 未命中)）
+     */
+    public double getHitRatio() {
+        double hitCount = hits.count();
+        double total = hitCount + misses.count();
+        return total == 0 ? 0.0 : hitCount / total;
+    }
+
+    /**
+     * 缓存运行状态
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entries.size());
+        stats.put("bytes", currentBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", (long) hits.count());
+        stats.put("misses", (long) misses.count());
+        stats.put("bypasses", (long) bypasses.count());
+        stats.put("evictions", (long) evictions.count());
+        stats.put("hitRatio", getHitRatio());
+        return stats;
+    }
+
+    private CacheEntry lookup(String cacheKey, String expectedChecksum) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (StringUtils.hasText(expectedChecksum) && !expectedChecksum.equalsIgnoreCase(entry.checksum())) {
+                // 存储数据的校验和已变化，缓存内容过期
+                entries.remove(cacheKey);
+            } else {
+                return entry;
+            }
+        }
+        log.debug("读缓存条目校验和过期，作废: key={}", cacheKey);
+        deleteQuietly(entry);
+        return null;
+    }
+
+    private BufferedSource openEntry(String cacheKey, CacheEntry entry) {
+        try {
+            // 已打开的文件在被淘汰删除后仍可继续读取
+            return Okio.buffer(Okio.source(entry.path()));
+        } catch (IOException e) {
+            log.warn("读缓存文件不可读，作废条目: key={}, error={}", cacheKey, e.getMessage());
+            invalidate(cacheKey);
+            return null;
+        }
+    }
+
+    private CacheEntry fill(String cacheKey, String expectedChecksum, RemoteLoader loader) throws IOException {
+        Path tempFile = Files.createTempFile(cacheDir, "fill-", ".tmp");
+        MessageDigest digest = ChecksumUtils.newDigest();
+        long size = 0;
+        try {
+            try (BufferedSource remote = loader.load()) {
+                if (remote == null) {
+                    return null;
+                }
+                try (InputStream in = remote.inputStream(); OutputStream out = Files.newOutputStream(tempFile)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                        digest.update(buffer, 0, read);
+                        size += read;
+                        if (size > maxEntryBytes) {
+                            log.debug("文件超过单条目上限，不进入读缓存: key={}", cacheKey);
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            String checksum = ChecksumUtils.toHex(digest);
+            if (StringUtils.hasText(expectedChecksum) && !expectedChecksum.equalsIgnoreCase(checksum)) {
+                log.warn("远程文件校验和不一致，不进入读缓存: key={}, expected={}, actual={}",
+                        cacheKey, expectedChecksum, checksum);
+                return null;
+            }
+
+            Path target = cacheDir.resolve(toFileName(cacheKey) + "-" + System.nanoTime());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            CacheEntry entry = new CacheEntry(target, size, checksum);
+            admit(cacheKey, entry);
+            return entry;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void admit(String cacheKey, CacheEntry entry) {
+        List<CacheEntry> evicted = new ArrayList<>();
+        synchronized (this) {
+            CacheEntry previous = entries.put(cacheKey, entry);
+            if (previous != null) {
+                currentBytes.addAndGet(-previous.size());
+                evicted.add(previous);
+            }
+            currentBytes.addAndGet(entry.size());
+
+            Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (currentBytes.get() > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, CacheEntry> eldest = iterator.next();
+                if (eldest.getKey().equals(cacheKey)) {
+                    continue;
+                }
+                iterator.remove();
+                currentBytes.addAndGet(-eldest.getValue().size());
+                evicted.add(eldest.getValue());
+                evictions.increment();
+            }
+        }
+        // 删除文件放在锁外，避免磁盘IO阻塞其他读请求
+        for (CacheEntry old : evicted) {
+            deleteFile(old.path());
+        }
+    }
+
+    private void deleteQuietly(CacheEntry entry) {
+        synchronized (this) {
+            currentBytes.addAndGet(-entry.size());
+        }
+        deleteFile(entry.path());
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除读缓存文件失败: path={}, error={}", path, e.getMessage());
+        }
+    }
+
+    private static CacheEntry await(CompletableFuture<CacheEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待读缓存填充被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("读缓存填充失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static String toFileName(String cacheKey) {
+        return cacheKey.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * 启动时清空缓存目录：条目元数据只在内存中，遗留文件无法再被引用
+     */
+    private void resetCacheDirectory() {
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.forEach(this::deleteFile);
+            }
+            log.info("本地读缓存已启用: directory={}, maxBytes={}, maxEntryBytes={}", cacheDir, maxBytes, maxEntryBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("初始化本地读缓存目录失败: " + cacheDir, e);
+        }
+    }
+
+    /**
+     * 远程读取函数
+     */
+    @FunctionalInterface
+    public interface RemoteLoader {
+        BufferedSource load() throws IOException;
+    }
+
+    private record CacheEntry(Path path, long size, String checksum) {
+    }
+}
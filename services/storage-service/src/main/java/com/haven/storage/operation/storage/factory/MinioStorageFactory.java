@@ -4,18 +4,32 @@ import com.haven.storage.domain.model.enums.StorageType;
 import com.haven.storage.operation.storage.StorageAdapter;
 import com.haven.storage.operation.storage.StorageOperationFactory;
 import com.haven.storage.operation.storage.adapter.MinioStorageAdapter;
-import lombok.RequiredArgsConstructor;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.operation.storage.cache.DiskReadCache;
+import com.haven.storage.repository.FileStorageDataRepository;
 import org.springframework.stereotype.Component;
 
 
+/**
+ * 远程存储开启本地读缓存时，返回带磁盘读缓存的适配器
+ */
 @Component
-@RequiredArgsConstructor
 public class MinioStorageFactory implements StorageOperationFactory {
     private final MinioStorageAdapter minioStorageAdapter;
+    private final StorageAdapter storageOperation;
+
+    public MinioStorageFactory(MinioStorageAdapter minioStorageAdapter,
+                               DiskReadCache diskReadCache,
+                               FileStorageDataRepository fileStorageDataRepository) {
+        this.minioStorageAdapter = minioStorageAdapter;
+        this.storageOperation = diskReadCache.isEnabled()
+                ? new CachingStorageAdapter(minioStorageAdapter, diskReadCache, fileStorageDataRepository)
+                : minioStorageAdapter;
+    }
 
     @Override
     public StorageAdapter createStorageOperation() {
-        return minioStorageAdapter;
+        return storageOperation;
     }
 
     @Override
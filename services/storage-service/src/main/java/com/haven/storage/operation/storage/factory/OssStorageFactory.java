@@ -4,16 +4,30 @@ import com.haven.storage.domain.model.enums.StorageType;
 import com.haven.storage.operation.storage.StorageAdapter;
 import com.haven.storage.operation.storage.StorageOperationFactory;
 import com.haven.storage.operation.storage.adapter.OssStorageAdapter;
-import lombok.RequiredArgsConstructor;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.operation.storage.cache.DiskReadCache;
+import com.haven.storage.repository.FileStorageDataRepository;
 import org.springframework.stereotype.Component;
 
+/**
+ * 远程存储开启本地读缓存时，返回带磁盘读缓存的适配器
+ */
 @Component
-@RequiredArgsConstructor
 public class OssStorageFactory implements StorageOperationFactory {
     private final OssStorageAdapter ossStorageAdapter;
+    private final StorageAdapter storageOperation;
+
+    public OssStorageFactory(OssStorageAdapter ossStorageAdapter,
+                             DiskReadCache diskReadCache,
+                             FileStorageDataRepository fileStorageDataRepository) {
+        this.ossStorageAdapter = ossStorageAdapter;
+        this.storageOperation = diskReadCache.isEnabled()
+                ? new CachingStorageAdapter(ossStorageAdapter, diskReadCache, fileStorageDataRepository)
+                : ossStorageAdapter;
+    }
     @Override
     public StorageAdapter createStorageOperation() {
-        return ossStorageAdapter;
+        return storageOperation;
     }
 
     @Override
@@ -0,0 +1,41 @@
+package com.haven.storage.operation.storage.factory;
+
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageOperationFactory;
+import com.haven.storage.operation.storage.adapter.S3StorageStrategy;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.operation.storage.cache.DiskReadCache;
+import com.haven.storage.repository.FileStorageDataRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * S3协议存储工厂，仅在 storage.s3.enabled=true 时注册
+ */
+@Component
+@ConditionalOnProperty(name = "storage.s3.enabled", havingValue = "true")
+public class S3StorageFactory implements StorageOperationFactory {
+    private final S3StorageStrategy s3StorageStrategy;
+    private final StorageAdapter storageOperation;
+
+    public S3StorageFactory(S3StorageStrategy s3StorageStrategy,
+                            DiskReadCache diskReadCache,
+                            FileStorageDataRepository fileStorageDataRepository) {
+        this.s3StorageStrategy = s3StorageStrategy;
+        this.storageOperation = diskReadCache.isEnabled()
+                ? new CachingStorageAdapter(s3StorageStrategy, diskReadCache, fileStorageDataRepository)
+                : s3StorageStrategy;
+    }
+
+    @Override
+    public StorageAdapter createStorageOperation() {
+        return storageOperation;
+    }
+
+    @Override
+    public StorageType getSupportStorageType() {
+        return s3StorageStrategy.getStorageType();
+    }
+}
@@ -0,0 +1,104 @@
+package com.haven.storage.permission;
+
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.UserRole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编译后的权限矩阵
+ *
+ * <p>类加载时把 {@link PermissionMatrix} 的 角色 × 可见性 × 操作 规则展开成一个预计算的 {@code long[]} 位图，
+ * 单次权限判断只需一次数组下标计算和一次位运算，不再逐次走 switch 分支。</p>
+ *
+ * <p>位布局：第 {@code (role * V + visibility) * O + operation} 位表示该组合是否允许，
+ * V、O 分别为可见性和操作的枚举数量。</p>
+ *
+ * <p>批量接口 {@link #filter(List, String, String, FileOperation)} 在一次遍历中完成
+ * 角色判定与位图查询，适用于文件列表、搜索结果等大批量过滤场景。</p>
+ *
+ * @author HavenButler
+ */
+public final class CompiledPermissionMatrix {
+
+    private static final UserRole[] ROLES = UserRole.values();
+    private static final FileVisibility[] VISIBILITIES = FileVisibility.values();
+    private static final FileOperation[] OPERATIONS = FileOperation.values();
+
+    private static final int VISIBILITY_COUNT = VISIBILITIES.length;
+    private static final int OPERATION_COUNT = OPERATIONS.length;
+
+    private static final long[] BITS = compile();
+
+    private CompiledPermissionMatrix() {
+    }
+
+    /**
+     * 检查是否有权限执行操作，语义与 {@link PermissionMatrix#hasPermission} 一致
+     */
+    public static boolean hasPermission(UserRole role, FileVisibility visibility, FileOperation operation) {
+        int bit = bitIndex(role.ordinal(), visibility.ordinal(), operation.ordinal());
+        return (BITS[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * 批量过滤用户可执行指定操作的文件
+     *
+     * <p>已删除的文件直接剔除，未设置可见性的文件按私有处理。</p>
+     *
+     * @param files     待过滤的文件列表
+     * @param userId    当前用户ID，为空时按公开用户处理
+     * @param familyId  当前用户所属家庭ID，可为空
+     * @param operation 要执行的操作
+     * @return 有权限的文件列表，保持原有顺序
+     */
+    public static List<FileMetadata> filter(List<FileMetadata> files, String userId, String familyId,
+                                            FileOperation operation) {
+        List<FileMetadata> permitted = new ArrayList<>(files.size());
+        int op = operation.ordinal();
+        int privateOrdinal = FileVisibility.PRIVATE.ordinal();
+
+        for (FileMetadata file : files) {
+            if (file == null || !file.isActiveFile()) {
+                continue;
+            }
+            int role;
+            if (userId != null && userId.equals(file.getOwnerId())) {
+                role = UserRole.OWNER.ordinal();
+            } else if (familyId != null && familyId.equals(file.getFamilyId())) {
+                role = UserRole.FAMILY_MEMBER.ordinal();
+            } else {
+                role = UserRole.PUBLIC_USER.ordinal();
+            }
+            FileVisibility visibility = file.getFileVisibility();
+            int bit = bitIndex(role, visibility != null ? visibility.ordinal() : privateOrdinal, op);
+            if ((BITS[bit >>> 6] & (1L << bit)) != 0) {
+                permitted.add(file);
+            }
+        }
+        return permitted;
+    }
+
+    private static int bitIndex(int role, int visibility, int operation) {
+        return (role * VISIBILITY_COUNT + visibility) * OPERATION_COUNT + operation;
+    }
+
+    private static long[] compile() {
+        int totalBits = ROLES.length * VISIBILITY_COUNT * OPERATION_COUNT;
+        long[] bits = new long[(totalBits + 63) >>> 6];
+        for (UserRole role : ROLES) {
+            for (FileVisibility visibility : VISIBILITIES) {
+                for (FileOperation operation : OPERATIONS) {
+                    if (PermissionMatrix.hasPermission(role, visibility, operation)) {
+                        int bit = bitIndex(role.ordinal(), visibility.ordinal(), operation.ordinal());
+                        bits[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,37 @@
+package com.haven.storage.permission;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 家庭成员变更事件
+ *
+ * <p>成员加入、移出、角色变化时发布，{@link PermissionDecisionCache} 监听后立即失效相关判定。
+ * userId 为空表示整个家庭的成员关系都发生了变化（如家庭解散）。</p>
+ *
+ * @author HavenButler
+ */
+@Getter
+public class FamilyMembershipChangedEvent extends ApplicationEvent {
+
+    private final String familyId;
+    private final String userId;
+    private final ChangeType changeType;
+
+    public FamilyMembershipChangedEvent(Object source, String familyId, String userId, ChangeType changeType) {
+        super(source);
+        this.familyId = familyId;
+        this.userId = userId;
+        this.changeType = changeType;
+    }
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        JOINED,
+        REMOVED,
+        ROLE_CHANGED,
+        FAMILY_DISSOLVED
+    }
+}
@@ -0,0 +1,133 @@
+package com.haven.storage.permission;
+
+import com.haven.base.client.ServiceDiscovery;
+import com.haven.base.common.response.ResponseWrapper;
+import com.haven.base.model.dto.BaseFamilyMember;
+import com.haven.storage.security.UserContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * 家庭成员关系服务
+ *
+ * <p>判定用户是否属于指定家庭，结果经由 {@link PermissionDecisionCache} 缓存。</p>
+ *
+ * <p>判定顺序：</p>
+ * <ul>
+ *   <li>系统用户不属于任何家庭</li>
+ *   <li>当前请求上下文中网关已校验的家庭ID与目标家庭一致，直接判定为成员，无需远程调用；
+ *       此时缓存中若仍是非成员，说明成员已加入，发布 {@link FamilyMembershipChangedEvent} 失效旧判定</li>
+ *   <li>开启远程校验时携带当前请求的 Authorization 头查询 account-service 的家庭成员列表，结果进入缓存</li>
+ *   <li>以上均不满足时判定为非成员；远程调用失败或没有可转发的凭证时同样按非成员处理，但不缓存</li>
+ * </ul>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FamilyMembershipService {
+
+    private static final String ACCOUNT_SERVICE = "account-service";
+    private static final String FAMILY_MEMBERS_PATH = "/api/v1/family/{familyId}/members";
+
+    private final PermissionDecisionCache permissionDecisionCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<RestTemplate> restTemplateProvider;
+    private final ObjectProvider<ServiceDiscovery> serviceDiscoveryProvider;
+
+    @Value("${storage.permission.membership.remote-enabled:false}")
+    private boolean remoteEnabled;
+
+    /**
+     * 检查用户是否为家庭成员
+     *
+     * @param userId   用户ID
+     * @param familyId 家庭ID
+     * @return 是否为家庭成员
+     */
+    public boolean isFamilyMember(String userId, String familyId) {
+        if (!StringUtils.hasText(userId) || !StringUtils.hasText(familyId)) {
+            return false;
+        }
+        if (userId.startsWith("system")) {
+            return false;
+        }
+        if (isCurrentUserInFamily(userId, familyId)) {
+            if (Boolean.FALSE.equals(permissionDecisionCache.cachedMembership(userId, familyId))) {
+                eventPublisher.publishEvent(new FamilyMembershipChangedEvent(this, familyId, userId,
+                        FamilyMembershipChangedEvent.ChangeType.JOINED));
+            }
+            return true;
+        }
+        return permissionDecisionCache.membership(userId, familyId, () -> resolveMembership(userId, familyId));
+    }
+
+    /**
+     * 当前请求用户的家庭ID来自网关认证头，已经过校验，可直接作为成员关系依据
+     */
+    private boolean isCurrentUserInFamily(String userId, String familyId) {
+        return userId.equals(UserContext.getCurrentUserId())
+                && familyId.equals(UserContext.getCurrentFamilyId());
+    }
+
+    /**
+     * 远程查询成员关系
+     *
+     * @return 是否为成员，无法确定时返回null
+     */
+    private Boolean resolveMembership(String userId, String familyId) {
+        if (!remoteEnabled) {
+            return false;
+        }
+        RestTemplate restTemplate = restTemplateProvider.getIfAvailable();
+        ServiceDiscovery serviceDiscovery = serviceDiscoveryProvider.getIfAvailable();
+        if (restTemplate == null || serviceDiscovery == null) {
+            log.warn("未配置服务调用客户端，无法远程校验家庭成员关系: familyId={}, userId={}", familyId, userId);
+            return null;
+        }
+        // account-service 按调用者身份校验成员列表的访问权限，必须转发当前用户的凭证
+        String authorization = UserContext.getCurrentAuthorization();
+        if (authorization == null) {
+            log.debug("当前请求没有Authorization头，无法远程校验家庭成员关系: familyId={}, userId={}", familyId, userId);
+            return null;
+        }
+
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+            String traceId = UserContext.getCurrentTraceId();
+            if (traceId != null) {
+                headers.set(UserContext.TRACE_ID_HEADER, traceId);
+            }
+            ResponseWrapper<List<BaseFamilyMember>> response = restTemplate.exchange(
+                    serviceDiscovery.getServiceUrl(ACCOUNT_SERVICE) + FAMILY_MEMBERS_PATH, HttpMethod.GET,
+                    new HttpEntity<>(headers),
+                    new ParameterizedTypeReference<ResponseWrapper<List<BaseFamilyMember>>>() {
+                    }, familyId).getBody();
+            if (response == null || !response.isSuccess()) {
+                log.warn("远程校验家庭成员关系未成功: familyId={}, userId={}, message={}",
+                        familyId, userId, response != null ? response.getMessage() : null);
+                return null;
+            }
+            List<BaseFamilyMember> members = response.getData();
+            return members != null && members.stream()
+                    .anyMatch(member -> userId.equals(member.getUserId()));
+        } catch (Exception e) {
+            log.error("远程校验家庭成员关系失败: familyId={}, userId={}, error={}", familyId, userId, e.getMessage());
+            return null;
+        }
+    }
+}
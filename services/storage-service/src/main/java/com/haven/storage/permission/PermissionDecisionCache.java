@@ -0,0 +1,194 @@
+package com.haven.storage.permission;
+
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 权限判定缓存
+ *
+ * <p>以 (userId, familyId, fileVisibility, operation) 为键缓存权限判定结果，
+ * 避免每次下载都重新计算家庭成员关系和角色。</p>
+ *
+ * <p>缓存策略：</p>
+ * <ul>
+ *   <li>允许结果使用较短TTL，保证成员被移出家庭后权限能很快收回</li>
+ *   <li>拒绝结果同样缓存（负缓存），防止越权请求反复穿透到成员关系查询</li>
+ *   <li>收到 {@link FamilyMembershipChangedEvent} 时立即失效对应用户/家庭的所有判定；
+ *       本服务只能观察到网关认证头证明的成员加入（由 {@link FamilyMembershipService} 发布），
+ *       移出等在 account-service 发生的变更不会通知本服务，最迟在 allow-ttl-seconds 后生效</li>
+ *   <li>条目数超过上限时先清理过期条目，仍超限则整体清空，内存占用有界</li>
+ * </ul>
+ *
+ * <p>成员关系本身以 visibility/operation 为空的键缓存，与具体判定共享同一套失效逻辑；
+ * 远程查询失败时 loader 返回null，按非成员处理但不缓存，避免一次故障被当作拒绝结果缓存。</p>
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Component
+public class PermissionDecisionCache {
+
+    private final Map<DecisionKey, Decision> decisions = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Value("${storage.permission.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.permission.cache.allow-ttl-seconds:30}")
+    private long allowTtlSeconds;
+
+    @Value("${storage.permission.cache.deny-ttl-seconds:10}")
+    private long denyTtlSeconds;
+
+    @Value("${storage.permission.cache.max-entries:100000}")
+    private int maxEntries;
+
+    /**
+     * 获取权限判定结果，未命中或已过期时调用 loader 计算并写入缓存
+     *
+     * @param userId     用户ID
+     * @param familyId   文件所属家庭ID
+     * @param visibility 文件可见性
+     * @param operation  文件操作
+     * @param loader     实际的权限计算逻辑
+     * @return 是否允许
+     */
+    public boolean decide(String userId, String familyId, FileVisibility visibility,
+                          FileOperation operation, BooleanSupplier loader) {
+        return getOrLoad(new DecisionKey(userId, familyId, visibility, operation), loader::getAsBoolean);
+    }
+
+    /**
+     * 获取家庭成员关系判定，未命中时调用 loader 查询
+     *
+     * @param userId   用户ID
+     * @param familyId 家庭ID
+     * @param loader   实际的成员关系查询逻辑，无法确定（如远程调用失败）时返回null，结果不缓存
+     * @return 是否为家庭成员
+     */
+    public boolean membership(String userId, String familyId, Supplier<Boolean> loader) {
+        return getOrLoad(new DecisionKey(userId, familyId, null, null), loader);
+    }
+
+    /**
+     * 查询已缓存且未过期的成员关系判定，不触发加载
+     *
+     * @return 缓存的判定，未缓存时返回null
+     */
+    public Boolean cachedMembership(String userId, String familyId) {
+        Decision cached = decisions.get(new DecisionKey(userId, familyId, null, null));
+        return cached != null && cached.expireAt() > System.currentTimeMillis() ? cached.allowed() : null;
+    }
+
+    /**
+     * 失效指定用户在指定家庭下的所有判定
+     */
+    public void invalidate(String userId, String familyId) {
+        decisions.keySet().removeIf(key -> key.matches(userId, familyId));
+    }
+
+    /**
+     * 失效指定家庭下所有用户的判定
+     */
+    public void invalidateFamily(String familyId) {
+        decisions.keySet().removeIf(key -> key.matches(null, familyId));
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidateAll() {
+        decisions.clear();
+    }
+
+    /**
+     * 监听家庭成员变更事件，立即失效受影响的权限判定
+     */
+    @EventListener
+    public void onMembershipChanged(FamilyMembershipChangedEvent event) {
+        if (event.getUserId() == null) {
+            invalidateFamily(event.getFamilyId());
+        } else {
+            invalidate(event.getUserId(), event.getFamilyId());
+        }
+        log.info("家庭成员变更，权限缓存已失效: familyId={}, userId={}, changeType={}",
+                event.getFamilyId(), event.getUserId(), event.getChangeType());
+    }
+
+    /**
+     * 缓存命中率，用于监控
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        return decisions.size();
+    }
+
+    private boolean getOrLoad(DecisionKey key, Supplier<Boolean> loader) {
+        if (!enabled || key.userId() == null || key.familyId() == null) {
+            return Boolean.TRUE.equals(loader.get());
+        }
+
+        long now = System.currentTimeMillis();
+        Decision cached = decisions.get(key);
+        if (cached != null && cached.expireAt() > now) {
+            hits.increment();
+            return cached.allowed();
+        }
+
+        misses.increment();
+        Boolean loaded = loader.get();
+        if (loaded == null) {
+            // 无法确定的结果不缓存，下次重新查询
+            return false;
+        }
+        boolean allowed = loaded;
+        long ttlMillis = (allowed ? allowTtlSeconds : denyTtlSeconds) * 1000L;
+        if (ttlMillis > 0) {
+            ensureCapacity(now);
+            decisions.put(key, new Decision(allowed, now + ttlMillis));
+        }
+        return allowed;
+    }
+
+    private void ensureCapacity(long now) {
+        if (decisions.size() < maxEntries) {
+            return;
+        }
+        decisions.values().removeIf(decision -> decision.expireAt() <= now);
+        if (decisions.size() >= maxEntries) {
+            log.warn("权限缓存条目超过上限，执行整体清空: size={}, maxEntries={}", decisions.size(), maxEntries);
+            decisions.clear();
+        }
+    }
+
+    /**
+     * 缓存键，visibility/operation 为空时表示成员关系判定
+     */
+    private record DecisionKey(String userId, String familyId, FileVisibility visibility, FileOperation operation) {
+
+        boolean matches(String targetUserId, String targetFamilyId) {
+            return (targetUserId == null || targetUserId.equals(userId))
+                    && (targetFamilyId == null || targetFamilyId.equals(familyId));
+        }
+    }
+
+    private record Decision(boolean allowed, long expireAt) {
+    }
+}
@@ -3,6 +3,8 @@ package com.haven.storage.processor.interceptor.impl;
 import com.haven.storage.domain.model.enums.FileOperation;
 import com.haven.storage.domain.model.enums.FileVisibility;
 import com.haven.storage.domain.model.file.ProcessResult;
+import com.haven.storage.permission.FamilyMembershipService;
+import com.haven.storage.permission.PermissionDecisionCache;
 import com.haven.storage.processor.context.FileProcessContext;
 import com.haven.storage.processor.interceptor.FileInterceptorChain;
 import com.haven.storage.processor.interceptor.FileProcessInterceptor;
@@ -57,6 +59,10 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class PermissionValidationInterceptor implements FileProcessInterceptor {
 
+    private final FamilyMembershipService familyMembershipService;
+
+    private final PermissionDecisionCache permissionDecisionCache;
+
     // ==================== 权限等级定义 ====================
 
     /** 最高权限等级 - 超级管理员 */
@@ -465,19 +471,38 @@ public class PermissionValidationInterceptor implements FileProcessInterceptor {
      * @return 是否为家庭成员
      */
     private boolean isFamilyMember(String userId, String familyId) {
-        // TODO: 集成家庭服务API，检查用户是否为指定家庭的成员
-        // 临时逻辑：假设非系统用户都属于指定家庭
-        return !userId.startsWith("system") && StringUtils.hasText(familyId);
+        return familyMembershipService.isFamilyMember(userId, familyId);
     }
 
     /**
      * 检查用户是否有文件读权限
      *
+     * <p>非所有者的判定结果按 (userId, familyId, visibility, operation) 缓存，
+     * 读路径上重复的成员关系计算只发生在缓存未命中时。</p>
+     *
      * @param userId 用户ID
      * @param context 文件处理上下文
      * @return 是否有读权限
      */
     private boolean hasFileReadPermission(String userId, FileProcessContext context) {
+        String fileOwnerId = context.getFileBasicMetadata().getFileId() != null ?
+                            context.getFileBasicMetadata().getOwnerId() : userId;
+        if (isFileOwner(userId, fileOwnerId)) {
+            return true;
+        }
+        return permissionDecisionCache.decide(userId, context.getFileBasicMetadata().getFamilyId(),
+                context.getFileBasicMetadata().getFileVisibility(), context.getOperationType(),
+                () -> computeFileReadPermission(userId, context));
+    }
+
+    /**
+     * 计算用户的文件读权限（未经缓存）
+     *
+     * @param userId 用户ID
+     * @param context 文件处理上下文
+     * @return 是否有读权限
+     */
+    private boolean computeFileReadPermission(String userId, FileProcessContext context) {
         String fileOwnerId = context.getFileBasicMetadata().getFileId() != null ?
                             context.getFileBasicMetadata().getOwnerId() : userId;
         FileVisibility fileVisibility = context.getFileBasicMetadata().getFileVisibility();
@@ -0,0 +1,66 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.FamilyDailyActiveUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 家庭每日活跃用户Repository
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface FamilyDailyActiveUserRepository extends JpaRepository<FamilyDailyActiveUser, Long> {
+
+    /**
+     * 幂等记录活跃用户
+     *
+     * @return 实际插入的行数（0表示该用户当天已计入）
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO family_daily_active_user (family_id, stat_date, user_id, create_time, update_time)
+            VALUES (:familyId, :statDate, :userId, now(), now())
+            ON CONFLICT (family_id, stat_date, user_id) DO NOTHING
+            """, nativeQuery = true)
+    int markActive(@Param("familyId") String familyId, @Param("statDate") LocalDate statDate,
+                   @Param("userId") String userId);
+
+    /**
+     * 删除日期范围内的活跃用户（回填重算前调用）
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM family_daily_active_user
+            WHERE stat_date >= :fromDate AND stat_date < :toDate
+              AND (CAST(:familyId AS VARCHAR) IS NULL OR family_id = :familyId)
+            """, nativeQuery = true)
+    int deleteRange(@Param("familyId") String familyId, @Param("fromDate") LocalDate fromDate,
+                    @Param("toDate") LocalDate toDate);
+
+    /**
+     * 从文件元数据重建时间窗口内的活跃用户（按上传者）
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO family_daily_active_user (family_id, stat_date, user_id, create_time, update_time)
+            SELECT DISTINCT f.family_id, CAST(f.upload_time AS DATE), f.uploader_user_id, now(), now()
+            FROM file_metadata f
+            WHERE f.upload_time >= :fromTime AND f.upload_time < :toTime
+              AND f.uploader_user_id IS NOT NULL
+              AND (CAST(:familyId AS VARCHAR) IS NULL OR f.family_id = :familyId)
+            ON CONFLICT (family_id, stat_date, user_id) DO NOTHING
+            """, nativeQuery = true)
+    int rebuildFromUploads(@Param("familyId") String familyId, @Param("fromTime") LocalDateTime fromTime,
+                           @Param("toTime") LocalDateTime toTime);
+}
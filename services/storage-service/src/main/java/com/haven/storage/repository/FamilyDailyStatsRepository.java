@@ -0,0 +1,141 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.FamilyDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 家庭每日存储统计Repository
+ * <p>
+ * 💡 使用规范：
+ * - 增量累加使用 addDelta，一条 upsert 完成，不先查后改
+ * - 回填按日期窗口先 deleteRange 再 rebuildFromMetadata、refreshActiveUsers，三者在同一事务中执行
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface FamilyDailyStatsRepository extends JpaRepository<FamilyDailyStats, Long> {
+
+    /**
+     * 按日期范围查询家庭每日统计（含两端）
+     */
+    List<FamilyDailyStats> findByFamilyIdAndStatDateBetweenOrderByStatDateAsc(String familyId, LocalDate fromDate,
+                                                                              LocalDate toDate);
+
+    /**
+     * 累加当天的统计增量，当天没有记录时插入
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO family_daily_stats (family_id, stat_date, upload_count, delete_count, upload_bytes, delete_bytes,
+                                            image_bytes, video_bytes, audio_bytes, document_bytes, other_bytes,
+                                            active_users, create_time, update_time)
+            VALUES (:familyId, :statDate, :uploadCount, :deleteCount, :uploadBytes, :deleteBytes,
+                    :imageBytes, :videoBytes, :audioBytes, :documentBytes, :otherBytes,
+                    :activeUsers, now(), now())
+            ON CONFLICT (family_id, stat_date) DO UPDATE SET
+                upload_count = family_daily_stats.upload_count + EXCLUDED.upload_count,
+                delete_count = family_daily_stats.delete_count + EXCLUDED.delete_count,
+                upload_bytes = family_daily_stats.upload_bytes + EXCLUDED.upload_bytes,
+                delete_bytes = family_daily_stats.delete_bytes + EXCLUDED.delete_bytes,
+                image_bytes = family_daily_stats.image_bytes + EXCLUDED.image_bytes,
+                video_bytes = family_daily_stats.video_bytes + EXCLUDED.video_bytes,
+                audio_bytes = family_daily_stats.audio_bytes + EXCLUDED.audio_bytes,
+                document_bytes = family_daily_stats.document_bytes + EXCLUDED.document_bytes,
+                other_bytes = family_daily_stats.other_bytes + EXCLUDED.other_bytes,
+                active_users = family_daily_stats.active_users + EXCLUDED.active_users,
+                update_time = now()
+            """, nativeQuery = true)
+    int addDelta(@Param("familyId") String familyId,
+                 @Param("statDate") LocalDate statDate,
+                 @Param("uploadCount") long uploadCount,
+                 @Param("deleteCount") long deleteCount,
+                 @Param("uploadBytes") long uploadBytes,
+                 @Param("deleteBytes") long deleteBytes,
+                 @Param("imageBytes") long imageBytes,
+                 @Param("videoBytes") long videoBytes,
+                 @Param("audioBytes") long audioBytes,
+                 @Param("documentBytes") long documentBytes,
+                 @Param("otherBytes") long otherBytes,
+                 @Param("activeUsers") int activeUsers);
+
+    /**
+     * 删除日期范围内的每日统计（回填重算前调用）
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM family_daily_stats
+            WHERE stat_date >= :fromDate AND stat_date < :toDate
+              AND (CAST(:familyId AS VARCHAR) IS NULL OR family_id = :familyId)
+            """, nativeQuery = true)
+    int deleteRange(@Param("familyId") String familyId, @Param("fromDate") LocalDate fromDate,
+                    @Param("toDate") LocalDate toDate);
+
+    /**
+     * 从文件元数据重算时间窗口内的每日统计
+     * <p>
+     * 上传按 upload_time 计入当天；软删除没有单独的删除时间，按删除时写入的 update_time 计入当天
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     * @return 写入的行数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO family_daily_stats (family_id, stat_date, upload_count, delete_count, upload_bytes, delete_bytes,
+                                            image_bytes, video_bytes, audio_bytes, document_bytes, other_bytes,
+                                            active_users, create_time, update_time)
+            SELECT t.family_id, t.stat_date,
+                   SUM(t.uploads), SUM(t.deletes), SUM(t.upload_bytes), SUM(t.delete_bytes),
+                   SUM(CASE WHEN t.category = 'image' THEN t.delta_bytes ELSE 0 END),
+                   SUM(CASE WHEN t.category = 'video' THEN t.delta_bytes ELSE 0 END),
+                   SUM(CASE WHEN t.category = 'audio' THEN t.delta_bytes ELSE 0 END),
+                   SUM(CASE WHEN t.category = 'document' THEN t.delta_bytes ELSE 0 END),
+                   SUM(CASE WHEN t.category IN ('image', 'video', 'audio', 'document') THEN 0 ELSE t.delta_bytes END),
+                   0, now(), now()
+            FROM (
+                SELECT f.family_id, CAST(f.upload_time AS DATE) AS stat_date, LOWER(f.file_type) AS category,
+                       1 AS uploads, 0 AS deletes, f.file_size AS upload_bytes, 0 AS delete_bytes, f.file_size AS delta_bytes
+                FROM file_metadata f
+                WHERE f.upload_time >= :fromTime AND f.upload_time < :toTime
+                  AND (CAST(:familyId AS VARCHAR) IS NULL OR f.family_id = :familyId)
+                UNION ALL
+                SELECT f.family_id, CAST(f.update_time AS DATE), LOWER(f.file_type),
+                       0, 1, 0, f.file_size, -f.file_size
+                FROM file_metadata f
+                WHERE f.deleted = 1 AND f.update_time >= :fromTime AND f.update_time < :toTime
+                  AND (CAST(:familyId AS VARCHAR) IS NULL OR f.family_id = :familyId)
+            ) t
+            GROUP BY t.family_id, t.stat_date
+            """, nativeQuery = true)
+    int rebuildFromMetadata(@Param("familyId") String familyId, @Param("fromTime") LocalDateTime fromTime,
+                            @Param("toTime") LocalDateTime toTime);
+
+    /**
+     * 按活跃用户明细刷新日期范围内的活跃用户数
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE family_daily_stats s SET active_users = a.users, update_time = now()
+            FROM (
+                SELECT family_id, stat_date, COUNT(*) AS users
+                FROM family_daily_active_user
+                WHERE stat_date >= :fromDate AND stat_date < :toDate
+                  AND (CAST(:familyId AS VARCHAR) IS NULL OR family_id = :familyId)
+                GROUP BY family_id, stat_date
+            ) a
+            WHERE s.family_id = a.family_id AND s.stat_date = a.stat_date
+            """, nativeQuery = true)
+    int refreshActiveUsers(@Param("familyId") String familyId, @Param("fromDate") LocalDate fromDate,
+                           @Param("toDate") LocalDate toDate);
+}
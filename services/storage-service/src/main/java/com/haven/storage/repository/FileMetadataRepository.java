@@ -8,8 +8,10 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -62,6 +64,60 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
     @Query("SELECT f FROM FileMetadata f WHERE f.familyId = :familyId AND f.folderPath = :folderPath AND f.deleted != 1 ORDER BY f.createTime DESC")
     List<FileMetadata> findFilesByFamilyAndPath(@Param("familyId") String familyId, @Param("folderPath") String folderPath);
 
+    /**
+     * 查找文件夹及其子文件夹下未删除的文件，按文件夹和文件名排序
+     *
+     * @param folderPath    标准化后的文件夹路径
+     * @param subFolderLike 子文件夹匹配模式（folderPath + "/%"，通配符已转义）
+     */
+    @Query("SELECT f FROM FileMetadata f WHERE f.familyId = :familyId AND (f.deleted IS NULL OR f.deleted != 1) " +
+           "AND (f.folderPath = :folderPath OR f.folderPath LIKE :subFolderLike ESCAPE '\\') " +
+           "ORDER BY f.folderPath, f.originalName")
+    List<FileMetadata> findActiveFilesUnderFolder(@Param("familyId") String familyId,
+                                                  @Param("folderPath") String folderPath,
+                                                  @Param("subFolderLike") String subFolderLike);
+
+    /**
+     * 拍摄时间线分页：按 (captureTime, id) 倒序的游标查询，走 idx_family_capture_time 索引
+     *
+     * @param from       拍摄时间下界（含）
+     * @param beforeTime 游标拍摄时间，只返回排在其后的文件
+     * @param beforeId   游标文件主键，拍摄时间相同时按主键继续
+     */
+    @Query("SELECT f FROM FileMetadata f WHERE f.familyId = :familyId AND (f.deleted IS NULL OR f.deleted != 1) " +
+           "AND f.captureTime >= :from " +
+           "AND (f.captureTime < :beforeTime OR (f.captureTime = :beforeTime AND f.id < :beforeId)) " +
+           "ORDER BY f.captureTime DESC, f.id DESC")
+    List<FileMetadata> findTimelinePage(@Param("familyId") String familyId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("beforeTime") LocalDateTime beforeTime,
+                                        @Param("beforeId") Long beforeId,
+                                        Pageable pageable);
+
+    /**
+     * 拍摄时间线按天汇总
+     * <p>
+     * 同时按可见性和是否为本人文件分组，由服务层按权限矩阵合并，不需要加载文件行
+     *
+     * @return [拍摄日期, 可见性, 是否本人文件, 文件数]
+     */
+    @Query(value = """
+            SELECT CAST(f.capture_time AS date) AS capture_date,
+                   f.file_visibility,
+                   (f.owner_id = :userId) AS owned,
+                   COUNT(*) AS file_count
+            FROM file_metadata f
+            WHERE f.family_id = :familyId
+              AND (f.deleted IS NULL OR f.deleted != 1)
+              AND f.capture_time >= :from
+              AND f.capture_time < :to
+            GROUP BY 1, 2, 3
+            """, nativeQuery = true)
+    List<Object[]> summarizeTimelineByDay(@Param("familyId") String familyId,
+                                          @Param("userId") String userId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
     /**
      * 搜索文件（文件名、描述、标签）
      */
@@ -70,6 +126,7 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
            "LOWER(f.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "EXISTS (SELECT 1 FROM f.tags t WHERE LOWER(t) LIKE LOWER(CONCAT('%', :keyword, '%')))) " +
            "ORDER BY f.createTime DESC")
+    @Transactional(readOnly = true)
     Page<FileMetadata> searchFiles(@Param("familyId") String familyId, @Param("keyword") String keyword, Pageable pageable);
 
     /**
@@ -115,7 +172,11 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
 
     /**
      * 获取需要OCR处理的文件
+     *
+     * @deprecated 无数量限制且多实例会重复领取，请使用
+     * {@link FileProcessingTaskRepository} 提供的租约式任务队列
      */
+    @Deprecated
     @Query("SELECT f FROM FileMetadata f WHERE f.deleted != 1 AND " +
            "(f.contentType LIKE '%image%' OR f.contentType LIKE '%application/pdf%') " +
            "AND NOT EXISTS (SELECT 1 FROM f.tags t WHERE t = 'ocr_processed') " +
@@ -128,11 +189,31 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
     @Query("SELECT f FROM FileMetadata f WHERE f.fileId = :fileId AND f.familyId = :familyId AND (f.deleted IS NULL OR f.deleted != 1)")
     Optional<FileMetadata> findActiveFileByFileIdAndFamily(@Param("fileId") String fileId, @Param("familyId") String familyId);
 
+    /**
+     * 批量查找指定家庭下未删除的文件
+     */
+    @Query("SELECT f FROM FileMetadata f WHERE f.fileId IN :fileIds AND f.familyId = :familyId AND (f.deleted IS NULL OR f.deleted != 1)")
+    List<FileMetadata> findActiveFilesByFileIdsAndFamily(@Param("fileIds") Collection<String> fileIds, @Param("familyId") String familyId);
+
+    /**
+     * 批量查找指定家庭下未删除的文件，同时抓取标签
+     * <p>
+     * 用于结果需要脱离会话缓存的场景，避免标签在会话关闭后懒加载失败或逐个文件回库
+     */
+    @Query("SELECT f FROM FileMetadata f LEFT JOIN FETCH f.tags " +
+           "WHERE f.fileId IN :fileIds AND f.familyId = :familyId AND (f.deleted IS NULL OR f.deleted != 1)")
+    List<FileMetadata> findActiveFilesWithTagsByFileIdsAndFamily(@Param("fileIds") Collection<String> fileIds, @Param("familyId") String familyId);
+
     /**
      * 根据文件ID查找文件
      */
     Optional<FileMetadata> findByFileId(String fileId);
 
+    /**
+     * 根据文件ID批量查找文件（包含已删除）
+     */
+    List<FileMetadata> findByFileIdIn(Collection<String> fileIds);
+
     /**
      * 批量软删除文件
      */
@@ -157,6 +238,15 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
            "WHERE f.fileId = :fileId")
     void incrementAccessCount(@Param("fileId") String fileId, @Param("accessTime") LocalDateTime accessTime);
 
+    /**
+     * 为文件添加标签（已存在时忽略）
+     */
+    @Modifying
+    @Query(value = "INSERT INTO file_tags (file_id, tag) SELECT :fileId, :tag " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM file_tags WHERE file_id = :fileId AND tag = :tag)",
+           nativeQuery = true)
+    int addTagIfAbsent(@Param("fileId") String fileId, @Param("tag") String tag);
+
     /**
      * 检查文件是否存在且未被删除
      */
@@ -165,7 +255,11 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
 
     /**
      * 查找重复文件（基于文件大小和上传时间）
+     *
+     * @deprecated 自连接为 O(n²) 且存在误判，请使用基于校验和的
+     * {@link FileStorageDataRepository#aggregateDuplicateGroups(String, int)}
      */
+    @Deprecated
     @Query(value = "SELECT f1.* FROM file_metadata f1 " +
            "INNER JOIN file_metadata f2 ON f1.file_size = f2.file_size " +
            "WHERE f1.family_id = :familyId AND f2.family_id = :familyId " +
@@ -262,4 +356,33 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
            "ORDER BY f.uploadTime DESC")
     List<FileMetadata> findLatestFilesByFamily(@Param("familyId") String familyId, Pageable pageable);
 
-    }
\ No newline at end of file
+    /**
+     * 查询主键区间 (lastId, upperId] 内没有存储数据的文件元数据
+     * <p>
+     * 按主键区间而不是 LIMIT 分批：缺失记录很少时，LIMIT 会一直扫描到凑满为止，区间扫描的代价则是固定的。
+     * NOT EXISTS 走 file_storage_data 的 file_id 索引。
+     *
+     * @param lastId  区间下界（不含）
+     * @param upperId 区间上界（含），由 {@link #findCursorAfter(long, int)} 得到
+     */
+    @Query(value = """
+            SELECT m.* FROM file_metadata m
+            WHERE (m.deleted IS NULL OR m.deleted <> 1)
+              AND m.id > :lastId AND m.id <= :upperId
+              AND NOT EXISTS (SELECT 1 FROM file_storage_data s WHERE s.file_id = m.file_id)
+            ORDER BY m.id ASC
+            """, nativeQuery = true)
+    List<FileMetadata> findWithoutStorageData(@Param("lastId") long lastId, @Param("upperId") long upperId);
+
+    /**
+     * 从游标起向后数 limit 条元数据，返回其中最大的主键，作为下一个扫描区间的上界
+     *
+     * @return 区间上界，已到末尾时返回null
+     */
+    @Query(value = """
+            SELECT MAX(t.id) FROM (
+                SELECT m.id FROM file_metadata m WHERE m.id > :lastId ORDER BY m.id ASC LIMIT :limit
+            ) t
+            """, nativeQuery = true)
+    Long findCursorAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+}
@@ -0,0 +1,149 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.FileProcessingTask;
+import com.haven.storage.domain.model.enums.ProcessingTaskType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文件后处理任务Repository
+ * <p>
+ * 提供基于 PostgreSQL 行锁的工作队列操作：
+ * - 幂等入队（同一文件同类任务只保留一条）
+ * - FOR UPDATE SKIP LOCKED 批量领取，多实例并发领取互不阻塞
+ * - 租约续期、完成、失败上报均校验租约持有者
+ * <p>
+ * 💡 使用规范：
+ * - 领取和租约写入必须在同一事务内完成，由服务层保证
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface FileProcessingTaskRepository extends JpaRepository<FileProcessingTask, Long> {
+
+    /**
+     * 根据任务ID查找任务
+     */
+    Optional<FileProcessingTask> findByTaskId(String taskId);
+
+    /**
+     * 幂等入队：同一文件的同类任务已存在时忽略
+     *
+     * @return 实际插入的行数（0表示任务已存在）
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_processing_task
+                (task_id, file_id, family_id, task_type, status, attempts, max_attempts, create_time, update_time)
+            VALUES (:taskId, :fileId, :familyId, :taskType, 0, 0, :maxAttempts, now(), now())
+            ON CONFLICT (file_id, task_type) DO NOTHING
+            """, nativeQuery = true)
+    int enqueueIfAbsent(@Param("taskId") String taskId,
+                        @Param("fileId") String fileId,
+                        @Param("familyId") String familyId,
+                        @Param("taskType") String taskType,
+                        @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * 锁定一批可领取的任务
+     * <p>
+     * 可领取条件：待处理，或租约已过期的处理中任务，且未超过最大领取次数。
+     * SKIP LOCKED 跳过其他事务已锁定的行，多个工作进程并发领取时不会拿到同一任务。
+     */
+    @Query(value = """
+            SELECT * FROM file_processing_task t
+            WHERE t.task_type = :taskType
+              AND t.attempts < t.max_attempts
+              AND (t.status = 0 OR (t.status = 1 AND t.lease_expire_time < :now))
+            ORDER BY t.id ASC
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<FileProcessingTask> lockClaimableTasks(@Param("taskType") String taskType,
+                                                @Param("now") LocalDateTime now,
+                                                @Param("limit") int limit);
+
+    /**
+     * 续期租约，仅当前租约持有者可续期
+     *
+     * @return 更新行数（0表示租约已丢失）
+     */
+    @Modifying
+    @Query("UPDATE FileProcessingTask t SET t.leaseExpireTime = :leaseExpireTime, t.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE t.taskId = :taskId AND t.workerId = :workerId AND t.status = 1")
+    int extendLease(@Param("taskId") String taskId,
+                    @Param("workerId") String workerId,
+                    @Param("leaseExpireTime") LocalDateTime leaseExpireTime);
+
+    /**
+     * 标记任务完成，仅当前租约持有者可提交
+     *
+     * @return 更新行数（0表示租约已丢失）
+     */
+    @Modifying
+    @Query("UPDATE FileProcessingTask t SET t.status = 2, t.resultPayload = :resultPayload, " +
+           "t.completedTime = CURRENT_TIMESTAMP, t.leaseExpireTime = NULL, t.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE t.taskId = :taskId AND t.workerId = :workerId AND t.status = 1")
+    int markCompleted(@Param("taskId") String taskId,
+                      @Param("workerId") String workerId,
+                      @Param("resultPayload") String resultPayload);
+
+    /**
+     * 上报失败：未超过最大领取次数时重新排队，否则标记为失败
+     *
+     * @return 更新行数（0表示租约已丢失）
+     */
+    @Modifying
+    @Query("UPDATE FileProcessingTask t SET " +
+           "t.status = CASE WHEN t.attempts >= t.maxAttempts THEN 3 ELSE 0 END, " +
+           "t.lastError = :error, t.workerId = NULL, t.leaseExpireTime = NULL, t.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE t.taskId = :taskId AND t.workerId = :workerId AND t.status = 1")
+    int markFailed(@Param("taskId") String taskId,
+                   @Param("workerId") String workerId,
+                   @Param("error") String error);
+
+    /**
+     * 将租约已过期且已用尽领取次数的任务标记为失败
+     */
+    @Modifying
+    @Query("UPDATE FileProcessingTask t SET t.status = 3, t.lastError = '租约超时且超过最大领取次数', " +
+           "t.workerId = NULL, t.leaseExpireTime = NULL, t.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE t.status = 1 AND t.leaseExpireTime < :now AND t.attempts >= t.maxAttempts")
+    int failExhaustedExpiredLeases(@Param("now") LocalDateTime now);
+
+    /**
+     * 为尚未入队的历史OCR候选文件批量创建任务
+     * <p>
+     * 替代一次性加载全部候选文件的 findFilesForOcr，每次最多入队 limit 条
+     *
+     * @return 本次入队的任务数
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_processing_task
+                (task_id, file_id, family_id, task_type, status, attempts, max_attempts, create_time, update_time)
+            SELECT 'task_' || md5(f.file_id || ':OCR'), f.file_id, f.family_id, 'OCR', 0, 0, :maxAttempts, now(), now()
+            FROM file_metadata f
+            WHERE (f.deleted IS NULL OR f.deleted <> 1)
+              AND (f.content_type LIKE '%image%' OR f.content_type LIKE '%application/pdf%')
+              AND NOT EXISTS (SELECT 1 FROM file_tags ft WHERE ft.file_id = f.file_id AND ft.tag = 'ocr_processed')
+              AND NOT EXISTS (SELECT 1 FROM file_processing_task t WHERE t.file_id = f.file_id AND t.task_type = 'OCR')
+            ORDER BY f.create_time ASC
+            LIMIT :limit
+            ON CONFLICT (file_id, task_type) DO NOTHING
+            """, nativeQuery = true)
+    int enqueuePendingOcrFiles(@Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    /**
+     * 按状态统计指定类型的任务数量
+     */
+    @Query("SELECT t.status, COUNT(t) FROM FileProcessingTask t WHERE t.taskType = :taskType GROUP BY t.status")
+    List<Object[]> countByStatus(@Param("taskType") ProcessingTaskType taskType);
+}
@@ -2,10 +2,14 @@ package com.haven.storage.repository;
 
 import com.haven.storage.domain.model.entity.FileStorageData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,6 +42,11 @@ public interface FileStorageDataRepository extends JpaRepository<FileStorageData
      */
     Optional<FileStorageData> findByFileId(String fileId);
 
+    /**
+     * 根据文件ID批量查找存储数据
+     */
+    List<FileStorageData> findByFileIdIn(Collection<String> fileIds);
+
     /**
      * 根据存储类型查找存储数据
      */
@@ -85,4 +94,343 @@ public interface FileStorageDataRepository extends JpaRepository<FileStorageData
      * 检查文件ID是否存在存储数据
      */
     boolean existsByFileId(String fileId);
-}
\ No newline at end of file
+
+    // ==================== 重复文件分析 ====================
+
+    /**
+     * 按校验和聚合家庭内的重复文件组
+     * <p>
+     * 走 (family_id, file_checksum) 联合索引完成分组，仅统计元数据未删除的文件。
+     * 返回列：file_checksum, 文件数, 单个文件大小, 总大小, 可回收字节数（总大小 - 保留一份）
+     *
+     * @param familyId 家庭ID
+     * @param limit    最多返回的重复组数量（按可回收字节数降序）
+     */
+    @Query(value = """
+            SELECT s.file_checksum,
+                   COUNT(*)                             AS file_count,
+                   MAX(s.file_size)                     AS file_size,
+                   COALESCE(SUM(s.file_size), 0)        AS total_size,
+                   COALESCE(SUM(s.file_size), 0) - MAX(s.file_size) AS reclaimable_bytes
+            FROM file_storage_data s
+            WHERE s.family_id = :familyId
+              AND s.file_checksum IS NOT NULL
+              AND s.storage_status <> 3
+              AND EXISTS (SELECT 1 FROM file_metadata m
+                          WHERE m.file_id = s.file_id AND (m.deleted IS NULL OR m.deleted <> 1))
+            GROUP BY s.file_checksum
+            HAVING COUNT(*) > 1
+            ORDER BY reclaimable_bytes DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> aggregateDuplicateGroups(@Param("familyId") String familyId, @Param("limit") int limit);
+
+    /**
+     * 查询家庭内指定校验和的所有存储数据（用于展开重复组明细）
+     */
+    @Query("SELECT f FROM FileStorageData f WHERE f.familyId = :familyId AND f.fileChecksum IN :checksums " +
+           "AND f.storageStatus <> 3 ORDER BY f.fileChecksum, f.createTime ASC")
+    List<FileStorageData> findByFamilyAndChecksums(@Param("familyId") String familyId,
+                                                   @Param("checksums") Collection<String> checksums);
+
+    /**
+     * 统计家庭内缺少校验和的存储数据数量
+     */
+    @Query("SELECT COUNT(f) FROM FileStorageData f WHERE f.familyId = :familyId AND f.fileChecksum IS NULL AND f.storageStatus <> 3")
+    long countMissingChecksumByFamily(@Param("familyId") String familyId);
+
+    /**
+     * 按主键游标分批查询缺少校验和的存储数据
+     * <p>
+     * 使用 id > lastId 的键集分页，避免 OFFSET 深分页带来的全表扫描
+     *
+     * @param familyId 家庭ID，为null时扫描所有家庭
+     * @param lastId   上一批最后一条记录的主键
+     * @param limit    批大小
+     */
+    @Query(value = """
+            SELECT * FROM file_storage_data s
+            WHERE s.file_checksum IS NULL
+              AND s.storage_status <> 3
+              AND (CAST(:familyId AS VARCHAR) IS NULL OR s.family_id = :familyId)
+              AND s.id > :lastId
+            ORDER BY s.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileStorageData> findMissingChecksumBatch(@Param("familyId") String familyId,
+                                                   @Param("lastId") long lastId,
+                                                   @Param("limit") int limit);
+
+    /**
+     * 写入回填的文件校验和
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.fileChecksum = :checksum, f.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE f.id = :id AND f.fileChecksum IS NULL")
+    int updateChecksumIfAbsent(@Param("id") Long id, @Param("checksum") String checksum);
+
+    /**
+     * 按主键区间为历史存储数据补齐冗余的家庭ID
+     * <p>
+     * 分区间执行，单条UPDATE只锁定区间内的行，不会长时间锁全表
+     *
+     * @param fromId 区间起点（不含）
+     * @param toId   区间终点（含）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE file_storage_data s SET family_id = m.family_id
+            FROM file_metadata m
+            WHERE s.id > :fromId AND s.id <= :toId
+              AND s.file_id = m.file_id AND s.family_id IS NULL
+            """, nativeQuery = true)
+    int backfillFamilyIds(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 查询存储数据的最大主键，无数据时返回0
+     */
+    @Query("SELECT COALESCE(MAX(f.id), 0) FROM FileStorageData f")
+    long findMaxId();
+
+    /**
+     * 按主键游标分批查询可降冷的存储数据
+     * <p>
+     * 条件：位于热层存储、状态正常、元数据未删除，且最近访问（无访问记录时取上传时间）早于截止时间、
+     * 访问次数不超过阈值
+     *
+     * @param hotStorageType 热层存储类型编码
+     * @param cutoff         最近访问截止时间
+     * @param maxAccessCount 访问次数阈值
+     * @param lastId         上一批最后一条记录的主键
+     * @param limit          批大小
+     */
+    @Query(value = """
+            SELECT s.* FROM file_storage_data s
+            JOIN file_metadata m ON m.file_id = s.file_id
+            WHERE s.storage_type = :hotStorageType
+              AND s.storage_status = 0
+              AND (m.deleted IS NULL OR m.deleted <> 1)
+              AND COALESCE(m.last_access_time, m.upload_time, m.create_time) < :cutoff
+              AND m.access_count <= :maxAccessCount
+              AND s.id > :lastId
+            ORDER BY s.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileStorageData> findColdCandidates(@Param("hotStorageType") int hotStorageType,
+                                             @Param("cutoff") LocalDateTime cutoff,
+                                             @Param("maxAccessCount") int maxAccessCount,
+                                             @Param("lastId") long lastId,
+                                             @Param("limit") int limit);
+
+    /**
+     * 迁移完成后切换存储位置
+     * <p>
+     * 以原存储类型作为条件，避免与并发的迁移或删除互相覆盖
+     *
+     * @return 更新行数（0表示存储数据已被其他操作修改）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.storageType = :newStorageType, f.familyBucketName = :bucketName, " +
+           "f.filePath = :filePath, f.fullAccessPath = :fullAccessPath, f.storageConfig = :storageConfig, " +
+           "f.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE f.id = :id AND f.storageType = :expectedStorageType AND f.storageStatus = 0")
+    int switchStorageLocation(@Param("id") Long id,
+                              @Param("expectedStorageType") Integer expectedStorageType,
+                              @Param("newStorageType") Integer newStorageType,
+                              @Param("bucketName") String bucketName,
+                              @Param("filePath") String filePath,
+                              @Param("fullAccessPath") String fullAccessPath,
+                              @Param("storageConfig") String storageConfig);
+
+    /**
+     * 按主键游标分批查询仍在家庭专属桶中的 MinIO 存储数据（桶布局迁移用）
+     *
+     * @param minioStorageType   MinIO 存储类型编码
+     * @param legacyBucketPattern 旧布局桶名的 LIKE 模式
+     * @param familyId           家庭ID，为null时扫描所有家庭
+     * @param lastId             上一批最后一条记录的主键
+     * @param limit              批大小
+     */
+    @Query(value = """
+            SELECT * FROM file_storage_data s
+            WHERE s.storage_type = :minioStorageType
+              AND s.storage_status = 0
+              AND s.family_bucket_name LIKE :legacyBucketPattern
+              AND (CAST(:familyId AS VARCHAR) IS NULL OR s.family_id = :familyId)
+              AND s.id > :lastId
+            ORDER BY s.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileStorageData> findLayoutMigrationBatch(@Param("minioStorageType") int minioStorageType,
+                                                   @Param("legacyBucketPattern") String legacyBucketPattern,
+                                                   @Param("familyId") String familyId,
+                                                   @Param("lastId") long lastId,
+                                                   @Param("limit") int limit);
+
+    /**
+     * 按主键游标分批查询已迁入共享桶、且迁移时间早于截止时间的存储数据（清理旧布局副本用）
+     * <p>
+     * 以专门记录的迁移时间为准，不受迁移后访问统计、备份状态等更新影响
+     *
+     * @param sharedBucketPattern 共享桶名的 LIKE 模式
+     * @param migratedBefore      迁移截止时间，之后迁移的数据仍在宽限期内
+     */
+    @Query(value = """
+            SELECT * FROM file_storage_data s
+            WHERE s.storage_type = :minioStorageType
+              AND s.family_bucket_name LIKE :sharedBucketPattern
+              AND s.layout_migrated_time < :migratedBefore
+              AND (CAST(:familyId AS VARCHAR) IS NULL OR s.family_id = :familyId)
+              AND s.id > :lastId
+            ORDER BY s.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileStorageData> findLayoutCleanupBatch(@Param("minioStorageType") int minioStorageType,
+                                                 @Param("sharedBucketPattern") String sharedBucketPattern,
+                                                 @Param("migratedBefore") LocalDateTime migratedBefore,
+                                                 @Param("familyId") String familyId,
+                                                 @Param("lastId") long lastId,
+                                                 @Param("limit") int limit);
+
+    /**
+     * 是否有存储数据引用该对象位置
+     */
+    boolean existsByFamilyBucketNameAndFilePath(String familyBucketName, String filePath);
+
+    /**
+     * 按对象位置查找存储数据
+     */
+    Optional<FileStorageData> findFirstByFamilyBucketNameAndFilePath(String familyBucketName, String filePath);
+
+    /**
+     * 桶布局迁移完成后切换对象位置
+     * <p>
+     * 以原桶和原路径作为条件，避免覆盖迁移期间发生的删除或其他位置变更；同时记录迁移时间，作为清理旧副本的宽限期起点
+     *
+     * @return 更新行数（0表示存储数据已被其他操作修改）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.familyBucketName = :bucketName, f.filePath = :filePath, " +
+           "f.fullAccessPath = :fullAccessPath, f.layoutMigratedTime = CURRENT_TIMESTAMP, f.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE f.id = :id AND f.familyBucketName = :expectedBucketName AND f.filePath = :expectedFilePath " +
+           "AND f.storageStatus = 0")
+    int relocateObject(@Param("id") Long id,
+                       @Param("expectedBucketName") String expectedBucketName,
+                       @Param("expectedFilePath") String expectedFilePath,
+                       @Param("bucketName") String bucketName,
+                       @Param("filePath") String filePath,
+                       @Param("fullAccessPath") String fullAccessPath);
+
+    /**
+     * 锁定一批待备份的存储数据
+     * <p>
+     * 走 (backup_status, id) 索引按主键游标扫描，已备份的数据不在扫描范围内；
+     * SKIP LOCKED 保证多实例并发备份时不会领取同一批数据。须在事务内调用。
+     *
+     * @param backupStatus 待处理的备份状态（未备份或备份失败）
+     * @param lastId       上一批最后一条记录的主键
+     * @param limit        批大小
+     */
+    @Query(value = """
+            SELECT * FROM file_storage_data s
+            WHERE s.backup_status = :backupStatus
+              AND s.storage_status = 0
+              AND s.id > :lastId
+            ORDER BY s.id ASC
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<FileStorageData> lockBackupCandidates(@Param("backupStatus") int backupStatus,
+                                               @Param("lastId") long lastId,
+                                               @Param("limit") int limit);
+
+    /**
+     * 批量更新备份状态
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.backupStatus = :backupStatus, f.updateTime = CURRENT_TIMESTAMP WHERE f.id IN :ids")
+    int updateBackupStatus(@Param("ids") Collection<Long> ids, @Param("backupStatus") Integer backupStatus);
+
+    /**
+     * 批量标记备份成功
+     * <p>
+     * 仅更新仍处于备份中的记录：备份期间内容被修改（状态已重置为未备份）的数据保持待备份
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.backupStatus = 1, f.lastBackupTime = :backupTime, f.updateTime = CURRENT_TIMESTAMP " +
+           "WHERE f.id IN :ids AND f.backupStatus = 2")
+    int markBackedUp(@Param("ids") Collection<Long> ids, @Param("backupTime") LocalDateTime backupTime);
+
+    /**
+     * 将长时间停留在备份中的记录（进程崩溃遗留）重置为未备份
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.backupStatus = 0 WHERE f.backupStatus = 2 AND f.updateTime < :cutoff")
+    int resetStaleBackups(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * 为历史存储数据初始化备份状态
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileStorageData f SET f.backupStatus = 0 WHERE f.backupStatus IS NULL")
+    int initializeBackupStatus();
+
+    /**
+     * 按备份状态统计数量
+     */
+    @Query("SELECT f.backupStatus, COUNT(f) FROM FileStorageData f WHERE f.storageStatus = 0 GROUP BY f.backupStatus")
+    List<Object[]> countByBackupStatus();
+
+    /**
+     * 按主键游标分批查询待巡检的存储数据
+     *
+     * @param lastId 上一批最后一条记录的主键
+     * @param limit  批大小
+     */
+    @Query(value = """
+            SELECT * FROM file_storage_data s
+            WHERE s.storage_status = 0
+              AND s.id > :lastId
+            ORDER BY s.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileStorageData> findScrubBatch(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 查询指定存储类型下记录在案的桶名，用于列举孤儿对象
+     */
+    @Query("SELECT DISTINCT f.familyBucketName FROM FileStorageData f " +
+           "WHERE f.storageType = :storageType AND f.familyBucketName IS NOT NULL ORDER BY f.familyBucketName")
+    List<String> findDistinctBucketNames(@Param("storageType") Integer storageType);
+
+    /**
+     * 查询正在使用的存储类型
+     */
+    @Query("SELECT DISTINCT f.storageType FROM FileStorageData f")
+    List<Integer> findDistinctStorageTypes();
+
+    /**
+     * 查询可能与一批对象键对应的存储数据
+     * <p>
+     * 对象键 = filePath；早期只记录目录的数据按对象所在目录匹配，由调用方解析出真实对象键后比对
+     *
+     * @param storageType 存储类型编码
+     * @param bucketName  桶名
+     * @param objectKeys  对象键
+     * @param directories 对象所在目录（以 / 结尾）
+     */
+    @Query("SELECT f FROM FileStorageData f WHERE f.storageType = :storageType AND f.familyBucketName = :bucketName " +
+           "AND (f.filePath IN :objectKeys OR f.filePath IN :directories)")
+    List<FileStorageData> findByObjectKeys(@Param("storageType") Integer storageType,
+                                           @Param("bucketName") String bucketName,
+                                           @Param("objectKeys") Collection<String> objectKeys,
+                                           @Param("directories") Collection<String> directories);
+}
@@ -0,0 +1,84 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.FileUploadReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 直传上传预留Repository
+ * <p>
+ * - 确认时行锁锁定预留，同一上传ID的重复确认串行执行，只有一次能写入文件元数据
+ * - FOR UPDATE SKIP LOCKED 批量领取超时预留，多实例回收互不重复
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface FileUploadReservationRepository extends JpaRepository<FileUploadReservation, Long> {
+
+    /**
+     * 按上传ID查找
+     */
+    Optional<FileUploadReservation> findByUploadId(String uploadId);
+
+    /**
+     * 按上传ID查找并加行锁
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM FileUploadReservation r WHERE r.uploadId = :uploadId")
+    Optional<FileUploadReservation> lockByUploadId(@Param("uploadId") String uploadId);
+
+    /**
+     * 锁定一批超时未确认的预留
+     */
+    @Query(value = """
+            SELECT * FROM file_upload_reservation r
+            WHERE r.status = 0
+              AND r.expire_time < :now
+            ORDER BY r.id ASC
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<FileUploadReservation> lockExpiredReservations(@Param("now") LocalDateTime now,
+                                                        @Param("limit") int limit);
+
+    /**
+     * 将仍处于待上传状态的预留置为已过期
+     *
+     * @return 更新行数（期间已被确认或拒绝的预留不更新）
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE file_upload_reservation
+            SET status = 3, reject_reason = :reason, update_time = :now
+            WHERE id IN (:ids) AND status = 0
+            """, nativeQuery = true)
+    int markExpired(@Param("ids") Collection<Long> ids,
+                    @Param("reason") String reason,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * 分批删除早于指定时间结束的预留
+     *
+     * @return 删除行数
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM file_upload_reservation
+            WHERE id IN (
+                SELECT id FROM file_upload_reservation
+                WHERE status <> 0 AND update_time < :before
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
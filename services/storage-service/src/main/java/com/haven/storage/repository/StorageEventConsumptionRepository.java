@@ -0,0 +1,51 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.StorageEventConsumption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件事件消费记录Repository
+ * <p>
+ * 💡 使用规范：
+ * - markConsumed 必须与订阅者的业务更新在同一事务中调用，事务回滚时消费记录一并回滚
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface StorageEventConsumptionRepository extends JpaRepository<StorageEventConsumption, Long> {
+
+    /**
+     * 幂等写入消费记录
+     *
+     * @return 实际插入的行数（0表示该订阅者已消费过此事件）
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO storage_event_consumption (consumer, event_id, create_time, update_time)
+            VALUES (:consumer, :eventId, now(), now())
+            ON CONFLICT (consumer, event_id) DO NOTHING
+            """, nativeQuery = true)
+    int markConsumed(@Param("consumer") String consumer, @Param("eventId") String eventId);
+
+    /**
+     * 分批删除早于指定时间的消费记录
+     *
+     * @return 删除行数
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM storage_event_consumption
+            WHERE id IN (
+                SELECT id FROM storage_event_consumption
+                WHERE create_time < :before
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deleteConsumedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,67 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.StorageIntegrityIssue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 存储完整性问题Repository
+ * <p>
+ * 问题按 (issue_type, issue_key) 幂等写入，巡检可持续运行而不会产生重复记录
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface StorageIntegrityIssueRepository extends JpaRepository<StorageIntegrityIssue, Long> {
+
+    /**
+     * 记录问题：不存在时插入，已存在时累加发现次数、刷新最近发现时间并重新置为未解决
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO storage_integrity_issue
+                (issue_type, issue_key, file_id, family_id, storage_type, bucket_name, object_key,
+                 expected_checksum, actual_checksum, occurrences, first_detected_time, last_detected_time,
+                 resolved, create_time, update_time)
+            VALUES (:issueType, :issueKey, :fileId, :familyId, :storageType, :bucketName, :objectKey,
+                    :expectedChecksum, :actualChecksum, 1, now(), now(), false, now(), now())
+            ON CONFLICT (issue_type, issue_key) DO UPDATE SET
+                occurrences = storage_integrity_issue.occurrences + 1,
+                actual_checksum = EXCLUDED.actual_checksum,
+                last_detected_time = now(),
+                resolved = false,
+                resolved_time = NULL,
+                update_time = now()
+            """, nativeQuery = true)
+    int recordIssue(@Param("issueType") String issueType,
+                    @Param("issueKey") String issueKey,
+                    @Param("fileId") String fileId,
+                    @Param("familyId") String familyId,
+                    @Param("storageType") Integer storageType,
+                    @Param("bucketName") String bucketName,
+                    @Param("objectKey") String objectKey,
+                    @Param("expectedChecksum") String expectedChecksum,
+                    @Param("actualChecksum") String actualChecksum);
+
+    /**
+     * 文件巡检通过后，将其未解决的文件类问题标记为已解决
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StorageIntegrityIssue i SET i.resolved = true, i.resolvedTime = CURRENT_TIMESTAMP, " +
+           "i.updateTime = CURRENT_TIMESTAMP WHERE i.fileId = :fileId AND i.resolved = false")
+    int resolveFileIssues(@Param("fileId") String fileId);
+
+    /**
+     * 按类型统计未解决的问题
+     */
+    @Query("SELECT i.issueType, COUNT(i) FROM StorageIntegrityIssue i WHERE i.resolved = false GROUP BY i.issueType")
+    List<Object[]> countUnresolvedByType();
+}
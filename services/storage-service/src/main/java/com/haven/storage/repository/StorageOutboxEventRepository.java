@@ -0,0 +1,86 @@
+package com.haven.storage.repository;
+
+import com.haven.storage.domain.model.entity.StorageOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 存储事务发件箱Repository
+ * <p>
+ * 提供发件箱中继所需的批量操作：
+ * - FOR UPDATE SKIP LOCKED 批量领取到期的待发布事件，多实例并发中继互不重复
+ * - 按批标记已发布，按条回写失败退避
+ * - 分批清理过期的已发布事件
+ * <p>
+ * 💡 使用规范：
+ * - 领取和租约写入必须在同一事务内完成，由服务层保证
+ *
+ * @author HavenButler
+ */
+@Repository
+public interface StorageOutboxEventRepository extends JpaRepository<StorageOutboxEvent, Long> {
+
+    /**
+     * 锁定一批可投递的事件
+     * <p>
+     * 可投递条件：待发布且已到下次投递时间（新事件、租约过期或退避结束）。
+     * 按主键顺序领取，同一家庭的事件大体按写入顺序投递。
+     */
+    @Query(value = """
+            SELECT * FROM storage_outbox_event e
+            WHERE e.status = 0
+              AND e.next_attempt_time <= :now
+            ORDER BY e.id ASC
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<StorageOutboxEvent> lockPublishableEvents(@Param("now") LocalDateTime now,
+                                                   @Param("limit") int limit);
+
+    /**
+     * 批量标记为已发布
+     */
+    @Modifying
+    @Query("UPDATE StorageOutboxEvent e SET e.status = 1, e.publishedTime = :now, e.lastError = NULL, " +
+           "e.updateTime = CURRENT_TIMESTAMP WHERE e.id IN :ids AND e.status = 0")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 回写投递失败：退避后重投或置为发布失败
+     */
+    @Modifying
+    @Query("UPDATE StorageOutboxEvent e SET e.status = :status, e.nextAttemptTime = :nextAttemptTime, " +
+           "e.lastError = :lastError, e.updateTime = CURRENT_TIMESTAMP WHERE e.id = :id AND e.status = 0")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("status") int status,
+                          @Param("nextAttemptTime") LocalDateTime nextAttemptTime,
+                          @Param("lastError") String lastError);
+
+    /**
+     * 分批删除早于指定时间发布的事件
+     *
+     * @return 删除行数
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM storage_outbox_event
+            WHERE id IN (
+                SELECT id FROM storage_outbox_event
+                WHERE status = 1 AND published_time < :before
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deletePublishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 按状态统计事件数
+     */
+    long countByStatus(Integer status);
+}
@@ -0,0 +1,126 @@
+package com.haven.storage.security;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 传播用户上下文的线程池装饰器
+ * <p>
+ * 提交任务时捕获提交线程的 {@link UserContextSnapshot}，任务执行期间在工作线程挂载，
+ * 执行结束后恢复工作线程原有上下文：
+ * - 工作线程不会残留上一个任务的用户信息
+ * - 传给 CompletableFuture.supplyAsync(task, executor) 时同样生效
+ * <p>
+ * 生命周期方法直接委托给被装饰的线程池。
+ *
+ * @author HavenButler
+ */
+public class ContextPropagatingExecutorService implements ExecutorService {
+
+    private final ExecutorService delegate;
+
+    public ContextPropagatingExecutorService(ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 装饰线程池
+     */
+    public static ExecutorService wrap(ExecutorService executorService) {
+        if (executorService instanceof ContextPropagatingExecutorService) {
+            return executorService;
+        }
+        return new ContextPropagatingExecutorService(executorService);
+    }
+
+    /**
+     * 装饰只接受 Runnable 的执行器
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ExecutorService executorService) {
+            return wrap(executorService);
+        }
+        return task -> executor.execute(UserContext.snapshot().wrap(task));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(UserContext.snapshot().wrap(command));
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(UserContext.snapshot().wrap(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(UserContext.snapshot().wrap(task), result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(UserContext.snapshot().wrap(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(wrapAll(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(wrapAll(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+        // 所有任务共用同一次捕获的快照
+        UserContextSnapshot snapshot = UserContext.snapshot();
+        return tasks.stream().map(snapshot::wrap).toList();
+    }
+}
@@ -1,8 +1,10 @@
 package com.haven.storage.security;
 
 import com.haven.base.common.constants.SystemConstants;
+import com.haven.base.utils.TraceIdUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -25,6 +27,10 @@ import java.util.function.Supplier;
  * - 增强的安全性验证
  * - 丰富的上下文操作方法
  * - 与充血模型完美集成
+ * <p>
+ * 💡 跨线程传播：线程中只保存一个不可变的 {@link UserContextSnapshot}，
+ * 不随线程创建继承；提交到线程池的任务通过 {@link ContextPropagatingExecutorService}
+ * 或 {@link UserContextTaskDecorator} 携带提交时的快照
  *
  * @author HavenButler
  * @version 2.0
@@ -39,8 +45,7 @@ public final class UserContext {
     public static final String TRACE_ID_HEADER = SystemConstants.Header.TRACE_ID;
 
     // ==================== 线程安全存储 ====================
-    private static final ThreadLocal<UserInfo> USER_INFO_HOLDER = new InheritableThreadLocal<>();
-    private static final ThreadLocal<String> TRACE_ID_HOLDER = new InheritableThreadLocal<>();
+    private static final ThreadLocal<UserContextSnapshot> CONTEXT_HOLDER = new ThreadLocal<>();
 
     // 降级加载标记（用于统计和监控）
     private static final ThreadLocal<Boolean> FALLBACK_LOADED = new ThreadLocal<>();
@@ -60,7 +65,7 @@ public final class UserContext {
      * 只有在拦截器未覆盖的场景（如 WebSocket、消息队列等）才需要自动加载
      */
     public static Optional<UserInfo> getCurrentUserInfo() {
-        UserInfo userInfo = USER_INFO_HOLDER.get();
+        UserInfo userInfo = current().userInfo();
         if (userInfo != null) {
             return Optional.of(userInfo);
         }
@@ -70,7 +75,8 @@ public final class UserContext {
         fallbackUserInfo.ifPresent(info -> {
             log.warn("用户上下文未在拦截器中设置，使用降级方案从请求头加载: {}",
                     info.toSummaryString());
-            USER_INFO_HOLDER.set(info); // 设置到 ThreadLocal，避免重复加载
+            setCurrentUser(info); // 设置到 ThreadLocal，避免重复加载
+            FALLBACK_LOADED.set(Boolean.TRUE);
         });
 
         return fallbackUserInfo;
@@ -129,10 +135,36 @@ public final class UserContext {
 
     /**
      * 获取当前TraceID
+     * 上下文中没有时使用日志MDC中的TraceID
      */
     @Nullable
     public static String getCurrentTraceId() {
-        return TRACE_ID_HOLDER.get();
+        String traceId = current().traceId();
+        return traceId != null ? traceId : TraceIdUtil.getCurrent();
+    }
+
+    /**
+     * 获取当前请求的 Authorization 头，用于以当前用户身份调用下游服务
+     * 不在HTTP请求线程中时返回null
+     */
+    @Nullable
+    public static String getCurrentAuthorization() {
+        HttpServletRequest request = getCurrentRequest();
+        return request != null ? extractHeader(request, HttpHeaders.AUTHORIZATION) : null;
+    }
+
+    /**
+     * 获取当前上下文快照（用于跨线程传播）
+     */
+    public static UserContextSnapshot snapshot() {
+        return current();
+    }
+
+    /**
+     * 当前用户信息是否由降级方案从请求头加载
+     */
+    public static boolean isFallbackLoaded() {
+        return Boolean.TRUE.equals(FALLBACK_LOADED.get());
     }
 
     /**
@@ -176,7 +208,7 @@ public final class UserContext {
      */
     public static void setCurrentUser(UserInfo userInfo) {
         if (userInfo != null && userInfo.hasValidUserId()) {
-            USER_INFO_HOLDER.set(userInfo);
+            CONTEXT_HOLDER.set(current().withUserInfo(userInfo));
             log.debug("设置用户上下文: {}", userInfo.toSummaryString());
         } else {
             log.warn("尝试设置无效的用户信息: {}", userInfo);
@@ -202,7 +234,7 @@ public final class UserContext {
      */
     public static void setCurrentTraceId(String traceId) {
         if (StringUtils.hasText(traceId)) {
-            TRACE_ID_HOLDER.set(traceId);
+            CONTEXT_HOLDER.set(current().withTraceId(traceId));
             log.debug("设置TraceID: {}", traceId);
         }
     }
@@ -212,21 +244,39 @@ public final class UserContext {
      * 必须在请求结束时调用
      */
     public static void clear() {
-        UserInfo userInfo = USER_INFO_HOLDER.get();
+        UserInfo userInfo = current().userInfo();
         if (userInfo != null) {
             log.debug("清理用户上下文: {}", userInfo.toSummaryString());
         }
 
-        USER_INFO_HOLDER.remove();
-        TRACE_ID_HOLDER.remove();
+        CONTEXT_HOLDER.remove();
+        FALLBACK_LOADED.remove();
     }
 
     /**
      * 强制清理（用于异常场景）
      */
     public static void forceClear() {
-        USER_INFO_HOLDER.remove();
-        TRACE_ID_HOLDER.remove();
+        CONTEXT_HOLDER.remove();
+        FALLBACK_LOADED.remove();
+    }
+
+    /**
+     * 替换当前线程的上下文快照，返回原快照（供 {@link UserContextSnapshot#attach()} 使用）
+     */
+    static UserContextSnapshot replace(UserContextSnapshot snapshot) {
+        UserContextSnapshot previous = current();
+        if (snapshot == null || snapshot.isEmpty()) {
+            CONTEXT_HOLDER.remove();
+        } else {
+            CONTEXT_HOLDER.set(snapshot);
+        }
+        return previous;
+    }
+
+    private static UserContextSnapshot current() {
+        UserContextSnapshot snapshot = CONTEXT_HOLDER.get();
+        return snapshot != null ? snapshot : UserContextSnapshot.EMPTY;
     }
 
     // ==================== 异步支持方法 ====================
@@ -235,102 +285,36 @@ public final class UserContext {
      * 在异步任务中传递用户上下文
      */
     public static <T> CompletableFuture<T> runWithUserContext(Supplier<T> task) {
-        UserInfo currentUserInfo = USER_INFO_HOLDER.get();
-        String currentTraceId = TRACE_ID_HOLDER.get();
-
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 在异步线程中设置上下文
-                if (currentUserInfo != null) {
-                    USER_INFO_HOLDER.set(currentUserInfo);
-                }
-                if (currentTraceId != null) {
-                    TRACE_ID_HOLDER.set(currentTraceId);
-                }
-
-                return task.get();
-            } finally {
-                // 清理异步线程的上下文
-                USER_INFO_HOLDER.remove();
-                TRACE_ID_HOLDER.remove();
-            }
-        });
+        return CompletableFuture.supplyAsync(snapshot().wrap(task));
     }
 
     /**
      * 在异步任务中传递用户上下文（无返回值）
      */
     public static CompletableFuture<Void> runWithUserContext(Runnable task) {
-        return runWithUserContext(() -> {
-            task.run();
-            return null;
-        });
+        return CompletableFuture.runAsync(snapshot().wrap(task));
     }
 
     /**
      * 带用户上下文的Supplier包装器
      */
     public static <T> Supplier<T> withUserContext(Supplier<T> supplier) {
-        UserInfo currentUserInfo = USER_INFO_HOLDER.get();
-        String currentTraceId = TRACE_ID_HOLDER.get();
-
-        return () -> {
-            UserInfo originalUser = USER_INFO_HOLDER.get();
-            String originalTrace = TRACE_ID_HOLDER.get();
-
-            try {
-                USER_INFO_HOLDER.set(currentUserInfo);
-                TRACE_ID_HOLDER.set(currentTraceId);
-                return supplier.get();
-            } finally {
-                USER_INFO_HOLDER.set(originalUser);
-                TRACE_ID_HOLDER.set(originalTrace);
-            }
-        };
+        return snapshot().wrap(supplier);
     }
 
     /**
      * 带用户上下文的Runnable包装器
      */
     public static Runnable withUserContext(Runnable runnable) {
-        UserInfo currentUserInfo = USER_INFO_HOLDER.get();
-        String currentTraceId = TRACE_ID_HOLDER.get();
-
-        return () -> {
-            UserInfo originalUser = USER_INFO_HOLDER.get();
-            String originalTrace = TRACE_ID_HOLDER.get();
-
-            try {
-                USER_INFO_HOLDER.set(currentUserInfo);
-                TRACE_ID_HOLDER.set(currentTraceId);
-                runnable.run();
-            } finally {
-                USER_INFO_HOLDER.set(originalUser);
-                TRACE_ID_HOLDER.set(originalTrace);
-            }
-        };
+        return snapshot().wrap(runnable);
     }
 
     /**
      * 带用户上下文的Function包装器
      */
     public static <T, R> Function<T, R> withUserContext(Function<T, R> function) {
-        UserInfo currentUserInfo = USER_INFO_HOLDER.get();
-        String currentTraceId = TRACE_ID_HOLDER.get();
-
-        return (input) -> {
-            UserInfo originalUser = USER_INFO_HOLDER.get();
-            String originalTrace = TRACE_ID_HOLDER.get();
-
-            try {
-                USER_INFO_HOLDER.set(currentUserInfo);
-                TRACE_ID_HOLDER.set(currentTraceId);
-                return function.apply(input);
-            } finally {
-                USER_INFO_HOLDER.set(originalUser);
-                TRACE_ID_HOLDER.set(originalTrace);
-            }
-        };
+        UserContextSnapshot captured = snapshot();
+        return input -> captured.wrap((Supplier<R>) () -> function.apply(input)).get();
     }
 
     // ==================== 请求头处理方法 ====================
@@ -508,16 +492,10 @@ public final class UserContext {
      * 在临时用户上下文中执行操作
      */
     public static <T> T executeAsUser(UserInfo tempUser, Supplier<T> operation) {
-        UserInfo originalUser = USER_INFO_HOLDER.get();
-        String originalTrace = TRACE_ID_HOLDER.get();
-
-        try {
-            USER_INFO_HOLDER.set(tempUser);
+        try (UserContextSnapshot.Scope ignored = current().withUserInfo(tempUser).attach()) {
             log.debug("临时切换用户上下文: {}", tempUser.toSummaryString());
             return operation.get();
         } finally {
-            USER_INFO_HOLDER.set(originalUser);
-            TRACE_ID_HOLDER.set(originalTrace);
             log.debug("恢复原用户上下文");
         }
     }
@@ -552,8 +530,8 @@ public final class UserContext {
      * 获取当前上下文状态信息（用于调试）
      */
     public static String getContextStatus() {
-        UserInfo userInfo = USER_INFO_HOLDER.get();
-        String traceId = TRACE_ID_HOLDER.get();
+        UserInfo userInfo = current().userInfo();
+        String traceId = current().traceId();
 
         return String.format("UserContext{user=%s, traceId=%s, thread=%s}",
                 userInfo != null ? userInfo.toSummaryString() : "null",
@@ -565,14 +543,14 @@ public final class UserContext {
      * 检查ThreadLocal是否存在内存泄漏风险
      */
     public static boolean checkMemoryLeakRisk() {
-        return USER_INFO_HOLDER.get() != null || TRACE_ID_HOLDER.get() != null;
+        return CONTEXT_HOLDER.get() != null;
     }
 
     /**
      * 获取ThreadLocal中的用户信息（不自动加载）
      */
     public static Optional<UserInfo> getFromThreadLocal() {
-        return Optional.ofNullable(USER_INFO_HOLDER.get());
+        return Optional.ofNullable(current().userInfo());
     }
 
     /**
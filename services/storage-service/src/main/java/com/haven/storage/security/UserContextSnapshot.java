@@ -0,0 +1,113 @@
+package com.haven.storage.security;
+
+import com.haven.base.utils.TraceIdUtil;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * 用户上下文快照
+ * <p>
+ * 不可变的（用户、TraceID）组合，是 {@link UserContext} 在线程中保存的唯一对象：
+ * - 捕获：请求线程中直接取当前快照，不复制任何字段
+ * - 传播：把快照随任务交给其他线程，任务执行期间挂载，结束后恢复线程原有上下文
+ * <p>
+ * 💡 与 InheritableThreadLocal 的区别：
+ * - 只在提交任务时捕获一次，不随线程创建复制
+ * - 线程池线程执行完任务即恢复原状态，不会把上一个请求的用户带给下一个任务
+ *
+ * @author HavenButler
+ * @see ContextPropagatingExecutorService
+ * @see UserContextTaskDecorator
+ */
+public record UserContextSnapshot(@Nullable UserInfo userInfo, @Nullable String traceId) {
+
+    public static final UserContextSnapshot EMPTY = new UserContextSnapshot(null, null);
+
+    /**
+     * 捕获当前线程的上下文快照
+     */
+    public static UserContextSnapshot capture() {
+        return UserContext.snapshot();
+    }
+
+    public boolean isEmpty() {
+        return userInfo == null && traceId == null;
+    }
+
+    UserContextSnapshot withUserInfo(UserInfo userInfo) {
+        return new UserContextSnapshot(userInfo, traceId);
+    }
+
+    UserContextSnapshot withTraceId(String traceId) {
+        return new UserContextSnapshot(userInfo, traceId);
+    }
+
+    /**
+     * 在当前线程挂载此快照
+     * <p>
+     * 同时写入日志 MDC 中的 TraceID，返回的作用域关闭时两者都恢复为挂载前的值。
+     *
+     * @return 作用域，必须在 finally 或 try-with-resources 中关闭
+     */
+    public Scope attach() {
+        UserContextSnapshot previous = UserContext.replace(this);
+        String previousMdcTraceId = TraceIdUtil.getCurrent();
+        if (traceId != null) {
+            TraceIdUtil.setTraceId(traceId);
+        } else {
+            TraceIdUtil.clear();
+        }
+        return () -> {
+            UserContext.replace(previous);
+            if (previousMdcTraceId != null) {
+                TraceIdUtil.setTraceId(previousMdcTraceId);
+            } else {
+                TraceIdUtil.clear();
+            }
+        };
+    }
+
+    /**
+     * 包装任务，使其在执行时挂载此快照
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            try (Scope ignored = attach()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 包装任务，使其在执行时挂载此快照
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            try (Scope ignored = attach()) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * 包装任务，使其在执行时挂载此快照
+     */
+    public <T> Supplier<T> wrap(Supplier<T> task) {
+        return () -> {
+            try (Scope ignored = attach()) {
+                return task.get();
+            }
+        };
+    }
+
+    /**
+     * 快照挂载作用域
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,21 @@
+package com.haven.storage.security;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spring 异步任务的用户上下文装饰器
+ * <p>
+ * Spring Boot 自动把唯一的 TaskDecorator Bean 应用到默认的 applicationTaskExecutor，
+ * {@code @Async} 方法和注入的 ThreadPoolTaskExecutor 提交的任务都会携带提交时的用户和TraceID。
+ *
+ * @author HavenButler
+ */
+@Component
+public class UserContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return UserContext.snapshot().wrap(runnable);
+    }
+}
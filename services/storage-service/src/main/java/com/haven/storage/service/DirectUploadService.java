@@ -0,0 +1,383 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.exception.ValidationException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileUploadReservation;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.enums.SupportedFileType;
+import com.haven.storage.domain.model.file.CompletedUpload;
+import com.haven.storage.domain.model.file.DirectUploadInitRequest;
+import com.haven.storage.domain.model.file.DirectUploadTicket;
+import com.haven.storage.domain.model.file.StoredObjectStat;
+import com.haven.storage.media.MediaMetadataExtractor;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileUploadReservationRepository;
+import com.haven.storage.security.UserContext;
+import com.haven.storage.utils.FileTypeDetector;
+import com.haven.storage.utils.FileUtils;
+import com.haven.storage.validator.UnifiedFileValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 直传上传服务
+ * <p>
+ * 文件内容由客户端直接上传到对象存储，存储服务只处理控制流量：
+ * - 申请：校验声明的文件信息，预留对象键并签发预签名PUT地址
+ * - 确认：以 statObject 核对对象大小和ETag（单次PUT时即内容MD5），只读取有界文件头做类型检测和媒体元数据提取，
+ *   通过后在同一事务中写入存储数据、文件元数据和上传事件
+ * - 回收：超时未确认的预留由定时任务删除已上传的对象
+ * <p>
+ * 💡 约束：
+ * - 只支持单次PUT上传，分片上传的ETag不是内容MD5，确认时会被拒绝
+ * - SHA-256 校验和不在确认时计算，由校验和回填任务补齐
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class DirectUploadService {
+
+    private static final String UPLOAD_METHOD = "PUT";
+    private static final int MAX_REASON_LENGTH = 500;
+
+    private final FileUploadReservationRepository reservationRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final UploadedFileRecorder uploadedFileRecorder;
+    private final UnifiedFileValidator unifiedFileValidator;
+    private final FileTypeDetector fileTypeDetector;
+    private final MediaMetadataExtractor mediaMetadataExtractor;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean cleaning = new AtomicBoolean(false);
+
+    @Value("${storage.file.direct-upload.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.file.direct-upload.storage-type:MINIO}")
+    private StorageType storageType;
+
+    @Value("${storage.file.direct-upload.url-expire-minutes:15}")
+    private int urlExpireMinutes;
+
+    @Value("${storage.file.direct-upload.confirm-grace-minutes:30}")
+    private int confirmGraceMinutes;
+
+    @Value("${storage.file.direct-upload.max-file-size:5368709120}")
+    private long maxFileSize;
+
+    @Value("${storage.file.direct-upload.cleanup-batch-size:100}")
+    private int cleanupBatchSize;
+
+    @Value("${storage.file.direct-upload.retention-hours:72}")
+    private int retentionHours;
+
+    public DirectUploadService(FileUploadReservationRepository reservationRepository,
+                               FileMetadataRepository fileMetadataRepository,
+                               StorageOperationRegistry storageOperationRegistry,
+                               UploadedFileRecorder uploadedFileRecorder,
+                               UnifiedFileValidator unifiedFileValidator,
+                               FileTypeDetector fileTypeDetector,
+                               MediaMetadataExtractor mediaMetadataExtractor,
+                               TransactionTemplate transactionTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.storageOperationRegistry = storageOperationRegistry;
+        this.uploadedFileRecorder = uploadedFileRecorder;
+        this.unifiedFileValidator = unifiedFileValidator;
+        this.fileTypeDetector = fileTypeDetector;
+        this.mediaMetadataExtractor = mediaMetadataExtractor;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 申请直传上传
+     * <p>
+     * 对象键由服务端生成，客户端只能上传到预留的位置；预留在上传地址过期后再保留一个确认宽限期。
+     *
+     * @param request 直传申请
+     * @return 上传凭证
+     */
+    public DirectUploadTicket initiate(DirectUploadInitRequest request) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        if (!enabled) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "直传上传未启用");
+        }
+        unifiedFileValidator.validateDirectUploadRequest(request, maxFileSize);
+
+        StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(storageType);
+        SupportedFileType fileType = fileTypeDetector.detectByExtension(request.getFileName());
+        String fileId = FileUtils.generateFileId();
+        String extension = FileUtils.getFileExtension(request.getFileName());
+        String bucketName = adapter.buildFamilyBucketName(request.getFamilyId());
+        String objectKey = adapter.buildFilePath(request.getFamilyId(), fileType.getCategory().getCategoryName())
+                + fileId + (StringUtils.hasText(extension) ? "." + extension : "");
+
+        Duration urlExpiry = Duration.ofMinutes(urlExpireMinutes);
+        String uploadUrl = adapter.getUploadUrl(bucketName, objectKey, urlExpiry).toString();
+        LocalDateTime urlExpiresAt = LocalDateTime.now().plus(urlExpiry);
+
+        FileUploadReservation reservation = new FileUploadReservation();
+        reservation.setUploadId(UUID.randomUUID().toString().replace("-", ""));
+        reservation.setFileId(fileId);
+        reservation.setFamilyId(request.getFamilyId());
+        reservation.setUploaderUserId(request.getUploaderUserId());
+        reservation.setStorageType(storageType.getCode());
+        reservation.setBucketName(bucketName);
+        reservation.setObjectKey(objectKey);
+        reservation.setOriginalName(request.getFileName());
+        reservation.setFolderPath(FileUtils.formatFolderPath(request.getFolderPath()));
+        reservation.setContentType(StringUtils.hasText(request.getContentType())
+                ? request.getContentType() : fileType.getMimeType());
+        reservation.setFileVisibility(request.getVisibility() != null ? request.getVisibility() : FileVisibility.PRIVATE);
+        reservation.setDescription(request.getDescription());
+        reservation.setTags(request.getTags() != null ? String.join(",", request.getTags()) : null);
+        reservation.setDeclaredSize(request.getFileSize());
+        reservation.setDeclaredMd5(HexFormat.of().formatHex(Base64.getDecoder().decode(request.getContentMd5())));
+        reservation.setExpireTime(urlExpiresAt.plusMinutes(confirmGraceMinutes));
+        reservationRepository.save(reservation);
+
+        // 对象存储按 Content-MD5 校验请求体，内容在传输中损坏时PUT直接失败
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", reservation.getContentType());
+        headers.put("Content-MD5", request.getContentMd5());
+
+        DirectUploadTicket ticket = new DirectUploadTicket();
+        ticket.setUploadId(reservation.getUploadId());
+        ticket.setFileId(fileId);
+        ticket.setUploadUrl(uploadUrl);
+        ticket.setMethod(UPLOAD_METHOD);
+        ticket.setHeaders(headers);
+        ticket.setExpiresAt(urlExpiresAt);
+        ticket.setTraceId(traceId);
+
+        log.info("直传上传已预留: uploadId={}, fileId={}, family={}, object={}/{}, size={}, traceId={}",
+                reservation.getUploadId(), fileId, request.getFamilyId(), bucketName, objectKey,
+                request.getFileSize(), traceId);
+        return ticket;
+    }
+
+    /**
+     * 确认直传上传
+     * <p>
+     * 对象尚未上传时返回数据不存在，客户端可在预留过期前重试；大小或MD5不一致时拒绝预留并删除对象。
+     * 已确认的预留再次确认时直接返回已写入的文件元数据。
+     *
+     * @param uploadId 上传ID
+     * @return 文件元数据
+     */
+    public FileMetadata confirm(String uploadId) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        FileUploadReservation reservation = reservationRepository.findByUploadId(uploadId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.DATA_NOT_FOUND, "上传预留不存在: " + uploadId));
+        if (!reservation.getUploaderUserId().equals(UserContext.getCurrentUserId())) {
+            throw new BusinessException(ErrorCode.PERMISSION_DENIED, "只有上传者本人可以确认上传");
+        }
+        if (reservation.getStatus() == FileUploadReservation.STATUS_CONFIRMED) {
+            return fileMetadataRepository.findByFileId(reservation.getFileId())
+                    .orElseThrow(() -> new BusinessException(ErrorCode.DATA_NOT_FOUND, "文件不存在: " + reservation.getFileId()));
+        }
+        checkPending(reservation);
+
+        // 对象存储访问放在事务外，避免网络调用期间持有预留行锁
+        StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(StorageType.getByCode(reservation.getStorageType()));
+        StoredObjectStat stat = adapter.statObject(reservation.getBucketName(), reservation.getObjectKey());
+        if (stat == null) {
+            throw new BusinessException(ErrorCode.DATA_NOT_FOUND, "文件尚未上传完成，请上传后再确认");
+        }
+        String mismatch = verifyObject(reservation, stat);
+        if (mismatch != null) {
+            reject(reservation, adapter, mismatch, traceId);
+            throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "上传文件校验失败: " + mismatch);
+        }
+        FileTypeDetector.HeaderPeek header = readHeader(adapter, reservation, stat, traceId);
+        // 媒体内容超限（尺寸、时长、分辨率）与大小不一致同样拒绝预留并删除对象
+        try {
+            unifiedFileValidator.validateMediaContent(reservation.getOriginalName(), stat.getSize(), header, traceId);
+        } catch (ValidationException e) {
+            reject(reservation, adapter, e.getMessage(), traceId);
+            throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "上传文件校验失败: " + e.getMessage());
+        }
+
+        FileMetadata metadata = transactionTemplate.execute(status -> {
+            FileUploadReservation locked = reservationRepository.lockByUploadId(uploadId)
+                    .orElseThrow(() -> new BusinessException(ErrorCode.DATA_NOT_FOUND, "上传预留不存在: " + uploadId));
+            if (locked.getStatus() == FileUploadReservation.STATUS_CONFIRMED) {
+                // 并发确认：另一请求已提交
+                return fileMetadataRepository.findByFileId(locked.getFileId()).orElse(null);
+            }
+            checkPending(locked);
+            return commitUpload(locked, stat, header, traceId);
+        });
+
+        log.info("直传上传已确认: uploadId={}, fileId={}, family={}, size={}, traceId={}",
+                uploadId, reservation.getFileId(), reservation.getFamilyId(), stat.getSize(), traceId);
+        return metadata;
+    }
+
+    /**
+     * 定时回收超时未确认的预留
+     */
+    @Scheduled(fixedDelayString = "${storage.file.direct-upload.cleanup-interval-millis:300000}",
+               initialDelayString = "${storage.file.direct-upload.cleanup-initial-delay-millis:60000}")
+    public void scheduledCleanup() {
+        if (!enabled) {
+            return;
+        }
+        cleanupExpired();
+    }
+
+    /**
+     * 回收一批超时预留：删除客户端可能已上传的对象，预留置为已过期
+     * <p>
+     * 领取和回写各用一个短事务，删除对象的网络调用在两者之间进行，不持有行锁和数据库连接。
+     * 领取后锁即释放，其他实例可能领取到同一批预留，重复删除对象是幂等的；
+     * 过期预留不会再被确认，回写只更新仍为待上传的行。
+     *
+     * @return 本轮回收的预留数（已有回收在运行时返回0）
+     */
+    public int cleanupExpired() {
+        if (!cleaning.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            List<FileUploadReservation> reservations = transactionTemplate.execute(status ->
+                    reservationRepository.lockExpiredReservations(LocalDateTime.now(), cleanupBatchSize));
+            if (reservations == null) {
+                reservations = List.of();
+            }
+
+            List<Long> deleted = new ArrayList<>();
+            for (FileUploadReservation reservation : reservations) {
+                StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(
+                        StorageType.getByCode(reservation.getStorageType()));
+                // 删除失败时保留为待上传，下一轮重试
+                if (adapter.deleteObject(reservation.getBucketName(), reservation.getObjectKey())) {
+                    deleted.add(reservation.getId());
+                }
+            }
+
+            Integer expired = transactionTemplate.execute(status -> {
+                int count = deleted.isEmpty() ? 0
+                        : reservationRepository.markExpired(deleted, "超时未确认", LocalDateTime.now());
+                reservationRepository.deleteFinishedBefore(LocalDateTime.now().minusHours(retentionHours), cleanupBatchSize);
+                return count;
+            });
+            if (expired != null && expired > 0) {
+                log.info("回收超时直传预留: count={}", expired);
+            }
+            return expired != null ? expired : 0;
+        } catch (RuntimeException e) {
+            log.error("回收超时直传预留失败: error={}", e.getMessage(), e);
+            return 0;
+        } finally {
+            cleaning.set(false);
+        }
+    }
+
+    private void checkPending(FileUploadReservation reservation) {
+        if (reservation.getStatus() != FileUploadReservation.STATUS_PENDING) {
+            throw new BusinessException(ErrorCode.STATUS_ERROR, "上传预留已结束: " + reservation.getRejectReason());
+        }
+        if (reservation.getExpireTime().isBefore(LocalDateTime.now())) {
+            throw new BusinessException(ErrorCode.STATUS_ERROR, "上传预留已过期，请重新申请上传");
+        }
+    }
+
+    /**
+     * 核对对象与声明是否一致
+     *
+     * @return 不一致的原因，一致时返回null
+     */
+    private static String verifyObject(FileUploadReservation reservation, StoredObjectStat stat) {
+        if (stat.getSize() != reservation.getDeclaredSize()) {
+            return "文件大小不一致，声明" + reservation.getDeclaredSize() + "字节，实际" + stat.getSize() + "字节";
+        }
+        if (stat.getEtag() == null || !stat.getEtag().equalsIgnoreCase(reservation.getDeclaredMd5())) {
+            return "文件MD5不一致，声明" + reservation.getDeclaredMd5() + "，实际ETag" + stat.getEtag();
+        }
+        return null;
+    }
+
+    private void reject(FileUploadReservation reservation, StorageAdapter adapter, String reason, String traceId) {
+        transactionTemplate.executeWithoutResult(status -> reservationRepository.lockByUploadId(reservation.getUploadId())
+                .filter(locked -> locked.getStatus() == FileUploadReservation.STATUS_PENDING)
+                .ifPresent(locked -> {
+                    locked.setStatus(FileUploadReservation.STATUS_REJECTED);
+                    locked.setRejectReason(reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason);
+                }));
+        // 删除失败时对象由完整性巡检按孤儿对象发现
+        adapter.deleteObject(reservation.getBucketName(), reservation.getObjectKey());
+        log.warn("直传上传校验失败，已拒绝: uploadId={}, fileId={}, reason={}, traceId={}",
+                reservation.getUploadId(), reservation.getFileId(), reason, traceId);
+    }
+
+    /**
+     * 范围读取文件头，读取失败时按无文件头处理，类型回退到扩展名检测
+     */
+    private FileTypeDetector.HeaderPeek readHeader(StorageAdapter adapter, FileUploadReservation reservation,
+                                                   StoredObjectStat stat, String traceId) {
+        int limit = (int) Math.min(mediaMetadataExtractor.getHeaderPeekBytes(), stat.getSize());
+        if (limit <= 0) {
+            return FileTypeDetector.HeaderPeek.EMPTY;
+        }
+        try {
+            byte[] bytes = adapter.readObjectRange(reservation.getBucketName(), reservation.getObjectKey(), 0, limit);
+            return new FileTypeDetector.HeaderPeek(bytes, bytes.length < stat.getSize());
+        } catch (RuntimeException e) {
+            log.warn("读取直传文件头失败，忽略: fileId={}, error={}, traceId={}",
+                    reservation.getFileId(), e.getMessage(), traceId);
+            return FileTypeDetector.HeaderPeek.EMPTY;
+        }
+    }
+
+    /**
+     * 登记上传并将预留置为已确认（须在事务中调用）
+     */
+    private FileMetadata commitUpload(FileUploadReservation reservation, StoredObjectStat stat,
+                                      FileTypeDetector.HeaderPeek header, String traceId) {
+        CompletedUpload upload = CompletedUpload.builder()
+                .fileId(reservation.getFileId())
+                .familyId(reservation.getFamilyId())
+                .uploaderUserId(reservation.getUploaderUserId())
+                .storageType(StorageType.getByCode(reservation.getStorageType()))
+                .bucketName(reservation.getBucketName())
+                .objectKey(reservation.getObjectKey())
+                .originalName(reservation.getOriginalName())
+                .folderPath(reservation.getFolderPath())
+                .contentType(reservation.getContentType())
+                .visibility(reservation.getFileVisibility())
+                .description(reservation.getDescription())
+                .tags(StringUtils.hasText(reservation.getTags()) ? Arrays.asList(reservation.getTags().split(",")) : null)
+                .fileSize(stat.getSize())
+                .storageMetadata(Map.of("etag", stat.getEtag(), "uploadId", reservation.getUploadId()))
+                .build();
+        FileMetadata metadata = uploadedFileRecorder.record(upload, header, traceId);
+
+        reservation.setStatus(FileUploadReservation.STATUS_CONFIRMED);
+        return metadata;
+    }
+}
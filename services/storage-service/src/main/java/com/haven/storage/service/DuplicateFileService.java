@@ -0,0 +1,227 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.ChecksumBackfillResult;
+import com.haven.storage.domain.model.file.DuplicateFileReport;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.utils.ByteRateLimiter;
+import com.haven.storage.utils.ChecksumUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 重复文件分析服务
+ * <p>
+ * 基于文件校验和识别家庭内内容完全相同的文件：
+ * - 分组统计走 file_storage_data(family_id, file_checksum) 联合索引，不做自连接和全表扫描
+ * - 缺少校验和的历史文件由限速的流式回填任务补齐
+ * - 报告给出每组重复文件及只保留一份时可回收的字节数
+ * <p>
+ * 替代原先基于文件大小和上传时间窗口的自连接查询（O(n²)且存在误判）
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DuplicateFileService {
+
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+    private final AtomicBoolean familyIdsBackfilled = new AtomicBoolean(false);
+
+    @Value("${storage.file.duplicate.max-groups:500}")
+    private int maxGroups;
+
+    @Value("${storage.file.duplicate.backfill.batch-size:200}")
+    private int backfillBatchSize;
+
+    @Value("${storage.file.duplicate.backfill.bytes-per-second:20971520}")
+    private long backfillBytesPerSecond;
+
+    @Value("${storage.file.duplicate.backfill.family-id-range:10000}")
+    private int familyIdBackfillRange;
+
+    /**
+     * 分析家庭内的重复文件
+     *
+     * @param familyId 家庭ID
+     * @return 重复文件报告，按可回收字节数降序
+     */
+    public DuplicateFileReport analyzeDuplicates(String familyId) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+
+        List<Object[]> rows = fileStorageDataRepository.aggregateDuplicateGroups(familyId, maxGroups);
+        Map<String, DuplicateFileReport.DuplicateGroup> groups = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            DuplicateFileReport.DuplicateGroup group = new DuplicateFileReport.DuplicateGroup();
+            group.setChecksum((String) row[0]);
+            group.setFileCount(toLong(row[1]));
+            group.setFileSize(toLong(row[2]));
+            group.setTotalSize(toLong(row[3]));
+            group.setReclaimableBytes(toLong(row[4]));
+            group.setFileIds(new ArrayList<>());
+            groups.put(group.getChecksum(), group);
+        }
+
+        // 展开组内文件明细，同样走 (family_id, file_checksum) 索引
+        if (!groups.isEmpty()) {
+            for (FileStorageData storageData : fileStorageDataRepository.findByFamilyAndChecksums(familyId, groups.keySet())) {
+                DuplicateFileReport.DuplicateGroup group = groups.get(storageData.getFileChecksum());
+                if (group != null) {
+                    group.getFileIds().add(storageData.getFileId());
+                }
+            }
+        }
+
+        DuplicateFileReport report = new DuplicateFileReport();
+        report.setFamilyId(familyId);
+        report.setDuplicateGroups(new ArrayList<>(groups.values()));
+        report.setTotalGroups(groups.size());
+        report.setTotalDuplicateFiles(groups.values().stream().mapToLong(DuplicateFileReport.DuplicateGroup::getFileCount).sum());
+        report.setTotalReclaimableBytes(groups.values().stream().mapToLong(DuplicateFileReport.DuplicateGroup::getReclaimableBytes).sum());
+        report.setFilesMissingChecksum(fileStorageDataRepository.countMissingChecksumByFamily(familyId));
+        report.setTraceId(traceId);
+
+        log.info("重复文件分析完成: familyId={}, groups={}, reclaimableBytes={}, missingChecksum={}, cost={}ms, traceId={}",
+                familyId, report.getTotalGroups(), report.getTotalReclaimableBytes(),
+                report.getFilesMissingChecksum(), System.currentTimeMillis() - start, traceId);
+        return report;
+    }
+
+    /**
+     * 回填缺少校验和的文件
+     * <p>
+     * 按主键游标分批扫描，逐个流式读取文件计算 SHA-256，读取带宽受 bytes-per-second 限制。
+     * 同一时刻只允许一个回填任务运行。
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     * @param fromId   起始游标（不含），首次传0
+     * @param maxFiles 本次最多处理的文件数
+     * @return 回填结果，包含下次继续的游标
+     */
+    public ChecksumBackfillResult backfillChecksums(String familyId, long fromId, int maxFiles) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "校验和回填任务正在执行中");
+        }
+
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        ChecksumBackfillResult result = new ChecksumBackfillResult();
+        result.setFamilyId(familyId);
+        result.setTraceId(traceId);
+        result.setLastId(fromId);
+
+        try {
+            // 历史数据先补齐冗余家庭ID，保证联合索引可用
+            backfillFamilyIdsOnce(traceId);
+
+            ByteRateLimiter limiter = new ByteRateLimiter(backfillBytesPerSecond);
+            long lastId = fromId;
+            while (result.getScannedFiles() < maxFiles) {
+                int limit = Math.min(backfillBatchSize, maxFiles - result.getScannedFiles());
+                List<FileStorageData> batch = fileStorageDataRepository.findMissingChecksumBatch(familyId, lastId, limit);
+                if (batch.isEmpty()) {
+                    result.setCompleted(true);
+                    break;
+                }
+                // 早期只记录目录的存储数据按整批一次查询元数据解析对象键
+                Map<String, String> objectKeys = storageObjectKeyResolver.resolveAll(batch);
+                for (FileStorageData storageData : batch) {
+                    lastId = storageData.getId();
+                    result.setScannedFiles(result.getScannedFiles() + 1);
+                    backfillOne(storageData, objectKeys.get(storageData.getFileId()), limiter, result, traceId);
+                }
+                result.setLastId(lastId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("校验和回填被中断: lastId={}, traceId={}", result.getLastId(), traceId);
+        } finally {
+            backfillRunning.set(false);
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("校验和回填结束: familyId={}, scanned={}, updated={}, failed={}, bytes={}, lastId={}, completed={}, traceId={}",
+                familyId, result.getScannedFiles(), result.getUpdatedFiles(), result.getFailedFiles(),
+                result.getBytesHashed(), result.getLastId(), result.isCompleted(), traceId);
+        return result;
+    }
+
+    /**
+     * 按主键区间分批补齐历史存储数据的家庭ID，进程内只完整执行一次
+     * <p>
+     * 新写入的存储数据在创建时已带家庭ID，补齐一遍后无需在每次回填时重复扫描
+     */
+    private void backfillFamilyIdsOnce(String traceId) {
+        if (familyIdsBackfilled.get()) {
+            return;
+        }
+        long maxId = fileStorageDataRepository.findMaxId();
+        int filled = 0;
+        for (long fromId = 0; fromId < maxId; fromId += familyIdBackfillRange) {
+            filled += fileStorageDataRepository.backfillFamilyIds(fromId, Math.min(fromId + familyIdBackfillRange, maxId));
+        }
+        familyIdsBackfilled.set(true);
+        if (filled > 0) {
+            log.info("已补齐存储数据的家庭ID: count={}, maxId={}, traceId={}", filled, maxId, traceId);
+        }
+    }
+
+    private void backfillOne(FileStorageData storageData, String objectKey, ByteRateLimiter limiter,
+                             ChecksumBackfillResult result, String traceId) throws InterruptedException {
+        if (objectKey == null) {
+            result.setFailedFiles(result.getFailedFiles() + 1);
+            log.warn("回填校验和时无法确定对象键: fileId={}, filePath={}, traceId={}",
+                    storageData.getFileId(), storageData.getFilePath(), traceId);
+            return;
+        }
+        try {
+            StorageType storageType = StorageType.getByCode(storageData.getStorageType());
+            // 按存储数据记录的位置读取，绕过本地读缓存，避免回填把热点缓存挤出
+            StorageAdapter adapter = CachingStorageAdapter.unwrap(storageOperationRegistry.getStorageAdapter(storageType));
+            try (BufferedSource source = adapter.openObject(storageData.getFamilyBucketName(), objectKey)) {
+                if (source == null) {
+                    result.setFailedFiles(result.getFailedFiles() + 1);
+                    log.warn("回填校验和时文件不存在: fileId={}, traceId={}", storageData.getFileId(), traceId);
+                    return;
+                }
+                String checksum = ChecksumUtils.checksum(source, limiter);
+                if (fileStorageDataRepository.updateChecksumIfAbsent(storageData.getId(), checksum) > 0) {
+                    result.setUpdatedFiles(result.getUpdatedFiles() + 1);
+                }
+                result.setBytesHashed(result.getBytesHashed() + (storageData.getFileSize() != null ? storageData.getFileSize() : 0));
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            result.setFailedFiles(result.getFailedFiles() + 1);
+            log.error("回填校验和失败: fileId={}, error={}, traceId={}", storageData.getFileId(), e.getMessage(), traceId);
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,225 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FamilyDailyStats;
+import com.haven.storage.domain.model.enums.FileCategory;
+import com.haven.storage.domain.model.enums.FileEventType;
+import com.haven.storage.domain.model.file.DailyStatsBackfillResult;
+import com.haven.storage.domain.model.file.FileLifecycleEvent;
+import com.haven.storage.repository.FamilyDailyActiveUserRepository;
+import com.haven.storage.repository.FamilyDailyStatsRepository;
+import com.haven.storage.repository.StorageEventConsumptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 家庭每日存储统计服务
+ * <p>
+ * 维护 family_daily_stats 预聚合表，趋势图按日期范围读取每天一行，不随文件数增长：
+ * - 订阅发件箱的上传/删除事件，按事件发生日期增量累加
+ * - 历史数据由回填任务按日期窗口从 file_metadata 重算，每个窗口一个事务，可通过返回的游标分多次继续
+ * <p>
+ * 💡 回填与增量的边界：
+ * - 回填默认截止到今天（不含），今天的数据只由事件累加
+ * - 回填会覆盖窗口内已有的行，不要对仍有事件在途的日期执行回填
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FamilyDailyStatsService implements FileEventSubscriber {
+
+    private static final String EVENT_CONSUMER = "family-daily-stats";
+
+    private final FamilyDailyStatsRepository familyDailyStatsRepository;
+    private final FamilyDailyActiveUserRepository familyDailyActiveUserRepository;
+    private final StorageEventConsumptionRepository eventConsumptionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+
+    @Value("${storage.file.daily-stats.max-query-days:400}")
+    private int maxQueryDays;
+
+    @Value("${storage.file.daily-stats.backfill.window-days:31}")
+    private int backfillWindowDays;
+
+    @Value("${storage.file.daily-stats.backfill.max-windows:24}")
+    private int backfillMaxWindows;
+
+    /**
+     * 处理发件箱投递的文件事件
+     *
+     * <p>累加不幂等：与 {@link FamilyStorageStatsService} 相同，先在同一事务中写入消费记录，
+     * 重复投递直接跳过；活跃用户先写入明细，同一用户当天首次出现时才计数。</p>
+     *
+     * @param event 文件生命周期事件
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void onFileEvent(FileLifecycleEvent event) {
+        if (!StringUtils.hasText(event.getFamilyId())) {
+            log.warn("文件事件缺少家庭ID，不计入每日统计 - eventId: {}", event.getEventId());
+            return;
+        }
+        if (eventConsumptionRepository.markConsumed(EVENT_CONSUMER, event.getEventId()) == 0) {
+            log.debug("文件事件已计入每日统计，跳过重复投递 - eventId: {}", event.getEventId());
+            return;
+        }
+
+        LocalDate statDate = (event.getOccurredTime() != null ? event.getOccurredTime() : LocalDateTime.now()).toLocalDate();
+        boolean upload = event.getEventType() == FileEventType.FILE_UPLOADED;
+        long size = Math.max(0, event.getFileSize());
+        long delta = upload ? size : -size;
+
+        int activeUsers = 0;
+        if (StringUtils.hasText(event.getOperatorUserId())) {
+            activeUsers = familyDailyActiveUserRepository.markActive(event.getFamilyId(), statDate, event.getOperatorUserId());
+        }
+
+        FileCategory category = resolveCategory(event.getFileType());
+        familyDailyStatsRepository.addDelta(event.getFamilyId(), statDate,
+                upload ? 1 : 0, upload ? 0 : 1,
+                upload ? size : 0, upload ? 0 : size,
+                category == FileCategory.IMAGE ? delta : 0,
+                category == FileCategory.VIDEO ? delta : 0,
+                category == FileCategory.AUDIO ? delta : 0,
+                category == FileCategory.DOCUMENT ? delta : 0,
+                isOther(category) ? delta : 0,
+                activeUsers);
+
+        log.debug("每日统计已累加 - familyId: {}, date: {}, type: {}, size: {}, newActiveUser: {}",
+                event.getFamilyId(), statDate, event.getEventType(), size, activeUsers > 0);
+    }
+
+    /**
+     * 查询家庭每日统计
+     *
+     * <p>只返回有数据的日期，没有上传和删除的日期不产生记录。</p>
+     *
+     * @param familyId 家庭ID
+     * @param fromDate 起始日期（含）
+     * @param toDate   截止日期（含）
+     * @return 按日期升序的每日统计
+     */
+    @Transactional(readOnly = true)
+    public List<FamilyDailyStats> getDailyStats(String familyId, LocalDate fromDate, LocalDate toDate) {
+        if (!StringUtils.hasText(familyId)) {
+            throw new BusinessException(ErrorCode.PARAM_MISSING, "家庭ID不能为空");
+        }
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to.minusDays(maxQueryDays - 1L);
+        if (from.isAfter(to)) {
+            throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "起始日期不能晚于截止日期");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxQueryDays) {
+            throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE, "查询范围不能超过" + maxQueryDays + "天");
+        }
+        return familyDailyStatsRepository.findByFamilyIdAndStatDateBetweenOrderByStatDateAsc(familyId, from, to);
+    }
+
+    /**
+     * 从文件元数据回填每日统计
+     * <p>
+     * 按 window-days 切分日期窗口，每个窗口在独立事务中删除旧行并重算，单次最多处理 max-windows 个窗口。
+     * 同一时刻只允许一个回填任务运行。
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     * @param fromDate 起始日期（含）
+     * @param toDate   截止日期（不含），为null时为今天
+     * @return 回填结果，包含下次继续的起始日期
+     */
+    public DailyStatsBackfillResult backfill(String familyId, LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null) {
+            throw new BusinessException(ErrorCode.PARAM_MISSING, "回填起始日期不能为空");
+        }
+        LocalDate end = toDate != null ? toDate : LocalDate.now();
+        if (!fromDate.isBefore(end)) {
+            throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "回填起始日期必须早于截止日期");
+        }
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "每日统计回填任务正在执行中");
+        }
+
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        DailyStatsBackfillResult result = new DailyStatsBackfillResult();
+        result.setFamilyId(familyId);
+        result.setFromDate(fromDate);
+        result.setToDate(end);
+        result.setTraceId(traceId);
+
+        try {
+            LocalDate windowStart = fromDate;
+            while (windowStart.isBefore(end) && result.getWindows() < backfillMaxWindows) {
+                LocalDate windowEnd = windowStart.plusDays(Math.max(1, backfillWindowDays));
+                if (windowEnd.isAfter(end)) {
+                    windowEnd = end;
+                }
+                int rows = rebuildWindow(familyId, windowStart, windowEnd);
+                result.setRowsWritten(result.getRowsWritten() + rows);
+                result.setWindows(result.getWindows() + 1);
+                log.debug("每日统计窗口回填完成: familyId={}, from={}, to={}, rows={}, traceId={}",
+                        familyId, windowStart, windowEnd, rows, traceId);
+                windowStart = windowEnd;
+            }
+            result.setNextFromDate(windowStart);
+            result.setCompleted(!windowStart.isBefore(end));
+        } finally {
+            backfillRunning.set(false);
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("每日统计回填结束: familyId={}, from={}, to={}, windows={}, rows={}, next={}, completed={}, traceId={}",
+                familyId, fromDate, end, result.getWindows(), result.getRowsWritten(), result.getNextFromDate(),
+                result.isCompleted(), traceId);
+        return result;
+    }
+
+    /**
+     * 在一个事务中重算一个日期窗口 [fromDate, toDate)
+     */
+    private int rebuildWindow(String familyId, LocalDate fromDate, LocalDate toDate) {
+        LocalDateTime fromTime = fromDate.atStartOfDay();
+        LocalDateTime toTime = toDate.atStartOfDay();
+        Integer rows = transactionTemplate.execute(status -> {
+            familyDailyStatsRepository.deleteRange(familyId, fromDate, toDate);
+            familyDailyActiveUserRepository.deleteRange(familyId, fromDate, toDate);
+            int written = familyDailyStatsRepository.rebuildFromMetadata(familyId, fromTime, toTime);
+            familyDailyActiveUserRepository.rebuildFromUploads(familyId, fromTime, toTime);
+            familyDailyStatsRepository.refreshActiveUsers(familyId, fromDate, toDate);
+            return written;
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private static FileCategory resolveCategory(String fileType) {
+        if (StringUtils.hasText(fileType)) {
+            try {
+                return FileCategory.valueOf(fileType.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // 未登记的分类计入其他
+            }
+        }
+        return FileCategory.UNKNOWN;
+    }
+
+    private static boolean isOther(FileCategory category) {
+        return category != FileCategory.IMAGE && category != FileCategory.VIDEO
+                && category != FileCategory.AUDIO && category != FileCategory.DOCUMENT;
+    }
+}
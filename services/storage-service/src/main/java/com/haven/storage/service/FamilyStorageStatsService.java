@@ -4,7 +4,10 @@ import com.haven.storage.domain.model.entity.FamilyStorageStats;
 import com.haven.storage.domain.model.entity.FileMetadata;
 import com.haven.storage.domain.model.enums.FileOperation;
 import com.haven.storage.domain.model.enums.FileCategory;
+import com.haven.storage.domain.model.enums.FileEventType;
+import com.haven.storage.domain.model.file.FileLifecycleEvent;
 import com.haven.storage.repository.FamilyStorageStatsRepository;
+import com.haven.storage.repository.StorageEventConsumptionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.EnableCaching;
@@ -19,7 +22,7 @@ import java.util.Map;
  * 家庭存储统计服务
  * <p>
  * 负责维护和更新家庭存储统计信息：
- * - 文件上传/删除时实时更新统计
+ * - 订阅发件箱的文件上传/删除事件，在请求事务之外异步更新统计
  * - 定期重新计算统计数据
  * - 提供存储使用情况分析
  *
@@ -29,9 +32,41 @@ import java.util.Map;
 @Service
 @RequiredArgsConstructor
 @EnableCaching
-public class FamilyStorageStatsService {
+public class FamilyStorageStatsService implements FileEventSubscriber {
+
+    private static final String EVENT_CONSUMER = "family-storage-stats";
 
     private final FamilyStorageStatsRepository familyStorageStatsRepository;
+    private final StorageEventConsumptionRepository eventConsumptionRepository;
+
+    /**
+     * 处理发件箱投递的文件事件
+     *
+     * <p>统计累加本身不幂等：在同一事务中先写入消费记录，事件重复投递时直接跳过；
+     * 统计更新失败时消费记录一并回滚，事件按退避重投。</p>
+     *
+     * @param event 文件生命周期事件
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void onFileEvent(FileLifecycleEvent event) {
+        if (eventConsumptionRepository.markConsumed(EVENT_CONSUMER, event.getEventId()) == 0) {
+            log.debug("文件事件已计入统计，跳过重复投递 - eventId: {}", event.getEventId());
+            return;
+        }
+
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setFileId(event.getFileId());
+        fileMetadata.setFamilyId(event.getFamilyId());
+        fileMetadata.setFileSize(event.getFileSize());
+        fileMetadata.setFileType(event.getFileType());
+
+        if (event.getEventType() == FileEventType.FILE_UPLOADED) {
+            updateStorageStats(FileOperation.UPLOAD, fileMetadata, event.getFileSize());
+        } else if (event.getEventType() == FileEventType.FILE_DELETED) {
+            updateStorageStats(FileOperation.DELETE, fileMetadata, -event.getFileSize());
+        }
+    }
 
     /**
      * 统一的存储统计更新方法
@@ -97,6 +132,22 @@ public class FamilyStorageStatsService {
         }
     }
 
+    /**
+     * 查询家庭存储统计
+     *
+     * <p>只读事务，开启读写分离时从从库读取；尚无统计记录的家庭返回未持久化的空统计。</p>
+     *
+     * @param familyId 家庭ID
+     * @return 家庭存储统计
+     */
+    @Transactional(readOnly = true)
+    public FamilyStorageStats getFamilyStats(String familyId) {
+        if (!StringUtils.hasText(familyId)) {
+            throw new IllegalArgumentException("家庭ID不能为空");
+        }
+        return getOrCreateFamilyStorageStats(familyId);
+    }
+
     /**
      * 文件上传操作的统计更新
      */
@@ -0,0 +1,391 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.BackupRunResult;
+import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.security.ContextPropagatingExecutorService;
+import com.haven.storage.utils.ByteRateLimiter;
+import com.haven.storage.utils.ThrottledSource;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+import okio.HashingSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 增量备份服务
+ * <p>
+ * 以 FileStorageData.backupStatus 作为待办清单，把新增或变更的文件复制到备份存储：
+ * - 扫描：走 (backup_status, id) 索引按主键游标分批领取，已备份的数据不会被重新列举或复制
+ * - 领取：FOR UPDATE SKIP LOCKED 后批量置为备份中，多实例并发执行互不重复
+ * - 复制：固定大小线程池并行复制，总带宽受 bytes-per-second 限制，复制时计算 SHA-256 与 fileChecksum 比对
+ * - 回写：每批结束后按成功/失败批量更新状态，成功时记录 lastBackupTime
+ * <p>
+ * 💡 变更检测：
+ * - 新文件创建时 backupStatus=0，内容被修改时重置为0，即自动进入下一次增量备份
+ * - 备份写入专用备份桶，对象键为 备份前缀 + familyId + fileId，重复备份覆盖同一对象，操作幂等；
+ *   备份桶不能与源文件所在桶或冷层桶相同，否则一次误删或坏盘会同时丢失原件和备份
+ * - 源文件按存储数据记录的桶名和对象键读取（早期只记录目录的数据经解析器得到真实对象键），不经过本地读缓存
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class FileBackupService {
+
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${storage.backup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.backup.target-storage-type:LOCAL}")
+    private StorageType targetStorageType;
+
+    @Value("${storage.backup.bucket-name:haven-backup}")
+    private String bucketName;
+
+    @Value("${storage.backup.path-prefix:backup/}")
+    private String pathPrefix;
+
+    @Value("${storage.tiering.cold-storage-type:LOCAL}")
+    private StorageType coldStorageType;
+
+    @Value("${storage.backup.batch-size:200}")
+    private int batchSize;
+
+    @Value("${storage.backup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${storage.backup.bytes-per-second:20971520}")
+    private long bytesPerSecond;
+
+    @Value("${storage.backup.max-files-per-run:100000}")
+    private int maxFilesPerRun;
+
+    @Value("${storage.backup.stale-in-progress-minutes:60}")
+    private int staleInProgressMinutes;
+
+    public FileBackupService(FileStorageDataRepository fileStorageDataRepository,
+                             StorageOperationRegistry storageOperationRegistry,
+                             StorageObjectKeyResolver storageObjectKeyResolver,
+                             TransactionTemplate transactionTemplate) {
+        this.fileStorageDataRepository = fileStorageDataRepository;
+        this.storageOperationRegistry = storageOperationRegistry;
+        this.storageObjectKeyResolver = storageObjectKeyResolver;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 启用备份时校验目标存储可用，配置错误在启动阶段暴露，而不是把每条数据都标记为备份失败
+     */
+    @PostConstruct
+    public void validateTarget() {
+        if (!enabled) {
+            return;
+        }
+        if (!StringUtils.hasText(bucketName)) {
+            throw new IllegalStateException("备份桶名未配置: storage.backup.bucket-name");
+        }
+        if (targetStorageType == coldStorageType) {
+            log.warn("备份目标与冷层使用同一存储类型，备份写入独立的桶但可能与冷层共用磁盘: type={}, bucket={}",
+                    targetStorageType, bucketName);
+        }
+        StorageAdapter target;
+        try {
+            target = storageOperationRegistry.getStorageAdapter(targetStorageType);
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalStateException("备份目标存储类型未注册: " + targetStorageType, e);
+        }
+        if (!target.isHealthy()) {
+            throw new IllegalStateException("备份目标存储不可用: " + targetStorageType);
+        }
+    }
+
+    /**
+     * 定时增量备份
+     */
+    @Scheduled(cron = "${storage.backup.cron:0 0 2 * * ?}")
+    public void scheduledBackup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            runIncrementalBackup(maxFilesPerRun);
+        } catch (BusinessException e) {
+            log.info("跳过定时增量备份: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行一次增量备份
+     * <p>
+     * 先处理未备份的数据，再重试上次失败的数据；同一实例同一时刻只允许一个备份任务运行
+     *
+     * @param maxFiles 本次最多处理的文件数
+     * @return 备份结果
+     */
+    public BackupRunResult runIncrementalBackup(int maxFiles) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "增量备份任务正在执行中");
+        }
+
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        BackupRunResult result = new BackupRunResult();
+        result.setTargetStorageType(targetStorageType.name());
+        result.setTraceId(traceId);
+
+        ExecutorService executor = ContextPropagatingExecutorService.wrap(Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "storage-backup-worker");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        try {
+            StorageAdapter target = storageOperationRegistry.getStorageAdapter(targetStorageType);
+            if (!target.isHealthy()) {
+                // 目标不可用时不领取数据，避免整批被标记为失败
+                throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "备份目标存储不可用: " + targetStorageType);
+            }
+            ByteRateLimiter limiter = new ByteRateLimiter(bytesPerSecond);
+
+            int initialized = fileStorageDataRepository.initializeBackupStatus();
+            int reset = fileStorageDataRepository.resetStaleBackups(LocalDateTime.now().minusMinutes(staleInProgressMinutes));
+            if (initialized > 0 || reset > 0) {
+                log.info("备份状态初始化: initialized={}, resetStale={}, traceId={}", initialized, reset, traceId);
+            }
+
+            boolean pendingDone = runPass(FileStorageData.BACKUP_STATUS_NOT_BACKED_UP, maxFiles, target, limiter, executor, result, traceId);
+            boolean retryDone = pendingDone
+                    && runPass(FileStorageData.BACKUP_STATUS_FAILED, maxFiles, target, limiter, executor, result, traceId);
+            result.setCompleted(pendingDone && retryDone);
+        } catch (UnsupportedOperationException e) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "备份目标存储不可用: " + targetStorageType);
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("增量备份结束: target={}, scanned={}, backedUp={}, failed={}, bytes={}, completed={}, cost={}ms, traceId={}",
+                targetStorageType, result.getScannedFiles(), result.getBackedUpFiles(), result.getFailedFiles(),
+                result.getBytesCopied(), result.isCompleted(), result.getElapsedMillis(), traceId);
+        return result;
+    }
+
+    /**
+     * 按备份状态统计待办情况
+     */
+    public Map<String, Long> getBackupStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("notBackedUp", 0L);
+        stats.put("backedUp", 0L);
+        stats.put("inProgress", 0L);
+        stats.put("failed", 0L);
+        for (Object[] row : fileStorageDataRepository.countByBackupStatus()) {
+            if (row[0] == null) {
+                stats.merge("notBackedUp", ((Number) row[1]).longValue(), Long::sum);
+                continue;
+            }
+            String key = switch (((Number) row[0]).intValue()) {
+                case FileStorageData.BACKUP_STATUS_BACKED_UP -> "backedUp";
+                case FileStorageData.BACKUP_STATUS_IN_PROGRESS -> "inProgress";
+                case FileStorageData.BACKUP_STATUS_FAILED -> "failed";
+                default -> "notBackedUp";
+            };
+            stats.merge(key, ((Number) row[1]).longValue(), Long::sum);
+        }
+        return stats;
+    }
+
+    /**
+     * 处理一种备份状态的全部数据
+     *
+     * @return 是否已处理到末尾（未因数量上限提前结束）
+     */
+    private boolean runPass(int backupStatus, int maxFiles, StorageAdapter target, ByteRateLimiter limiter,
+                            ExecutorService executor, BackupRunResult result, String traceId) {
+        long lastId = 0;
+        while (result.getScannedFiles() < maxFiles) {
+            int limit = Math.min(batchSize, maxFiles - result.getScannedFiles());
+            List<FileStorageData> batch = claimBatch(backupStatus, lastId, limit);
+            if (batch.isEmpty()) {
+                return true;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            result.setScannedFiles(result.getScannedFiles() + batch.size());
+            copyBatch(batch, target, limiter, executor, result, traceId);
+        }
+        return false;
+    }
+
+    /**
+     * 领取一批待备份数据并置为备份中（同一事务内完成）
+     */
+    private List<FileStorageData> claimBatch(int backupStatus, long lastId, int limit) {
+        List<FileStorageData> batch = transactionTemplate.execute(status -> {
+            List<FileStorageData> rows = fileStorageDataRepository.lockBackupCandidates(backupStatus, lastId, limit);
+            if (!rows.isEmpty()) {
+                fileStorageDataRepository.updateBackupStatus(
+                        rows.stream().map(FileStorageData::getId).toList(), FileStorageData.BACKUP_STATUS_IN_PROGRESS);
+            }
+            return rows;
+        });
+        return batch != null ? batch : Collections.emptyList();
+    }
+
+    /**
+     * 并行复制一批文件，结束后批量回写状态
+     */
+    private void copyBatch(List<FileStorageData> batch, StorageAdapter target, ByteRateLimiter limiter,
+                           ExecutorService executor, BackupRunResult result, String traceId) {
+        List<Callable<Boolean>> tasks = new ArrayList<>(batch.size());
+        for (FileStorageData storageData : batch) {
+            tasks.add(() -> copyOne(storageData, target, limiter, traceId));
+        }
+
+        List<Long> succeeded = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        try {
+            List<Future<Boolean>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                FileStorageData storageData = batch.get(i);
+                if (Boolean.TRUE.equals(getQuietly(futures.get(i)))) {
+                    succeeded.add(storageData.getId());
+                    result.setBytesCopied(result.getBytesCopied() + (storageData.getFileSize() != null ? storageData.getFileSize() : 0));
+                } else {
+                    failed.add(storageData.getId());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 中断时未完成的数据由 resetStaleBackups 在下次运行时恢复
+            log.warn("增量备份被中断, traceId={}", traceId);
+        }
+
+        if (!succeeded.isEmpty()) {
+            fileStorageDataRepository.markBackedUp(succeeded, LocalDateTime.now());
+        }
+        if (!failed.isEmpty()) {
+            fileStorageDataRepository.updateBackupStatus(failed, FileStorageData.BACKUP_STATUS_FAILED);
+        }
+        result.setBackedUpFiles(result.getBackedUpFiles() + succeeded.size());
+        result.setFailedFiles(result.getFailedFiles() + failed.size());
+    }
+
+    /**
+     * 复制单个文件到备份存储并校验
+     */
+    private boolean copyOne(FileStorageData storageData, StorageAdapter target, ByteRateLimiter limiter, String traceId) {
+        String fileId = storageData.getFileId();
+        String familyId = storageData.getFamilyId();
+        if (!StringUtils.hasText(familyId)) {
+            log.warn("存储数据缺少家庭ID，跳过备份: fileId={}, traceId={}", fileId, traceId);
+            return false;
+        }
+
+        try {
+            // 绕过本地读缓存，避免全量备份把热点缓存挤出
+            StorageAdapter source = CachingStorageAdapter.unwrap(
+                    storageOperationRegistry.getStorageAdapter(StorageType.getByCode(storageData.getStorageType())));
+            if (isSameBucket(target, storageData, familyId)) {
+                log.error("备份桶与源文件或冷层桶相同，拒绝备份: fileId={}, bucket={}, traceId={}", fileId, bucketName, traceId);
+                return false;
+            }
+            String sourceKey = storageObjectKeyResolver.resolve(storageData);
+            if (sourceKey == null) {
+                log.warn("备份时无法确定源对象键: fileId={}, filePath={}, traceId={}", fileId, storageData.getFilePath(), traceId);
+                return false;
+            }
+            FileStorageInfo backupInfo = new FileStorageInfo(target.getStorageType(),
+                    bucketName, fileId,
+                    pathPrefix + familyId + "/" + fileId)
+                    .setFileId(fileId)
+                    .setFileSize(storageData.getFileSize())
+                    .setFileMd5(storageData.getFileChecksum());
+
+            try (BufferedSource input = source.openObject(storageData.getFamilyBucketName(), sourceKey)) {
+                if (input == null) {
+                    log.warn("备份时源文件不存在: fileId={}, traceId={}", fileId, traceId);
+                    return false;
+                }
+                HashingSource hashingSource = HashingSource.sha256(new ThrottledSource(input, limiter));
+                try (BufferedSource throttled = Okio.buffer(hashingSource)) {
+                    if (!target.uploadFile(backupInfo, throttled)) {
+                        log.warn("写入备份存储失败: fileId={}, target={}, traceId={}", fileId, target.getStorageType(), traceId);
+                        return false;
+                    }
+                }
+                String copiedChecksum = hashingSource.hash().hex();
+                if (StringUtils.hasText(storageData.getFileChecksum())) {
+                    if (!storageData.getFileChecksum().equalsIgnoreCase(copiedChecksum)) {
+                        log.error("备份校验和不一致: fileId={}, expected={}, actual={}, traceId={}",
+                                fileId, storageData.getFileChecksum(), copiedChecksum, traceId);
+                        return false;
+                    }
+                } else {
+                    // 顺带补齐缺失的校验和
+                    fileStorageDataRepository.updateChecksumIfAbsent(storageData.getId(), copiedChecksum);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("备份文件失败: fileId={}, error={}, traceId={}", fileId, e.getMessage(), traceId);
+            return false;
+        }
+    }
+
+    /**
+     * 备份桶是否与源文件所在桶或该家庭的冷层桶相同
+     */
+    private boolean isSameBucket(StorageAdapter target, FileStorageData storageData, String familyId) {
+        if (Objects.equals(target.getStorageType().getCode(), storageData.getStorageType())
+                && bucketName.equals(storageData.getFamilyBucketName())) {
+            return true;
+        }
+        return target.getStorageType() == coldStorageType && bucketName.equals(target.buildFamilyBucketName(familyId));
+    }
+
+    private static Boolean getQuietly(Future<Boolean> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+}
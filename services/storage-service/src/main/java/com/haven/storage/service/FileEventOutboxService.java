@@ -0,0 +1,397 @@
+package com.haven.storage.service;
+
+import com.haven.base.messaging.MessageProducer;
+import com.haven.base.utils.JsonUtil;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.StorageOutboxEvent;
+import com.haven.storage.domain.model.enums.FileEventType;
+import com.haven.storage.domain.model.file.FileLifecycleEvent;
+import com.haven.storage.repository.StorageEventConsumptionRepository;
+import com.haven.storage.repository.StorageOutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+/**
+ * 文件事件发件箱服务
+ * <p>
+ * 把上传、删除的副作用（家庭统计、搜索索引、缓存、缩略图等）移出请求事务：
+ * - 写入：业务事务内调用 append，事件与 file_metadata 同时提交或同时回滚
+ * - 领取：定时中继以 FOR UPDATE SKIP LOCKED 批量领取到期事件，并写入投递租约，多实例并发中继互不重复
+ * - 投递：依次交给进程内订阅者，再以家庭ID为分区键批量异步发布到 MessageProducer
+ * - 回写：整批成功的事件一次标记为已发布；失败的事件指数退避后重投，超过最大次数置为发布失败
+ * <p>
+ * 💡 投递语义：
+ * - 至少一次：投递后、回写前实例崩溃，租约到期后事件会被再次投递，订阅者和消息消费方须按 eventId 幂等
+ * - 顺序：按主键顺序领取，正常情况下同一家庭的事件按写入顺序投递；失败重投的事件可能落后于后续事件
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class FileEventOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String SOURCE_SERVICE = "storage-service";
+
+    private final StorageOutboxEventRepository outboxEventRepository;
+    private final StorageEventConsumptionRepository eventConsumptionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<FileEventSubscriber> subscriberProvider;
+    private final ObjectProvider<MessageProducer> messageProducerProvider;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile long lastPurgeMillis;
+
+    private final Counter publishedCounter;
+    private final Counter retryCounter;
+    private final Counter failedCounter;
+
+    @Value("${storage.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${storage.outbox.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    @Value("${storage.outbox.lease-seconds:60}")
+    private int leaseSeconds;
+
+    @Value("${storage.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${storage.outbox.initial-backoff-millis:1000}")
+    private long initialBackoffMillis;
+
+    @Value("${storage.outbox.max-backoff-millis:300000}")
+    private long maxBackoffMillis;
+
+    @Value("${storage.outbox.publish-to-broker:true}")
+    private boolean publishToBroker;
+
+    @Value("${storage.outbox.broker-timeout-millis:5000}")
+    private long brokerTimeoutMillis;
+
+    @Value("${storage.outbox.retention-hours:72}")
+    private int retentionHours;
+
+    @Value("${storage.outbox.purge-interval-millis:600000}")
+    private long purgeIntervalMillis;
+
+    public FileEventOutboxService(StorageOutboxEventRepository outboxEventRepository,
+                                  StorageEventConsumptionRepository eventConsumptionRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectProvider<FileEventSubscriber> subscriberProvider,
+                                  ObjectProvider<MessageProducer> messageProducerProvider,
+                                  MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventConsumptionRepository = eventConsumptionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.subscriberProvider = subscriberProvider;
+        this.messageProducerProvider = messageProducerProvider;
+        this.publishedCounter = Counter.builder("storage.outbox.events").tag("result", "published").register(meterRegistry);
+        this.retryCounter = Counter.builder("storage.outbox.events").tag("result", "retry").register(meterRegistry);
+        this.failedCounter = Counter.builder("storage.outbox.events").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * 在当前业务事务中写入文件事件
+     * <p>
+     * 必须在已有事务中调用，保证事件与文件元数据原子提交；事务回滚时事件随之消失。
+     *
+     * @param eventType      事件类型
+     * @param metadata       文件元数据
+     * @param operatorUserId 触发事件的用户
+     * @return 写入的事件内容
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public FileLifecycleEvent append(FileEventType eventType, FileMetadata metadata, String operatorUserId) {
+        LocalDateTime now = LocalDateTime.now();
+
+        FileLifecycleEvent event = new FileLifecycleEvent();
+        event.setEventId(UUID.randomUUID().toString().replace("-", ""));
+        event.setEventType(eventType);
+        event.setFileId(metadata.getFileId());
+        event.setFamilyId(metadata.getFamilyId());
+        event.setOperatorUserId(operatorUserId);
+        event.setOriginalName(metadata.getOriginalName());
+        event.setFolderPath(metadata.getFolderPath());
+        event.setFileSize(metadata.getFileSize());
+        event.setFileType(metadata.getFileType());
+        event.setContentType(metadata.getContentType());
+        event.setOccurredTime(now);
+        event.setTraceId(TraceIdUtil.getCurrentOrGenerate());
+
+        StorageOutboxEvent outboxEvent = new StorageOutboxEvent();
+        outboxEvent.setEventId(event.getEventId());
+        outboxEvent.setEventType(eventType);
+        outboxEvent.setFileId(event.getFileId());
+        outboxEvent.setFamilyId(event.getFamilyId());
+        outboxEvent.setPayload(JsonUtil.toJson(event));
+        outboxEvent.setTraceId(event.getTraceId());
+        outboxEvent.setStatus(StorageOutboxEvent.STATUS_PENDING);
+        outboxEvent.setAttempts(0);
+        outboxEvent.setNextAttemptTime(now);
+        outboxEventRepository.save(outboxEvent);
+
+        log.debug("文件事件已写入发件箱: eventId={}, type={}, fileId={}, family={}",
+                event.getEventId(), eventType, event.getFileId(), event.getFamilyId());
+        return event;
+    }
+
+    /**
+     * 定时中继
+     */
+    @Scheduled(fixedDelayString = "${storage.outbox.poll-interval-millis:500}",
+               initialDelayString = "${storage.outbox.initial-delay-millis:10000}")
+    public void scheduledRelay() {
+        if (!enabled) {
+            return;
+        }
+        relay();
+    }
+
+    /**
+     * 执行一轮中继：连续领取批次直到没有到期事件或达到单轮批次上限
+     *
+     * @return 本轮发布成功的事件数（已有中继在运行时返回0）
+     */
+    public int relay() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int published = 0;
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                BatchOutcome outcome = relayBatch();
+                published += outcome.published();
+                if (outcome.claimed() < batchSize) {
+                    break;
+                }
+            }
+            purgePublishedIfDue();
+            return published;
+        } catch (Exception e) {
+            log.error("发件箱中继异常: error={}", e.getMessage(), e);
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 领取、投递并回写一批事件
+     */
+    private BatchOutcome relayBatch() {
+        List<StorageOutboxEvent> events = claimBatch();
+        if (events.isEmpty()) {
+            return new BatchOutcome(0, 0);
+        }
+
+        // 1. 解析事件并投递给进程内订阅者
+        List<Delivery> delivered = new ArrayList<>(events.size());
+        Map<StorageOutboxEvent, String> failures = new IdentityHashMap<>();
+        List<FileEventSubscriber> subscribers = subscriberProvider.orderedStream().toList();
+        for (StorageOutboxEvent outboxEvent : events) {
+            try {
+                FileLifecycleEvent event = JsonUtil.fromJson(outboxEvent.getPayload(), FileLifecycleEvent.class);
+                dispatchToSubscribers(subscribers, event);
+                delivered.add(new Delivery(outboxEvent, event));
+            } catch (Exception e) {
+                failures.put(outboxEvent, "订阅者处理失败: " + e.getMessage());
+            }
+        }
+
+        // 2. 批量异步发布到消息中间件，再统一等待结果
+        MessageProducer producer = publishToBroker ? messageProducerProvider.getIfAvailable() : null;
+        if (producer != null && !delivered.isEmpty()) {
+            List<CompletableFuture<MessageProducer.SendResult>> sends = new ArrayList<>(delivered.size());
+            for (Delivery delivery : delivered) {
+                FileLifecycleEvent event = delivery.event();
+                sends.add(producer.sendAsync(event.getEventType().getTopic(), event.getFamilyId(), event,
+                        buildMessageProperties(delivery.outboxEvent())));
+            }
+            for (int i = 0; i < sends.size(); i++) {
+                String error = awaitSend(sends.get(i));
+                if (error != null) {
+                    failures.put(delivered.get(i).outboxEvent(), error);
+                }
+            }
+        }
+
+        // 3. 回写结果
+        List<Long> publishedIds = new ArrayList<>();
+        for (StorageOutboxEvent outboxEvent : events) {
+            if (!failures.containsKey(outboxEvent)) {
+                publishedIds.add(outboxEvent.getId());
+            }
+        }
+        recordOutcome(publishedIds, failures);
+        return new BatchOutcome(events.size(), publishedIds.size());
+    }
+
+    /**
+     * 领取一批到期事件，并在同一事务中写入投递租约
+     */
+    private List<StorageOutboxEvent> claimBatch() {
+        List<StorageOutboxEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<StorageOutboxEvent> locked = outboxEventRepository.lockPublishableEvents(now, batchSize);
+            if (locked.isEmpty()) {
+                return locked;
+            }
+            LocalDateTime leaseExpireTime = now.plusSeconds(leaseSeconds);
+            for (StorageOutboxEvent event : locked) {
+                event.setAttempts(event.getAttempts() + 1);
+                event.setNextAttemptTime(leaseExpireTime);
+            }
+            return outboxEventRepository.saveAll(locked);
+        });
+        return events != null ? events : Collections.emptyList();
+    }
+
+    private void dispatchToSubscribers(List<FileEventSubscriber> subscribers, FileLifecycleEvent event) {
+        for (FileEventSubscriber subscriber : subscribers) {
+            if (subscriber.supports(event.getEventType())) {
+                subscriber.onFileEvent(event);
+            }
+        }
+    }
+
+    private Map<String, Object> buildMessageProperties(StorageOutboxEvent outboxEvent) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(MessageProducer.MessageProperties.TRACE_ID, outboxEvent.getTraceId());
+        properties.put(MessageProducer.MessageProperties.EVENT_TYPE, outboxEvent.getEventType().name());
+        properties.put(MessageProducer.MessageProperties.CORRELATION_ID, outboxEvent.getEventId());
+        properties.put(MessageProducer.MessageProperties.RETRY_COUNT, outboxEvent.getAttempts() - 1);
+        properties.put(MessageProducer.MessageProperties.SOURCE_SERVICE, SOURCE_SERVICE);
+        return properties;
+    }
+
+    /**
+     * 等待单条消息发布结果
+     *
+     * @return 失败原因，成功时返回null
+     */
+    private String awaitSend(CompletableFuture<MessageProducer.SendResult> future) {
+        try {
+            MessageProducer.SendResult result = future.get(brokerTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (result == null || result.isFailure()) {
+                Throwable error = result != null ? result.getError() : null;
+                return "消息发布失败: " + (error != null ? error.getMessage() : "未知错误");
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "消息发布被中断";
+        } catch (Exception e) {
+            future.cancel(true);
+            return "消息发布失败: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 回写一批投递结果：成功的批量标记为已发布，失败的按投递次数退避或置为发布失败
+     */
+    private void recordOutcome(List<Long> publishedIds, Map<StorageOutboxEvent, String> failures) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!publishedIds.isEmpty()) {
+                outboxEventRepository.markPublished(publishedIds, now);
+            }
+            failures.forEach((event, error) -> {
+                boolean exhausted = event.getAttempts() >= maxAttempts;
+                int nextStatus = exhausted ? StorageOutboxEvent.STATUS_FAILED : StorageOutboxEvent.STATUS_PENDING;
+                LocalDateTime nextAttemptTime = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis(event.getAttempts())));
+                outboxEventRepository.markAttemptFailed(event.getId(), nextStatus, nextAttemptTime, truncate(error));
+            });
+        });
+
+        publishedCounter.increment(publishedIds.size());
+        failures.forEach((event, error) -> {
+            if (event.getAttempts() >= maxAttempts) {
+                failedCounter.increment();
+                log.error("文件事件发布失败且已达最大投递次数: eventId={}, type={}, fileId={}, attempts={}, error={}",
+                        event.getEventId(), event.getEventType(), event.getFileId(), event.getAttempts(), error);
+            } else {
+                retryCounter.increment();
+                log.warn("文件事件发布失败，稍后重投: eventId={}, type={}, fileId={}, attempts={}, error={}",
+                        event.getEventId(), event.getEventType(), event.getFileId(), event.getAttempts(), error);
+            }
+        });
+    }
+
+    /**
+     * 指数退避：initial * 2^(attempts-1)，不超过上限
+     */
+    private long backoffMillis(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(maxBackoffMillis, initialBackoffMillis << shift);
+    }
+
+    /**
+     * 按清理间隔分批删除超过保留期的已发布事件和订阅者消费记录
+     */
+    private void purgePublishedIfDue() {
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis - lastPurgeMillis < purgeIntervalMillis) {
+            return;
+        }
+        lastPurgeMillis = nowMillis;
+
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        int limit = batchSize * 10;
+        int events = deleteInBatches(() -> outboxEventRepository.deletePublishedBefore(before, limit), limit);
+        int consumptions = deleteInBatches(() -> eventConsumptionRepository.deleteConsumedBefore(before, limit), limit);
+
+        if (events > 0 || consumptions > 0) {
+            log.info("清理过期发件箱数据: events={}, consumptions={}, before={}", events, consumptions, before);
+        }
+    }
+
+    private int deleteInBatches(IntSupplier deleteBatch, int limit) {
+        int total = 0;
+        Integer deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> deleteBatch.getAsInt());
+            total += deleted != null ? deleted : 0;
+        } while (deleted != null && deleted >= limit);
+        return total;
+    }
+
+    private String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private record Delivery(StorageOutboxEvent outboxEvent, FileLifecycleEvent event) {
+    }
+
+    private record BatchOutcome(int claimed, int published) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.haven.storage.service;
+
+import com.haven.storage.domain.model.enums.FileEventType;
+import com.haven.storage.domain.model.file.FileLifecycleEvent;
+
+/**
+ * 文件生命周期事件的进程内订阅者
+ * <p>
+ * 由发件箱中继在上传、删除事务提交之后调用，实现类声明为 Spring Bean 即自动注册。
+ * <p>
+ * 💡 实现约定：
+ * - 投递语义为至少一次：同批中任一订阅者或消息发布失败，整条事件会重投给所有订阅者，实现必须幂等
+ * - 抛出异常表示处理失败，事件按退避重投；不可恢复的错误应自行记录并正常返回
+ * - 在中继线程中同步执行，耗时操作应自行转入异步
+ *
+ * @author HavenButler
+ */
+public interface FileEventSubscriber {
+
+    /**
+     * 是否处理该类型的事件，默认处理全部
+     */
+    default boolean supports(FileEventType eventType) {
+        return true;
+    }
+
+    /**
+     * 处理事件
+     *
+     * @param event 事件内容
+     */
+    void onFileEvent(FileLifecycleEvent event);
+}
@@ -0,0 +1,215 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.exception.ValidationException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileProcessingTask;
+import com.haven.storage.domain.model.enums.ProcessingTaskType;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileProcessingTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 文件后处理任务队列服务
+ * <p>
+ * 为 OCR、缩略图等后处理工作进程提供可水平扩展的任务队列：
+ * - 上传完成时幂等入队，历史文件分批补入队列
+ * - 工作进程通过 FOR UPDATE SKIP LOCKED 批量领取任务，领取与租约写入在同一事务内完成
+ * - 租约期内任务对其他工作进程不可见，超时未上报则自动重新可领取
+ * - 完成/失败/续期均校验租约持有者，租约丢失的迟到上报会被拒绝
+ * <p>
+ * 💡 工作进程约定：
+ * - 领取后在租约到期前上报结果，长任务定期调用续期
+ * - 处理逻辑需幂等：租约超时后任务可能被其他进程重复处理
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileProcessingTaskService {
+
+    /** OCR完成后写入文件的标签，与历史数据保持一致 */
+    public static final String OCR_PROCESSED_TAG = "ocr_processed";
+
+    private final FileProcessingTaskRepository fileProcessingTaskRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+
+    @Value("${storage.processing.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${storage.processing.default-lease-seconds:300}")
+    private int defaultLeaseSeconds;
+
+    @Value("${storage.processing.max-lease-seconds:3600}")
+    private int maxLeaseSeconds;
+
+    @Value("${storage.processing.max-claim-size:100}")
+    private int maxClaimSize;
+
+    /**
+     * 为文件创建后处理任务（已存在时忽略）
+     *
+     * @return 是否新建了任务
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean enqueue(String fileId, String familyId, ProcessingTaskType taskType) {
+        int inserted = fileProcessingTaskRepository.enqueueIfAbsent(
+                generateTaskId(), fileId, familyId, taskType.name(), maxAttempts);
+        if (inserted > 0) {
+            log.debug("后处理任务已入队: fileId={}, taskType={}", fileId, taskType);
+        }
+        return inserted > 0;
+    }
+
+    /**
+     * 将尚未入队的历史OCR候选文件分批补入队列
+     *
+     * @param limit 本次最多入队数量
+     * @return 实际入队数量
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int enqueuePendingOcrFiles(int limit) {
+        int enqueued = fileProcessingTaskRepository.enqueuePendingOcrFiles(maxAttempts, limit);
+        log.info("历史OCR候选文件入队完成: enqueued={}, traceId={}", enqueued, TraceIdUtil.getCurrentOrGenerate());
+        return enqueued;
+    }
+
+    /**
+     * 批量领取任务
+     *
+     * @param taskType     任务类型
+     * @param workerId     工作进程ID
+     * @param limit        最多领取数量
+     * @param leaseSeconds 租约时长（秒），小于等于0时使用默认值
+     * @return 领取到的任务，可能为空
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<FileProcessingTask> claim(ProcessingTaskType taskType, String workerId, int limit, int leaseSeconds) {
+        requireWorkerId(workerId);
+        int batchSize = Math.max(1, Math.min(limit, maxClaimSize));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseExpireTime = now.plusSeconds(resolveLeaseSeconds(leaseSeconds));
+
+        // 租约超时且已用尽次数的任务不再可领取，顺带标记为失败
+        fileProcessingTaskRepository.failExhaustedExpiredLeases(now);
+
+        List<FileProcessingTask> tasks = fileProcessingTaskRepository.lockClaimableTasks(taskType.name(), now, batchSize);
+        for (FileProcessingTask task : tasks) {
+            task.setStatus(FileProcessingTask.STATUS_LEASED);
+            task.setWorkerId(workerId);
+            task.setLeaseExpireTime(leaseExpireTime);
+            task.setAttempts(task.getAttempts() + 1);
+        }
+        fileProcessingTaskRepository.saveAll(tasks);
+
+        log.info("后处理任务领取完成: taskType={}, workerId={}, requested={}, claimed={}, leaseExpireTime={}",
+                taskType, workerId, limit, tasks.size(), leaseExpireTime);
+        return tasks;
+    }
+
+    /**
+     * 续期租约
+     *
+     * @throws BusinessException 租约已丢失时
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public LocalDateTime heartbeat(String taskId, String workerId, int leaseSeconds) {
+        requireWorkerId(workerId);
+        LocalDateTime leaseExpireTime = LocalDateTime.now().plusSeconds(resolveLeaseSeconds(leaseSeconds));
+        if (fileProcessingTaskRepository.extendLease(taskId, workerId, leaseExpireTime) == 0) {
+            throw leaseLost(taskId, workerId);
+        }
+        return leaseExpireTime;
+    }
+
+    /**
+     * 上报任务完成
+     *
+     * @throws BusinessException 租约已丢失时
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void complete(String taskId, String workerId, String resultPayload) {
+        requireWorkerId(workerId);
+        FileProcessingTask task = fileProcessingTaskRepository.findByTaskId(taskId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.DATA_NOT_FOUND, "任务不存在: " + taskId));
+        if (fileProcessingTaskRepository.markCompleted(taskId, workerId, resultPayload) == 0) {
+            throw leaseLost(taskId, workerId);
+        }
+        if (task.getTaskType() == ProcessingTaskType.OCR) {
+            fileMetadataRepository.addTagIfAbsent(task.getFileId(), OCR_PROCESSED_TAG);
+        }
+        log.info("后处理任务完成: taskId={}, fileId={}, taskType={}, workerId={}",
+                taskId, task.getFileId(), task.getTaskType(), workerId);
+    }
+
+    /**
+     * 上报任务失败，未超过最大领取次数时任务重新排队
+     *
+     * @throws BusinessException 租约已丢失时
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void fail(String taskId, String workerId, String error) {
+        requireWorkerId(workerId);
+        String truncatedError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (fileProcessingTaskRepository.markFailed(taskId, workerId, truncatedError) == 0) {
+            throw leaseLost(taskId, workerId);
+        }
+        log.warn("后处理任务失败: taskId={}, workerId={}, error={}", taskId, workerId, truncatedError);
+    }
+
+    /**
+     * 按状态统计队列积压情况
+     */
+    public Map<String, Long> getQueueStats(ProcessingTaskType taskType) {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("pending", 0L);
+        stats.put("leased", 0L);
+        stats.put("completed", 0L);
+        stats.put("failed", 0L);
+        for (Object[] row : fileProcessingTaskRepository.countByStatus(taskType)) {
+            int status = ((Number) row[0]).intValue();
+            long count = ((Number) row[1]).longValue();
+            switch (status) {
+                case FileProcessingTask.STATUS_PENDING -> stats.put("pending", count);
+                case FileProcessingTask.STATUS_LEASED -> stats.put("leased", count);
+                case FileProcessingTask.STATUS_COMPLETED -> stats.put("completed", count);
+                case FileProcessingTask.STATUS_FAILED -> stats.put("failed", count);
+                default -> { }
+            }
+        }
+        return stats;
+    }
+
+    private int resolveLeaseSeconds(int leaseSeconds) {
+        int seconds = leaseSeconds > 0 ? leaseSeconds : defaultLeaseSeconds;
+        return Math.min(seconds, maxLeaseSeconds);
+    }
+
+    private void requireWorkerId(String workerId) {
+        if (!StringUtils.hasText(workerId)) {
+            throw new ValidationException("workerId", "工作进程ID不能为空");
+        }
+    }
+
+    private BusinessException leaseLost(String taskId, String workerId) {
+        log.warn("任务租约已丢失: taskId={}, workerId={}", taskId, workerId);
+        return new BusinessException(ErrorCode.STATUS_ERROR, "任务租约已过期或已被其他工作进程持有: " + taskId);
+    }
+
+    private String generateTaskId() {
+        return "task_" + UUID.randomUUID().toString().replace("-", "");
+    }
+}
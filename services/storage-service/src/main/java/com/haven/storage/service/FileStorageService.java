@@ -5,19 +5,36 @@ import com.haven.base.common.exception.AuthException;
 import com.haven.base.common.exception.BusinessException;
 import com.haven.base.common.exception.ValidationException;
 import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.bulkhead.UploadBulkhead;
+import com.haven.storage.bulkhead.UploadPermit;
+import com.haven.storage.bulkhead.UploadRejectedException;
+import com.haven.storage.operation.database.FileMetadataCache;
+import com.haven.storage.operation.storage.PresignedUrlCache;
 import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
 import com.haven.storage.domain.builder.FileMetadataBuilder;
 import com.haven.storage.domain.model.entity.FamilyStorageStats;
 import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
 import com.haven.storage.domain.model.file.*;
+import com.haven.storage.domain.model.enums.FileEventType;
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.StorageType;
 import com.haven.storage.exception.FileUploadException;
+import com.haven.storage.permission.CompiledPermissionMatrix;
 import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.service.converter.FileStorageDataMapper;
 import com.haven.storage.utils.FileUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -62,6 +79,18 @@ public class FileStorageService {
     // 家庭存储统计服务
     private final FamilyStorageStatsService familyStorageStatsService;
 
+    // 文件访问URL相关：存储数据查询、存储适配器注册表和预签名URL缓存
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final FileStorageDataMapper fileStorageDataMapper;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+    private final PresignedUrlCache presignedUrlCache;
+    private final FileMetadataCache fileMetadataCache;
+    private final StorageTieringService storageTieringService;
+    private final UploadBulkhead uploadBulkhead;
+    private final FileEventOutboxService fileEventOutboxService;
+    private final TransactionTemplate transactionTemplate;
+
     // ==================== 文件上传下载核心功能 ====================
 
     /**
@@ -79,13 +108,15 @@ public class FileStorageService {
      * - 高性能：Redis缓存提升查询性能
      * - 数据安全：PostgreSQL持久化保证数据不丢失
      * - 分布式：支持水平扩展和负载均衡
+     * <p>
+     * 隔离舱许可在事务外申请：排队等待许可的请求不占用数据库连接，
+     * 取得许可后才开启事务保存元数据和上传物理文件。
      *
      * @param request 文件上传请求
      * @return 包含文件信息的上传结果
      * @throws FileUploadException 当上传过程中发生异常时抛出
      */
     @TraceLog(value = "文件上传", module = "unified-file", type = "UPLOAD")
-    @Transactional
     public FileMetadata completeFileUpload(FileUploadRequest request) {
         String traceId = TraceIdUtil.getCurrentOrGenerate();
 
@@ -98,34 +129,41 @@ public class FileStorageService {
         try {
             // 1. 验证上传请求（参数、权限、文件格式等）
             unifiedFileValidator.validateUploadRequest(request);
-            // 2. 构建文件元数据（生成ID、设置默认值等）
-            FileMetadata fileMetadata = metadataBuilder.buildFromRequest(request, getCurrentStorageType());
-            // 3. 保存文件元数据到PostgreSQL（事务内）
-            fileMetadata = saveFileMetadata(fileMetadata);
-            // 4. 使用存储适配器上传物理文件到MinIO
-            FileUploadResult storageResult = storageAdapter.uploadFile(fileMetadata, request.getFile());
-            if (!storageResult.isSuccess()) {
-                // 物理文件上传失败，事务会回滚自动清理元数据
-                throw new FileUploadException("物理文件上传失败: " + storageResult.getErrorMessage(), request.getFamilyId(), request.getUploaderUserId(), request.getOriginalFileName());
+            // 2. 申请家庭上传隔离舱许可，超限时快速拒绝并告知重试时间
+            long fileSize = request.getFile() != null ? request.getFile().getSize() : 0;
+            try (UploadPermit ignored = uploadBulkhead.acquire(request.getFamilyId(), fileSize)) {
+                // 3-8. 取得许可后在事务内保存元数据、上传物理文件并写入上传事件
+                return transactionTemplate.execute(status -> {
+                    // 3. 构建文件元数据（生成ID、设置默认值等）
+                    FileMetadata fileMetadata = metadataBuilder.buildFromRequest(request, getCurrentStorageType());
+                    // 4. 保存文件元数据到PostgreSQL（事务内）
+                    fileMetadata = saveFileMetadata(fileMetadata);
+                    // 5. 使用存储适配器上传物理文件到MinIO
+                    FileUploadResult storageResult = storageAdapter.uploadFile(fileMetadata, request.getFile());
+                    if (!storageResult.isSuccess()) {
+                        // 物理文件上传失败，事务会回滚自动清理元数据
+                        throw new FileUploadException("物理文件上传失败: " + storageResult.getErrorMessage(), request.getFamilyId(), request.getUploaderUserId(), request.getOriginalFileName());
+                    }
+                    // 6. 更新最终元数据（可能包含存储路径等信息）
+                    fileMetadata = updateFileMetadata(storageResult.getFileMetadata());
+                    // 7. 缓存文件元数据到Redis（提升后续查询性能）
+                    // cacheService.cacheFileMetadata(fileMetadata);
+                    // 8. 同事务写入上传事件，家庭统计等副作用由发件箱中继在提交后异步处理
+                    fileEventOutboxService.append(FileEventType.FILE_UPLOADED, fileMetadata, request.getUploaderUserId());
+
+                    // 9. 清理家庭相关缓存（因为文件列表发生变化）
+                    // 清理所有缓存以确保数据一致性
+                    // cacheService.evictFileMetadata(fileMetadata.getFileId());
+                    // cacheService.evictAllCache();
+
+                    log.info("文件上传完成: fileId={}, fileName={}, family={}, traceId={}",
+                            fileMetadata.getFileId(), fileMetadata.getOriginalFileName(),
+                            fileMetadata.getFamilyId(), traceId);
+                    return fileMetadata;
+                });
             }
-            // 5. 更新最终元数据（可能包含存储路径等信息）
-            fileMetadata = updateFileMetadata(storageResult.getFileMetadata());
-            // 6. 缓存文件元数据到Redis（提升后续查询性能）
-            // cacheService.cacheFileMetadata(fileMetadata);
-            // 7. 更新家庭存储统计信息（文件上传成功）
-            familyStorageStatsService.onFileUploaded(fileMetadata);
-
-            // 8. 清理家庭相关缓存（因为文件列表发生变化）
-            // 清理所有缓存以确保数据一致性
-            // cacheService.evictFileMetadata(fileMetadata.getFileId());
-            // cacheService.evictAllCache();
-
-            log.info("文件上传完成: fileId={}, fileName={}, family={}, traceId={}",
-                    fileMetadata.getFileId(), fileMetadata.getOriginalFileName(),
-                    fileMetadata.getFamilyId(), traceId);
-            return fileMetadata;
 
-        } catch (ValidationException | AuthException | BusinessException e) {
+        } catch (ValidationException | AuthException | BusinessException | UploadRejectedException e) {
             // 业务异常，重新抛出由全局异常处理器处理
             throw e;
 
@@ -151,11 +189,24 @@ public class FileStorageService {
      * 2. 先从缓存中获取文件的元数据，没有的话在数据库中查询
      * 3. 通过用户ID或家庭ID去匹配文件，校验当前用户是否有权限读取此文件
      * 4. 对于元数据进行判断是否存在存储的信息，物理存储的地址的进行判断
-     * 5. 通过storageAdapter适配去寻找和文件，使用存储适配器下载物理文件（支持流式传输）
+     * 5. 按存储数据记录的存储类型和位置（桶名、对象键）读取物理文件（支持流式传输）
      * 6. 返回包含文件资源和元数据的下载结果
      */
-    @TraceLog(value = "下载家庭文件", module = "unified-file", type = "DOWNLOAD")
     public FileDownloadResult downloadFile(String fileId, String familyId) {
+        return downloadFile(fileId, familyId, Collections.emptyList(), -1);
+    }
+
+    /**
+     * 下载家庭文件 - 支持条件请求
+     * <p>
+     * 在权限校验之后、读取物理文件之前评估 If-None-Match / If-Modified-Since，
+     * 命中时返回 notModified 结果，重新验证只需一次元数据查询，不读取对象存储。
+     *
+     * @param ifNoneMatch     请求头 If-None-Match 中的实体标签，可为空
+     * @param ifModifiedSince 请求头 If-Modified-Since（毫秒），未携带时为-1
+     */
+    @TraceLog(value = "下载家庭文件", module = "unified-file", type = "DOWNLOAD")
+    public FileDownloadResult downloadFile(String fileId, String familyId, List<String> ifNoneMatch, long ifModifiedSince) {
         String traceId = TraceIdUtil.getCurrentOrGenerate();
 
         try {
@@ -184,16 +235,37 @@ public class FileStorageService {
                 return FileDownloadResult.failure("文件存储信息不完整或已损坏");
             }
 
-            // 5. 通过storageAdapter适配去寻找和文件，使用存储适配器下载物理文件
-            FileDownloadResult storageResult = storageAdapter.downloadFile(fileId, metadata.getFamilyId());
+            // 5. 条件请求：客户端缓存仍有效时直接返回，不读取物理文件
+            if (isNotModified(metadata, ifNoneMatch, ifModifiedSince)) {
+                log.debug("文件未修改，返回304: fileId={}, traceId={}", fileId, traceId);
+                return FileDownloadResult.notModified(metadata, traceId);
+            }
+
+            // 6. 按存储数据记录的存储类型和位置读取物理文件（分层迁移、分片布局后文件可能不在默认存储和家庭桶）
+            FileStorageData storageData = findAvailableStorageData(fileId);
+            if (storageData == null) {
+                return FileDownloadResult.failure("文件存储信息不存在");
+            }
+            String objectKey = storageObjectKeyResolver.resolve(storageData, metadata);
+            if (objectKey == null) {
+                return FileDownloadResult.failure("文件存储信息不完整或已损坏");
+            }
+            StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(StorageType.getByCode(storageData.getStorageType()));
+            BufferedSource content = adapter.openObject(storageData.getFamilyBucketName(), objectKey);
+            if (content == null) {
+                return FileDownloadResult.error("物理文件不存在", traceId);
+            }
+            FileDownloadResult storageResult = FileDownloadResult.success(content.inputStream(),
+                    metadata.getOriginalName(), metadata.getContentType(), traceId);
             storageResult.setFileMetadata(metadata);
-            // 6. 更新访问统计
+            // 7. 更新访问统计，冷层文件触发异步升热
             updateAccessStatsAsync(metadata);
+            storageTieringService.onFileAccessed(fileId);
             log.info("文件下载成功: fileId={}", storageResult);
             return storageResult;
         } catch (Exception e) {
-            log.error("文件下载失败: fileId={}, familyId={}, storageType={}, error={}, traceId={}",
-                    fileId, familyId, storageAdapter.getStorageType(), e.getMessage(), traceId, e);
+            log.error("文件下载失败: fileId={}, familyId={}, error={}, traceId={}",
+                    fileId, familyId, e.getMessage(), traceId, e);
             return FileDownloadResult.failure("文件下载失败: " + e.getMessage());
         }
     }
@@ -224,22 +296,37 @@ public class FileStorageService {
                 return FileDeleteResult.failure("无权限删除此文件");
             }
 
-            // 3. 使用存储适配器删除物理文件
-            boolean deleted = storageAdapter.deleteFile(fileId, familyId);
+            // 3. 按存储数据记录的存储类型和位置删除物理文件
+            FileStorageData storageData = findAvailableStorageData(fileId);
+            if (storageData == null) {
+                return FileDeleteResult.failure("文件存储信息不存在");
+            }
+            String objectKey = storageObjectKeyResolver.resolve(storageData, metadata);
+            if (objectKey == null) {
+                return FileDeleteResult.failure("文件存储信息不完整或已损坏");
+            }
+            StorageType storageType = StorageType.getByCode(storageData.getStorageType());
+            StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(storageType);
+            // 记录完整对象键的文件按 fileId 删除，适配器会一并清理布局迁移期间另一布局中的副本
+            boolean deleted = objectKey.equals(storageData.getFilePath())
+                    ? adapter.deleteFile(fileId, metadata.getFamilyId())
+                    : adapter.deleteObject(storageData.getFamilyBucketName(), objectKey);
 
             if (deleted) {
                 // 4. 软删除元数据到PostgreSQL（事务内）
                 softDeleteFileMetadataInDatabase(fileId);
 
-                // 5. 更新家庭存储统计信息（文件删除）
-                familyStorageStatsService.onFileDeleted(metadata);
+                // 5. 同事务写入删除事件，家庭统计等副作用由发件箱中继在提交后异步处理
+                fileEventOutboxService.append(FileEventType.FILE_DELETED, metadata, userId);
 
                 // 6. 清理Redis相关缓存
                 // cacheService.evictFileMetadata(fileId);
                 // cacheService.evictAllCache();
+                presignedUrlCache.invalidate(familyId, fileId);
+                fileMetadataCache.invalidate(fileId);
 
                 log.info("文件删除成功: family={}, fileId={}, storageType={}, traceId={}",
-                        familyId, fileId, storageAdapter.getStorageType(), traceId);
+                        familyId, fileId, storageType, traceId);
 
                 return FileDeleteResult.success(metadata.getOriginalName(), traceId);
             } else {
@@ -247,8 +334,8 @@ public class FileStorageService {
             }
 
         } catch (Exception e) {
-            log.error("文件删除失败: family={}, fileId={}, storageType={}, error={}, traceId={}",
-                    familyId, fileId, storageAdapter.getStorageType(), e.getMessage(), traceId);
+            log.error("文件删除失败: family={}, fileId={}, error={}, traceId={}",
+                    familyId, fileId, e.getMessage(), traceId);
             return FileDeleteResult.failure("文件删除失败: " + e.getMessage());
         }
     }
@@ -259,12 +346,13 @@ public class FileStorageService {
      * 获取家庭文件列表
      */
     @TraceLog(value = "获取家庭文件列表", module = "unified-file", type = "LIST")
+    @Transactional(readOnly = true)
     public FamilyFileList getFamilyFiles(String familyId, String folderPath) {
         String traceId = TraceIdUtil.getCurrentOrGenerate();
 
         try {
-            // 从PostgreSQL获取所有未删除的家庭文件
-            List<FileMetadata> allFiles = fileMetadataRepository.findActiveFilesByFamily(familyId);
+            // 从PostgreSQL获取所有未删除的家庭文件，并一次性过滤掉当前用户无权查看的文件
+            List<FileMetadata> allFiles = filterViewableFiles(fileMetadataRepository.findActiveFilesByFamily(familyId));
             log.info("获取到家庭文件总数: familyId={}, allFiles.size={}, folderPath={}, traceId={}",
                     familyId, allFiles.size(), folderPath, traceId);
             allFiles.forEach(file -> log.debug("文件路径信息: fileId={}, folderPath={}, originalName={}, traceId={}",
@@ -361,10 +449,7 @@ public class FileStorageService {
     private List<FileMetadata> searchFilesFromDatabase(String familyId, String keyword) {
         try {
             // 使用PostgreSQL的全文搜索功能
-            return fileMetadataRepository.searchFiles(familyId, keyword, null)
-                    .getContent()
-                    .stream()
-                    .toList();
+            return filterViewableFiles(fileMetadataRepository.searchFiles(familyId, keyword, null).getContent());
 
         } catch (Exception e) {
             log.error("数据库搜索失败: familyId={}, keyword={}, error={}", familyId, keyword, e.getMessage());
@@ -372,6 +457,117 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * 批量获取文件元数据
+     * <p>
+     * 面向相册等一次渲染大量文件的场景，代替逐个文件查询元数据和存储数据：
+     * - 优先读取本地元数据缓存，未命中的文件用两次IN查询加载元数据（含标签）和存储数据
+     * - 合并后使用编译后的权限矩阵一次性过滤当前用户无权查看的文件
+     * - 查询结果回填本地缓存，后续翻页、刷新直接命中
+     *
+     * @param fileIds  文件ID列表
+     * @param familyId 家庭ID
+     * @return 按请求顺序排列的文件详情，不存在或无权限的文件列入 missingFileIds
+     */
+    @TraceLog(value = "批量获取文件元数据", module = "unified-file", type = "BATCH_GET")
+    @Transactional(readOnly = true)
+    public FileMetadataBatchResult getFileMetadataBatch(List<String> fileIds, String familyId) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        Set<String> distinctFileIds = new LinkedHashSet<>(fileIds);
+
+        // 1. 读取本地缓存
+        Map<String, FileMetadata> metadataById = new HashMap<>();
+        Map<String, FileStorageData> storageById = new HashMap<>();
+        List<String> cacheMisses = new ArrayList<>();
+        for (String fileId : distinctFileIds) {
+            FileMetadataCache.CachedFile cached = fileMetadataCache.getIfPresent(fileId);
+            if (cached != null && familyId.equals(cached.metadata().getFamilyId()) && cached.metadata().isActiveFile()) {
+                metadataById.put(fileId, cached.metadata());
+                if (cached.storageData() != null) {
+                    storageById.put(fileId, cached.storageData());
+                }
+            } else {
+                cacheMisses.add(fileId);
+            }
+        }
+        int cacheHits = metadataById.size();
+
+        // 2. 未命中的文件批量回库并回填缓存
+        if (!cacheMisses.isEmpty()) {
+            List<FileMetadata> loaded = fileMetadataRepository.findActiveFilesWithTagsByFileIdsAndFamily(cacheMisses, familyId);
+            if (!loaded.isEmpty()) {
+                List<String> loadedIds = loaded.stream().map(FileMetadata::getFileId).toList();
+                for (FileStorageData storageData : fileStorageDataRepository.findByFileIdIn(loadedIds)) {
+                    // 同一文件存在多条存储数据时优先取可用的一条
+                    storageById.merge(storageData.getFileId(), storageData,
+                            (current, candidate) -> isStorageAvailable(current) ? current : candidate);
+                }
+                for (FileMetadata metadata : loaded) {
+                    metadataById.put(metadata.getFileId(), metadata);
+                    fileMetadataCache.put(metadata, storageById.get(metadata.getFileId()));
+                }
+            }
+        }
+
+        // 3. 批量权限过滤，按请求顺序组装结果
+        Set<String> permittedIds = filterViewableFiles(new ArrayList<>(metadataById.values())).stream()
+                .map(FileMetadata::getFileId)
+                .collect(Collectors.toSet());
+        List<FileMetadataBatchResult.FileDetail> details = new ArrayList<>();
+        List<String> missingFileIds = new ArrayList<>();
+        for (String fileId : distinctFileIds) {
+            if (permittedIds.contains(fileId)) {
+                details.add(toFileDetail(metadataById.get(fileId), storageById.get(fileId)));
+            } else {
+                missingFileIds.add(fileId);
+            }
+        }
+
+        FileMetadataBatchResult result = new FileMetadataBatchResult();
+        result.setFamilyId(familyId);
+        result.setFiles(details);
+        result.setMissingFileIds(missingFileIds);
+        result.setCacheHits(cacheHits);
+        result.setTraceId(traceId);
+
+        log.info("批量获取文件元数据完成: familyId={}, requested={}, cacheHits={}, loaded={}, returned={}, traceId={}",
+                familyId, distinctFileIds.size(), cacheHits, metadataById.size() - cacheHits, details.size(), traceId);
+        return result;
+    }
+
+    private FileMetadataBatchResult.FileDetail toFileDetail(FileMetadata metadata, FileStorageData storageData) {
+        FileMetadataBatchResult.FileDetail detail = new FileMetadataBatchResult.FileDetail();
+        detail.setMetadata(metadata);
+        if (storageData != null) {
+            StorageType storageType = storageData.getStorageType() != null
+                    ? StorageType.getByCode(storageData.getStorageType()) : null;
+            detail.setStorageType(storageType != null ? storageType.name() : null);
+            detail.setStorageAvailable(isStorageAvailable(storageData));
+            detail.setFileChecksum(storageData.getFileChecksum());
+        }
+        return detail;
+    }
+
+    private static boolean isStorageAvailable(FileStorageData storageData) {
+        return storageData.getStorageStatus() == null || storageData.getStorageStatus() == 0;
+    }
+
+    private FileStorageData findAvailableStorageData(String fileId) {
+        return fileStorageDataRepository.findByFileId(fileId)
+                .filter(FileStorageService::isStorageAvailable)
+                .orElse(null);
+    }
+
+    /**
+     * 按当前用户批量过滤可查看的文件
+     * <p>
+     * 使用编译后的权限矩阵单次遍历完成过滤，未登录时按公开用户处理
+     */
+    private List<FileMetadata> filterViewableFiles(List<FileMetadata> files) {
+        return CompiledPermissionMatrix.filter(files, UserContext.getCurrentUserId(),
+                UserContext.getCurrentFamilyId(), FileOperation.VIEW);
+    }
+
     /**
      * 创建空的搜索结果
      */
@@ -444,6 +640,7 @@ public class FileStorageService {
 
             // 更新缓存
             // cacheService.cacheFileMetadata(updated);
+            fileMetadataCache.invalidate(updated.getFileId());
 
             log.info("文件元数据更新成功: fileId={}, fileName={}, traceId={}",
                     updated.getFileId(), updated.getOriginalFileName(), traceId);
@@ -585,7 +782,76 @@ public class FileStorageService {
      * 获取文件访问URL
      */
     public String getFileAccessUrl(String fileId, String familyId, int expireMinutes) {
-        return storageAdapter.getFileAccessUrl(fileId, familyId, expireMinutes);
+        return getFileAccessUrls(List.of(fileId), familyId, expireMinutes).get(fileId);
+    }
+
+    /**
+     * 批量获取文件访问URL
+     * <p>
+     * 面向相册等一次需要大量URL的场景：
+     * - 一次查询加载元数据，并按当前用户批量过滤无权查看的文件
+     * - 预签名URL缓存命中的文件直接返回
+     * - 未命中的文件一次查询加载存储数据，按已知桶名和路径直接签名，不再逐个列举存储桶
+     *
+     * @param fileIds       文件ID列表
+     * @param familyId      家庭ID
+     * @param expireMinutes URL最短剩余有效期（分钟）
+     * @return fileId -> 访问URL，不存在、无权限或签名失败的文件不包含在结果中
+     */
+    public Map<String, String> getFileAccessUrls(List<String> fileIds, String familyId, int expireMinutes) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        Set<String> distinctFileIds = new LinkedHashSet<>(fileIds);
+
+        List<FileMetadata> permittedFiles = CompiledPermissionMatrix.filter(
+                fileMetadataRepository.findActiveFilesByFileIdsAndFamily(distinctFileIds, familyId),
+                UserContext.getCurrentUserId(), UserContext.getCurrentFamilyId(), FileOperation.VIEW);
+
+        Map<String, String> accessUrls = new LinkedHashMap<>();
+        List<String> cacheMisses = new ArrayList<>();
+        for (FileMetadata metadata : permittedFiles) {
+            String cachedUrl = presignedUrlCache.getIfPresent(familyId, metadata.getFileId(), expireMinutes);
+            if (cachedUrl != null) {
+                accessUrls.put(metadata.getFileId(), cachedUrl);
+            } else {
+                cacheMisses.add(metadata.getFileId());
+            }
+        }
+
+        if (!cacheMisses.isEmpty()) {
+            for (FileStorageData storageData : fileStorageDataRepository.findByFileIdIn(cacheMisses)) {
+                String accessUrl = signFileAccessUrl(storageData, familyId, expireMinutes, traceId);
+                if (accessUrl != null) {
+                    accessUrls.put(storageData.getFileId(), accessUrl);
+                }
+            }
+        }
+
+        log.info("批量获取文件访问URL完成: familyId={}, requested={}, permitted={}, signed={}, returned={}, traceId={}",
+                familyId, distinctFileIds.size(), permittedFiles.size(), cacheMisses.size(), accessUrls.size(), traceId);
+        return accessUrls;
+    }
+
+    /**
+     * 按存储数据生成预签名URL，结果写入预签名URL缓存
+     */
+    private String signFileAccessUrl(FileStorageData storageData, String familyId, int expireMinutes, String traceId) {
+        FileStorageInfo storageInfo = fileStorageDataMapper.toFileStorageInfo(storageData);
+        if (storageInfo == null || storageInfo.getStorageType() == null) {
+            log.warn("文件存储数据不完整，无法生成访问URL: fileId={}, traceId={}", storageData.getFileId(), traceId);
+            return null;
+        }
+
+        try {
+            StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(storageInfo.getStorageType());
+            return presignedUrlCache.getOrSign(familyId, storageData.getFileId(), expireMinutes, expiry -> {
+                URI uri = adapter.getFileAccessUrl(storageInfo, expiry);
+                return uri != null ? uri.toString() : null;
+            });
+        } catch (Exception e) {
+            log.error("生成文件访问URL失败: fileId={}, storageType={}, error={}, traceId={}",
+                    storageData.getFileId(), storageInfo.getStorageType(), e.getMessage(), traceId);
+            return null;
+        }
     }
 
     /**
@@ -627,10 +893,69 @@ public class FileStorageService {
             headers.add(org.springframework.http.HttpHeaders.CONTENT_LENGTH, String.valueOf(metadata.getFileSize()));
         }
 
-        // 4. 添加缓存控制
-        headers.add(org.springframework.http.HttpHeaders.CACHE_CONTROL, "private, max-age=3600");
+        // 4. 添加缓存控制和验证器
+        headers.addAll(buildCacheValidatorHeaders(metadata));
 
         return headers;
     }
 
+    /**
+     * 构建缓存控制和验证器响应头（Cache-Control、ETag、Last-Modified）
+     * <p>
+     * 200和304响应共用，保证重新验证后客户端缓存的验证器与服务端一致
+     */
+    public org.springframework.http.HttpHeaders buildCacheValidatorHeaders(FileMetadata metadata) {
+        org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
+        headers.setCacheControl("private, max-age=3600");
+        headers.setETag(buildETag(metadata));
+        long lastModified = getLastModifiedMillis(metadata);
+        if (lastModified > 0) {
+            headers.setLastModified(lastModified);
+        }
+        return headers;
+    }
+
+    /**
+     * 生成文件的强实体标签
+     * <p>
+     * 文件内容在上传后不可变，由 fileId + 版本号唯一确定；
+     * 元数据更新会递增版本号，保守地令客户端缓存失效
+     */
+    String buildETag(FileMetadata metadata) {
+        int version = metadata.getVersion() != null ? metadata.getVersion() : 0;
+        return "\"" + metadata.getFileId() + "-" + version + "\"";
+    }
+
+    /**
+     * 判断条件请求是否命中客户端缓存
+     * <p>
+     * 按 RFC 9110，携带 If-None-Match 时忽略 If-Modified-Since
+     */
+    boolean isNotModified(FileMetadata metadata, List<String> ifNoneMatch, long ifModifiedSince) {
+        if (ifNoneMatch != null && !ifNoneMatch.isEmpty()) {
+            String etag = buildETag(metadata);
+            for (String candidate : ifNoneMatch) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (ifModifiedSince < 0) {
+            return false;
+        }
+        long lastModified = getLastModifiedMillis(metadata);
+        // HTTP日期精度为秒
+        return lastModified > 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private long getLastModifiedMillis(FileMetadata metadata) {
+        LocalDateTime modified = metadata.getUploadTime() != null ? metadata.getUploadTime() : metadata.getCreateTime();
+        return modified != null ? modified.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
 }
\ No newline at end of file
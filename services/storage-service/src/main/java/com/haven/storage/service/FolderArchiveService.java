@@ -0,0 +1,523 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.permission.CompiledPermissionMatrix;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.security.ContextPropagatingExecutorService;
+import com.haven.storage.security.UserContext;
+import com.haven.storage.utils.FileUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 文件夹打包下载服务
+ * <p>
+ * 把文件夹（含子文件夹）下的文件边读边写成ZIP，直接写入响应输出流：
+ * - 不落临时文件，内存占用与文件夹大小无关，只取决于预读窗口
+ * - 后台线程按顺序预读后续的小文件（条数和单个大小均有上限），写出当前文件时下一个文件已在内存中
+ * - 超过预读上限的大文件由写出线程直接从存储流式复制
+ * <p>
+ * 💡 条目压缩方式：
+ * - 照片、视频、压缩包等已压缩的内容：预读的小文件使用 STORED（预读时已算出CRC）；
+ *   大文件无法预先得到CRC，使用压缩级别0的 DEFLATED（仅存储块，几乎不耗CPU）
+ * - 文本、未压缩图片等可压缩内容：DEFLATED 默认级别
+ * - 超过4GB的条目和超过65535个条目自动使用ZIP64
+ * <p>
+ * 读取失败的文件会跳过，并在压缩包末尾附加失败清单（响应头已发出，无法再返回错误码）。
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class FolderArchiveService {
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final int STORAGE_QUERY_CHUNK = 1000;
+    private static final String ROOT_ARCHIVE_NAME = "家庭文件";
+    private static final String FAILURE_LIST_NAME = "下载失败文件.txt";
+
+    /** 值得再压缩的内容类型，其余（照片、视频、压缩包、PDF等）按已压缩处理 */
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json", "application/xml", "application/javascript", "application/rtf",
+            "application/msword", "application/vnd.ms-excel", "application/vnd.ms-powerpoint",
+            "application/x-sh", "application/sql", "image/bmp", "image/tiff", "image/svg+xml",
+            "audio/wav", "audio/x-wav");
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+    private final Semaphore archivePermits;
+    private final ExecutorService prefetchExecutor;
+
+    @Value("${storage.file.archive.max-files:10000}")
+    private int maxFiles;
+
+    @Value("${storage.file.archive.prefetch-entries:4}")
+    private int prefetchEntries;
+
+    @Value("${storage.file.archive.prefetch-max-entry-bytes:8388608}")
+    private long prefetchMaxEntryBytes;
+
+    public FolderArchiveService(FileMetadataRepository fileMetadataRepository,
+                                FileStorageDataRepository fileStorageDataRepository,
+                                StorageOperationRegistry storageOperationRegistry,
+                                StorageObjectKeyResolver storageObjectKeyResolver,
+                                @Value("${storage.file.archive.max-concurrent:4}") int maxConcurrent) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.fileStorageDataRepository = fileStorageDataRepository;
+        this.storageOperationRegistry = storageOperationRegistry;
+        this.storageObjectKeyResolver = storageObjectKeyResolver;
+        this.archivePermits = new Semaphore(maxConcurrent);
+        // 每个打包任务占用一个预读线程，线程数与并发上限一致；预读日志沿用请求的用户和TraceID
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.prefetchExecutor = ContextPropagatingExecutorService.wrap(Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "storage-archive-prefetch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * 准备文件夹打包
+     * <p>
+     * 在请求线程中完成查询、权限过滤和上限检查，出错时尚未写出任何响应内容，可正常返回错误。
+     * 返回的打包任务占用一个并发名额，必须通过 {@link #writeArchive} 写出或调用 {@link FolderArchive#close()} 释放。
+     *
+     * @param familyId   家庭ID
+     * @param folderPath 文件夹路径，"/" 表示整个家庭
+     * @return 打包任务
+     */
+    @Transactional(readOnly = true)
+    public FolderArchive prepareArchive(String familyId, String folderPath) {
+        String normalizedPath = FileUtils.formatFolderPath(folderPath);
+        String subFolderLike = "/".equals(normalizedPath) ? "/%" : escapeLike(normalizedPath) + "/%";
+
+        List<FileMetadata> files = CompiledPermissionMatrix.filter(
+                fileMetadataRepository.findActiveFilesUnderFolder(familyId, normalizedPath, subFolderLike),
+                UserContext.getCurrentUserId(), UserContext.getCurrentFamilyId(), FileOperation.DOWNLOAD);
+        if (files.isEmpty()) {
+            throw new BusinessException(ErrorCode.DATA_NOT_FOUND, "文件夹为空或无权下载: " + normalizedPath);
+        }
+        if (files.size() > maxFiles) {
+            throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE,
+                    "文件夹文件数" + files.size() + "超过单次打包上限" + maxFiles + "，请选择子文件夹");
+        }
+        if (!archivePermits.tryAcquire()) {
+            throw new BusinessException(ErrorCode.RATE_LIMIT_ERROR, "打包下载任务过多，请稍后重试");
+        }
+
+        try {
+            Map<String, FileStorageData> storageByFileId = loadStorageData(files);
+            String archiveName = "/".equals(normalizedPath)
+                    ? ROOT_ARCHIVE_NAME : normalizedPath.substring(normalizedPath.lastIndexOf('/') + 1);
+
+            List<ArchiveEntry> entries = new ArrayList<>(files.size());
+            Set<String> usedNames = new HashSet<>();
+            long totalBytes = 0;
+            for (FileMetadata file : files) {
+                String entryName = uniqueEntryName(archiveName + "/" + relativePath(normalizedPath, file), usedNames);
+                entries.add(new ArchiveEntry(entryName, file, storageByFileId.get(file.getFileId()), isCompressible(file)));
+                totalBytes += file.getFileSize();
+            }
+            return new FolderArchive(familyId, normalizedPath, archiveName + ".zip", entries, totalBytes, archivePermits);
+        } catch (RuntimeException e) {
+            archivePermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 将打包内容写入输出流，结束后释放并发名额
+     * <p>
+     * 只调用 finish 不关闭输出流，输出流由容器管理。客户端中途断开时写出抛出IOException，预读随之取消。
+     *
+     * @param archive 打包任务
+     * @param output  响应输出流
+     */
+    public void writeArchive(FolderArchive archive, OutputStream output) throws IOException {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        BlockingQueue<PrefetchedEntry> ready = new ArrayBlockingQueue<>(Math.max(prefetchEntries, 1));
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Future<?> prefetcher = prefetchExecutor.submit(() -> prefetch(archive.getEntries(), ready, cancelled));
+
+        List<String> failures = new ArrayList<>();
+        long writtenBytes = 0;
+        boolean completed = false;
+        try {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(output, OUTPUT_BUFFER_BYTES), StandardCharsets.UTF_8);
+            for (int i = 0; i < archive.getEntries().size(); i++) {
+                PrefetchedEntry next = nextEntry(ready, prefetcher);
+                writtenBytes += writeEntry(zip, next, failures, traceId);
+            }
+            if (!failures.isEmpty()) {
+                writeFailureList(zip, failures);
+            }
+            zip.finish();
+            zip.flush();
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("打包下载被中断");
+        } finally {
+            cancelled.set(true);
+            prefetcher.cancel(true);
+            ready.clear();
+            archive.close();
+            log.info("文件夹打包下载{}: familyId={}, folder={}, files={}, failed={}, bytes={}, elapsed={}ms, traceId={}",
+                    completed ? "完成" : "中断", archive.getFamilyId(), archive.getFolderPath(), archive.getEntries().size(),
+                    failures.size(), writtenBytes, System.currentTimeMillis() - start, traceId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    // ==================== 预读 ====================
+
+    /**
+     * 按顺序预读条目：小文件整体读入内存并计算CRC，大文件只占位由写出线程流式读取。
+     * 队列满时阻塞，预读窗口不超过 prefetch-entries 个条目。
+     */
+    private void prefetch(List<ArchiveEntry> entries, BlockingQueue<PrefetchedEntry> ready, AtomicBoolean cancelled) {
+        try {
+            for (ArchiveEntry entry : entries) {
+                if (cancelled.get()) {
+                    return;
+                }
+                ready.put(load(entry));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PrefetchedEntry load(ArchiveEntry entry) {
+        if (entry.storageData() == null) {
+            return PrefetchedEntry.failed(entry, "缺少存储数据");
+        }
+        if (entry.metadata().getFileSize() > prefetchMaxEntryBytes) {
+            return PrefetchedEntry.streaming(entry);
+        }
+        try (BufferedSource source = openSource(entry)) {
+            if (source == null) {
+                return PrefetchedEntry.failed(entry, "存储对象不可读");
+            }
+            Buffer buffer = new Buffer();
+            while (source.read(buffer, COPY_BUFFER_BYTES) != -1) {
+                // 元数据记录的大小与实际不符时不再整体读入，避免预读内存失控
+                if (buffer.size() > prefetchMaxEntryBytes) {
+                    buffer.clear();
+                    return PrefetchedEntry.streaming(entry);
+                }
+            }
+            byte[] data = buffer.readByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            return PrefetchedEntry.loaded(entry, data, crc.getValue());
+        } catch (Exception e) {
+            return PrefetchedEntry.failed(entry, e.getMessage());
+        }
+    }
+
+    /**
+     * 取下一个预读结果；预读任务异常终止时不再无限等待
+     */
+    private static PrefetchedEntry nextEntry(BlockingQueue<PrefetchedEntry> ready, Future<?> prefetcher)
+            throws InterruptedException, IOException {
+        while (true) {
+            PrefetchedEntry next = ready.poll(1, TimeUnit.SECONDS);
+            if (next != null) {
+                return next;
+            }
+            if (prefetcher.isDone() && ready.isEmpty()) {
+                throw new IOException("预读任务异常终止");
+            }
+        }
+    }
+
+    // ==================== 写出 ====================
+
+    private long writeEntry(ZipOutputStream zip, PrefetchedEntry prefetched, List<String> failures, String traceId)
+            throws IOException {
+        ArchiveEntry entry = prefetched.entry();
+        if (prefetched.error() != null) {
+            failures.add(entry.entryName() + "：" + prefetched.error());
+            log.warn("打包时跳过文件: fileId={}, reason={}, traceId={}", entry.metadata().getFileId(), prefetched.error(), traceId);
+            return 0;
+        }
+
+        ZipEntry zipEntry = new ZipEntry(entry.entryName());
+        if (entry.metadata().getUploadTime() != null) {
+            zipEntry.setTimeLocal(entry.metadata().getUploadTime());
+        }
+
+        if (prefetched.data() != null) {
+            byte[] data = prefetched.data();
+            if (entry.compressible()) {
+                zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+                zipEntry.setMethod(ZipEntry.DEFLATED);
+            } else {
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(data.length);
+                zipEntry.setCompressedSize(data.length);
+                zipEntry.setCrc(prefetched.crc());
+            }
+            zip.putNextEntry(zipEntry);
+            zip.write(data);
+            zip.closeEntry();
+            return data.length;
+        }
+
+        // 大文件：CRC需要读完才知道，使用数据描述符的DEFLATED条目；已压缩内容用级别0仅做存储块封装
+        BufferedSource source;
+        try {
+            source = openSource(entry);
+        } catch (Exception e) {
+            source = null;
+        }
+        if (source == null) {
+            failures.add(entry.entryName() + "：存储对象不可读");
+            return 0;
+        }
+        zip.setLevel(entry.compressible() ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+        zipEntry.setMethod(ZipEntry.DEFLATED);
+        zip.putNextEntry(zipEntry);
+        long copied = 0;
+        try (BufferedSource input = source) {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            int read;
+            while (true) {
+                try {
+                    read = input.read(buffer);
+                } catch (IOException e) {
+                    // 读取存储失败：条目内容不完整但压缩包结构仍然有效，记入失败清单
+                    failures.add(entry.entryName() + "：读取中断，内容不完整（" + e.getMessage() + "）");
+                    break;
+                }
+                if (read == -1) {
+                    break;
+                }
+                zip.write(buffer, 0, read);
+                copied += read;
+            }
+        }
+        zip.closeEntry();
+        return copied;
+    }
+
+    private void writeFailureList(ZipOutputStream zip, List<String> failures) throws IOException {
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        ZipEntry entry = new ZipEntry(FAILURE_LIST_NAME);
+        entry.setMethod(ZipEntry.DEFLATED);
+        zip.putNextEntry(entry);
+        zip.write(String.join("\n", failures).getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    // ==================== 内部方法 ====================
+
+    private BufferedSource openSource(ArchiveEntry entry) {
+        FileStorageData storageData = entry.storageData();
+        StorageType storageType = storageData.getStorageType() != null
+                ? StorageType.getByCode(storageData.getStorageType()) : null;
+        if (storageType == null) {
+            throw new IllegalStateException("未知存储类型: " + storageData.getStorageType());
+        }
+        // 早期只记录目录的数据用已加载的元数据拼接原始文件名，不再逐个查询
+        String objectKey = storageObjectKeyResolver.resolve(storageData, entry.metadata());
+        if (objectKey == null) {
+            throw new IllegalStateException("无法确定对象键: " + storageData.getFilePath());
+        }
+        // 按存储数据记录的位置直接读取对象，批量打包不逐个按fileId重复查询存储数据，也不填充读缓存
+        StorageAdapter adapter = CachingStorageAdapter.unwrap(storageOperationRegistry.getStorageAdapter(storageType));
+        return adapter.openObject(storageData.getFamilyBucketName(), objectKey);
+    }
+
+    private Map<String, FileStorageData> loadStorageData(List<FileMetadata> files) {
+        Map<String, FileStorageData> storageByFileId = new HashMap<>();
+        for (int from = 0; from < files.size(); from += STORAGE_QUERY_CHUNK) {
+            List<String> fileIds = files.subList(from, Math.min(from + STORAGE_QUERY_CHUNK, files.size())).stream()
+                    .map(FileMetadata::getFileId)
+                    .toList();
+            for (FileStorageData storageData : fileStorageDataRepository.findByFileIdIn(fileIds)) {
+                // 同一文件存在多条存储数据时优先取可用的一条
+                storageByFileId.merge(storageData.getFileId(), storageData,
+                        (current, candidate) -> isAvailable(current) ? current : candidate);
+            }
+        }
+        return storageByFileId;
+    }
+
+    private static boolean isAvailable(FileStorageData storageData) {
+        return storageData.getStorageStatus() == null || storageData.getStorageStatus() == 0;
+    }
+
+    private static boolean isCompressible(FileMetadata file) {
+        String type = file.getContentType() != null ? file.getContentType() : file.getMimeType();
+        if (type == null) {
+            return false;
+        }
+        String mediaType = type.toLowerCase(Locale.ROOT);
+        int parameters = mediaType.indexOf(';');
+        if (parameters >= 0) {
+            mediaType = mediaType.substring(0, parameters).trim();
+        }
+        return mediaType.startsWith("text/") || COMPRESSIBLE_TYPES.contains(mediaType);
+    }
+
+    /**
+     * 文件相对打包根目录的路径，去除 ".." 等不安全的路径段
+     */
+    private static String relativePath(String basePath, FileMetadata file) {
+        String folder = FileUtils.formatFolderPath(file.getFolderPath());
+        String relativeFolder = "/".equals(basePath) ? folder : folder.substring(Math.min(basePath.length(), folder.length()));
+        StringBuilder path = new StringBuilder();
+        for (String segment : relativeFolder.split("/")) {
+            if (!segment.isEmpty() && !".".equals(segment) && !"..".equals(segment)) {
+                path.append(segment).append('/');
+            }
+        }
+        String name = file.getOriginalFileName().replace('\\', '_').replace('/', '_');
+        return path.append(name.isEmpty() || "..".equals(name) ? file.getFileId() : name).toString();
+    }
+
+    /**
+     * 同名文件追加序号：photo.jpg -> photo (1).jpg
+     */
+    private static String uniqueEntryName(String name, Set<String> usedNames) {
+        if (usedNames.add(name)) {
+            return name;
+        }
+        int slash = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        boolean hasExtension = dot > slash + 1;
+        String stem = hasExtension ? name.substring(0, dot) : name;
+        String extension = hasExtension ? name.substring(dot) : "";
+        for (int i = 1; ; i++) {
+            String candidate = stem + " (" + i + ")" + extension;
+            if (usedNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 打包条目
+     *
+     * @param entryName   压缩包内的路径
+     * @param metadata    文件元数据
+     * @param storageData 存储数据，缺失时该文件记入失败清单
+     * @param compressible 内容是否值得压缩
+     */
+    public record ArchiveEntry(String entryName, FileMetadata metadata, FileStorageData storageData, boolean compressible) {
+    }
+
+    /**
+     * 打包任务，持有一个并发名额
+     */
+    @Getter
+    public static final class FolderArchive implements AutoCloseable {
+        private final String familyId;
+        private final String folderPath;
+        /** 下载文件名 */
+        private final String archiveName;
+        private final List<ArchiveEntry> entries;
+        /** 原始文件总大小 */
+        private final long totalBytes;
+        @Getter(AccessLevel.NONE)
+        private final Semaphore permits;
+        @Getter(AccessLevel.NONE)
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private FolderArchive(String familyId, String folderPath, String archiveName,
+                              List<ArchiveEntry> entries, long totalBytes, Semaphore permits) {
+            this.familyId = familyId;
+            this.folderPath = folderPath;
+            this.archiveName = archiveName;
+            this.entries = entries;
+            this.totalBytes = totalBytes;
+            this.permits = permits;
+        }
+
+        /**
+         * 释放并发名额，可重复调用
+         */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 预读结果：data 非空为已读入内存的小文件，data 为空且无错误为待流式读取的大文件
+     */
+    private record PrefetchedEntry(ArchiveEntry entry, byte[] data, long crc, String error) {
+
+        static PrefetchedEntry loaded(ArchiveEntry entry, byte[] data, long crc) {
+            return new PrefetchedEntry(entry, data, crc, null);
+        }
+
+        static PrefetchedEntry streaming(ArchiveEntry entry) {
+            return new PrefetchedEntry(entry, null, 0, null);
+        }
+
+        static PrefetchedEntry failed(ArchiveEntry entry, String error) {
+            return new PrefetchedEntry(entry, null, 0, error != null ? error : "未知错误");
+        }
+    }
+}
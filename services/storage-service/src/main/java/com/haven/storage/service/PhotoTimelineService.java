@@ -0,0 +1,218 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.enums.FileOperation;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.UserRole;
+import com.haven.storage.domain.model.file.FileTimelinePage;
+import com.haven.storage.domain.model.file.FileTimelineSummary;
+import com.haven.storage.permission.CompiledPermissionMatrix;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.security.UserContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 拍摄时间线服务
+ * <p>
+ * 基于上传时从文件头提取的拍摄时间提供照片时间线，全部走 file_metadata 的索引列，不回读对象：
+ * - 分页：按 (拍摄时间, 主键) 倒序的游标分页，翻页成本与页码无关
+ * - 汇总：按拍摄日期、可见性、是否本人文件聚合计数，再按权限矩阵合并，得到用户可见的每日数量
+ * <p>
+ * 💡 拍摄时间为相机记录的本地时间，日期分组不做时区换算；没有拍摄信息的文件不进入时间线
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoTimelineService {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(3000, 1, 1, 0, 0);
+    private static final String CURSOR_SEPARATOR = "_";
+
+    private final FileMetadataRepository fileMetadataRepository;
+
+    @Value("${storage.file.timeline.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${storage.file.timeline.max-scan-rounds:5}")
+    private int maxScanRounds;
+
+    /**
+     * 查询一页拍摄时间线
+     * <p>
+     * 无权查看的文件在内存中按权限矩阵剔除；一轮查询过滤后不足一页时继续向后扫描，
+     * 最多扫描 max-scan-rounds 轮，游标始终指向最后检查过的文件，不会重复扫描。
+     *
+     * @param familyId 家庭ID
+     * @param from     起始拍摄日期（含），为空不限
+     * @param to       截止拍摄日期（含），为空不限
+     * @param cursor   上一页返回的游标，为空表示第一页
+     * @param limit    每页文件数
+     * @return 时间线分页结果
+     */
+    @Transactional(readOnly = true)
+    public FileTimelinePage getTimelinePage(String familyId, LocalDate from, LocalDate to, String cursor, int limit) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        if (limit <= 0 || limit > maxPageSize) {
+            throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE, "每页数量需在1到" + maxPageSize + "之间");
+        }
+        LocalDateTime fromTime = from != null ? from.atStartOfDay() : EARLIEST;
+        LocalDateTime toTime = to != null ? to.plusDays(1).atStartOfDay() : LATEST;
+
+        // 第一页以截止时间为游标，主键0保证截止时间当刻的文件不被包含
+        TimelineCursor position = StringUtils.hasText(cursor) ? TimelineCursor.parse(cursor) : new TimelineCursor(toTime, 0L);
+        if (position.captureTime().isAfter(toTime)) {
+            position = new TimelineCursor(toTime, 0L);
+        }
+
+        List<FileMetadata> files = new ArrayList<>(limit);
+        boolean exhausted = false;
+        for (int round = 0; round < maxScanRounds && files.size() < limit && !exhausted; round++) {
+            List<FileMetadata> rows = fileMetadataRepository.findTimelinePage(familyId, fromTime,
+                    position.captureTime(), position.id(), PageRequest.of(0, limit));
+            Set<FileMetadata> viewable = Collections.newSetFromMap(new IdentityHashMap<>());
+            viewable.addAll(CompiledPermissionMatrix.filter(rows, UserContext.getCurrentUserId(),
+                    UserContext.getCurrentFamilyId(), FileOperation.VIEW));
+
+            int consumed = 0;
+            for (FileMetadata row : rows) {
+                if (files.size() >= limit) {
+                    break;
+                }
+                consumed++;
+                position = new TimelineCursor(row.getCaptureTime(), row.getId());
+                if (viewable.contains(row)) {
+                    files.add(row);
+                }
+            }
+            exhausted = rows.size() < limit && consumed == rows.size();
+        }
+
+        FileTimelinePage page = new FileTimelinePage();
+        page.setFamilyId(familyId);
+        page.setFiles(files);
+        page.setNextCursor(exhausted ? null : position.encode());
+        page.setTraceId(traceId);
+
+        log.debug("拍摄时间线查询完成: familyId={}, from={}, to={}, returned={}, hasMore={}, traceId={}",
+                familyId, from, to, files.size(), !exhausted, traceId);
+        return page;
+    }
+
+    /**
+     * 按天汇总拍摄时间线
+     *
+     * @param familyId 家庭ID
+     * @param from     起始拍摄日期（含），为空不限
+     * @param to       截止拍摄日期（含），为空不限
+     * @return 按日期倒序的每日文件数
+     */
+    @Transactional(readOnly = true)
+    public FileTimelineSummary getTimelineSummary(String familyId, LocalDate from, LocalDate to) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        LocalDateTime fromTime = from != null ? from.atStartOfDay() : EARLIEST;
+        LocalDateTime toTime = to != null ? to.plusDays(1).atStartOfDay() : LATEST;
+
+        String userId = UserContext.getCurrentUserId();
+        boolean sameFamily = familyId.equals(UserContext.getCurrentFamilyId());
+        // 未登录时传空串，owner_id 不会与之相等
+        List<Object[]> groups = fileMetadataRepository.summarizeTimelineByDay(familyId,
+                userId != null ? userId : "", fromTime, toTime);
+
+        Map<LocalDate, Long> countsByDay = new TreeMap<>(Collections.reverseOrder());
+        for (Object[] group : groups) {
+            LocalDate date = toLocalDate(group[0]);
+            FileVisibility visibility = parseVisibility(group[1]);
+            boolean owned = Boolean.TRUE.equals(group[2]);
+            long count = ((Number) group[3]).longValue();
+
+            UserRole role = owned ? UserRole.OWNER : sameFamily ? UserRole.FAMILY_MEMBER : UserRole.PUBLIC_USER;
+            if (date != null && CompiledPermissionMatrix.hasPermission(role, visibility, FileOperation.VIEW)) {
+                countsByDay.merge(date, count, Long::sum);
+            }
+        }
+
+        List<FileTimelineSummary.TimelineDay> days = new ArrayList<>(countsByDay.size());
+        long total = 0;
+        for (Map.Entry<LocalDate, Long> entry : countsByDay.entrySet()) {
+            FileTimelineSummary.TimelineDay day = new FileTimelineSummary.TimelineDay();
+            day.setDate(entry.getKey());
+            day.setFileCount(entry.getValue());
+            days.add(day);
+            total += entry.getValue();
+        }
+
+        FileTimelineSummary summary = new FileTimelineSummary();
+        summary.setFamilyId(familyId);
+        summary.setDays(days);
+        summary.setTotalFiles(total);
+        summary.setTraceId(traceId);
+        return summary;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return null;
+    }
+
+    /**
+     * 未设置或无法识别的可见性按私有处理，与权限矩阵的批量过滤一致
+     */
+    private static FileVisibility parseVisibility(Object value) {
+        if (value == null) {
+            return FileVisibility.PRIVATE;
+        }
+        try {
+            return FileVisibility.valueOf(value.toString());
+        } catch (IllegalArgumentException e) {
+            return FileVisibility.PRIVATE;
+        }
+    }
+
+    /**
+     * 时间线游标：最后检查过的文件的拍摄时间和主键
+     */
+    private record TimelineCursor(LocalDateTime captureTime, Long id) {
+
+        static TimelineCursor parse(String cursor) {
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            try {
+                return new TimelineCursor(LocalDateTime.parse(cursor.substring(0, separator)),
+                        Long.parseLong(cursor.substring(separator + 1)));
+            } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException e) {
+                throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "无效的时间线游标: " + cursor);
+            }
+        }
+
+        String encode() {
+            return captureTime + CURSOR_SEPARATOR + id;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.LayoutMigrationResult;
+import com.haven.storage.domain.model.file.StoredObjectStat;
+import com.haven.storage.operation.database.FileMetadataCache;
+import com.haven.storage.operation.storage.PresignedUrlCache;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.operation.storage.adapter.MinioBucketLayout;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.security.ContextPropagatingExecutorService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MinIO 桶布局迁移服务
+ * <p>
+ * 把每家庭一桶布局下的对象在线迁移到固定数量的共享分片桶：
+ * - 迁移：服务端复制到共享桶，校验大小后以原位置为条件切换 file_storage_data，源对象保留
+ * - 清理：迁移超过宽限期后，再删除旧桶中的副本
+ * <p>
+ * 💡 切换流程：
+ * 1. 配置 layout.mode=SHARDED、dual-read=true，新上传直接写入共享桶
+ * 2. 多次调用迁移，直到 completed 为 true（仍有迁移失败的数据时为 false，排查后重新从头迁移）
+ * 3. 迁移时间（layout_migrated_time）超过宽限期后调用清理；持有旧位置的读取经双读回退到共享桶
+ * 4. 清理完成后可关闭 dual-read
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageLayoutMigrationService {
+
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+    private final MinioBucketLayout bucketLayout;
+    private final PresignedUrlCache presignedUrlCache;
+    private final FileMetadataCache fileMetadataCache;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${storage.file.minio.layout.migration.batch-size:200}")
+    private int batchSize;
+
+    @Value("${storage.file.minio.layout.migration.parallelism:8}")
+    private int parallelism;
+
+    @Value("${storage.file.minio.layout.migration.cleanup-grace-hours:24}")
+    private int cleanupGraceHours;
+
+    private enum Outcome {
+        DONE,
+        SKIPPED,
+        FAILED
+    }
+
+    /**
+     * 迁移一批旧布局对象到共享桶
+     * <p>
+     * 同一时刻只允许一个迁移或清理任务运行，可通过返回的 lastId 分多次继续
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     * @param fromId   起始游标（不含）
+     * @param maxFiles 本次最多处理的文件数
+     * @return 迁移结果
+     */
+    public LayoutMigrationResult migrate(String familyId, long fromId, int maxFiles) {
+        if (bucketLayout.getMode() != MinioBucketLayout.Mode.SHARDED) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "当前桶布局不是共享桶模式，请先切换 layout.mode");
+        }
+        return run("桶布局迁移", familyId, fromId, maxFiles, false);
+    }
+
+    /**
+     * 删除已迁移且超过宽限期的旧布局副本
+     *
+     * @param familyId 家庭ID，为null时处理所有家庭
+     * @param fromId   起始游标（不含）
+     * @param maxFiles 本次最多处理的文件数
+     * @return 清理结果
+     */
+    public LayoutMigrationResult cleanupLegacy(String familyId, long fromId, int maxFiles) {
+        return run("旧布局清理", familyId, fromId, maxFiles, true);
+    }
+
+    private LayoutMigrationResult run(String taskName, String familyId, long fromId, int maxFiles, boolean cleanup) {
+        if (maxFiles <= 0) {
+            throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE, "maxFiles必须大于0");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "桶布局迁移任务正在执行中");
+        }
+
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        LayoutMigrationResult result = new LayoutMigrationResult();
+        result.setFamilyId(familyId);
+        result.setLastId(fromId);
+        result.setTraceId(traceId);
+
+        ExecutorService executor = ContextPropagatingExecutorService.wrap(Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "storage-layout-migration");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        try {
+            StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(StorageType.MINIO);
+            LocalDateTime migratedBefore = LocalDateTime.now().minusHours(cleanupGraceHours);
+            long lastId = fromId;
+            boolean reachedEnd = false;
+            while (result.getScannedFiles() < maxFiles) {
+                int limit = Math.min(batchSize, maxFiles - result.getScannedFiles());
+                List<FileStorageData> batch = cleanup
+                        ? fileStorageDataRepository.findLayoutCleanupBatch(StorageType.MINIO.getCode(),
+                                bucketLayout.sharedBucketPattern(), migratedBefore, familyId, lastId, limit)
+                        : fileStorageDataRepository.findLayoutMigrationBatch(StorageType.MINIO.getCode(),
+                                bucketLayout.legacyBucketPattern(), familyId, lastId, limit);
+                if (batch.isEmpty()) {
+                    reachedEnd = true;
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+                result.setScannedFiles(result.getScannedFiles() + batch.size());
+                processBatch(batch, adapter, executor, cleanup, result, traceId);
+                result.setLastId(lastId);
+            }
+            result.setCompleted(reachedEnd && isFinished(familyId, cleanup, result));
+        } catch (UnsupportedOperationException e) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "MinIO存储不可用或不支持服务端复制");
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("{}结束: familyId={}, scanned={}, migrated={}, cleaned={}, skipped={}, failed={}, bytes={}, lastId={}, completed={}, cost={}ms, traceId={}",
+                taskName, familyId, result.getScannedFiles(), result.getMigratedFiles(), result.getCleanedFiles(),
+                result.getSkippedFiles(), result.getFailedFiles(), result.getBytesCopied(), result.getLastId(),
+                result.isCompleted(), result.getElapsedMillis(), traceId);
+        return result;
+    }
+
+    /**
+     * 并行处理一批存储数据，在调用线程汇总结果
+     */
+    private void processBatch(List<FileStorageData> batch, StorageAdapter adapter, ExecutorService executor,
+                              boolean cleanup, LayoutMigrationResult result, String traceId) {
+        List<Callable<Outcome>> tasks = new ArrayList<>(batch.size());
+        for (FileStorageData storageData : batch) {
+            tasks.add(cleanup
+                    ? () -> cleanupOne(storageData, adapter, traceId)
+                    : () -> migrateOne(storageData, adapter, traceId));
+        }
+
+        try {
+            List<Future<Outcome>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                switch (getQuietly(futures.get(i))) {
+                    case DONE -> {
+                        if (cleanup) {
+                            result.setCleanedFiles(result.getCleanedFiles() + 1);
+                        } else {
+                            Long size = batch.get(i).getFileSize();
+                            result.setMigratedFiles(result.getMigratedFiles() + 1);
+                            result.setBytesCopied(result.getBytesCopied() + (size != null ? size : 0));
+                        }
+                    }
+                    case SKIPPED -> result.setSkippedFiles(result.getSkippedFiles() + 1);
+                    case FAILED -> result.setFailedFiles(result.getFailedFiles() + 1);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 已切换的记录不会再被扫描到，未切换的下次从同一游标重新处理
+            log.warn("桶布局迁移被中断, traceId={}", traceId);
+        }
+    }
+
+    /**
+     * 迁移单个对象：复制、校验、按原位置条件切换记录
+     */
+    private Outcome migrateOne(FileStorageData storageData, StorageAdapter adapter, String traceId) {
+        String fileId = storageData.getFileId();
+        String familyId = storageData.getFamilyId();
+        String sourceBucket = storageData.getFamilyBucketName();
+        // 早期只记录目录的数据先解析出真实对象键；切换记录时仍以原 filePath 为条件
+        String sourceKey = storageObjectKeyResolver.resolve(storageData);
+        if (!StringUtils.hasText(familyId) || !StringUtils.hasText(sourceKey)) {
+            log.warn("存储数据缺少家庭ID或无法确定对象键，跳过迁移: fileId={}, filePath={}, traceId={}",
+                    fileId, storageData.getFilePath(), traceId);
+            return Outcome.FAILED;
+        }
+        MinioBucketLayout.ObjectLocation target = bucketLayout.shardedLocation(familyId, sourceKey);
+
+        try {
+            StoredObjectStat sourceStat = adapter.statObject(sourceBucket, sourceKey);
+            if (sourceStat != null) {
+                adapter.copyObject(sourceBucket, sourceKey, target.bucketName(), target.objectKey());
+            }
+            // 源对象不存在时，可能是上次复制后切换前中断、随后被清理，目标副本完整即可直接切换
+            StoredObjectStat targetStat = adapter.statObject(target.bucketName(), target.objectKey());
+            long expectedSize = sourceStat != null ? sourceStat.getSize()
+                    : storageData.getFileSize() != null ? storageData.getFileSize() : -1;
+            if (targetStat == null || expectedSize < 0 || targetStat.getSize() != expectedSize) {
+                log.error("桶布局迁移校验失败: fileId={}, source={}/{}, target={}, sourceExists={}, expectedSize={}, actualSize={}, traceId={}",
+                        fileId, sourceBucket, sourceKey, target.fullAccessPath(), sourceStat != null, expectedSize,
+                        targetStat != null ? targetStat.getSize() : null, traceId);
+                return Outcome.FAILED;
+            }
+
+            int updated = fileStorageDataRepository.relocateObject(storageData.getId(), sourceBucket, storageData.getFilePath(),
+                    target.bucketName(), target.objectKey(), target.fullAccessPath());
+            if (updated == 0) {
+                discardCopy(storageData.getId(), target, adapter, traceId);
+                log.info("迁移期间存储数据已变更，放弃本次迁移: fileId={}, traceId={}", fileId, traceId);
+                return Outcome.SKIPPED;
+            }
+
+            presignedUrlCache.invalidate(familyId, fileId);
+            fileMetadataCache.invalidate(fileId);
+            log.debug("对象已迁移到共享桶: fileId={}, source={}/{}, target={}, traceId={}",
+                    fileId, sourceBucket, sourceKey, target.fullAccessPath(), traceId);
+            return Outcome.DONE;
+        } catch (Exception e) {
+            log.error("桶布局迁移失败: fileId={}, source={}/{}, error={}, traceId={}",
+                    fileId, sourceBucket, sourceKey, e.getMessage(), traceId);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * 切换失败时清理目标副本；记录已被其他实例切换到同一位置时保留
+     */
+    private void discardCopy(Long storageDataId, MinioBucketLayout.ObjectLocation target, StorageAdapter adapter,
+                             String traceId) {
+        boolean referenced = fileStorageDataRepository.findById(storageDataId)
+                .map(current -> target.bucketName().equals(current.getFamilyBucketName())
+                        && target.objectKey().equals(current.getFilePath()))
+                .orElse(false);
+        if (!referenced && !adapter.deleteObject(target.bucketName(), target.objectKey())) {
+            log.warn("清理未切换的迁移副本失败: target={}, traceId={}", target.fullAccessPath(), traceId);
+        }
+    }
+
+    /**
+     * 删除单个已迁移对象在旧桶中的副本
+     */
+    private Outcome cleanupOne(FileStorageData storageData, StorageAdapter adapter, String traceId) {
+        MinioBucketLayout.ObjectLocation legacy =
+                bucketLayout.alternateLocation(storageData.getFamilyBucketName(), storageData.getFilePath());
+        if (legacy == null || !bucketLayout.isLegacyBucket(legacy.bucketName())) {
+            return Outcome.SKIPPED;
+        }
+        try {
+            // 旧位置仍被其他记录引用（尚未迁移）时不能删除
+            if (fileStorageDataRepository.existsByFamilyBucketNameAndFilePath(legacy.bucketName(), legacy.objectKey())) {
+                return Outcome.SKIPPED;
+            }
+            // 直接写入共享桶的文件没有旧副本，删除不存在的对象也会成功，需先确认旧副本存在才计为已清理
+            if (adapter.statObject(legacy.bucketName(), legacy.objectKey()) == null) {
+                return Outcome.SKIPPED;
+            }
+            if (!adapter.deleteObject(legacy.bucketName(), legacy.objectKey())) {
+                return Outcome.FAILED;
+            }
+            return Outcome.DONE;
+        } catch (Exception e) {
+            log.error("清理旧布局副本失败: fileId={}, legacy={}, error={}, traceId={}",
+                    storageData.getFileId(), legacy.fullAccessPath(), e.getMessage(), traceId);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * 扫描到末尾后判断是否真正完成
+     * <p>
+     * 迁移：从头检查是否仍有旧布局数据，本次或之前调用中失败的数据都会使结果为未完成；
+     * 清理：本次调用没有失败
+     */
+    private boolean isFinished(String familyId, boolean cleanup, LayoutMigrationResult result) {
+        if (result.getFailedFiles() > 0) {
+            return false;
+        }
+        return cleanup || fileStorageDataRepository.findLayoutMigrationBatch(StorageType.MINIO.getCode(),
+                bucketLayout.legacyBucketPattern(), familyId, 0, 1).isEmpty();
+    }
+
+    private static Outcome getQuietly(Future<Outcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.FAILED;
+        } catch (ExecutionException e) {
+            return Outcome.FAILED;
+        }
+    }
+}
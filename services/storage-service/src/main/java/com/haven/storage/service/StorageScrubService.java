@@ -0,0 +1,456 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.IntegrityIssueType;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.ScrubRunResult;
+import com.haven.storage.domain.model.file.StoredObjectSummary;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.repository.StorageIntegrityIssueRepository;
+import com.haven.storage.utils.ByteRateLimiter;
+import com.haven.storage.utils.ThrottledSource;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+import okio.HashingSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 存储完整性巡检服务
+ * <p>
+ * 后台持续运行，按轮次检查存储数据与物理对象是否一致，每轮依次经过三个阶段：
+ * - 对象校验：按主键游标、按记录的桶名和对象键流式读取每个对象并重新计算 SHA-256，与 fileChecksum 比对；
+ *   存储确认对象不存在时记为缺失，读取失败不下结论
+ * - 元数据检查：按主键区间查找没有存储数据的文件元数据
+ * - 孤儿对象：逐桶列举对象，找出没有存储数据的对象（跳过宽限期内新写入的对象和备份对象）
+ * <p>
+ * 早期只记录目录的存储数据统一经 {@link StorageObjectKeyResolver} 得到真实对象键后再读取和比对。
+ * <p>
+ * 💡 运行约束：
+ * - 所有读取共享一个字节速率限制器，带宽不超过 bytes-per-second，可长期运行而不影响在线流量
+ * - 每次运行只推进有限的工作量，游标保存在内存中，下次运行从断点继续；进程重启后从头开始新一轮
+ * - 绕过本地读缓存直接读取远端，确保校验的是远端数据
+ * - 发现的问题按 (类型, 问题键) 幂等写入 storage_integrity_issue，文件再次校验通过时自动解决
+ * - 只记录问题，不修改文件状态，修复由运维根据记录处理
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class StorageScrubService {
+
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final StorageIntegrityIssueRepository storageIntegrityIssueRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+    private final ByteRateLimiter scrubLimiter;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /** 巡检进度，只在持有 runLock 时修改；报告读取不加锁，避免等待正在限速读取的巡检 */
+    private volatile Phase phase = Phase.VERIFY_OBJECTS;
+    private volatile long verifyCursor;
+    private volatile long metadataCursor;
+    private List<OrphanScanTarget> orphanTargets;
+    private int orphanTargetIndex;
+    private String orphanStartAfter;
+    private volatile long roundsCompleted;
+    private volatile LocalDateTime lastRoundCompletedTime;
+
+    @Value("${storage.scrub.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.scrub.files-per-run:200}")
+    private int filesPerRun;
+
+    @Value("${storage.scrub.metadata-rows-per-run:20000}")
+    private int metadataRowsPerRun;
+
+    @Value("${storage.scrub.objects-per-run:5000}")
+    private int objectsPerRun;
+
+    @Value("${storage.scrub.batch-size:100}")
+    private int batchSize;
+
+    @Value("${storage.scrub.orphan-grace-minutes:60}")
+    private int orphanGraceMinutes;
+
+    @Value("${storage.backup.bucket-name:haven-backup}")
+    private String backupBucketName;
+
+    @Value("${storage.backup.path-prefix:backup/}")
+    private String backupPathPrefix;
+
+    public StorageScrubService(FileStorageDataRepository fileStorageDataRepository,
+                               FileMetadataRepository fileMetadataRepository,
+                               StorageIntegrityIssueRepository storageIntegrityIssueRepository,
+                               StorageOperationRegistry storageOperationRegistry,
+                               StorageObjectKeyResolver storageObjectKeyResolver,
+                               @Value("${storage.scrub.bytes-per-second:5242880}") long bytesPerSecond) {
+        this.fileStorageDataRepository = fileStorageDataRepository;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.storageIntegrityIssueRepository = storageIntegrityIssueRepository;
+        this.storageOperationRegistry = storageOperationRegistry;
+        this.storageObjectKeyResolver = storageObjectKeyResolver;
+        this.scrubLimiter = new ByteRateLimiter(bytesPerSecond);
+    }
+
+    /**
+     * 定时推进巡检，两次运行之间间隔 interval-millis
+     */
+    @Scheduled(fixedDelayString = "${storage.scrub.interval-millis:60000}",
+            initialDelayString = "${storage.scrub.initial-delay-millis:300000}")
+    public void scheduledScrub() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            scrub(filesPerRun);
+        } catch (BusinessException e) {
+            log.debug("跳过定时完整性巡检: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("完整性巡检异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从当前进度继续巡检
+     *
+     * @param maxFiles 本次最多校验的对象数（元数据检查和孤儿对象列举按各自的配置量推进）
+     * @return 本次运行结果
+     */
+    public ScrubRunResult scrub(int maxFiles) {
+        if (!runLock.tryLock()) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "完整性巡检正在执行中");
+        }
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        ScrubRunResult result = new ScrubRunResult();
+        result.setTraceId(traceId);
+        try {
+            Map<StorageType, StorageAdapter> adapters = new HashMap<>();
+            boolean phaseFinished = true;
+            while (phaseFinished && !result.isRoundCompleted()) {
+                phaseFinished = switch (phase) {
+                    case VERIFY_OBJECTS -> verifyObjects(maxFiles, adapters, result, traceId);
+                    case CHECK_METADATA -> checkMetadata(result);
+                    case FIND_ORPHANS -> findOrphanObjects(adapters, result, traceId);
+                };
+                if (phaseFinished) {
+                    advancePhase(result);
+                }
+            }
+            result.setPhase(phase.name());
+        } finally {
+            runLock.unlock();
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("完整性巡检: phase={}, verified={}, missing={}, mismatched={}, missingStorageData={}, listed={}, orphans={}, bytes={}, roundCompleted={}, cost={}ms, traceId={}",
+                result.getPhase(), result.getVerifiedFiles(), result.getMissingObjects(), result.getChecksumMismatches(),
+                result.getMissingStorageData(), result.getListedObjects(), result.getOrphanObjects(), result.getBytesRead(),
+                result.isRoundCompleted(), result.getElapsedMillis(), traceId);
+        return result;
+    }
+
+    /**
+     * 巡检进度和未解决问题统计
+     */
+    public Map<String, Object> getScrubReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("running", runLock.isLocked());
+        report.put("phase", phase.name());
+        report.put("verifyCursor", verifyCursor);
+        report.put("metadataCursor", metadataCursor);
+        report.put("roundsCompleted", roundsCompleted);
+        report.put("lastRoundCompletedTime", lastRoundCompletedTime);
+        Map<String, Long> unresolved = new LinkedHashMap<>();
+        for (IntegrityIssueType type : IntegrityIssueType.values()) {
+            unresolved.put(type.name(), 0L);
+        }
+        for (Object[] row : storageIntegrityIssueRepository.countUnresolvedByType()) {
+            unresolved.put(((IntegrityIssueType) row[0]).name(), ((Number) row[1]).longValue());
+        }
+        report.put("unresolvedIssues", unresolved);
+        return report;
+    }
+
+    // ==================== 阶段一：对象校验 ====================
+
+    /**
+     * @return 是否已校验到末尾
+     */
+    private boolean verifyObjects(int maxFiles, Map<StorageType, StorageAdapter> adapters,
+                                  ScrubRunResult result, String traceId) {
+        int remaining = maxFiles;
+        while (remaining > 0) {
+            List<FileStorageData> batch = fileStorageDataRepository.findScrubBatch(verifyCursor, Math.min(batchSize, remaining));
+            if (batch.isEmpty()) {
+                return true;
+            }
+            Map<String, String> objectKeys = storageObjectKeyResolver.resolveAll(batch);
+            for (FileStorageData storageData : batch) {
+                verifyObject(storageData, objectKeys.get(storageData.getFileId()), adapters, result, traceId);
+                verifyCursor = storageData.getId();
+            }
+            remaining -= batch.size();
+        }
+        return false;
+    }
+
+    private void verifyObject(FileStorageData storageData, String objectKey, Map<StorageType, StorageAdapter> adapters,
+                              ScrubRunResult result, String traceId) {
+        StorageAdapter adapter = resolveAdapter(storageData.getStorageType(), adapters);
+        if (adapter == null) {
+            // 存储类型不可用时不下结论，下一轮再检查
+            return;
+        }
+        String fileId = storageData.getFileId();
+        if (!StringUtils.hasText(objectKey)) {
+            // 历史数据只记录了目录且找不到原始文件名，无法定位对象，不下结论
+            log.debug("存储数据无法确定对象键，跳过对象校验: fileId={}, filePath={}", fileId, storageData.getFilePath());
+            return;
+        }
+        // 按记录的位置读取：null 表示对象或桶确实不存在，读取失败抛异常，两者不会混淆
+        try (BufferedSource input = adapter.openObject(storageData.getFamilyBucketName(), objectKey)) {
+            if (input == null) {
+                recordFileIssue(IntegrityIssueType.MISSING_OBJECT, storageData, null);
+                result.setMissingObjects(result.getMissingObjects() + 1);
+                return;
+            }
+            HashingSource hashingSource = HashingSource.sha256(new ThrottledSource(input, scrubLimiter));
+            long bytes;
+            try (BufferedSource throttled = Okio.buffer(hashingSource)) {
+                bytes = throttled.readAll(Okio.blackhole());
+            }
+            String actualChecksum = hashingSource.hash().hex();
+            result.setBytesRead(result.getBytesRead() + bytes);
+            result.setVerifiedFiles(result.getVerifiedFiles() + 1);
+
+            String expectedChecksum = storageData.getFileChecksum();
+            if (!StringUtils.hasText(expectedChecksum)) {
+                fileStorageDataRepository.updateChecksumIfAbsent(storageData.getId(), actualChecksum);
+            } else if (!expectedChecksum.equalsIgnoreCase(actualChecksum)) {
+                log.error("对象校验和不一致: fileId={}, expected={}, actual={}, traceId={}",
+                        fileId, expectedChecksum, actualChecksum, traceId);
+                recordFileIssue(IntegrityIssueType.CHECKSUM_MISMATCH, storageData, actualChecksum);
+                result.setChecksumMismatches(result.getChecksumMismatches() + 1);
+                return;
+            }
+            storageIntegrityIssueRepository.resolveFileIssues(fileId);
+        } catch (UnsupportedOperationException e) {
+            log.debug("存储类型不支持按对象键读取，跳过对象校验: fileId={}, storageType={}", fileId, adapter.getStorageType());
+        } catch (Exception e) {
+            // 读取异常可能是暂时的网络问题，不记录为完整性问题
+            log.warn("巡检读取对象失败: fileId={}, error={}, traceId={}", fileId, e.getMessage(), traceId);
+        }
+    }
+
+    // ==================== 阶段二：元数据检查 ====================
+
+    /**
+     * @return 是否已检查到末尾
+     */
+    private boolean checkMetadata(ScrubRunResult result) {
+        int remaining = metadataRowsPerRun;
+        int window = Math.max(batchSize, 1000);
+        while (remaining > 0) {
+            Long upperId = fileMetadataRepository.findCursorAfter(metadataCursor, Math.min(window, remaining));
+            if (upperId == null) {
+                return true;
+            }
+            for (FileMetadata metadata : fileMetadataRepository.findWithoutStorageData(metadataCursor, upperId)) {
+                storageIntegrityIssueRepository.recordIssue(IntegrityIssueType.MISSING_STORAGE_DATA.name(),
+                        metadata.getFileId(), metadata.getFileId(), metadata.getFamilyId(),
+                        null, null, null, null, null);
+                result.setMissingStorageData(result.getMissingStorageData() + 1);
+            }
+            metadataCursor = upperId;
+            remaining -= window;
+        }
+        return false;
+    }
+
+    // ==================== 阶段三：孤儿对象 ====================
+
+    /**
+     * @return 是否已列举完所有桶
+     */
+    private boolean findOrphanObjects(Map<StorageType, StorageAdapter> adapters, ScrubRunResult result, String traceId) {
+        if (orphanTargets == null) {
+            orphanTargets = loadOrphanTargets();
+            orphanTargetIndex = 0;
+            orphanStartAfter = null;
+        }
+        Instant graceCutoff = Instant.now().minus(orphanGraceMinutes, ChronoUnit.MINUTES);
+        int remaining = objectsPerRun;
+        while (remaining > 0 && orphanTargetIndex < orphanTargets.size()) {
+            OrphanScanTarget target = orphanTargets.get(orphanTargetIndex);
+            StorageAdapter adapter = resolveAdapter(target.storageType().getCode(), adapters);
+            int pageSize = Math.min(batchSize * 10, remaining);
+            List<StoredObjectSummary> objects = List.of();
+            if (adapter != null) {
+                try {
+                    objects = adapter.listObjects(target.bucketName(), orphanStartAfter, pageSize);
+                } catch (UnsupportedOperationException e) {
+                    log.debug("存储类型不支持列举，跳过孤儿对象检查: storageType={}", target.storageType());
+                } catch (Exception e) {
+                    log.warn("巡检列举对象失败，跳过该桶: storageType={}, bucket={}, error={}, traceId={}",
+                            target.storageType(), target.bucketName(), e.getMessage(), traceId);
+                }
+            }
+
+            if (!objects.isEmpty()) {
+                checkListedObjects(target, objects, graceCutoff, result);
+                orphanStartAfter = objects.get(objects.size() - 1).getObjectKey();
+                remaining -= objects.size();
+                result.setListedObjects(result.getListedObjects() + objects.size());
+            }
+            if (objects.size() < pageSize) {
+                // 该桶已列举完（或不可列举），进入下一个桶
+                orphanTargetIndex++;
+                orphanStartAfter = null;
+            }
+        }
+        return orphanTargetIndex >= orphanTargets.size();
+    }
+
+    private void checkListedObjects(OrphanScanTarget target, List<StoredObjectSummary> objects,
+                                    Instant graceCutoff, ScrubRunResult result) {
+        Set<String> objectKeys = new HashSet<>();
+        Set<String> directories = new HashSet<>();
+        for (StoredObjectSummary object : objects) {
+            objectKeys.add(object.getObjectKey());
+            directories.add(object.getObjectKey().substring(0, object.getObjectKey().lastIndexOf('/') + 1));
+        }
+
+        // 对象键 = filePath，早期只记录目录的数据由解析器拼接原始文件名
+        Set<String> knownKeys = new HashSet<>(storageObjectKeyResolver.resolveAll(fileStorageDataRepository.findByObjectKeys(
+                target.storageType().getCode(), target.bucketName(), objectKeys, directories)).values());
+
+        for (StoredObjectSummary object : objects) {
+            if (knownKeys.contains(object.getObjectKey())) {
+                continue;
+            }
+            // 早期版本写在家庭桶内的备份对象没有存储数据，不是孤儿
+            if (StringUtils.hasText(backupPathPrefix) && object.getObjectKey().startsWith(backupPathPrefix)) {
+                continue;
+            }
+            // 上传先写对象再提交存储数据，宽限期内的新对象不判定为孤儿
+            if (object.getLastModified() == null || object.getLastModified().isAfter(graceCutoff)) {
+                continue;
+            }
+            storageIntegrityIssueRepository.recordIssue(IntegrityIssueType.ORPHAN_OBJECT.name(),
+                    target.storageType().name() + ":" + target.bucketName() + "/" + object.getObjectKey(),
+                    null, null, target.storageType().getCode(), target.bucketName(), object.getObjectKey(), null, null);
+            result.setOrphanObjects(result.getOrphanObjects() + 1);
+        }
+    }
+
+    private List<OrphanScanTarget> loadOrphanTargets() {
+        List<OrphanScanTarget> targets = new ArrayList<>();
+        for (Integer code : fileStorageDataRepository.findDistinctStorageTypes()) {
+            StorageType storageType = StorageType.getByCode(code);
+            if (storageType == null) {
+                continue;
+            }
+            for (String bucketName : fileStorageDataRepository.findDistinctBucketNames(code)) {
+                if (bucketName.equals(backupBucketName)) {
+                    // 备份桶中的对象都没有存储数据
+                    continue;
+                }
+                targets.add(new OrphanScanTarget(storageType, bucketName));
+            }
+        }
+        return targets;
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void advancePhase(ScrubRunResult result) {
+        switch (phase) {
+            case VERIFY_OBJECTS -> {
+                phase = Phase.CHECK_METADATA;
+                metadataCursor = 0;
+            }
+            case CHECK_METADATA -> {
+                phase = Phase.FIND_ORPHANS;
+                orphanTargets = null;
+            }
+            case FIND_ORPHANS -> {
+                phase = Phase.VERIFY_OBJECTS;
+                verifyCursor = 0;
+                orphanTargets = null;
+                roundsCompleted++;
+                lastRoundCompletedTime = LocalDateTime.now();
+                result.setRoundCompleted(true);
+            }
+        }
+    }
+
+    /**
+     * 获取可用于巡检的存储适配器：绕过本地读缓存，不健康或不支持的存储类型返回null
+     */
+    private StorageAdapter resolveAdapter(Integer storageTypeCode, Map<StorageType, StorageAdapter> adapters) {
+        StorageType storageType = storageTypeCode != null ? StorageType.getByCode(storageTypeCode) : null;
+        if (storageType == null) {
+            return null;
+        }
+        if (adapters.containsKey(storageType)) {
+            return adapters.get(storageType);
+        }
+        StorageAdapter adapter = null;
+        try {
+            adapter = CachingStorageAdapter.unwrap(storageOperationRegistry.getStorageAdapter(storageType));
+            if (!adapter.isHealthy()) {
+                log.warn("存储不可用，本次跳过巡检: storageType={}", storageType);
+                adapter = null;
+            }
+        } catch (UnsupportedOperationException e) {
+            log.debug("存储类型未启用，跳过巡检: storageType={}", storageType);
+        }
+        adapters.put(storageType, adapter);
+        return adapter;
+    }
+
+    private void recordFileIssue(IntegrityIssueType issueType, FileStorageData storageData, String actualChecksum) {
+        storageIntegrityIssueRepository.recordIssue(issueType.name(), storageData.getFileId(), storageData.getFileId(),
+                storageData.getFamilyId(), storageData.getStorageType(), storageData.getFamilyBucketName(),
+                storageData.getFilePath(), storageData.getFileChecksum(), actualChecksum);
+    }
+
+    private enum Phase {
+        VERIFY_OBJECTS,
+        CHECK_METADATA,
+        FIND_ORPHANS
+    }
+
+    private record OrphanScanTarget(StorageType storageType, String bucketName) {
+    }
+}
@@ -0,0 +1,397 @@
+package com.haven.storage.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.StorageTier;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.domain.model.file.TieringResult;
+import com.haven.storage.operation.database.FileMetadataCache;
+import com.haven.storage.operation.storage.PresignedUrlCache;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageObjectKeyResolver;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.operation.storage.cache.CachingStorageAdapter;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.security.UserContext;
+import com.haven.storage.utils.ByteRateLimiter;
+import com.haven.storage.utils.FileUtils;
+import com.haven.storage.utils.ThrottledSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
+import okio.HashingSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 冷热分层存储服务
+ * <p>
+ * 根据文件访问情况在热层和冷层存储之间迁移物理文件：
+ * - 降冷：定时扫描长期未访问、访问次数少的文件，迁移到冷层存储（如本地归档目录或低成本桶）
+ * - 升热：冷层文件被访问时异步迁回热层
+ * - 当前所在层记录在 FileStorageData.storageConfig 的 tier 字段中
+ * <p>
+ * 💡 迁移约束：
+ * - 所有迁移共享同一个字节速率限制器，总带宽不超过 bytes-per-second
+ * - 拷贝过程计算 SHA-256，与已有校验和不一致时放弃迁移并清理目标副本
+ * - 先写目标、再切换存储位置、最后删除源副本；切换失败时清理目标副本，源文件始终可读
+ * - 源和目标都按存储数据记录的桶名和对象键读写，切换后读取方按新的存储类型定位文件
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class StorageTieringService {
+
+    static final String CONFIG_TIER = "tier";
+    static final String CONFIG_TIER_CHANGED_AT = "tierChangedAt";
+    static final String CONFIG_PREVIOUS_STORAGE_TYPE = "previousStorageType";
+
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final PresignedUrlCache presignedUrlCache;
+    private final FileMetadataCache fileMetadataCache;
+    private final StorageObjectKeyResolver storageObjectKeyResolver;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean demotionRunning = new AtomicBoolean(false);
+    private final Set<String> pendingPromotions = ConcurrentHashMap.newKeySet();
+    private final ByteRateLimiter migrationLimiter;
+    private final ThreadPoolExecutor promotionExecutor;
+
+    @Value("${storage.tiering.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.tiering.hot-storage-type:MINIO}")
+    private StorageType hotStorageType;
+
+    @Value("${storage.tiering.cold-storage-type:LOCAL}")
+    private StorageType coldStorageType;
+
+    @Value("${storage.tiering.cold-after-days:30}")
+    private int coldAfterDays;
+
+    @Value("${storage.tiering.cold-max-access-count:3}")
+    private int coldMaxAccessCount;
+
+    @Value("${storage.tiering.batch-size:100}")
+    private int batchSize;
+
+    @Value("${storage.tiering.max-files-per-run:5000}")
+    private int maxFilesPerRun;
+
+    @Value("${storage.tiering.promote-on-access:true}")
+    private boolean promoteOnAccess;
+
+    public StorageTieringService(FileStorageDataRepository fileStorageDataRepository,
+                                 FileMetadataRepository fileMetadataRepository,
+                                 StorageOperationRegistry storageOperationRegistry,
+                                 PresignedUrlCache presignedUrlCache,
+                                 FileMetadataCache fileMetadataCache,
+                                 StorageObjectKeyResolver storageObjectKeyResolver,
+                                 @Value("${storage.tiering.bytes-per-second:10485760}") long bytesPerSecond,
+                                 @Value("${storage.tiering.promotion-queue-size:100}") int promotionQueueSize) {
+        this.fileStorageDataRepository = fileStorageDataRepository;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.storageOperationRegistry = storageOperationRegistry;
+        this.presignedUrlCache = presignedUrlCache;
+        this.fileMetadataCache = fileMetadataCache;
+        this.storageObjectKeyResolver = storageObjectKeyResolver;
+        this.migrationLimiter = new ByteRateLimiter(bytesPerSecond);
+        // 升热为单线程有界队列，队列满时丢弃（下次访问会再次触发）
+        this.promotionExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(promotionQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "storage-tier-promotion");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 定时降冷任务
+     */
+    @Scheduled(cron = "${storage.tiering.cron:0 0 3 * * ?}")
+    public void scheduledDemotion() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            demoteColdFiles(0, maxFilesPerRun);
+        } catch (BusinessException e) {
+            log.info("跳过定时降冷任务: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将长期未访问的热层文件迁移到冷层
+     * <p>
+     * 按主键游标分批扫描，同一时刻只允许一个降冷任务运行
+     *
+     * @param fromId   起始游标（不含），首次传0
+     * @param maxFiles 本次最多扫描的文件数
+     * @return 迁移结果，包含下次继续的游标
+     */
+    public TieringResult demoteColdFiles(long fromId, int maxFiles) {
+        if (!demotionRunning.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "冷热分层迁移任务正在执行中");
+        }
+
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        long start = System.currentTimeMillis();
+        TieringResult result = new TieringResult();
+        result.setTraceId(traceId);
+        result.setLastId(fromId);
+
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(coldAfterDays);
+            long lastId = fromId;
+            while (result.getScannedFiles() < maxFiles && !Thread.currentThread().isInterrupted()) {
+                int limit = Math.min(batchSize, maxFiles - result.getScannedFiles());
+                List<FileStorageData> batch = fileStorageDataRepository.findColdCandidates(
+                        hotStorageType.getCode(), cutoff, coldMaxAccessCount, lastId, limit);
+                if (batch.isEmpty()) {
+                    result.setCompleted(true);
+                    break;
+                }
+                for (FileStorageData storageData : batch) {
+                    lastId = storageData.getId();
+                    result.setScannedFiles(result.getScannedFiles() + 1);
+                    if (migrate(storageData, coldStorageType, StorageTier.COLD, traceId)) {
+                        result.setMigratedFiles(result.getMigratedFiles() + 1);
+                        result.setBytesMoved(result.getBytesMoved() + sizeOf(storageData));
+                    } else {
+                        result.setFailedFiles(result.getFailedFiles() + 1);
+                    }
+                }
+                result.setLastId(lastId);
+            }
+        } finally {
+            demotionRunning.set(false);
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("冷热分层降冷结束: scanned={}, migrated={}, failed={}, bytes={}, lastId={}, completed={}, traceId={}",
+                result.getScannedFiles(), result.getMigratedFiles(), result.getFailedFiles(),
+                result.getBytesMoved(), result.getLastId(), result.isCompleted(), traceId);
+        return result;
+    }
+
+    /**
+     * 文件被访问时调用：冷层文件异步迁回热层
+     * <p>
+     * 不阻塞当前请求，存储层级的判断在后台线程完成，同一文件的升热任务不会重复排队
+     */
+    public void onFileAccessed(String fileId) {
+        if (!enabled || !promoteOnAccess || fileId == null) {
+            return;
+        }
+        if (!pendingPromotions.add(fileId)) {
+            return;
+        }
+        try {
+            promotionExecutor.execute(UserContext.withUserContext(() -> {
+                try {
+                    promote(fileId);
+                } catch (Exception e) {
+                    log.warn("文件升热失败: fileId={}, error={}", fileId, e.getMessage());
+                } finally {
+                    pendingPromotions.remove(fileId);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            pendingPromotions.remove(fileId);
+            log.debug("升热队列已满，暂不迁移: fileId={}", fileId);
+        }
+    }
+
+    /**
+     * 将冷层文件迁回热层
+     *
+     * @return 是否完成迁移（文件不在冷层时返回false）
+     */
+    public boolean promote(String fileId) {
+        Optional<FileStorageData> storageData = fileStorageDataRepository.findByFileId(fileId);
+        if (storageData.isEmpty() || readTier(storageData.get()) != StorageTier.COLD) {
+            return false;
+        }
+        return migrate(storageData.get(), hotStorageType, StorageTier.HOT, TraceIdUtil.getCurrentOrGenerate());
+    }
+
+    /**
+     * 读取存储数据当前所在层，未记录时视为热层
+     */
+    public StorageTier readTier(FileStorageData storageData) {
+        Object tier = parseStorageConfig(storageData.getStorageConfig()).get(CONFIG_TIER);
+        return StorageTier.COLD.name().equals(tier) ? StorageTier.COLD : StorageTier.HOT;
+    }
+
+    /**
+     * 将文件迁移到目标存储
+     * <p>
+     * 流程：限速读取源文件并写入目标 → 校验SHA-256 → 切换存储位置 → 删除源副本
+     */
+    private boolean migrate(FileStorageData storageData, StorageType targetType, StorageTier targetTier, String traceId) {
+        String fileId = storageData.getFileId();
+        String familyId = storageData.getFamilyId();
+        StorageType sourceType = StorageType.getByCode(storageData.getStorageType());
+        if (sourceType == targetType) {
+            return false;
+        }
+
+        FileMetadata metadata = fileMetadataRepository.findByFileId(fileId).orElse(null);
+        if (metadata == null || !StringUtils.hasText(familyId)) {
+            log.warn("存储数据缺少元数据或家庭ID，跳过分层迁移: fileId={}, traceId={}", fileId, traceId);
+            return false;
+        }
+        String sourceBucket = storageData.getFamilyBucketName();
+        String sourceKey = storageObjectKeyResolver.resolve(storageData, metadata);
+        if (sourceKey == null) {
+            log.warn("存储数据无法确定对象键，跳过分层迁移: fileId={}, filePath={}, traceId={}",
+                    fileId, storageData.getFilePath(), traceId);
+            return false;
+        }
+
+        StorageAdapter sourceAdapter;
+        StorageAdapter targetAdapter;
+        try {
+            // 迁移读取绕过本地读缓存，避免批量降冷把热点缓存挤出
+            sourceAdapter = CachingStorageAdapter.unwrap(storageOperationRegistry.getStorageAdapter(sourceType));
+            targetAdapter = storageOperationRegistry.getStorageAdapter(targetType);
+        } catch (UnsupportedOperationException e) {
+            log.error("分层迁移存储类型不可用: source={}, target={}, traceId={}", sourceType, targetType, traceId);
+            return false;
+        }
+        if (!targetAdapter.isHealthy()) {
+            log.warn("分层迁移目标存储不可用，跳过: fileId={}, target={}, traceId={}", fileId, targetType, traceId);
+            return false;
+        }
+
+        String extension = FileUtils.getFileExtension(metadata.getOriginalName());
+        FileStorageInfo targetInfo = new FileStorageInfo(targetType,
+                targetAdapter.buildFamilyBucketName(familyId),
+                fileId + (StringUtils.hasText(extension) ? "." + extension : ""),
+                targetAdapter.buildFilePath(familyId, metadata.getFileType()))
+                .setFileId(fileId)
+                .setFileSize(storageData.getFileSize())
+                .setFileMd5(storageData.getFileChecksum());
+        String targetBucket = targetInfo.getFamilyBucketName();
+        String targetKey = targetInfo.getObjectKey();
+
+        // 1. 按存储数据记录的位置限速拷贝到目标存储，同时计算校验和
+        try (BufferedSource source = sourceAdapter.openObject(sourceBucket, sourceKey)) {
+            if (source == null) {
+                log.warn("分层迁移时源文件不存在: fileId={}, source={}, traceId={}", fileId, sourceType, traceId);
+                return false;
+            }
+            HashingSource hashingSource = HashingSource.sha256(new ThrottledSource(source, migrationLimiter));
+            try (BufferedSource throttled = Okio.buffer(hashingSource)) {
+                if (!targetAdapter.uploadFile(targetInfo, throttled)) {
+                    log.warn("分层迁移写入目标存储失败: fileId={}, target={}, traceId={}", fileId, targetType, traceId);
+                    return false;
+                }
+            }
+            // 2. 校验和不一致说明拷贝不完整或源文件已损坏，放弃迁移
+            String copiedChecksum = hashingSource.hash().hex();
+            if (StringUtils.hasText(storageData.getFileChecksum())
+                    && !storageData.getFileChecksum().equalsIgnoreCase(copiedChecksum)) {
+                log.error("分层迁移校验和不一致，放弃迁移: fileId={}, expected={}, actual={}, traceId={}",
+                        fileId, storageData.getFileChecksum(), copiedChecksum, traceId);
+                targetAdapter.deleteObject(targetBucket, targetKey);
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("分层迁移拷贝失败: fileId={}, source={}, target={}, error={}, traceId={}",
+                    fileId, sourceType, targetType, e.getMessage(), traceId);
+            return false;
+        }
+
+        // 3. 切换存储位置，以原存储类型为条件防止并发覆盖
+        int switched = fileStorageDataRepository.switchStorageLocation(storageData.getId(),
+                sourceType.getCode(), targetType.getCode(),
+                targetBucket, targetKey, targetBucket + "/" + targetKey,
+                buildTierConfig(storageData.getStorageConfig(), targetTier, sourceType));
+        if (switched == 0) {
+            log.warn("存储数据已被并发修改，撤销分层迁移: fileId={}, traceId={}", fileId, traceId);
+            targetAdapter.deleteObject(targetBucket, targetKey);
+            return false;
+        }
+
+        // 4. 按原位置删除源副本（存储数据已切换，不能再按fileId定位），失败时仅留下孤儿对象，不影响读取
+        try {
+            if (!sourceAdapter.deleteObject(sourceBucket, sourceKey)) {
+                log.warn("分层迁移后删除源副本失败: fileId={}, source={}, traceId={}", fileId, sourceType, traceId);
+            }
+        } catch (Exception e) {
+            log.warn("分层迁移后删除源副本异常: fileId={}, source={}, error={}, traceId={}",
+                    fileId, sourceType, e.getMessage(), traceId);
+        }
+        presignedUrlCache.invalidate(familyId, fileId);
+        fileMetadataCache.invalidate(fileId);
+
+        log.info("分层迁移完成: fileId={}, {} -> {}, tier={}, size={}, traceId={}",
+                fileId, sourceType, targetType, targetTier, storageData.getFileSize(), traceId);
+        return true;
+    }
+
+    /**
+     * 在原存储配置基础上写入分层信息
+     */
+    private String buildTierConfig(String storageConfig, StorageTier tier, StorageType previousType) {
+        Map<String, Object> config = parseStorageConfig(storageConfig);
+        config.put(CONFIG_TIER, tier.name());
+        config.put(CONFIG_TIER_CHANGED_AT, LocalDateTime.now().toString());
+        config.put(CONFIG_PREVIOUS_STORAGE_TYPE, previousType.name());
+        try {
+            return objectMapper.writeValueAsString(config);
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "存储配置序列化失败: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> parseStorageConfig(String storageConfig) {
+        if (!StringUtils.hasText(storageConfig)) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return objectMapper.readValue(storageConfig, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (Exception e) {
+            log.warn("存储配置JSON解析失败，按空配置处理: {}", e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private static long sizeOf(FileStorageData storageData) {
+        return storageData.getFileSize() != null ? storageData.getFileSize() : 0L;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        promotionExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,285 @@
+package com.haven.storage.service;
+
+import com.haven.base.common.exception.BusinessException;
+import com.haven.base.common.response.ErrorCode;
+import com.haven.base.utils.TraceIdUtil;
+import com.haven.storage.bulkhead.UploadBulkhead;
+import com.haven.storage.bulkhead.UploadPermit;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.StorageType;
+import com.haven.storage.domain.model.enums.SupportedFileType;
+import com.haven.storage.domain.model.file.CompletedUpload;
+import com.haven.storage.domain.model.file.FileStorageInfo;
+import com.haven.storage.domain.model.file.FileUploadRequest;
+import com.haven.storage.exception.FileUploadException;
+import com.haven.storage.media.MediaMetadataExtractor;
+import com.haven.storage.operation.storage.StorageAdapter;
+import com.haven.storage.operation.storage.StorageOperationRegistry;
+import com.haven.storage.utils.FileTypeDetector;
+import com.haven.storage.utils.FileUtils;
+import com.haven.storage.utils.MultipartStreamReader;
+import com.haven.storage.utils.SpooledUpload;
+import com.haven.storage.validator.UnifiedFileValidator;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式上传服务
+ * <p>
+ * 不经过 Spring 的 MultipartFile 解析，直接从请求体逐段读取 multipart/form-data：
+ * - 表单字段：文件之前的普通字段（familyId、uploaderUserId、folderPath、visibility、description、tags）在内存中读取
+ * - 文件分段：读取的同时计算 SHA-256，不超过内存阈值的文件留在内存，超过阈值才写入一个临时文件
+ * - 存储：暂存完成后以 {@link StorageAdapter#uploadFile} 的 BufferedSource 接口写入对象存储，再在事务中登记元数据
+ * <p>
+ * 💡 约束：
+ * - 文件分段必须是最后一个分段，且每个请求只包含一个文件
+ * - 文件内容最多落盘一次（Servlet 标准解析会先落盘再复制）
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+public class StreamingUploadService {
+
+    private static final int MAX_FIELD_BYTES = 8 * 1024;
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+    private static final int MAX_TAGS = 10;
+    private static final int MAX_TAG_LENGTH = 50;
+
+    private final StorageOperationRegistry storageOperationRegistry;
+    private final UploadedFileRecorder uploadedFileRecorder;
+    private final UnifiedFileValidator unifiedFileValidator;
+    private final UploadBulkhead uploadBulkhead;
+    private final FileTypeDetector fileTypeDetector;
+    private final MediaMetadataExtractor mediaMetadataExtractor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.file.streaming-upload.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.file.streaming-upload.storage-type:MINIO}")
+    private StorageType storageType;
+
+    @Value("${storage.file.streaming-upload.memory-threshold:1048576}")
+    private long memoryThreshold;
+
+    @Value("${storage.file.streaming-upload.max-file-size:2147483648}")
+    private long maxFileSize;
+
+    @Value("${storage.file.streaming-upload.spool-directory:${java.io.tmpdir}}")
+    private String spoolDirectory;
+
+    public StreamingUploadService(StorageOperationRegistry storageOperationRegistry,
+                                  UploadedFileRecorder uploadedFileRecorder,
+                                  UnifiedFileValidator unifiedFileValidator,
+                                  UploadBulkhead uploadBulkhead,
+                                  FileTypeDetector fileTypeDetector,
+                                  MediaMetadataExtractor mediaMetadataExtractor,
+                                  TransactionTemplate transactionTemplate) {
+        this.storageOperationRegistry = storageOperationRegistry;
+        this.uploadedFileRecorder = uploadedFileRecorder;
+        this.unifiedFileValidator = unifiedFileValidator;
+        this.uploadBulkhead = uploadBulkhead;
+        this.fileTypeDetector = fileTypeDetector;
+        this.mediaMetadataExtractor = mediaMetadataExtractor;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 流式上传
+     *
+     * @param request 原始 multipart/form-data 请求
+     * @return 文件元数据
+     */
+    public FileMetadata upload(HttpServletRequest request) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+        if (!enabled) {
+            throw new BusinessException(ErrorCode.OPERATION_NOT_ALLOWED, "流式上传未启用");
+        }
+        String boundary = parseBoundary(request.getContentType());
+
+        FileUploadRequest fields = new FileUploadRequest();
+        List<String> tags = new ArrayList<>();
+        try (MultipartStreamReader reader = new MultipartStreamReader(
+                Okio.buffer(Okio.source(request.getInputStream())), boundary)) {
+            MultipartStreamReader.Part part;
+            while ((part = reader.nextPart()) != null) {
+                if (part.fileName() == null) {
+                    applyField(fields, tags, part.name(), readField(part));
+                    continue;
+                }
+                fields.setTags(tags.isEmpty() ? null : tags);
+                return storeFilePart(reader, part, fields, request.getContentLengthLong(), traceId);
+            }
+            throw new BusinessException(ErrorCode.PARAM_MISSING, "请求中缺少文件分段");
+
+        } catch (SpooledUpload.ContentTooLargeException e) {
+            throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE,
+                    "文件大小超过限制：" + (e.getMaxBytes() / 1024 / 1024) + "MB");
+        } catch (ProtocolException | EOFException e) {
+            throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "multipart请求体格式错误: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("流式上传读取请求体失败: family={}, error={}, traceId={}", fields.getFamilyId(), e.getMessage(), traceId);
+            throw new FileUploadException("读取上传内容失败: " + e.getMessage(),
+                    fields.getFamilyId(), fields.getUploaderUserId(), null);
+        }
+    }
+
+    /**
+     * 暂存文件分段、写入对象存储并登记元数据
+     */
+    private FileMetadata storeFilePart(MultipartStreamReader reader, MultipartStreamReader.Part part,
+                                       FileUploadRequest fields, long contentLength, String traceId) throws IOException {
+        String fileName = part.fileName();
+        unifiedFileValidator.validateStreamingUploadRequest(fields, fileName, part.contentType());
+
+        // 请求体长度是文件大小的上界，用于隔离舱按数据量限流
+        try (UploadPermit ignored = uploadBulkhead.acquire(fields.getFamilyId(), Math.max(contentLength, 0));
+             SpooledUpload spooled = SpooledUpload.spool(part.body(), memoryThreshold, maxFileSize, Path.of(spoolDirectory))) {
+            if (reader.nextPart() != null) {
+                throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "文件必须是最后一个表单分段，且每次只能上传一个文件");
+            }
+            if (spooled.size() == 0) {
+                throw new BusinessException(ErrorCode.PARAM_MISSING, "文件不能为空");
+            }
+
+            StorageAdapter adapter = storageOperationRegistry.getStorageAdapter(storageType);
+            SupportedFileType declaredType = fileTypeDetector.detectByExtension(fileName);
+            String fileId = FileUtils.generateFileId();
+            String extension = FileUtils.getFileExtension(fileName);
+            String bucketName = adapter.buildFamilyBucketName(fields.getFamilyId());
+            String directory = adapter.buildFilePath(fields.getFamilyId(), declaredType.getCategory().getCategoryName());
+            String objectName = fileId + (StringUtils.hasText(extension) ? "." + extension : "");
+
+            FileStorageInfo storageInfo = new FileStorageInfo(storageType, bucketName, objectName, directory);
+            storageInfo.setFileId(fileId);
+            storageInfo.setFileSize(spooled.size());
+            boolean stored;
+            try (BufferedSource content = spooled.open()) {
+                stored = adapter.uploadFile(storageInfo, content);
+            }
+            if (!stored) {
+                throw new FileUploadException("物理文件上传失败", fields.getFamilyId(), fields.getUploaderUserId(), fileName);
+            }
+
+            CompletedUpload upload = CompletedUpload.builder()
+                    .fileId(fileId)
+                    .familyId(fields.getFamilyId())
+                    .uploaderUserId(fields.getUploaderUserId())
+                    .storageType(storageType)
+                    .bucketName(bucketName)
+                    .objectKey(directory + objectName)
+                    .originalName(fileName)
+                    .folderPath(FileUtils.formatFolderPath(fields.getFolderPath()))
+                    .contentType(part.contentType())
+                    .visibility(fields.getVisibility())
+                    .description(fields.getDescription())
+                    .tags(fields.getTags())
+                    .fileSize(spooled.size())
+                    .fileChecksum(spooled.sha256())
+                    .build();
+            FileTypeDetector.HeaderPeek header = spooled.header(mediaMetadataExtractor.getHeaderPeekBytes());
+
+            FileMetadata metadata;
+            try {
+                metadata = transactionTemplate.execute(status -> uploadedFileRecorder.record(upload, header, traceId));
+            } catch (RuntimeException e) {
+                deleteQuietly(adapter, bucketName, upload.getObjectKey(), traceId);
+                throw e;
+            }
+
+            log.info("流式上传完成: fileId={}, family={}, size={}, spooledToDisk={}, traceId={}",
+                    fileId, fields.getFamilyId(), spooled.size(), !spooled.isInMemory(), traceId);
+            return metadata;
+        }
+    }
+
+    /**
+     * 登记失败时删除已写入的对象，删除失败由完整性巡检按孤儿对象发现
+     */
+    private void deleteQuietly(StorageAdapter adapter, String bucketName, String objectKey, String traceId) {
+        try {
+            adapter.deleteObject(bucketName, objectKey);
+        } catch (RuntimeException e) {
+            log.warn("清理未登记的上传对象失败: object={}/{}, error={}, traceId={}",
+                    bucketName, objectKey, e.getMessage(), traceId);
+        }
+    }
+
+    private static String parseBoundary(String contentType) {
+        try {
+            MediaType mediaType = contentType != null ? MediaType.parseMediaType(contentType) : null;
+            if (mediaType == null || !MediaType.MULTIPART_FORM_DATA.includes(mediaType)) {
+                throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "请求类型必须是multipart/form-data");
+            }
+            String boundary = mediaType.getParameter("boundary");
+            if (boundary != null && boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                boundary = boundary.substring(1, boundary.length() - 1);
+            }
+            if (!StringUtils.hasText(boundary) || boundary.length() > 70) {
+                throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "multipart请求缺少有效的boundary");
+            }
+            return boundary;
+        } catch (InvalidMediaTypeException e) {
+            throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "无效的请求类型: " + contentType);
+        }
+    }
+
+    private static String readField(MultipartStreamReader.Part part) throws IOException {
+        Buffer value = new Buffer();
+        while (part.body().read(value, MAX_FIELD_BYTES) != -1) {
+            if (value.size() > MAX_FIELD_BYTES) {
+                throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE, "表单字段过长: " + part.name());
+            }
+        }
+        return value.readUtf8();
+    }
+
+    private static void applyField(FileUploadRequest fields, List<String> tags, String name, String value) {
+        if (name == null) {
+            return;
+        }
+        switch (name) {
+            case "familyId" -> fields.setFamilyId(value);
+            case "uploaderUserId" -> fields.setUploaderUserId(value);
+            case "folderPath" -> fields.setFolderPath(value);
+            case "description" -> {
+                if (value.length() > MAX_DESCRIPTION_LENGTH) {
+                    throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE, "文件描述长度不能超过500个字符");
+                }
+                fields.setDescription(value);
+            }
+            case "tags" -> {
+                if (tags.size() >= MAX_TAGS || value.length() > MAX_TAG_LENGTH) {
+                    throw new BusinessException(ErrorCode.PARAM_OUT_OF_RANGE, "文件标签最多10个，单个标签不超过50个字符");
+                }
+                tags.add(value);
+            }
+            case "visibility" -> {
+                try {
+                    fields.setVisibility(StringUtils.hasText(value) ? FileVisibility.valueOf(value.trim()) : null);
+                } catch (IllegalArgumentException e) {
+                    throw new BusinessException(ErrorCode.PARAM_FORMAT_ERROR, "无效的文件可见性级别: " + value);
+                }
+            }
+            default -> log.debug("忽略未知的上传表单字段: {}", name);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.haven.storage.service;
+
+import com.haven.base.utils.JsonUtil;
+import com.haven.storage.domain.model.entity.FileMetadata;
+import com.haven.storage.domain.model.entity.FileStorageData;
+import com.haven.storage.domain.model.enums.FileEventType;
+import com.haven.storage.domain.model.enums.FileStatus;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.enums.ProcessingTaskType;
+import com.haven.storage.domain.model.enums.SupportedFileType;
+import com.haven.storage.domain.model.file.CompletedUpload;
+import com.haven.storage.media.MediaMetadataExtractor;
+import com.haven.storage.repository.FileMetadataRepository;
+import com.haven.storage.repository.FileStorageDataRepository;
+import com.haven.storage.utils.FileTypeDetector;
+import com.haven.storage.utils.FileUtils;
+import com.haven.storage.validator.UnifiedFileValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上传登记服务
+ * <p>
+ * 对象已写入对象存储后，在调用方事务中登记上传结果：
+ * - 按文件头校验媒体内容（尺寸、时长、分辨率），超限时抛出校验异常
+ * - 按文件头检测实际类型（检测失败时回退到扩展名），并提取媒体元数据
+ * - 写入存储数据和文件元数据
+ * - 需要OCR的文件加入后处理队列，写入上传事件由发件箱异步投递
+ * <p>
+ * 💡 对象写入不在事务中进行，调用方负责在登记失败时删除已写入的对象
+ *
+ * @author HavenButler
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadedFileRecorder {
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileStorageDataRepository fileStorageDataRepository;
+    private final FileEventOutboxService fileEventOutboxService;
+    private final FileProcessingTaskService fileProcessingTaskService;
+    private final FileTypeDetector fileTypeDetector;
+    private final MediaMetadataExtractor mediaMetadataExtractor;
+    private final UnifiedFileValidator unifiedFileValidator;
+
+    /**
+     * 登记已写入对象存储的上传
+     *
+     * @param upload  上传结果
+     * @param header  对象的文件头（未读取时传 {@link FileTypeDetector.HeaderPeek#EMPTY}）
+     * @param traceId 链路追踪ID
+     * @return 已保存的文件元数据
+     * @throws com.haven.base.common.exception.ValidationException 媒体内容超出限制时抛出
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public FileMetadata record(CompletedUpload upload, FileTypeDetector.HeaderPeek header, String traceId) {
+        // 与类型检测、元数据提取共用同一份文件头，不再读取对象
+        unifiedFileValidator.validateMediaContent(upload.getOriginalName(), upload.getFileSize(), header, traceId);
+
+        SupportedFileType fileType = fileTypeDetector.detectByHeader(header);
+        if (fileType == SupportedFileType.UNKNOWN) {
+            fileType = fileTypeDetector.detectByExtension(upload.getOriginalName());
+        }
+
+        FileStorageData storageData = new FileStorageData();
+        storageData.setStorageId(FileUtils.generateStorageId(upload.getStorageType()));
+        storageData.setFileId(upload.getFileId());
+        storageData.setFamilyId(upload.getFamilyId());
+        storageData.setStorageType(upload.getStorageType().getCode());
+        storageData.setFamilyBucketName(upload.getBucketName());
+        storageData.setFilePath(upload.getObjectKey());
+        storageData.setFullAccessPath(upload.getBucketName() + "/" + upload.getObjectKey());
+        storageData.setStorageStatus(FileStatus.NORMAL.getCode());
+        storageData.setFileSize(upload.getFileSize());
+        storageData.setFileChecksum(upload.getFileChecksum());
+        storageData.setBackupStatus(FileStorageData.BACKUP_STATUS_NOT_BACKED_UP);
+        if (upload.getStorageMetadata() != null && !upload.getStorageMetadata().isEmpty()) {
+            storageData.setStorageMetadata(JsonUtil.toJson(upload.getStorageMetadata()));
+        }
+        fileStorageDataRepository.save(storageData);
+
+        FileMetadata metadata = new FileMetadata();
+        metadata.setFileId(upload.getFileId());
+        metadata.setStorageId(storageData.getStorageId());
+        metadata.setFamilyId(upload.getFamilyId());
+        metadata.setOwnerId(upload.getUploaderUserId());
+        metadata.setUploaderUserId(upload.getUploaderUserId());
+        metadata.setUploadedBy(upload.getUploaderUserId());
+        metadata.setOriginalName(upload.getOriginalName());
+        metadata.setFolderPath(upload.getFolderPath());
+        metadata.setFileSize(upload.getFileSize());
+        metadata.setFileType(fileType.getCategory().getCategoryName());
+        metadata.setMimeType(fileType.getMimeType());
+        metadata.setContentType(StringUtils.hasText(upload.getContentType()) ? upload.getContentType() : fileType.getMimeType());
+        metadata.setTags(upload.getTags() != null && !upload.getTags().isEmpty() ? upload.getTags() : fileType.getExtensions());
+        metadata.setDescription(upload.getDescription());
+        metadata.setFileVisibility(upload.getVisibility() != null ? upload.getVisibility() : FileVisibility.PRIVATE);
+        metadata.setUploadTime(LocalDateTime.now());
+        metadata.setAccessCount(0);
+        mediaMetadataExtractor.extractInto(header, fileType, metadata, traceId);
+        fileMetadataRepository.save(metadata);
+
+        if (ProcessingTaskType.requiresOcr(fileType)) {
+            fileProcessingTaskService.enqueue(metadata.getFileId(), metadata.getFamilyId(), ProcessingTaskType.OCR);
+        }
+        fileEventOutboxService.append(FileEventType.FILE_UPLOADED, metadata, upload.getUploaderUserId());
+
+        log.debug("上传已登记: fileId={}, family={}, object={}/{}, type={}, size={}, traceId={}",
+                upload.getFileId(), upload.getFamilyId(), upload.getBucketName(), upload.getObjectKey(),
+                fileType, upload.getFileSize(), traceId);
+        return metadata;
+    }
+}
@@ -0,0 +1,64 @@
+package com.haven.storage.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字节速率限制器
+ * <p>
+ * 用于后台任务（校验和回填、冷热分层、备份、巡检等）的带宽节流，
+ * 避免后台读写挤占在线请求的存储带宽。
+ * <p>
+ * 实现为简单的令牌桶：按配置速率补充令牌，最多积累1秒的突发量；
+ * 令牌不足时阻塞调用线程直到补足。速率小于等于0表示不限速。
+ *
+ * @author HavenButler
+ */
+public class ByteRateLimiter {
+
+    private final long bytesPerSecond;
+    private double availableBytes;
+    private long lastRefillNanos;
+
+    public ByteRateLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.availableBytes = bytesPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取指定字节数的配额，不足时阻塞等待
+     *
+     * @param bytes 本次要读写的字节数
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+        refill();
+        availableBytes -= bytes;
+        if (availableBytes < 0) {
+            long waitNanos = (long) (-availableBytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            refill();
+        }
+    }
+
+    /**
+     * 是否开启限速
+     */
+    public boolean isLimited() {
+        return bytesPerSecond > 0;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double refilled = (now - lastRefillNanos) * (double) bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+        availableBytes = Math.min(bytesPerSecond, availableBytes + refilled);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,77 @@
+package com.haven.storage.utils;
+
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 文件校验和工具类
+ * <p>
+ * 统一使用 SHA-256（十六进制小写）作为文件校验和算法，
+ * 以流式方式计算，不会把文件整体加载到内存。
+ *
+ * @author HavenButler
+ */
+public class ChecksumUtils {
+
+    /** 校验和算法 */
+    public static final String ALGORITHM = "SHA-256";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ChecksumUtils() {
+    }
+
+    /**
+     * 创建校验和计算器
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM不支持" + ALGORITHM + "算法", e);
+        }
+    }
+
+    /**
+     * 流式计算校验和
+     *
+     * @param source  数据源，读取完毕后由调用方关闭
+     * @param limiter 带宽限制器，为null时不限速
+     * @return 十六进制校验和
+     */
+    public static String checksum(BufferedSource source, ByteRateLimiter limiter) throws IOException, InterruptedException {
+        return checksum(source.inputStream(), limiter);
+    }
+
+    /**
+     * 流式计算校验和
+     *
+     * @param inputStream 输入流，读取完毕后由调用方关闭
+     * @param limiter     带宽限制器，为null时不限速
+     * @return 十六进制校验和
+     */
+    public static String checksum(InputStream inputStream, ByteRateLimiter limiter) throws IOException, InterruptedException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (limiter != null) {
+                limiter.acquire(read);
+            }
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest);
+    }
+
+    /**
+     * 输出计算器当前结果的十六进制表示
+     */
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -2,8 +2,10 @@ package com.haven.storage.utils;
 
 import com.haven.storage.domain.model.enums.SupportedFileType;
 import lombok.extern.slf4j.Slf4j;
+import okio.BufferedSource;
 import org.apache.tika.Tika;
 import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
@@ -20,6 +22,10 @@ import java.io.InputStream;
  * 1. `detectByContent`:   使用 Apache Tika (魔数检测)，最可靠。
  * 2. `detectByMime`:      使用请求头 Content-Type。
  * 3. `detectByExtension`: 使用文件名。
+ * <p>
+ * 文件头预读：
+ * - `peekHeader` 从上传文件读取有界的文件头，`detectByHeader` 基于该缓冲做魔数检测
+ * - 同一份缓冲供媒体元数据提取（EXIF/XMP）复用，上传过程中不会为此再次读取文件
  */
 @Slf4j
 @Component
@@ -65,6 +71,44 @@ public class FileTypeDetector {
         }
     }
 
+    /**
+     * 读取有界的文件头
+     * <p>
+     * MultipartFile 每次 getInputStream 都返回新的流，预读不会消耗后续上传使用的流。
+     *
+     * @param file     上传文件
+     * @param maxBytes 最多读取的字节数
+     * @return 文件头（读取失败时为空的文件头，永远不会返回 null）
+     */
+    public HeaderPeek peekHeader(MultipartFile file, int maxBytes) {
+        if (file == null || file.isEmpty() || maxBytes <= 0) {
+            return HeaderPeek.EMPTY;
+        }
+        int limit = (int) Math.min(maxBytes, file.getSize());
+        try (InputStream in = file.getInputStream()) {
+            byte[] bytes = in.readNBytes(limit);
+            return new HeaderPeek(bytes, bytes.length < file.getSize());
+        } catch (IOException e) {
+            log.warn("读取文件头失败: fileName={}, error={}", file.getOriginalFilename(), e.getMessage());
+            return HeaderPeek.EMPTY;
+        }
+    }
+
+    /**
+     * 1.1 基于预读的文件头进行魔数检测
+     *
+     * @param header 文件头
+     * @return 检测到的文件类型 (永远不会返回 null)
+     */
+    public SupportedFileType detectByHeader(HeaderPeek header) {
+        if (header == null || header.length() == 0) {
+            return SupportedFileType.UNKNOWN;
+        }
+        String realMimeType = tika.detect(header.bytes());
+        log.debug("Tika (文件头) 检测到 MIME: {}", realMimeType);
+        return SupportedFileType.findByMimeType(realMimeType);
+    }
+
     /**
      * 2. 基于请求头 (Content-Type) 进行检测
      *
@@ -99,4 +143,37 @@ public class FileTypeDetector {
         }
         return fileName.substring(lastDotIndex + 1).toLowerCase();
     }
-}
\ No newline at end of file
+
+    /**
+     * 有界文件头
+     *
+     * @param bytes     文件开头的字节
+     * @param truncated 文件是否比预读的内容更长
+     */
+    public record HeaderPeek(byte[] bytes, boolean truncated) {
+
+        public static final HeaderPeek EMPTY = new HeaderPeek(new byte[0], false);
+
+        /**
+         * 从流中预读文件头，不消费原流的内容
+         *
+         * @param source   文件内容流
+         * @param maxBytes 最多预读的字节数
+         */
+        public static HeaderPeek peek(BufferedSource source, int maxBytes) throws IOException {
+            if (source == null || maxBytes <= 0) {
+                return EMPTY;
+            }
+            BufferedSource peek = source.peek();
+            // 多请求一个字节，用于判断文件是否比预读内容更长
+            peek.request(maxBytes + 1L);
+            long buffered = peek.getBuffer().size();
+            byte[] bytes = peek.readByteArray(Math.min(maxBytes, buffered));
+            return new HeaderPeek(bytes, buffered > maxBytes);
+        }
+
+        public int length() {
+            return bytes.length;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.haven.storage.utils;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Options;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 流式 multipart/form-data 解析器
+ * <p>
+ * 直接从请求体的 okio 源上逐个读取分段，分段内容以 {@link Source} 暴露，读取时才从网络拉取，
+ * 不在内存或磁盘上缓存整个请求体：
+ * - 分段必须按顺序读取，调用 {@link #nextPart()} 时未读完的上一个分段会被跳过
+ * - 分段头部大小受限，防止恶意请求用超长头部占用内存
+ * <p>
+ * 💡 线程安全：非线程安全，一个请求体只能由一个线程读取
+ *
+ * @author HavenButler
+ */
+public class MultipartStreamReader implements Closeable {
+
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final int SKIP_CHUNK_BYTES = 8192;
+
+    /** 分隔线之后允许出现的内容：换行（后面是下一个分段）、"--"（结束）或空白 */
+    private static final Options AFTER_BOUNDARY = Options.of(
+            ByteString.encodeUtf8("\r\n"),
+            ByteString.encodeUtf8("--"),
+            ByteString.encodeUtf8(" "),
+            ByteString.encodeUtf8("\t"));
+
+    private final BufferedSource source;
+    private final ByteString dashDashBoundary;
+    private final ByteString crlfDashDashBoundary;
+
+    private int partCount;
+    private boolean noMoreParts;
+    private boolean closed;
+    private PartSource currentPart;
+
+    public MultipartStreamReader(BufferedSource source, String boundary) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("无效的multipart分隔符: " + boundary);
+        }
+        this.source = source;
+        this.dashDashBoundary = ByteString.encodeUtf8("--" + boundary);
+        this.crlfDashDashBoundary = ByteString.encodeUtf8("\r\n--" + boundary);
+    }
+
+    /**
+     * 读取下一个分段
+     *
+     * @return 下一个分段，已读到结束分隔线时返回null
+     * @throws ProtocolException 请求体不是合法的multipart格式
+     * @throws EOFException      请求体在结束分隔线之前截断
+     */
+    public Part nextPart() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("解析器已关闭");
+        }
+        if (noMoreParts) {
+            return null;
+        }
+
+        // 1. 跳到下一个分隔线：第一个分段前是 "--boundary"，之后是 "\r\n--boundary"
+        if (partCount == 0 && source.rangeEquals(0, dashDashBoundary)) {
+            source.skip(dashDashBoundary.size());
+        } else {
+            long toSkip;
+            while ((toSkip = bytesBeforeBoundary(SKIP_CHUNK_BYTES)) > 0) {
+                source.skip(toSkip);
+            }
+            source.skip(crlfDashDashBoundary.size());
+        }
+
+        // 2. 分隔线之后：换行开始下一个分段，"--" 表示结束
+        boolean whitespace = false;
+        while (true) {
+            int selected = source.select(AFTER_BOUNDARY);
+            if (selected == 0) {
+                break;
+            }
+            if (selected == 1) {
+                if (whitespace) {
+                    throw new ProtocolException("multipart结束分隔线前不允许空白");
+                }
+                if (partCount == 0) {
+                    throw new ProtocolException("multipart请求体至少需要一个分段");
+                }
+                noMoreParts = true;
+                return null;
+            }
+            if (selected == -1) {
+                throw new ProtocolException("multipart分隔线后存在非法字符");
+            }
+            whitespace = true;
+        }
+
+        // 3. 分段头部，以空行结束
+        Map<String, String> headers = readHeaders();
+        partCount++;
+        PartSource partSource = new PartSource();
+        currentPart = partSource;
+        return new Part(headers, Okio.buffer(partSource));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        currentPart = null;
+        source.close();
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        long headerBytes = 0;
+        while (true) {
+            String line = source.readUtf8LineStrict(MAX_HEADER_BYTES);
+            if (line.isEmpty()) {
+                return headers;
+            }
+            headerBytes += line.length() + 2;
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new ProtocolException("multipart分段头部过大");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ProtocolException("multipart分段头部格式错误: " + line);
+            }
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+    }
+
+    /**
+     * 当前分段在下一个分隔线之前还可以安全读取的字节数
+     * <p>
+     * 缓冲区中找不到分隔线时，保留可能是分隔线前缀的尾部字节，其余均属于当前分段。
+     *
+     * @return 可读字节数，0表示已到达分隔线
+     */
+    private long bytesBeforeBoundary(long maxResult) throws IOException {
+        source.require(crlfDashDashBoundary.size());
+        long delimiterIndex = source.getBuffer().indexOf(crlfDashDashBoundary);
+        if (delimiterIndex == -1) {
+            return Math.min(maxResult, source.getBuffer().size() - crlfDashDashBoundary.size() + 1);
+        }
+        return Math.min(maxResult, delimiterIndex);
+    }
+
+    /**
+     * 单个分段的内容源，读到分隔线即结束；被下一个分段取代后不可再读
+     */
+    private final class PartSource implements Source {
+
+        private final Timeout timeout = new Timeout();
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (byteCount < 0) {
+                throw new IllegalArgumentException("byteCount < 0: " + byteCount);
+            }
+            if (currentPart != this) {
+                throw new IllegalStateException("分段已关闭");
+            }
+            long limit = bytesBeforeBoundary(byteCount);
+            if (limit == 0) {
+                return -1;
+            }
+            return source.read(sink, limit);
+        }
+
+        @Override
+        public Timeout timeout() {
+            return timeout;
+        }
+
+        @Override
+        public void close() {
+            if (currentPart == this) {
+                currentPart = null;
+            }
+        }
+    }
+
+    /**
+     * 分段：头部（名称小写）和内容
+     */
+    public record Part(Map<String, String> headers, BufferedSource body) {
+
+        /**
+         * Content-Disposition 中的表单字段名
+         */
+        public String name() {
+            return dispositionParameter("name");
+        }
+
+        /**
+         * Content-Disposition 中的文件名，普通表单字段返回null
+         */
+        public String fileName() {
+            return dispositionParameter("filename");
+        }
+
+        public String contentType() {
+            return headers.get("content-type");
+        }
+
+        private String dispositionParameter(String parameter) {
+            String disposition = headers.get("content-disposition");
+            if (disposition == null) {
+                return null;
+            }
+            // 按分号切分参数，引号内的分号属于文件名
+            int start = 0;
+            boolean quoted = false;
+            for (int i = 0; i <= disposition.length(); i++) {
+                if (i == disposition.length() || (disposition.charAt(i) == ';' && !quoted)) {
+                    String value = parameterValue(disposition.substring(start, i).trim(), parameter);
+                    if (value != null) {
+                        return value;
+                    }
+                    start = i + 1;
+                } else if (disposition.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+            }
+            return null;
+        }
+
+        private static String parameterValue(String token, String parameter) {
+            int equals = token.indexOf('=');
+            if (equals <= 0 || !token.substring(0, equals).trim().equalsIgnoreCase(parameter)) {
+                return null;
+            }
+            String value = token.substring(equals + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+    }
+}
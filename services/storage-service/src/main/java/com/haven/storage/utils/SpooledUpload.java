@@ -0,0 +1,161 @@
+package com.haven.storage.utils;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.HashingSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 分级暂存的上传内容
+ * <p>
+ * 从流式分段中一次性读取上传内容，同时计算 SHA-256：
+ * - 不超过内存阈值的内容保存在内存缓冲区
+ * - 超过阈值后把已读内容和剩余内容写入一个临时文件，内容只落盘一次
+ * <p>
+ * 暂存完成后大小已知，可多次打开读取（类型检测读取文件头，存储适配器读取全部内容）。
+ * 使用完毕必须关闭以删除临时文件。
+ *
+ * @author HavenButler
+ */
+public final class SpooledUpload implements Closeable {
+
+    private static final long CHUNK_BYTES = 8192;
+
+    private final Buffer memory;
+    private final Path spoolFile;
+    private final long size;
+    private final String sha256;
+
+    private SpooledUpload(Buffer memory, Path spoolFile, long size, String sha256) {
+        this.memory = memory;
+        this.spoolFile = spoolFile;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * 读取并暂存上传内容
+     *
+     * @param content         上传内容
+     * @param memoryThreshold 内存暂存上限，超过后转入临时文件
+     * @param maxBytes        允许的最大内容长度
+     * @param spoolDirectory  临时文件目录
+     * @return 暂存的上传内容
+     * @throws ContentTooLargeException 内容超过 maxBytes（已写入的临时文件会被删除）
+     */
+    public static SpooledUpload spool(Source content, long memoryThreshold, long maxBytes,
+                                      Path spoolDirectory) throws IOException {
+        HashingSource hashing = HashingSource.sha256(content);
+        Buffer memory = new Buffer();
+        long total = 0;
+
+        // 1. 先读入内存，内容在阈值内结束时不产生任何磁盘IO
+        long read;
+        while ((read = hashing.read(memory, CHUNK_BYTES)) != -1) {
+            total += read;
+            checkSize(total, maxBytes);
+            if (total > memoryThreshold) {
+                break;
+            }
+        }
+        if (read == -1) {
+            return new SpooledUpload(memory, null, total, hashing.hash().hex());
+        }
+
+        // 2. 超过阈值：已读部分和剩余内容一起写入临时文件
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".spool");
+        try (BufferedSink sink = Okio.buffer(Okio.sink(spoolFile))) {
+            sink.writeAll(memory);
+            Buffer chunk = new Buffer();
+            while ((read = hashing.read(chunk, CHUNK_BYTES)) != -1) {
+                total += read;
+                checkSize(total, maxBytes);
+                sink.write(chunk, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spoolFile);
+            throw e;
+        }
+        return new SpooledUpload(null, spoolFile, total, hashing.hash().hex());
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 内容的 SHA-256（十六进制小写）
+     */
+    public String sha256() {
+        return sha256;
+    }
+
+    public boolean isInMemory() {
+        return spoolFile == null;
+    }
+
+    /**
+     * 打开一个新的读取源，每次都从头读取
+     */
+    public BufferedSource open() throws IOException {
+        if (memory != null) {
+            return memory.clone();
+        }
+        return Okio.buffer(Okio.source(spoolFile));
+    }
+
+    /**
+     * 读取文件头
+     *
+     * @param maxBytes 最多读取的字节数
+     */
+    public FileTypeDetector.HeaderPeek header(int maxBytes) throws IOException {
+        int limit = (int) Math.min(maxBytes, size);
+        if (limit <= 0) {
+            return FileTypeDetector.HeaderPeek.EMPTY;
+        }
+        try (BufferedSource source = open()) {
+            return new FileTypeDetector.HeaderPeek(source.readByteArray(limit), limit < size);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (memory != null) {
+            memory.clear();
+        }
+        if (spoolFile != null) {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+
+    private static void checkSize(long total, long maxBytes) {
+        if (total > maxBytes) {
+            throw new ContentTooLargeException(maxBytes);
+        }
+    }
+
+    /**
+     * 上传内容超过允许的最大长度
+     */
+    public static class ContentTooLargeException extends RuntimeException {
+
+        private final long maxBytes;
+
+        public ContentTooLargeException(long maxBytes) {
+            super("上传内容超过限制: " + maxBytes + "字节");
+            this.maxBytes = maxBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+    }
+}
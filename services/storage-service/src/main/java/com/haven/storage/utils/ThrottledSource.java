@@ -0,0 +1,40 @@
+package com.haven.storage.utils;
+
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * 限速读取的 okio Source
+ * <p>
+ * 每次读取后按实际读到的字节数向 {@link ByteRateLimiter} 申请配额，
+ * 用于在后台迁移、备份等流式拷贝中约束读取带宽。
+ *
+ * @author HavenButler
+ */
+public class ThrottledSource extends ForwardingSource {
+
+    private final ByteRateLimiter limiter;
+
+    public ThrottledSource(Source delegate, ByteRateLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+        long read = super.read(sink, byteCount);
+        if (read > 0) {
+            try {
+                limiter.acquire(read);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("限速读取被中断");
+            }
+        }
+        return read;
+    }
+}
@@ -2,7 +2,7 @@ package com.haven.storage.validator;
 
 import com.haven.storage.domain.model.file.FileBasicMetadata;
 import com.haven.storage.domain.model.file.FileProcessingResult;
-import okio.BufferedSource;
+import com.haven.storage.utils.FileTypeDetector;
 
 import java.util.Set;
 
@@ -11,12 +11,13 @@ import java.util.Set;
  */
 class DocumentValidationStrategy implements FileProcessingStrategy {
     @Override
-    public FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, BufferedSource bufferedSource) {
+    public FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, FileTypeDetector.HeaderPeek header) {
         Set<String> docTypes = Set.of("pdf", "doc", "docx", "xls", "xlsx");
-        if (!docTypes.contains(request.getContentType().toLowerCase())) {
+        String format = fileBasicMetadata.getFileFormat();
+        if (format == null || !docTypes.contains(format.toLowerCase())) {
             return FileProcessingResult.fail("文档格式必须是: pdf, doc, docx, xls, xlsx");
         }
-        if (request.getFileSize() > 10 * 1024 * 1024) {
+        if (fileBasicMetadata.getFileSize() != null && fileBasicMetadata.getFileSize() > 10 * 1024 * 1024) {
             return FileProcessingResult.fail("文档大小不能超过10MB");
         }
         return FileProcessingResult.success();
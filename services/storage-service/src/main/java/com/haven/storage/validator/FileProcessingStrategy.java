@@ -2,7 +2,7 @@ package com.haven.storage.validator;
 
 import com.haven.storage.domain.model.file.FileBasicMetadata;
 import com.haven.storage.domain.model.file.FileProcessingResult;
-import okio.BufferedSource;
+import com.haven.storage.utils.FileTypeDetector;
 
 /**
  * 责任链的积累
@@ -16,8 +16,8 @@ interface FileProcessingStrategy {
     /**
      *
      * @param fileBasicMetadata   文件的描述
-     * @param bufferedSource   文件的数据 输入流
+     * @param header   上传链路已预读的有界文件头（未读取时为 {@link FileTypeDetector.HeaderPeek#EMPTY}）
      * @return
      */
-    FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, BufferedSource  bufferedSource);
+    FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, FileTypeDetector.HeaderPeek header);
 }
@@ -2,23 +2,55 @@ package com.haven.storage.validator;
 
 import com.haven.storage.domain.model.file.FileBasicMetadata;
 import com.haven.storage.domain.model.file.FileProcessingResult;
-import okio.BufferedSource;
+import com.haven.storage.domain.model.file.MediaProbeResult;
+import com.haven.storage.media.ContainerProbe;
+import com.haven.storage.utils.FileTypeDetector;
 
-import java.util.Set;
+import java.util.Map;
 
 /**
  * 图片文件校验策略
+ * <p>
+ * 从上传链路预读的文件头探测真实格式与尺寸（JPEG SOF、PNG IHDR、GIF 屏幕描述），不解码图像：
+ * - jpg/jpeg/png/gif 的内容格式必须与扩展名一致，其他图片格式（如 WebP、HEIC）不做格式比对
+ * - 宽高和总像素数不能超过上限，防止解压炸弹
+ * - 尺寸段不在预读范围内时（如超大的 APP 段）只做格式校验
  */
 class ImageValidationStrategy implements FileProcessingStrategy {
+
+    private static final Map<String, String> FORMAT_BY_EXTENSION = Map.of(
+            "jpg", "JPEG", "jpeg", "JPEG", "png", "PNG", "gif", "GIF");
+
+    private final int maxDimension;
+    private final long maxPixels;
+
+    ImageValidationStrategy(int maxDimension, long maxPixels) {
+        this.maxDimension = maxDimension;
+        this.maxPixels = maxPixels;
+    }
+
     @Override
-    public FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, BufferedSource bufferedSource) {
-        // 图片特定校验:格式、尺寸、分辨率等
-        Set<String> imageTypes = Set.of("jpg", "jpeg", "png", "gif");
-        if (!imageTypes.contains(request.getContentType().toLowerCase())) {
-            return FileProcessingResult.fail("图片格式必须是: jpg, jpeg, png, gif");
+    public FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, FileTypeDetector.HeaderPeek header) {
+        if (header == null || header.length() == 0) {
+            return FileProcessingResult.success();
+        }
+
+        String extension = fileBasicMetadata.getFileFormat() == null ? "" : fileBasicMetadata.getFileFormat().toLowerCase();
+        String expectedFormat = FORMAT_BY_EXTENSION.get(extension);
+        MediaProbeResult probe = ContainerProbe.probe(header);
+        if (expectedFormat != null && !expectedFormat.equals(probe.getFormat())) {
+            return FileProcessingResult.fail("图片内容与扩展名不一致: 扩展名=" + extension
+                    + ", 实际=" + (probe.isRecognized() ? probe.getFormat() : "未知"));
         }
-        if (request.getFileSize() > 5 * 1024 * 1024) {
-            return FileProcessingResult.fail("图片大小不能超过5MB");
+        if (probe.hasDimensions()) {
+            int width = probe.getWidth();
+            int height = probe.getHeight();
+            if (width > maxDimension || height > maxDimension) {
+                return FileProcessingResult.fail("图片尺寸超过限制: " + width + "x" + height + ", 单边上限" + maxDimension);
+            }
+            if ((long) width * height > maxPixels) {
+                return FileProcessingResult.fail("图片像素数超过限制: " + width + "x" + height + ", 上限" + maxPixels);
+            }
         }
         return FileProcessingResult.success();
     }
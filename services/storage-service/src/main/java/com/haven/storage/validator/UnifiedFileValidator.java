@@ -7,17 +7,25 @@ import com.haven.base.common.exception.ValidationException;
 import com.haven.base.common.response.ErrorCode;
 import com.haven.base.utils.TraceIdUtil;
 import com.haven.storage.domain.model.entity.FileMetadata;
-import com.haven.storage.domain.model.file.FileVisibility;
+import com.haven.storage.domain.model.enums.FileCategory;
+import com.haven.storage.domain.model.enums.FileVisibility;
+import com.haven.storage.domain.model.file.DirectUploadInitRequest;
+import com.haven.storage.domain.model.file.FileBasicMetadata;
+import com.haven.storage.domain.model.file.FileProcessingResult;
 import com.haven.storage.domain.model.file.FileUploadRequest;
+import com.haven.storage.permission.FamilyMembershipService;
 import com.haven.storage.security.UserInfo;
 import com.haven.storage.security.UserContext;
 import com.haven.storage.utils.FileTypeDetector;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
+
 /**
  * 统一文件验证器
  * <p>
@@ -29,6 +37,7 @@ import org.springframework.web.multipart.MultipartFile;
  * - 统一的文件验证入口，消除重复代码
  * - 支持异常式和结果式两种验证模式
  * - 集成FileTypeDetector进行文件类型检测
+ * - 按文件头校验图片尺寸、视频时长和分辨率（多段、流式、直传上传共用）
  * - 完整的用户认证和权限校验
  * - 支持多种存储适配器的验证需求
  *
@@ -42,9 +51,33 @@ public class UnifiedFileValidator {
 
     private final FileTypeDetector fileTypeDetector;
 
+    private final FamilyMembershipService familyMembershipService;
+
     // 文件大小限制（100MB）
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024L;
 
+    /** 媒体内容校验与类型检测、元数据提取共用同一份文件头，预读大小即探测窗口 */
+    @Value("${storage.file.media-metadata.header-peek-bytes:262144}")
+    private int headerPeekBytes;
+
+    @Value("${storage.file.media-validation.enabled:true}")
+    private boolean mediaValidationEnabled;
+
+    @Value("${storage.file.media-validation.image.max-dimension:20000}")
+    private int maxImageDimension;
+
+    @Value("${storage.file.media-validation.image.max-pixels:100000000}")
+    private long maxImagePixels;
+
+    @Value("${storage.file.media-validation.video.max-duration:PT4H}")
+    private Duration maxVideoDuration;
+
+    @Value("${storage.file.media-validation.video.max-width:7680}")
+    private int maxVideoWidth;
+
+    @Value("${storage.file.media-validation.video.max-height:4320}")
+    private int maxVideoHeight;
+
     /**
      * 统一验证用户身份和权限
      * 整合用户认证、身份一致性验证、家庭ID验证，提高验证效率和代码可维护性
@@ -151,6 +184,87 @@ public class UnifiedFileValidator {
     }
 
 
+    /**
+     * 验证直传上传申请
+     * <p>
+     * 文件内容不经过服务端，只能校验客户端声明的文件名、大小和类型；
+     * 实际大小和内容在确认时由对象存储返回的对象状态核对。
+     *
+     * @param request     直传申请
+     * @param maxFileSize 直传允许的最大文件大小
+     * @throws AuthException       当权限验证失败时抛出
+     * @throws ValidationException 当参数验证失败时抛出
+     */
+    public void validateDirectUploadRequest(DirectUploadInitRequest request, long maxFileSize) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+
+        try {
+            UserInfo userInfo = validateUserIdentityAndPermissions(
+                    request.getUploaderUserId(), request.getFamilyId(), traceId);
+            validateFileVisibility(request.getVisibility(), userInfo.userId(), traceId);
+            validateFolderPath(request.getFolderPath(), traceId);
+
+            if (request.getFileSize() <= 0) {
+                throw new ValidationException("文件不能为空", "30001");
+            }
+            if (request.getFileSize() > maxFileSize) {
+                log.warn("直传文件大小超过限制: size={}, maxSize={}, traceId={}",
+                        request.getFileSize(), maxFileSize, traceId);
+                throw new ValidationException("文件大小超过限制：" + (maxFileSize / 1024 / 1024) + "MB", "30002");
+            }
+            validateFileName(request.getFileName(), traceId);
+            validateFileType(request.getFileName(), request.getContentType(), traceId);
+
+            log.info("直传上传申请验证通过: family={}, userId={}, file={}, size={}, traceId={}",
+                    request.getFamilyId(), userInfo.userId(), request.getFileName(), request.getFileSize(), traceId);
+
+        } catch (ValidationException | AuthException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("直传上传申请验证失败: traceId={}, error={}", traceId, e.getMessage(), e);
+            throw new SystemException(ErrorCode.NETWORK_ERROR, e);
+        }
+    }
+
+
+    /**
+     * 验证流式上传请求
+     * <p>
+     * 流式上传在读取文件内容之前校验表单字段和文件分段头部，文件大小在读取过程中按上限截断。
+     *
+     * @param request     由文件之前的表单字段组成的上传请求（不含文件）
+     * @param fileName    文件分段的文件名
+     * @param contentType 文件分段的内容类型
+     * @throws AuthException       当权限验证失败时抛出
+     * @throws ValidationException 当参数验证失败时抛出
+     */
+    public void validateStreamingUploadRequest(FileUploadRequest request, String fileName, String contentType) {
+        String traceId = TraceIdUtil.getCurrentOrGenerate();
+
+        try {
+            // 流式请求不经过参数绑定校验，家庭ID会用于桶名和对象路径，需在此校验格式
+            if (request.getFamilyId() == null || !request.getFamilyId().matches("^[a-zA-Z0-9_-]{3,50}$")) {
+                throw new ValidationException("家庭ID格式不正确", "30003");
+            }
+            UserInfo userInfo = validateUserIdentityAndPermissions(
+                    request.getUploaderUserId(), request.getFamilyId(), traceId);
+            validateFileVisibility(request.getVisibility(), userInfo.userId(), traceId);
+            validateFolderPath(request.getFolderPath(), traceId);
+            validateFileName(fileName, traceId);
+            validateFileType(fileName, contentType, traceId);
+
+            log.info("流式上传请求验证通过: family={}, userId={}, file={}, traceId={}",
+                    request.getFamilyId(), userInfo.userId(), fileName, traceId);
+
+        } catch (ValidationException | AuthException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("流式上传请求验证失败: traceId={}, error={}", traceId, e.getMessage(), e);
+            throw new SystemException(ErrorCode.NETWORK_ERROR, e);
+        }
+    }
+
+
     /**
      * 验证上传的文件
      *
@@ -163,10 +277,52 @@ public class UnifiedFileValidator {
         validateFileSize(file.getSize(), traceId);
         validateFileName(file.getOriginalFilename(), traceId);
         validateFileType(file.getOriginalFilename(), file.getContentType(), traceId);
+        if (mediaValidationEnabled) {
+            validateMediaContent(file.getOriginalFilename(), file.getSize(),
+                    fileTypeDetector.peekHeader(file, headerPeekBytes), traceId);
+        }
         log.debug("文件验证通过: fileName={}, size={}, contentType={}, traceId={}",
                 file.getOriginalFilename(), file.getSize(), file.getContentType(), traceId);
     }
 
+    /**
+     * 按文件头校验媒体内容
+     * <p>
+     * 图片检查内容格式与扩展名一致、尺寸和像素数上限；视频检查时长和分辨率上限。
+     * 只探测上传链路已预读的文件头，不解码内容，其他类型直接通过。
+     *
+     * @param fileName 原始文件名，用于按扩展名选择校验策略
+     * @param fileSize 文件大小
+     * @param header   已预读的文件头
+     * @param traceId  链路追踪ID
+     * @throws ValidationException 当媒体内容超出限制或与扩展名不一致时抛出
+     */
+    public void validateMediaContent(String fileName, long fileSize, FileTypeDetector.HeaderPeek header, String traceId) {
+        if (!mediaValidationEnabled || header == null || header.length() == 0) {
+            return;
+        }
+        FileCategory category = fileTypeDetector.detectByExtension(fileName).getCategory();
+        ValidationContext context = new ValidationContext();
+        if (category == FileCategory.IMAGE) {
+            context.setStrategy(new ImageValidationStrategy(maxImageDimension, maxImagePixels));
+        } else if (category == FileCategory.VIDEO) {
+            context.setStrategy(new VideoValidationStrategy(maxVideoDuration, maxVideoWidth, maxVideoHeight));
+        } else {
+            return;
+        }
+
+        FileBasicMetadata basicMetadata = new FileBasicMetadata();
+        basicMetadata.setFileName(fileName);
+        basicMetadata.setFileFormat(getFileExtension(fileName));
+        basicMetadata.setFileSize(fileSize);
+        FileProcessingResult result = context.execute(basicMetadata, header);
+        if (!result.valid()) {
+            log.warn("媒体内容校验未通过: fileName={}, category={}, reason={}, traceId={}",
+                    fileName, category, result.message(), traceId);
+            throw new ValidationException(result.message(), "30014");
+        }
+    }
+
     /**
      * 验证文件基础信息
      */
@@ -486,6 +642,14 @@ public class UnifiedFileValidator {
                 }
             }
 
+            // 当前上下文家庭不一致时，通过缓存的成员关系判定家庭文件的访问权限
+            if (FileVisibility.FAMILY.equals(metadata.getFileVisibility())
+                    && familyMembershipService.isFamilyMember(currentUserId, metadata.getFamilyId())) {
+                log.debug("家庭成员关系验证通过: fileId={}, userId={}, familyId={}, traceId={}",
+                        metadata.getFileId(), currentUserId, metadata.getFamilyId(), traceId);
+                return true;
+            }
+
             // 4. 公开文件权限：如果文件设置为公开，则任何人都可以访问
             if (FileVisibility.PUBLIC.equals(metadata.getFileVisibility())) {
                 log.debug("公开文件权限验证通过: fileId={}, visibility={}, traceId={}",
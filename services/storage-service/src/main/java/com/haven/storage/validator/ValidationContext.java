@@ -2,7 +2,7 @@ package com.haven.storage.validator;
 
 import com.haven.storage.domain.model.file.FileBasicMetadata;
 import com.haven.storage.domain.model.file.FileProcessingResult;
-import okio.BufferedSource;
+import com.haven.storage.utils.FileTypeDetector;
 
 /**
  * 策略上下文
@@ -14,7 +14,7 @@ public class ValidationContext {
         this.strategy = strategy;
     }
 
-    public FileProcessingResult execute(FileBasicMetadata fileBasicMetadata, BufferedSource bufferedSource) {
-        return strategy.validate(fileBasicMetadata, bufferedSource);
+    public FileProcessingResult execute(FileBasicMetadata fileBasicMetadata, FileTypeDetector.HeaderPeek header) {
+        return strategy.validate(fileBasicMetadata, header);
     }
 }
@@ -2,15 +2,57 @@ package com.haven.storage.validator;
 
 import com.haven.storage.domain.model.file.FileBasicMetadata;
 import com.haven.storage.domain.model.file.FileProcessingResult;
-import okio.BufferedSource;
+import com.haven.storage.domain.model.file.MediaProbeResult;
+import com.haven.storage.media.ContainerProbe;
+import com.haven.storage.utils.FileTypeDetector;
+
+import java.time.Duration;
 
 /**
  * 视频文件的类型的校验
+ * <p>
+ * MP4/MOV 从上传链路预读的文件头中的 moov 盒子读取时长、分辨率和编码，不解码视频帧：
+ * - 时长和宽高不能超过上限
+ * - moov 位于 mdat 之后（未做 faststart）超出预读范围时无法判断，直接放行
+ * - 其他容器（MKV、AVI 等）暂不探测
  */
 
 public class VideoValidationStrategy implements FileProcessingStrategy {
+
+    private final Duration maxDuration;
+    private final int maxWidth;
+    private final int maxHeight;
+
+    public VideoValidationStrategy(Duration maxDuration, int maxWidth, int maxHeight) {
+        this.maxDuration = maxDuration;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
     @Override
-    public FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, BufferedSource bufferedSource) {
+    public FileProcessingResult validate(FileBasicMetadata fileBasicMetadata, FileTypeDetector.HeaderPeek header) {
+        if (header == null || header.length() == 0) {
+            return FileProcessingResult.success();
+        }
+
+        MediaProbeResult probe = ContainerProbe.probe(header);
+        if (!probe.isRecognized() || probe.isHeaderBeyondPeek()) {
+            return FileProcessingResult.success();
+        }
+
+        if (probe.getDurationMillis() != null && probe.getDurationMillis() > maxDuration.toMillis()) {
+            return FileProcessingResult.fail("视频时长超过限制: " + probe.getDurationMillis() / 1000
+                    + "秒, 上限" + maxDuration.toSeconds() + "秒");
+        }
+        // 横屏和竖屏视频都按长边、短边比较
+        if (probe.hasDimensions()) {
+            int longSide = Math.max(probe.getWidth(), probe.getHeight());
+            int shortSide = Math.min(probe.getWidth(), probe.getHeight());
+            if (longSide > Math.max(maxWidth, maxHeight) || shortSide > Math.min(maxWidth, maxHeight)) {
+                return FileProcessingResult.fail("视频分辨率超过限制: " + probe.getWidth() + "x" + probe.getHeight()
+                        + ", 上限" + maxWidth + "x" + maxHeight);
+            }
+        }
         return FileProcessingResult.success();
     }
 }